@@ -0,0 +1,26 @@
+package com.carapax.berlinclock.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Clock;
+import java.time.ZoneId;
+
+/**
+ * The clock "now" is read from. Its zone, {@code berlinclock.zone.default} (Europe/Berlin unless
+ * set), is the zone the current time is shown in when a request names none; the JVM default zone
+ * is not used. Tests can declare their own Clock bean, e.g. a fixed one, in place of the system clock.
+ *
+ * @author Jose Benitez
+ */
+@Configuration
+public class ClockConfig {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public Clock clock(@Value("${berlinclock.zone.default:Europe/Berlin}") String zone) {
+        return Clock.system(ZoneId.of(zone));
+    }
+}
@@ -0,0 +1,80 @@
+package com.carapax.berlinclock.config;
+
+import com.carapax.berlinclock.web.ResponseWriteRecorder;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+
+/**
+ * JDK Flight Recorder support: the Berlin Clock events are disabled by default and switched on by
+ * the settings in {@code jfr/berlinclock.jfc}. Set {@code berlinclock.jfr.enabled=true} to start a
+ * recording with those settings at startup; it is written to {@code berlinclock.jfr.file} on shutdown.
+ * The same settings can be used from the command line after extracting them from the jar, e.g.
+ * {@code -XX:StartFlightRecording:settings=berlinclock.jfc,filename=berlinclock.jfr}.
+ *
+ * @author Jose Benitez
+ */
+@org.springframework.context.annotation.Configuration
+public class FlightRecorderConfig implements WebMvcConfigurer {
+
+    /**
+     * Classpath location of the settings profile.
+     */
+    public static final String SETTINGS = "jfr/berlinclock.jfc";
+
+    private final ResponseWriteRecorder responseWriteRecorder;
+
+    public FlightRecorderConfig(ResponseWriteRecorder responseWriteRecorder) {
+        this.responseWriteRecorder = responseWriteRecorder;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(responseWriteRecorder);
+    }
+
+    /**
+     * Recording started with the application when {@code berlinclock.jfr.enabled=true}.
+     * Nothing injects it, so it is kept eager under {@code spring.main.lazy-initialization}.
+     */
+    @Bean(destroyMethod = "stop")
+    @Lazy(false)
+    @ConditionalOnProperty(name = "berlinclock.jfr.enabled", havingValue = "true")
+    public Recording berlinClockRecording(@Value("${berlinclock.jfr.file:berlinclock.jfr}") Path file,
+                                          @Value("${berlinclock.jfr.max-age:1h}") Duration maxAge)
+            throws IOException, ParseException {
+        Recording recording = new Recording(settings());
+        recording.setName("berlinclock");
+        recording.setToDisk(true);
+        recording.setMaxAge(maxAge);
+        recording.setDestination(file);
+        recording.start();
+        return recording;
+    }
+
+    /**
+     * Loads the settings profile shipped with the application.
+     *
+     * @return the parsed JFR configuration
+     */
+    public static Configuration settings() throws IOException, ParseException {
+        try (Reader reader = new InputStreamReader(new ClassPathResource(SETTINGS).getInputStream(),
+                StandardCharsets.UTF_8)) {
+            return Configuration.create(reader);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.carapax.berlinclock.config;
+
+import com.carapax.berlinclock.grpc.BerlinClockGrpcService;
+import com.carapax.berlinclock.reactive.BerlinClockTickStream;
+import com.carapax.berlinclock.service.BerlinClockService;
+import com.carapax.berlinclock.web.AdmissionFilter;
+import com.carapax.berlinclock.web.BerlinClockJson;
+import com.carapax.berlinclock.web.BerlinClockSseBroadcaster;
+import com.carapax.berlinclock.web.BerlinClockSvg;
+import com.carapax.berlinclock.web.BerlinClockWebSocketHandler;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Gauges and function counters that are sampled at scrape time, so they cost nothing on the
+ * request path: connected stream subscribers, the JSON serialization cache and the SVG render cache.
+ *
+ * @author Jose Benitez
+ */
+@Configuration
+public class MetricsConfig {
+
+    /**
+     * Subscriber gauges for whichever push channels the web stack provides: the SSE broadcaster and
+     * WebSocket handler on the servlet stack, the tick stream on the reactive one, and the gRPC Tick
+     * streams on either when gRPC is enabled.
+     */
+    @Bean
+    public MeterBinder berlinClockStreamMetrics(ObjectProvider<BerlinClockSseBroadcaster> sseBroadcaster,
+                                                ObjectProvider<BerlinClockWebSocketHandler> webSocketHandler,
+                                                ObjectProvider<BerlinClockTickStream> tickStream,
+                                                ObjectProvider<BerlinClockGrpcService> grpcService) {
+        return registry -> {
+            sseBroadcaster.ifAvailable(broadcaster ->
+                    Gauge.builder("berlinclock.stream.subscribers", broadcaster, BerlinClockSseBroadcaster::getSubscriberCount)
+                            .description("Clients connected to a push channel")
+                            .tag("transport", "sse")
+                            .register(registry));
+            tickStream.ifAvailable(stream ->
+                    Gauge.builder("berlinclock.stream.subscribers", stream, BerlinClockTickStream::getSubscriberCount)
+                            .description("Clients connected to a push channel")
+                            .tag("transport", "sse")
+                            .register(registry));
+            webSocketHandler.ifAvailable(handler ->
+                    Gauge.builder("berlinclock.stream.subscribers", handler, BerlinClockWebSocketHandler::getSubscriberCount)
+                            .description("Clients connected to a push channel")
+                            .tag("transport", "websocket")
+                            .register(registry));
+            grpcService.ifAvailable(service ->
+                    Gauge.builder("berlinclock.stream.subscribers", service, BerlinClockGrpcService::getSubscriberCount)
+                            .description("Clients connected to a push channel")
+                            .tag("transport", "grpc")
+                            .register(registry));
+        };
+    }
+
+    @Bean
+    public MeterBinder berlinClockJsonCacheMetrics() {
+        return registry -> {
+            FunctionCounter.builder("berlinclock.json.cache.requests", BerlinClockJson.class, type -> BerlinClockJson.cacheHits())
+                    .description("JSON bodies requested from the serialization cache")
+                    .tag("result", "hit")
+                    .register(registry);
+            FunctionCounter.builder("berlinclock.json.cache.requests", BerlinClockJson.class, type -> BerlinClockJson.cacheMisses())
+                    .description("JSON bodies requested from the serialization cache")
+                    .tag("result", "miss")
+                    .register(registry);
+            Gauge.builder("berlinclock.json.cache.hit.ratio", BerlinClockJson.class, type -> hitRatio())
+                    .description("Share of JSON bodies served from the serialization cache since startup")
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder berlinClockCurrentTimeMetrics(BerlinClockService berlinClockService) {
+        return registry -> {
+            FunctionCounter.builder("berlinclock.current.time.fallbacks", berlinClockService,
+                            BerlinClockService::getCurrentTimeFallbackCount)
+                    .description("Reads of the current time that found no tick published for the current second")
+                    .register(registry);
+            Gauge.builder("berlinclock.zones.active", berlinClockService, BerlinClockService::getActiveZoneCount)
+                    .description("Time zones besides the default one that are published on every tick")
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder berlinClockAdmissionMetrics(ObjectProvider<AdmissionFilter> admissionFilter) {
+        return registry -> admissionFilter.ifAvailable(filter ->
+                Gauge.builder("berlinclock.admission.clients", filter, AdmissionFilter::getClientCount)
+                        .description("Clients with their own admission token buckets")
+                        .register(registry));
+    }
+
+    @Bean
+    public MeterBinder berlinClockRenderMetrics(ObjectProvider<BerlinClockSvg> svg) {
+        return registry -> svg.ifAvailable(renderer ->
+                Gauge.builder("berlinclock.render.cache.size", renderer, BerlinClockSvg::getCachedCount)
+                        .description("SVG images of lamp states rendered and kept in the render cache")
+                        .register(registry));
+    }
+
+    private static double hitRatio() {
+        long hits = BerlinClockJson.cacheHits();
+        long total = hits + BerlinClockJson.cacheMisses();
+        return total == 0 ? Double.NaN : (double) hits / total;
+    }
+}
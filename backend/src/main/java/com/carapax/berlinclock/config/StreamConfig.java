@@ -0,0 +1,38 @@
+package com.carapax.berlinclock.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared infrastructure for the push channels (Server-Sent Events and WebSocket).
+ *
+ * @author Jose Benitez
+ */
+@Configuration
+public class StreamConfig {
+
+    /**
+     * Threads that write queued ticks to connected clients, shared by all push channels.
+     * With {@code spring.threads.virtual.enabled=true} every delivery runs on its own virtual thread
+     * and {@code berlinclock.stream.sender-threads} is ignored; a client blocked on a slow socket
+     * then parks a virtual thread instead of holding one of a few pooled ones.
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService streamSenderExecutor(@Value("${berlinclock.stream.sender-threads:4}") int threads,
+                                                @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        if (virtualThreads) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("berlin-clock-sender-", 1).factory());
+        }
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "berlin-clock-sender-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
@@ -0,0 +1,31 @@
+package com.carapax.berlinclock.config;
+
+import com.carapax.berlinclock.web.BerlinClockWebSocketHandler;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+/**
+ * Registers the Berlin Clock WebSocket endpoint.
+ *
+ * @author Jose Benitez
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@EnableWebSocket
+public class WebSocketConfig implements WebSocketConfigurer {
+
+    private final BerlinClockWebSocketHandler berlinClockWebSocketHandler;
+
+    public WebSocketConfig(BerlinClockWebSocketHandler berlinClockWebSocketHandler) {
+        this.berlinClockWebSocketHandler = berlinClockWebSocketHandler;
+    }
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(berlinClockWebSocketHandler, "/api/time/ws")
+                .setAllowedOrigins("*");
+    }
+}
@@ -2,8 +2,34 @@ package com.carapax.berlinclock.controller;
 
 import com.carapax.berlinclock.model.BerlinClockTime;
 import com.carapax.berlinclock.service.BerlinClockService;
+import com.carapax.berlinclock.service.CurrentTime;
+import com.carapax.berlinclock.service.LampSequence;
+import com.carapax.berlinclock.service.TimeParser;
+import com.carapax.berlinclock.web.BerlinClockJson;
+import com.carapax.berlinclock.web.BerlinClockMetrics;
+import com.carapax.berlinclock.web.BerlinClockSseBroadcaster;
+import com.carapax.berlinclock.web.BerlinClockSvg;
+import com.carapax.berlinclock.web.CurrentTimeTags;
+import com.carapax.berlinclock.web.LampStateETag;
+import com.carapax.berlinclock.web.LampDiffJson;
+import com.carapax.berlinclock.web.LampSequenceWriter;
+import com.carapax.berlinclock.web.LampStateJsonReader;
+import com.carapax.berlinclock.web.NdjsonBatchProcessor;
+import com.carapax.berlinclock.web.PackedStateWire;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
 
 /**
  * REST Controller for Berlin Clock API endpoints.
@@ -12,60 +38,605 @@ import org.springframework.web.bind.annotation.*;
  * @author Jose Benitez
  */
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequestMapping("/api")
 @CrossOrigin(origins = "*")
 public class BerlinClockController {
 
+    /**
+     * Media type of Jackson Smile, the binary JSON format offered alongside CBOR.
+     * The CBOR/Smile handlers list Smile first: for wildcard Accept headers Spring compares the
+     * first producible type of each handler, and Smile sorts after JSON, so JSON stays the default.
+     */
+    static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+
+    private static final ResponseEntity<byte[]> INVALID_TIME = jsonError(BerlinClockService.INVALID_TIME_MESSAGE);
+    private static final ResponseEntity<byte[]> UNKNOWN_ZONE = jsonError(BerlinClockService.UNKNOWN_ZONE_MESSAGE);
+    private static final CacheControl IMMUTABLE = CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable();
+    private static final CacheControl CURRENT_SECOND = CacheControl.maxAge(0, TimeUnit.SECONDS).cachePublic();
+
+    /**
+     * nginx's own expiry header. It overrides Cache-Control in the proxy and, given as
+     * {@code @<epoch second>}, lets the proxy keep the current time until the second is over.
+     */
+    static final String X_ACCEL_EXPIRES = "X-Accel-Expires";
+
+    // WebRequest.checkNotModified sets the ETag header itself, on 304 and 200 responses alike,
+    // so the handlers below do not add it to their ResponseEntity
+
     private final BerlinClockService berlinClockService;
+    private final BerlinClockSseBroadcaster sseBroadcaster;
+    private final NdjsonBatchProcessor batchProcessor;
+    private final LampStateJsonReader lampStateReader;
+    private final BerlinClockMetrics metrics;
+    private final BerlinClockSvg svg;
 
-    public BerlinClockController(BerlinClockService berlinClockService) {
+    public BerlinClockController(BerlinClockService berlinClockService, BerlinClockSseBroadcaster sseBroadcaster,
+                                 NdjsonBatchProcessor batchProcessor, LampStateJsonReader lampStateReader,
+                                 BerlinClockMetrics metrics, BerlinClockSvg svg) {
         this.berlinClockService = berlinClockService;
+        this.sseBroadcaster = sseBroadcaster;
+        this.batchProcessor = batchProcessor;
+        this.lampStateReader = lampStateReader;
+        this.metrics = metrics;
+        this.svg = svg;
     }
 
     /**
      * GET endpoint that returns the current time in Berlin Clock format.
      * This endpoint is designed to be called every second by the frontend.
+     * The response may be cached until the current second is over, see {@link #currentSecond}.
+     * An unknown zone is answered with 400 and a JSON error body.
+     *
+     * @param zone    region ID such as Europe/Berlin; the configured default zone if absent
+     * @param pretty  whether to indent the JSON output
+     * @param request the request, checked for a matching If-None-Match
+     * @return BerlinClockTime JSON response with current time, or 304 if the client has it
+     */
+    @GetMapping(value = "/time", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<byte[]> getCurrentTime(@RequestParam(required = false) String zone,
+                                                 @RequestParam(defaultValue = "false") boolean pretty,
+                                                 WebRequest request) {
+        if (zone != null && !BerlinClockService.isSupportedZone(zone)) {
+            return UNKNOWN_ZONE;
+        }
+        CurrentTime current = berlinClockService.getCurrentTime(zone);
+        CurrentTimeTags tags = CurrentTimeTags.of(current);
+        if (request.checkNotModified(tags.json(pretty))) {
+            return currentSecond(ResponseEntity.status(HttpStatus.NOT_MODIFIED), tags).build();
+        }
+        byte[] body = BerlinClockJson.toBytes(current.time(), pretty);
+        return currentSecond(ResponseEntity.ok(), tags)
+                .contentType(MediaType.APPLICATION_JSON)
+                .contentLength(body.length)
+                .body(body);
+    }
+
+    /**
+     * GET endpoint that returns the current lamp state in its 3-byte packed form.
+     * Selected with {@code Accept: application/octet-stream}.
      *
-     * @return BerlinClockTime JSON response with current time
+     * @param zone    region ID; the configured default zone if absent
+     * @param request the request, checked for a matching If-None-Match
+     * @return packed lamp state, or 304 if the client has it
      */
-    @GetMapping("/time")
-    public ResponseEntity<BerlinClockTime> getCurrentTime() {
-        BerlinClockTime berlinTime = berlinClockService.getCurrentBerlinTime();
-        return ResponseEntity.ok(berlinTime);
+    @GetMapping(value = "/time", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<byte[]> getCurrentTimePacked(@RequestParam(required = false) String zone,
+                                                       WebRequest request) {
+        if (zone != null && !BerlinClockService.isSupportedZone(zone)) {
+            return ResponseEntity.badRequest().build();
+        }
+        CurrentTime current = berlinClockService.getCurrentTime(zone);
+        CurrentTimeTags tags = CurrentTimeTags.of(current);
+        if (request.checkNotModified(tags.packed())) {
+            return currentSecond(ResponseEntity.status(HttpStatus.NOT_MODIFIED), tags).build();
+        }
+        return packed(currentSecond(ResponseEntity.ok(), tags), current.packedState());
+    }
+
+    /**
+     * GET endpoint that returns the current time as CBOR or Smile.
+     * Selected with {@code Accept: application/cbor} or {@code Accept: application/x-jackson-smile}.
+     *
+     * @param zone region ID; the configured default zone if absent
+     * @return BerlinClockTime with current time
+     */
+    @GetMapping(value = "/time", produces = {APPLICATION_SMILE_VALUE, MediaType.APPLICATION_CBOR_VALUE})
+    public ResponseEntity<BerlinClockTime> getCurrentTimeCborOrSmile(@RequestParam(required = false) String zone) {
+        if (zone != null && !BerlinClockService.isSupportedZone(zone)) {
+            return ResponseEntity.badRequest().build();
+        }
+        CurrentTime current = berlinClockService.getCurrentTime(zone);
+        return currentSecond(ResponseEntity.ok(), CurrentTimeTags.of(current)).body(current.time());
+    }
+
+    /**
+     * GET endpoint that renders the current lamp state as an SVG image, for kiosks and chat integrations
+     * that cannot run the frontend. The image is the cached render of the lamp state, gzipped when the
+     * client accepts it, and is cached and tagged like the current time.
+     *
+     * @param zone           region ID; the configured default zone if absent
+     * @param acceptEncoding the request's Accept-Encoding, checked for gzip
+     * @param request        the request, checked for a matching If-None-Match
+     * @return SVG image, or 304 if the client has it
+     */
+    @GetMapping("/time/render.svg")
+    public ResponseEntity<byte[]> renderCurrentTime(
+            @RequestParam(required = false) String zone,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            WebRequest request) {
+        if (zone != null && !BerlinClockService.isSupportedZone(zone)) {
+            return UNKNOWN_ZONE;
+        }
+        CurrentTime current = berlinClockService.getCurrentTime(zone);
+        BerlinClockSvg.Image image = svg.render(current.packedState());
+        boolean gzip = BerlinClockSvg.acceptsGzip(acceptEncoding);
+        CurrentTimeTags tags = CurrentTimeTags.of(current);
+        if (request.checkNotModified(image.etag(gzip))) {
+            return currentSecond(ResponseEntity.status(HttpStatus.NOT_MODIFIED), tags)
+                    .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                    .build();
+        }
+        return svg(currentSecond(ResponseEntity.ok(), tags), image, gzip);
+    }
+
+    /**
+     * GET endpoint that streams the current time as Server-Sent Events.
+     * One "time" event is pushed per second, so clients no longer need to poll /time.
+     *
+     * @param zone region ID; the configured default zone if absent
+     * @return SSE emitter fed by the shared ticker, or 400 for an unknown zone
+     */
+    @GetMapping(value = "/time/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamTime(@RequestParam(required = false) String zone) {
+        if (zone != null && !BerlinClockService.isSupportedZone(zone)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(sseBroadcaster.subscribe(zone));
     }
 
     /**
      * GET endpoint that converts a specific time to Berlin Clock format.
      * Useful for testing specific times.
      *
-     * @param time time string in HH:mm:ss format
-     * @return BerlinClockTime JSON response
+     * A missing or malformed time is answered with 400 and a JSON error body; that path
+     * throws no exception and allocates nothing.
+     *
+     * The answer depends only on the time, so it is marked cacheable for a year and tagged with
+     * its lamp state. A request whose If-None-Match holds that tag gets 304 before any conversion.
+     *
+     * @param time    time string in HH:mm:ss format
+     * @param pretty  whether to indent the JSON output
+     * @param request the request, checked for a matching If-None-Match
+     * @return BerlinClockTime JSON response, or 304 if the client has it
      */
-    @GetMapping("/time/convert")
-    public ResponseEntity<BerlinClockTime> convertTime(@RequestParam String time) {
+    @GetMapping(value = "/time/convert", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<byte[]> convertTime(@RequestParam(required = false) String time,
+                                              @RequestParam(defaultValue = "false") boolean pretty,
+                                              WebRequest request) {
+        int secondOfDay = TimeParser.parseSecondOfDay(time);
+        if (secondOfDay == TimeParser.INVALID) {
+            metrics.convertValidationFailure();
+            return INVALID_TIME;
+        }
+        String etag = LampStateETag.json(berlinClockService.toPackedState(secondOfDay), secondOfDay, pretty);
+        if (request.checkNotModified(etag)) {
+            return immutable(ResponseEntity.status(HttpStatus.NOT_MODIFIED)).build();
+        }
+        metrics.conversion();
+        byte[] body = BerlinClockJson.toBytes(berlinClockService.convertToBerlinTime(secondOfDay), pretty);
+        return immutable(ResponseEntity.ok())
+                .contentType(MediaType.APPLICATION_JSON)
+                .contentLength(body.length)
+                .body(body);
+    }
+
+    /**
+     * POST endpoint that decodes a Berlin Clock format to standard time.
+     * Accepts a BerlinClockTime JSON object and returns the decoded time string.
+     * The lamp rows are read straight from the request body into a packed lamp state, and the
+     * response body is one of the prebuilt decode responses.
+     *
+     * @param body BerlinClockTime JSON
+     * @return JSON response with decoded time string, or 400 if a row is missing or invalid
+     */
+    @PostMapping(value = "/time/decode", consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<byte[]> decodeBerlinTime(InputStream body) {
         try {
-            BerlinClockTime berlinTime = berlinClockService.convertToBerlinTime(time);
-            return ResponseEntity.ok(berlinTime);
+            int packedState = lampStateReader.readPackedState(body);
+            byte[] response = BerlinClockJson.decodeResponse(berlinClockService.decodeToSecondOfDay(packedState));
+            metrics.decode();
+            return json(response);
+        } catch (IOException | IllegalArgumentException e) {
+            metrics.decodeValidationFailure();
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * GET endpoint that decodes a Berlin Clock format given as one 24-character lamp string:
+     * the five rows concatenated, seconds lamp first (e.g. {@code YRROORRROYYROOOOOOOOYYOO}).
+     * The answer depends only on the path, so it is marked cacheable for a year.
+     *
+     * @param lampString the concatenated lamp rows
+     * @return JSON response with decoded time string, or 400 if the lamps do not show a valid time
+     */
+    @GetMapping(value = "/time/decode/{lampString}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<byte[]> decodeLampString(@PathVariable String lampString) {
+        try {
+            int secondOfDay = berlinClockService.decodeToSecondOfDay(BerlinClockTime.packLampString(lampString));
+            byte[] body = BerlinClockJson.decodeResponse(secondOfDay);
+            metrics.decode();
+            return ResponseEntity.ok()
+                    .cacheControl(IMMUTABLE)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .contentLength(body.length)
+                    .body(body);
         } catch (IllegalArgumentException e) {
+            metrics.decodeValidationFailure();
             return ResponseEntity.badRequest().build();
         }
     }
 
     /**
-     * POST endpoint that decodes a Berlin Clock format to standard time.
-     * Accepts a BerlinClockTime object and returns the decoded time string.
+     * POST endpoint that decodes a Berlin Clock format sent as CBOR or Smile.
+     * Selected with {@code Content-Type: application/cbor} or {@code Content-Type: application/x-jackson-smile}.
      *
      * @param berlinClockTime the Berlin Clock format to decode
-     * @return JSON response with decoded time string
+     * @return response with decoded time string
      */
-    @PostMapping("/time/decode")
-    public ResponseEntity<DecodeResponse> decodeBerlinTime(@RequestBody BerlinClockTime berlinClockTime) {
+    @PostMapping(value = "/time/decode", consumes = {MediaType.APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE})
+    public ResponseEntity<DecodeResponse> decodeBerlinTimeCborOrSmile(@RequestBody BerlinClockTime berlinClockTime) {
         try {
             String decodedTime = berlinClockService.decodeBerlinTime(berlinClockTime);
+            metrics.decode();
             return ResponseEntity.ok(new DecodeResponse(decodedTime));
         } catch (IllegalArgumentException e) {
+            metrics.decodeValidationFailure();
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * GET endpoint that renders the lamp state of a specific time as an SVG image.
+     * Served from the render cache like {@link #renderCurrentTime}, and cacheable for a year.
+     *
+     * @param time           time string in HH:mm:ss format
+     * @param acceptEncoding the request's Accept-Encoding, checked for gzip
+     * @param request        the request, checked for a matching If-None-Match
+     * @return SVG image, 304 if the client has it, or 400 with an error body for an invalid time
+     */
+    @GetMapping("/time/convert/render.svg")
+    public ResponseEntity<byte[]> renderConvertedTime(
+            @RequestParam(required = false) String time,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            WebRequest request) {
+        int secondOfDay = TimeParser.parseSecondOfDay(time);
+        if (secondOfDay == TimeParser.INVALID) {
+            metrics.convertValidationFailure();
+            return INVALID_TIME;
+        }
+        BerlinClockSvg.Image image = svg.render(berlinClockService.toPackedState(secondOfDay));
+        boolean gzip = BerlinClockSvg.acceptsGzip(acceptEncoding);
+        if (request.checkNotModified(image.etag(gzip))) {
+            return immutable(ResponseEntity.status(HttpStatus.NOT_MODIFIED))
+                    .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                    .build();
+        }
+        metrics.conversion();
+        return svg(immutable(ResponseEntity.ok()), image, gzip);
+    }
+
+    /**
+     * GET endpoint that converts a specific time to its 3-byte packed lamp state.
+     * Selected with {@code Accept: application/octet-stream}. Cached and tagged like the JSON form.
+     *
+     * @param time    time string in HH:mm:ss format
+     * @param request the request, checked for a matching If-None-Match
+     * @return packed lamp state, or 304 if the client has it
+     */
+    @GetMapping(value = "/time/convert", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<byte[]> convertTimePacked(@RequestParam(required = false) String time, WebRequest request) {
+        int secondOfDay = TimeParser.parseSecondOfDay(time);
+        if (secondOfDay == TimeParser.INVALID) {
+            metrics.convertValidationFailure();
             return ResponseEntity.badRequest().build();
         }
+        int packedState = berlinClockService.toPackedState(secondOfDay);
+        String etag = LampStateETag.packed(packedState);
+        if (request.checkNotModified(etag)) {
+            return immutable(ResponseEntity.status(HttpStatus.NOT_MODIFIED)).build();
+        }
+        metrics.conversion();
+        return packed(immutable(ResponseEntity.ok()), packedState);
+    }
+
+    /**
+     * GET endpoint that converts a specific time to Berlin Clock format as CBOR or Smile.
+     * Selected with {@code Accept: application/cbor} or {@code Accept: application/x-jackson-smile}.
+     * Cacheable like the JSON form; it carries no ETag, as the format is only chosen after this method returns.
+     *
+     * @param time time string in HH:mm:ss format
+     * @return BerlinClockTime response
+     */
+    @GetMapping(value = "/time/convert", produces = {APPLICATION_SMILE_VALUE, MediaType.APPLICATION_CBOR_VALUE})
+    public ResponseEntity<BerlinClockTime> convertTimeCborOrSmile(@RequestParam(required = false) String time) {
+        int secondOfDay = TimeParser.parseSecondOfDay(time);
+        if (secondOfDay == TimeParser.INVALID) {
+            metrics.convertValidationFailure();
+            return ResponseEntity.badRequest().build();
+        }
+        metrics.conversion();
+        return immutable(ResponseEntity.ok()).body(berlinClockService.convertToBerlinTime(secondOfDay));
+    }
+
+    /**
+     * GET endpoint that streams the Berlin Clock state of every step-th second from one time to another,
+     * both inclusive and within one day, as NDJSON with one BerlinClockTime per line. States are computed
+     * and written one at a time, so a whole day at a 1-second step takes constant memory. Runs on the
+     * request thread, like the batch endpoints. The output depends only on the parameters, so it is
+     * cacheable like a conversion. An invalid time or range is answered with 400 and a JSON error body.
+     *
+     * @param from     first time in HH:mm:ss format
+     * @param to       last time in HH:mm:ss format, not before from
+     * @param step     seconds between states
+     * @param response servlet response the states are streamed to
+     */
+    @GetMapping(value = "/time/range", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void range(@RequestParam(required = false) String from, @RequestParam(required = false) String to,
+                      @RequestParam(defaultValue = "1") int step, HttpServletResponse response) throws IOException {
+        LampSequence sequence = sequence(from, to, step, response, true);
+        if (sequence != null) {
+            response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+            response.setContentLengthLong(LampSequenceWriter.ndjsonLength(sequence.size()));
+            metrics.conversions(LampSequenceWriter.writeNdjson(sequence, response.getOutputStream()));
+        }
+    }
+
+    /**
+     * GET endpoint that streams the same states as {@link #range} as 3-byte packed states back to back.
+     * Selected with {@code Accept: application/octet-stream}; an invalid time or range gets an empty 400.
+     * <p>
+     * For a wildcard or missing Accept header Spring prefers this mapping, as octet-stream sorts before
+     * x-ndjson, so such requests are handed to {@link #range} to keep NDJSON the default.
+     *
+     * @param from     first time in HH:mm:ss format
+     * @param to       last time in HH:mm:ss format, not before from
+     * @param step     seconds between states
+     * @param accept   the request's Accept header
+     * @param response servlet response the states are streamed to
+     */
+    @GetMapping(value = "/time/range", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public void rangePacked(@RequestParam(required = false) String from, @RequestParam(required = false) String to,
+                            @RequestParam(defaultValue = "1") int step,
+                            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                            HttpServletResponse response) throws IOException {
+        if (!namesPacked(accept)) {
+            range(from, to, step, response);
+            return;
+        }
+        LampSequence sequence = sequence(from, to, step, response, false);
+        if (sequence != null) {
+            response.setContentType(PackedStateWire.MEDIA_TYPE.toString());
+            response.setContentLengthLong((long) sequence.size() * PackedStateWire.BYTES);
+            metrics.conversions(LampSequenceWriter.writePacked(sequence, response.getOutputStream()));
+        }
+    }
+
+    /**
+     * GET endpoint that lists the lamps to toggle to get from the state of one time to that of another,
+     * each as its position in a lamp string (0-23) and the colour it shows afterwards, {@code O} for off.
+     * The times may be in any order. Cacheable like a conversion.
+     *
+     * @param from time of the current state in HH:mm:ss format
+     * @param to   time of the wanted state in HH:mm:ss format
+     * @return diff JSON, see {@link LampDiffJson}, or 400 with an error body for an invalid time
+     */
+    @GetMapping(value = "/time/diff", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<byte[]> diff(@RequestParam(required = false) String from,
+                                       @RequestParam(required = false) String to) {
+        int fromSecond = TimeParser.parseSecondOfDay(from);
+        int toSecond = TimeParser.parseSecondOfDay(to);
+        if (fromSecond == TimeParser.INVALID || toSecond == TimeParser.INVALID) {
+            metrics.convertValidationFailure();
+            return INVALID_TIME;
+        }
+        metrics.conversions(2);
+        byte[] body = LampDiffJson.diff(fromSecond, toSecond, berlinClockService.changedLamps(fromSecond, toSecond),
+                berlinClockService.toPackedState(toSecond));
+        return immutable(ResponseEntity.ok())
+                .contentType(MediaType.APPLICATION_JSON)
+                .contentLength(body.length)
+                .body(body);
+    }
+
+    /**
+     * GET endpoint that streams the lamp diffs of a whole range, the steps of {@link #range}, as NDJSON:
+     * one {"time":...,"changes":[...]} object per step with the lamps that changed since the previous one.
+     * The first line lists every lamp, so a display controller can load it and then apply each line in turn.
+     *
+     * @param from     first time in HH:mm:ss format
+     * @param to       last time in HH:mm:ss format, not before from
+     * @param step     seconds between states
+     * @param response servlet response the diffs are streamed to
+     */
+    @GetMapping(value = "/time/diff/range", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void diffRange(@RequestParam(required = false) String from, @RequestParam(required = false) String to,
+                          @RequestParam(defaultValue = "1") int step, HttpServletResponse response) throws IOException {
+        LampSequence sequence = sequence(from, to, step, response, true);
+        if (sequence != null) {
+            response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+            metrics.conversions(LampSequenceWriter.writeDiffNdjson(sequence, response.getOutputStream()));
+        }
+    }
+
+    /**
+     * POST endpoint that converts many times in one request.
+     * The body holds one HH:mm:ss time per line; the response is NDJSON with one BerlinClockTime
+     * (or an error object with the line number) per line, streamed as it is produced.
+     * Runs on the request thread, so large batches are not cut off by the async timeout.
+     *
+     * @param body     newline-delimited times
+     * @param response servlet response the results are streamed to
+     */
+    @PostMapping("/time/convert/batch")
+    public void convertBatch(InputStream body, HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        batchProcessor.convert(body, response.getOutputStream());
+    }
+
+    /**
+     * POST endpoint that decodes many Berlin Clock states in one request.
+     * The body holds one BerlinClockTime JSON object per line; the response is NDJSON with one
+     * {"time":...} (or an error object with the line number) per line.
+     *
+     * @param body     newline-delimited BerlinClockTime JSON objects
+     * @param response servlet response the results are streamed to
+     */
+    @PostMapping("/time/decode/batch")
+    public void decodeBatch(InputStream body, HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        batchProcessor.decode(body, response.getOutputStream());
+    }
+
+    /**
+     * POST endpoint that decodes a 3-byte packed lamp state to standard time.
+     * Selected with {@code Content-Type: application/octet-stream}.
+     *
+     * @param body packed lamp state
+     * @return JSON response with decoded time string
+     */
+    @PostMapping(value = "/time/decode", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<DecodeResponse> decodePackedState(@RequestBody byte[] body) {
+        try {
+            String decodedTime = berlinClockService.decodePackedState(PackedStateWire.fromBytes(body));
+            metrics.decode();
+            return ResponseEntity.ok(new DecodeResponse(decodedTime));
+        } catch (IllegalArgumentException e) {
+            metrics.decodeValidationFailure();
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Cache headers of a conversion: fresh for a year, and varying with Accept because JSON,
+     * packed, CBOR and Smile share the URL.
+     */
+    private static ResponseEntity.BodyBuilder immutable(ResponseEntity.BodyBuilder response) {
+        return response.cacheControl(IMMUTABLE).varyBy(HttpHeaders.ACCEPT);
+    }
+
+    /**
+     * Cache headers of the current time, which is valid until the end of the second it was read in.
+     * max-age counts whole seconds, so browsers get 0 and revalidate with the ETag; the nginx proxy
+     * is told the exact second boundary and answers from its cache until then.
+     *
+     * @param tags the tags of the current time served, which name the second of the service's clock it belongs to
+     */
+    private static ResponseEntity.BodyBuilder currentSecond(ResponseEntity.BodyBuilder response, CurrentTimeTags tags) {
+        return response.cacheControl(CURRENT_SECOND)
+                .varyBy(HttpHeaders.ACCEPT)
+                .header(X_ACCEL_EXPIRES, tags.expires());
+    }
+
+    /**
+     * Wraps a packed lamp state in its 3-byte binary form.
+     */
+    private static ResponseEntity<byte[]> packed(ResponseEntity.BodyBuilder response, int packedState) {
+        return response
+                .contentType(PackedStateWire.MEDIA_TYPE)
+                .contentLength(PackedStateWire.BYTES)
+                .body(PackedStateWire.toBytes(packedState));
+    }
+
+    /**
+     * Wraps a rendered image. Its URL has only the one media type, so the response varies with
+     * Accept-Encoding instead of Accept; the gzip form goes out as-is and Tomcat leaves it alone.
+     */
+    private static ResponseEntity<byte[]> svg(ResponseEntity.BodyBuilder response, BerlinClockSvg.Image image,
+                                              boolean gzip) {
+        byte[] body = image.body(gzip);
+        if (image.sendsGzip(gzip)) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response
+                .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                .contentType(BerlinClockSvg.MEDIA_TYPE)
+                .contentLength(body.length)
+                .body(body);
+    }
+
+    /**
+     * Wraps a pre-serialized JSON body so it is written to the response as-is.
+     */
+    private static ResponseEntity<byte[]> json(byte[] body) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .contentLength(body.length)
+                .body(body);
+    }
+
+    /**
+     * @return true if an Accept header names application/octet-stream itself rather than through a wildcard
+     */
+    private static boolean namesPacked(String accept) {
+        if (accept == null) {
+            return false;
+        }
+        for (MediaType mediaType : MediaType.parseMediaTypes(accept)) {
+            if (mediaType.equalsTypeAndSubtype(PackedStateWire.MEDIA_TYPE)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Validates the range parameters and sets the cache headers of a range response.
+     *
+     * @return the sequence to write, or null after a 400 has been sent
+     */
+    private LampSequence sequence(String from, String to, int step, HttpServletResponse response,
+                                  boolean jsonError) throws IOException {
+        int fromSecond = TimeParser.parseSecondOfDay(from);
+        int toSecond = TimeParser.parseSecondOfDay(to);
+        String error = null;
+        LampSequence sequence = null;
+        if (fromSecond == TimeParser.INVALID || toSecond == TimeParser.INVALID) {
+            error = BerlinClockService.INVALID_TIME_MESSAGE;
+        } else {
+            try {
+                sequence = berlinClockService.sequence(fromSecond, toSecond, step);
+            } catch (IllegalArgumentException e) {
+                error = BerlinClockService.INVALID_RANGE_MESSAGE;
+            }
+        }
+        if (error != null) {
+            metrics.convertValidationFailure();
+            response.setStatus(HttpStatus.BAD_REQUEST.value());
+            if (jsonError) {
+                byte[] body = BerlinClockJson.errorBody(error);
+                response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+                response.setContentLength(body.length);
+                response.getOutputStream().write(body);
+            }
+            return null;
+        }
+        response.setHeader(HttpHeaders.CACHE_CONTROL, IMMUTABLE.getHeaderValue());
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        return sequence;
+    }
+
+    /**
+     * Builds a 400 response with a {"error":...} body. The entity is immutable and can be shared.
+     */
+    private static ResponseEntity<byte[]> jsonError(String message) {
+        byte[] body = BerlinClockJson.errorBody(message);
+        return ResponseEntity.badRequest()
+                .contentType(MediaType.APPLICATION_JSON)
+                .contentLength(body.length)
+                .body(body);
     }
 
     /**
@@ -0,0 +1,92 @@
+package com.carapax.berlinclock.grpc;
+
+import io.grpc.Grpc;
+import io.grpc.InsecureServerCredentials;
+import io.grpc.Server;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the gRPC API on its own port ({@code berlinclock.grpc.port}, 0 for any free port) with
+ * either web stack. The handlers only do in-memory lookups and never block, so they run directly
+ * on the transport's event-loop threads instead of being handed to an executor.
+ *
+ * @author Jose Benitez
+ */
+@Component
+@ConditionalOnProperty(name = "berlinclock.grpc.enabled", havingValue = "true", matchIfMissing = true)
+public class BerlinClockGrpcServer implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(BerlinClockGrpcServer.class);
+
+    private static final long SHUTDOWN_GRACE_SECONDS = 5;
+
+    private final BerlinClockGrpcService service;
+    private final int port;
+    private volatile Server server;
+
+    public BerlinClockGrpcServer(BerlinClockGrpcService service, @Value("${berlinclock.grpc.port:9090}") int port) {
+        this.service = service;
+        this.port = port;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (server != null) {
+            return;
+        }
+        try {
+            server = Grpc.newServerBuilderForPort(port, InsecureServerCredentials.create())
+                    .directExecutor()
+                    .addService(service)
+                    .build()
+                    .start();
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not start the gRPC server on port " + port, e);
+        }
+        log.info("gRPC server listening on port {}", server.getPort());
+    }
+
+    /**
+     * Ends the Tick streams, then lets unary and batch calls in flight finish for a few seconds
+     * before cancelling them.
+     */
+    @Override
+    public synchronized void stop() {
+        Server current = server;
+        if (current == null) {
+            return;
+        }
+        server = null;
+        service.completeTicks();
+        current.shutdown();
+        try {
+            if (!current.awaitTermination(SHUTDOWN_GRACE_SECONDS, TimeUnit.SECONDS)) {
+                current.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            current.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return server != null;
+    }
+
+    /**
+     * @return the port the server listens on, or -1 when it is not running
+     */
+    public int getPort() {
+        Server current = server;
+        return current != null ? current.getPort() : -1;
+    }
+}
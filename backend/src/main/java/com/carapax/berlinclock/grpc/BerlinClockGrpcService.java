@@ -0,0 +1,246 @@
+package com.carapax.berlinclock.grpc;
+
+import com.carapax.berlinclock.model.BerlinClockTime;
+import com.carapax.berlinclock.service.BerlinClockService;
+import com.carapax.berlinclock.service.BerlinClockTicker;
+import com.carapax.berlinclock.service.TimeParser;
+import com.carapax.berlinclock.web.BerlinClockMetrics;
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The Berlin Clock gRPC API (see berlin_clock.proto), backed by the same BerlinClockService as the
+ * REST API. States go out in their packed form, so a reply is a few bytes of varints with no
+ * lamp strings built or serialized.
+ * Tick streams are fed by the ticker: each tick's message is built once per zone in use and handed
+ * to every stream whose transport is ready. A stream whose client is not reading keeps only the
+ * newest state and gets it when it is ready again, so nothing queues up in the transport.
+ *
+ * @author Jose Benitez
+ */
+@Component
+@ConditionalOnProperty(name = "berlinclock.grpc.enabled", havingValue = "true", matchIfMissing = true)
+public class BerlinClockGrpcService extends BerlinClockGrpc.BerlinClockImplBase implements BerlinClockTicker.Listener {
+
+    static final int MAX_BATCH_SIZE = 100_000;
+
+    private static final Status INVALID_TIME =
+            Status.INVALID_ARGUMENT.withDescription(BerlinClockService.INVALID_TIME_MESSAGE);
+    private static final Status UNKNOWN_ZONE =
+            Status.INVALID_ARGUMENT.withDescription(BerlinClockService.UNKNOWN_ZONE_MESSAGE);
+    private static final Status BATCH_TOO_LARGE =
+            Status.INVALID_ARGUMENT.withDescription("Batch exceeds " + MAX_BATCH_SIZE + " times");
+
+    private final BerlinClockService berlinClockService;
+    private final BerlinClockMetrics metrics;
+    private final Set<TickSubscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private volatile BerlinClockTime latest;
+
+    public BerlinClockGrpcService(BerlinClockService berlinClockService, BerlinClockMetrics metrics) {
+        this.berlinClockService = berlinClockService;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void convert(ConvertRequest request, StreamObserver<LampState> responseObserver) {
+        int secondOfDay = TimeParser.parseSecondOfDay(request.getTime());
+        if (secondOfDay == TimeParser.INVALID) {
+            metrics.convertValidationFailure();
+            responseObserver.onError(INVALID_TIME.asRuntimeException());
+            return;
+        }
+        metrics.conversion();
+        responseObserver.onNext(lampState(berlinClockService.toPackedState(secondOfDay), secondOfDay));
+        responseObserver.onCompleted();
+    }
+
+    @Override
+    public void decode(DecodeRequest request, StreamObserver<DecodeReply> responseObserver) {
+        int secondOfDay;
+        try {
+            secondOfDay = berlinClockService.decodeToSecondOfDay(request.getPackedState());
+        } catch (IllegalArgumentException e) {
+            metrics.decodeValidationFailure();
+            responseObserver.onError(Status.INVALID_ARGUMENT.withDescription(e.getMessage()).asRuntimeException());
+            return;
+        }
+        metrics.decode();
+        responseObserver.onNext(DecodeReply.newBuilder().setSecondOfDay(secondOfDay).build());
+        responseObserver.onCompleted();
+    }
+
+    /**
+     * Converts each time as it arrives into the reply's packed state list, which holds plain ints,
+     * so a batch costs four bytes or so per time until the reply is sent.
+     */
+    @Override
+    public StreamObserver<ConvertRequest> convertBatch(StreamObserver<ConvertBatchReply> responseObserver) {
+        return new StreamObserver<>() {
+
+            private final ConvertBatchReply.Builder reply = ConvertBatchReply.newBuilder();
+            private int conversions;
+            private boolean failed;
+
+            @Override
+            public void onNext(ConvertRequest request) {
+                if (failed) {
+                    return;
+                }
+                int index = reply.getPackedStatesCount();
+                if (index == MAX_BATCH_SIZE) {
+                    failed = true;
+                    metrics.conversions(conversions);
+                    responseObserver.onError(BATCH_TOO_LARGE.asRuntimeException());
+                    return;
+                }
+                int secondOfDay = TimeParser.parseSecondOfDay(request.getTime());
+                if (secondOfDay == TimeParser.INVALID) {
+                    metrics.convertValidationFailure();
+                    reply.addPackedStates(0).addInvalidIndexes(index);
+                } else {
+                    reply.addPackedStates(berlinClockService.toPackedState(secondOfDay));
+                    conversions++;
+                }
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                // The client cancelled the batch; there is no one left to reply to
+                if (!failed) {
+                    metrics.conversions(conversions);
+                }
+            }
+
+            @Override
+            public void onCompleted() {
+                if (failed) {
+                    return;
+                }
+                metrics.conversions(conversions);
+                responseObserver.onNext(reply.build());
+                responseObserver.onCompleted();
+            }
+        };
+    }
+
+    @Override
+    public void tick(TickRequest request, StreamObserver<LampState> responseObserver) {
+        String zone = request.getZone().isEmpty() ? null : request.getZone();
+        if (zone != null && !BerlinClockService.isSupportedZone(zone)) {
+            responseObserver.onError(UNKNOWN_ZONE.asRuntimeException());
+            return;
+        }
+        ServerCallStreamObserver<LampState> stream = (ServerCallStreamObserver<LampState>) responseObserver;
+        TickSubscriber subscriber = new TickSubscriber(stream, zone);
+        stream.setOnCancelHandler(() -> subscribers.remove(subscriber));
+        stream.setOnReadyHandler(subscriber::flush);
+
+        BerlinClockTime snapshot = zone == null ? latest : berlinClockService.getCurrentBerlinTime(zone);
+        if (snapshot == null) {
+            snapshot = berlinClockService.getCurrentBerlinTime(zone);
+        }
+        subscriber.offer(lampState(snapshot));
+        subscribers.add(subscriber);
+    }
+
+    /**
+     * Number of open Tick streams.
+     */
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    @Override
+    public void onTick(BerlinClockTime time) {
+        latest = time;
+        if (subscribers.isEmpty()) {
+            return;
+        }
+
+        LampState state = lampState(time);
+        Map<String, LampState> zoneStates = null;
+        for (TickSubscriber subscriber : subscribers) {
+            if (subscriber.zone == null) {
+                subscriber.offer(state);
+            } else {
+                if (zoneStates == null) {
+                    zoneStates = new HashMap<>();
+                }
+                subscriber.offer(zoneStates.computeIfAbsent(subscriber.zone,
+                        zone -> lampState(berlinClockService.getCurrentBerlinTime(zone))));
+            }
+        }
+    }
+
+    /**
+     * Ends every Tick stream normally, so the server can shut down without waiting on them.
+     */
+    void completeTicks() {
+        for (TickSubscriber subscriber : subscribers) {
+            subscriber.complete();
+        }
+        subscribers.clear();
+    }
+
+    private static LampState lampState(BerlinClockTime time) {
+        return lampState(time.toPackedState(), TimeParser.parseSecondOfDay(time.getCurrentTime()));
+    }
+
+    private static LampState lampState(int packedState, int secondOfDay) {
+        return LampState.newBuilder()
+                .setPackedState(packedState)
+                .setSecondOfDay(secondOfDay)
+                .build();
+    }
+
+    /**
+     * One open Tick stream. The ticker and the transport's ready callback both write to it,
+     * so every write goes through this object's lock.
+     */
+    private final class TickSubscriber {
+
+        private final ServerCallStreamObserver<LampState> stream;
+        private final String zone;
+        private LampState pending;
+
+        TickSubscriber(ServerCallStreamObserver<LampState> stream, String zone) {
+            this.stream = stream;
+            this.zone = zone;
+        }
+
+        synchronized void offer(LampState state) {
+            pending = state;
+            flush();
+        }
+
+        synchronized void flush() {
+            if (pending == null || !stream.isReady()) {
+                return;
+            }
+            LampState state = pending;
+            pending = null;
+            try {
+                stream.onNext(state);
+            } catch (RuntimeException e) {
+                // Call already closed; the cancel handler also removes it
+                subscribers.remove(this);
+            }
+        }
+
+        synchronized void complete() {
+            try {
+                stream.onCompleted();
+            } catch (RuntimeException e) {
+                // Call already closed
+            }
+        }
+    }
+}
@@ -1,41 +1,70 @@
 package com.carapax.berlinclock.model;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+import java.util.Objects;
+
 /**
  * Represents the Berlin Clock time display.
  * The Berlin Clock (Mengenlehreuhr) shows time using colored lamps:
  * - 1 yellow lamp for seconds (on if even, off if odd)
  * - 2 rows of 4 red lamps each for hours (top = 5-hour blocks, bottom = 1-hour blocks)
  * - 2 rows for minutes: top row 11 lamps (5-minute blocks), bottom row 4 lamps (1-minute blocks)
+ * Instances are immutable, so a single instance can be shared between requests.
+ * <p>
+ * The 24 lamps also have a packed form: one bit per lamp in an int, set when the lamp is on.
+ * A lamp's colour is fixed by its position, so on/off is all that needs storing.
+ * Bit 0 is the seconds lamp, bits 1-4 the five-hours row, bits 5-8 the single-hours row,
+ * bits 9-19 the five-minutes row and bits 20-23 the single-minutes row, leftmost lamp first.
  *
  * @author Jose Benitez
  */
 public class BerlinClockTime {
 
+    public static final int SECONDS_LAMP_SHIFT = 0;
+    public static final int FIVE_HOURS_SHIFT = 1;
+    public static final int SINGLE_HOURS_SHIFT = 5;
+    public static final int FIVE_MINUTES_SHIFT = 9;
+    public static final int SINGLE_MINUTES_SHIFT = 20;
+    public static final int PACKED_LAMP_COUNT = 24;
+
+    public static final int SECONDS_LAMP_MASK = 0x1;
+    public static final int FIVE_HOURS_MASK = 0xF << FIVE_HOURS_SHIFT;
+    public static final int SINGLE_HOURS_MASK = 0xF << SINGLE_HOURS_SHIFT;
+    public static final int FIVE_MINUTES_MASK = 0x7FF << FIVE_MINUTES_SHIFT;
+    public static final int SINGLE_MINUTES_MASK = 0xF << SINGLE_MINUTES_SHIFT;
+    public static final int PACKED_STATE_MASK = (1 << PACKED_LAMP_COUNT) - 1;
+
+    private static final char YELLOW = 'Y';
+    private static final char RED = 'R';
+    private static final char OFF = 'O';
+
     @JsonProperty("secondsLamp")
-    private String secondsLamp;
+    private final String secondsLamp;
 
     @JsonProperty("fiveHoursRow")
-    private String fiveHoursRow;
+    private final String fiveHoursRow;
 
     @JsonProperty("singleHoursRow")
-    private String singleHoursRow;
+    private final String singleHoursRow;
 
     @JsonProperty("fiveMinutesRow")
-    private String fiveMinutesRow;
+    private final String fiveMinutesRow;
 
     @JsonProperty("singleMinutesRow")
-    private String singleMinutesRow;
+    private final String singleMinutesRow;
 
     @JsonProperty("currentTime")
-    private String currentTime;
-
-    public BerlinClockTime() {
-    }
-
-    public BerlinClockTime(String secondsLamp, String fiveHoursRow, String singleHoursRow,
-                           String fiveMinutesRow, String singleMinutesRow, String currentTime) {
+    private final String currentTime;
+
+    @JsonCreator
+    public BerlinClockTime(@JsonProperty("secondsLamp") String secondsLamp,
+                           @JsonProperty("fiveHoursRow") String fiveHoursRow,
+                           @JsonProperty("singleHoursRow") String singleHoursRow,
+                           @JsonProperty("fiveMinutesRow") String fiveMinutesRow,
+                           @JsonProperty("singleMinutesRow") String singleMinutesRow,
+                           @JsonProperty("currentTime") String currentTime) {
         this.secondsLamp = secondsLamp;
         this.fiveHoursRow = fiveHoursRow;
         this.singleHoursRow = singleHoursRow;
@@ -48,48 +77,147 @@ public class BerlinClockTime {
         return secondsLamp;
     }
 
-    public void setSecondsLamp(String secondsLamp) {
-        this.secondsLamp = secondsLamp;
-    }
-
     public String getFiveHoursRow() {
         return fiveHoursRow;
     }
 
-    public void setFiveHoursRow(String fiveHoursRow) {
-        this.fiveHoursRow = fiveHoursRow;
-    }
-
     public String getSingleHoursRow() {
         return singleHoursRow;
     }
 
-    public void setSingleHoursRow(String singleHoursRow) {
-        this.singleHoursRow = singleHoursRow;
-    }
-
     public String getFiveMinutesRow() {
         return fiveMinutesRow;
     }
 
-    public void setFiveMinutesRow(String fiveMinutesRow) {
-        this.fiveMinutesRow = fiveMinutesRow;
-    }
-
     public String getSingleMinutesRow() {
         return singleMinutesRow;
     }
 
-    public void setSingleMinutesRow(String singleMinutesRow) {
-        this.singleMinutesRow = singleMinutesRow;
-    }
-
     public String getCurrentTime() {
         return currentTime;
     }
 
-    public void setCurrentTime(String currentTime) {
-        this.currentTime = currentTime;
+    /**
+     * Packs the lamp rows into the 24-bit form. currentTime is not part of the packed state.
+     *
+     * @return packed lamp state
+     * @throws IllegalArgumentException if a row is missing, has the wrong length,
+     *                                  or has a lamp lit in a colour its position cannot show
+     */
+    public int toPackedState() {
+        return packRow(secondsLamp, 1, SECONDS_LAMP_SHIFT, "secondsLamp")
+                | packRow(fiveHoursRow, 4, FIVE_HOURS_SHIFT, "fiveHoursRow")
+                | packRow(singleHoursRow, 4, SINGLE_HOURS_SHIFT, "singleHoursRow")
+                | packRow(fiveMinutesRow, 11, FIVE_MINUTES_SHIFT, "fiveMinutesRow")
+                | packRow(singleMinutesRow, 4, SINGLE_MINUTES_SHIFT, "singleMinutesRow");
+    }
+
+    /**
+     * Packs a 24-character lamp string: the five rows concatenated, seconds lamp first.
+     * Lamp i of the string is bit i of the packed state.
+     *
+     * @param lamps lamp string, e.g. {@code "YRROORRROYYROOOOOOOOYYOO"}
+     * @return packed lamp state
+     * @throws IllegalArgumentException if the string is not 24 lamps long or has an invalid lamp
+     */
+    public static int packLampString(String lamps) {
+        if (lamps == null || lamps.length() != PACKED_LAMP_COUNT) {
+            throw new IllegalArgumentException("Lamp string must have " + PACKED_LAMP_COUNT + " lamps");
+        }
+        int bits = 0;
+        for (int i = 0; i < PACKED_LAMP_COUNT; i++) {
+            char lamp = lamps.charAt(i);
+            if (lamp == lampColour(i)) {
+                bits |= 1 << i;
+            } else if (lamp != OFF) {
+                throw new IllegalArgumentException("Invalid lamp '" + lamp + "' at position " + i);
+            }
+        }
+        return bits;
+    }
+
+    /**
+     * Expands a packed lamp state back into lamp rows.
+     *
+     * @param packedState packed lamp state
+     * @param currentTime time string to carry along, not derived from the lamps
+     * @return the expanded BerlinClockTime
+     * @throws IllegalArgumentException if bits above the 24 lamps are set
+     */
+    public static BerlinClockTime fromPackedState(int packedState, String currentTime) {
+        if ((packedState & ~PACKED_STATE_MASK) != 0) {
+            throw new IllegalArgumentException("Packed lamp state has bits above lamp 24 set");
+        }
+        return new BerlinClockTime(
+                unpackRow(packedState, 1, SECONDS_LAMP_SHIFT),
+                unpackRow(packedState, 4, FIVE_HOURS_SHIFT),
+                unpackRow(packedState, 4, SINGLE_HOURS_SHIFT),
+                unpackRow(packedState, 11, FIVE_MINUTES_SHIFT),
+                unpackRow(packedState, 4, SINGLE_MINUTES_SHIFT),
+                currentTime
+        );
+    }
+
+    /**
+     * Colour a lamp shows when it is on, by packed bit position.
+     *
+     * @param bit bit position (0-23)
+     * @return 'Y' or 'R'
+     */
+    public static char lampColour(int bit) {
+        if (bit == SECONDS_LAMP_SHIFT || bit >= SINGLE_MINUTES_SHIFT) {
+            return YELLOW;
+        }
+        if (bit < FIVE_MINUTES_SHIFT) {
+            return RED;
+        }
+        // Every 3rd five-minute lamp marks a quarter hour and is red
+        return (bit - FIVE_MINUTES_SHIFT + 1) % 3 == 0 ? RED : YELLOW;
+    }
+
+    private static int packRow(String row, int length, int shift, String name) {
+        if (row == null || row.length() != length) {
+            throw new IllegalArgumentException(name + " must have " + length + " lamps");
+        }
+        int bits = 0;
+        for (int i = 0; i < length; i++) {
+            char lamp = row.charAt(i);
+            if (lamp == lampColour(shift + i)) {
+                bits |= 1 << (shift + i);
+            } else if (lamp != OFF) {
+                throw new IllegalArgumentException(name + " has an invalid lamp '" + lamp + "' at position " + i);
+            }
+        }
+        return bits;
+    }
+
+    private static String unpackRow(int packedState, int length, int shift) {
+        char[] row = new char[length];
+        for (int i = 0; i < length; i++) {
+            row[i] = (packedState & (1 << (shift + i))) != 0 ? lampColour(shift + i) : OFF;
+        }
+        return new String(row);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof BerlinClockTime that)) {
+            return false;
+        }
+        return Objects.equals(secondsLamp, that.secondsLamp)
+                && Objects.equals(fiveHoursRow, that.fiveHoursRow)
+                && Objects.equals(singleHoursRow, that.singleHoursRow)
+                && Objects.equals(fiveMinutesRow, that.fiveMinutesRow)
+                && Objects.equals(singleMinutesRow, that.singleMinutesRow)
+                && Objects.equals(currentTime, that.currentTime);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(secondsLamp, fiveHoursRow, singleHoursRow, fiveMinutesRow, singleMinutesRow, currentTime);
     }
 
     @Override
@@ -0,0 +1,509 @@
+package com.carapax.berlinclock.reactive;
+
+import com.carapax.berlinclock.model.BerlinClockTime;
+import com.carapax.berlinclock.service.BerlinClockService;
+import com.carapax.berlinclock.service.CurrentTime;
+import com.carapax.berlinclock.service.LampSequence;
+import com.carapax.berlinclock.service.TimeParser;
+import com.carapax.berlinclock.web.BerlinClockJson;
+import com.carapax.berlinclock.web.BerlinClockMetrics;
+import com.carapax.berlinclock.web.BerlinClockSvg;
+import com.carapax.berlinclock.web.CurrentTimeTags;
+import com.carapax.berlinclock.web.LampDiffJson;
+import com.carapax.berlinclock.web.LampSequenceWriter;
+import com.carapax.berlinclock.web.LampStateETag;
+import com.carapax.berlinclock.web.LampStateJsonReader;
+import com.carapax.berlinclock.web.PackedStateWire;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyExtractors;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntToLongFunction;
+
+/**
+ * Handler functions for the reactive profile, with the same contracts as BerlinClockController:
+ * the same paths, media types, status codes and bodies. JSON bodies come from BerlinClockJson
+ * and are written as-is, exactly like the servlet variant, and so are the ETag and cache headers.
+ *
+ * @author Jose Benitez
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class BerlinClockHandler {
+
+    static final MediaType APPLICATION_SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+
+    // Lamp rows are a few hundred bytes; anything much larger is not a decode request
+    private static final int MAX_DECODE_BODY = 16 * 1024;
+    private static final byte[] INVALID_TIME = BerlinClockJson.errorBody(BerlinClockService.INVALID_TIME_MESSAGE);
+    private static final byte[] UNKNOWN_ZONE = BerlinClockJson.errorBody(BerlinClockService.UNKNOWN_ZONE_MESSAGE);
+    private static final byte[] INVALID_RANGE = BerlinClockJson.errorBody(BerlinClockService.INVALID_RANGE_MESSAGE);
+    private static final CacheControl IMMUTABLE = CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable();
+    private static final CacheControl CURRENT_SECOND = CacheControl.maxAge(0, TimeUnit.SECONDS).cachePublic();
+    private static final String X_ACCEL_EXPIRES = "X-Accel-Expires";
+    // A range is written to a blocking OutputStream that waits for the client's demand, so off the event loop
+    private static final Executor SEQUENCE_WRITER = task -> Schedulers.boundedElastic().schedule(task);
+
+    private final BerlinClockService berlinClockService;
+    private final LampStateJsonReader lampStateReader;
+    private final BerlinClockMetrics metrics;
+    private final BerlinClockTickStream tickStream;
+    private final BerlinClockSvg svg;
+
+    public BerlinClockHandler(BerlinClockService berlinClockService, LampStateJsonReader lampStateReader,
+                              BerlinClockMetrics metrics, BerlinClockTickStream tickStream, BerlinClockSvg svg) {
+        this.berlinClockService = berlinClockService;
+        this.lampStateReader = lampStateReader;
+        this.metrics = metrics;
+        this.tickStream = tickStream;
+        this.svg = svg;
+    }
+
+    /**
+     * GET /api/time as JSON, optionally indented with {@code ?pretty=true}, in the {@code ?zone=} if given.
+     */
+    public Mono<ServerResponse> currentTime(ServerRequest request) {
+        String zone = zone(request);
+        if (zone != null && !BerlinClockService.isSupportedZone(zone)) {
+            return json(ServerResponse.badRequest(), UNKNOWN_ZONE);
+        }
+        boolean pretty = pretty(request);
+        CurrentTime current = berlinClockService.getCurrentTime(zone);
+        CurrentTimeTags tags = CurrentTimeTags.of(current);
+        String etag = tags.json(pretty);
+        if (notModified(request, etag)) {
+            return currentSecond(ServerResponse.status(HttpStatus.NOT_MODIFIED), tags).eTag(etag).build();
+        }
+        return json(currentSecond(ServerResponse.ok(), tags).eTag(etag), BerlinClockJson.toBytes(current.time(), pretty));
+    }
+
+    /**
+     * GET /api/time as the 3-byte packed lamp state.
+     */
+    public Mono<ServerResponse> currentTimePacked(ServerRequest request) {
+        String zone = zone(request);
+        if (zone != null && !BerlinClockService.isSupportedZone(zone)) {
+            return ServerResponse.badRequest().build();
+        }
+        CurrentTime current = berlinClockService.getCurrentTime(zone);
+        CurrentTimeTags tags = CurrentTimeTags.of(current);
+        String etag = tags.packed();
+        if (notModified(request, etag)) {
+            return currentSecond(ServerResponse.status(HttpStatus.NOT_MODIFIED), tags).eTag(etag).build();
+        }
+        return packed(currentSecond(ServerResponse.ok(), tags).eTag(etag), current.packedState());
+    }
+
+    /**
+     * GET /api/time as CBOR or Smile.
+     */
+    public Mono<ServerResponse> currentTimeCborOrSmile(ServerRequest request) {
+        String zone = zone(request);
+        if (zone != null && !BerlinClockService.isSupportedZone(zone)) {
+            return ServerResponse.badRequest().build();
+        }
+        CurrentTime current = berlinClockService.getCurrentTime(zone);
+        return currentSecond(ServerResponse.ok(), CurrentTimeTags.of(current))
+                .contentType(cborOrSmile(request))
+                .bodyValue(current.time());
+    }
+
+    /**
+     * GET /api/time/render.svg: the current lamp state as a cached SVG image, gzipped if the client accepts it.
+     */
+    public Mono<ServerResponse> renderCurrentTime(ServerRequest request) {
+        String zone = zone(request);
+        if (zone != null && !BerlinClockService.isSupportedZone(zone)) {
+            return json(ServerResponse.badRequest(), UNKNOWN_ZONE);
+        }
+        CurrentTime current = berlinClockService.getCurrentTime(zone);
+        BerlinClockSvg.Image image = svg.render(current.packedState());
+        boolean gzip = acceptsGzip(request);
+        String etag = image.etag(gzip);
+        CurrentTimeTags tags = CurrentTimeTags.of(current);
+        if (notModified(request, etag)) {
+            return currentSecond(ServerResponse.status(HttpStatus.NOT_MODIFIED), tags)
+                    .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                    .eTag(etag)
+                    .build();
+        }
+        return svg(currentSecond(ServerResponse.ok(), tags).eTag(etag), image, gzip);
+    }
+
+    /**
+     * GET /api/time/stream: one "time" event per second.
+     */
+    public Mono<ServerResponse> streamTime(ServerRequest request) {
+        String zone = zone(request);
+        if (zone != null && !BerlinClockService.isSupportedZone(zone)) {
+            return ServerResponse.badRequest().build();
+        }
+        return ServerResponse.ok()
+                .contentType(MediaType.TEXT_EVENT_STREAM)
+                .body(tickStream.events(zone), ServerSentEvent.class);
+    }
+
+    /**
+     * GET /api/time/convert as JSON; a missing or malformed time is answered with 400 and an error body.
+     * A matching If-None-Match is answered with 304 before any conversion.
+     */
+    public Mono<ServerResponse> convertTime(ServerRequest request) {
+        int secondOfDay = parseTime(request);
+        if (secondOfDay == TimeParser.INVALID) {
+            metrics.convertValidationFailure();
+            return json(ServerResponse.badRequest(), INVALID_TIME);
+        }
+        boolean pretty = pretty(request);
+        String etag = LampStateETag.json(berlinClockService.toPackedState(secondOfDay), secondOfDay, pretty);
+        if (notModified(request, etag)) {
+            return immutable(ServerResponse.status(HttpStatus.NOT_MODIFIED)).eTag(etag).build();
+        }
+        metrics.conversion();
+        return json(immutable(ServerResponse.ok()).eTag(etag),
+                BerlinClockJson.toBytes(berlinClockService.convertToBerlinTime(secondOfDay), pretty));
+    }
+
+    /**
+     * GET /api/time/convert as the 3-byte packed lamp state.
+     */
+    public Mono<ServerResponse> convertTimePacked(ServerRequest request) {
+        int secondOfDay = parseTime(request);
+        if (secondOfDay == TimeParser.INVALID) {
+            metrics.convertValidationFailure();
+            return ServerResponse.badRequest().build();
+        }
+        int packedState = berlinClockService.toPackedState(secondOfDay);
+        String etag = LampStateETag.packed(packedState);
+        if (notModified(request, etag)) {
+            return immutable(ServerResponse.status(HttpStatus.NOT_MODIFIED)).eTag(etag).build();
+        }
+        metrics.conversion();
+        return packed(immutable(ServerResponse.ok()).eTag(etag), packedState);
+    }
+
+    /**
+     * GET /api/time/convert as CBOR or Smile.
+     */
+    public Mono<ServerResponse> convertTimeCborOrSmile(ServerRequest request) {
+        int secondOfDay = parseTime(request);
+        if (secondOfDay == TimeParser.INVALID) {
+            metrics.convertValidationFailure();
+            return ServerResponse.badRequest().build();
+        }
+        metrics.conversion();
+        return immutable(ServerResponse.ok())
+                .contentType(cborOrSmile(request))
+                .bodyValue(berlinClockService.convertToBerlinTime(secondOfDay));
+    }
+
+    /**
+     * GET /api/time/convert/render.svg: the lamp state of a time as a cached SVG image, cacheable for a year.
+     */
+    public Mono<ServerResponse> renderConvertedTime(ServerRequest request) {
+        int secondOfDay = parseTime(request);
+        if (secondOfDay == TimeParser.INVALID) {
+            metrics.convertValidationFailure();
+            return json(ServerResponse.badRequest(), INVALID_TIME);
+        }
+        BerlinClockSvg.Image image = svg.render(berlinClockService.toPackedState(secondOfDay));
+        boolean gzip = acceptsGzip(request);
+        String etag = image.etag(gzip);
+        if (notModified(request, etag)) {
+            return immutable(ServerResponse.status(HttpStatus.NOT_MODIFIED))
+                    .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                    .eTag(etag)
+                    .build();
+        }
+        metrics.conversion();
+        return svg(immutable(ServerResponse.ok()).eTag(etag), image, gzip);
+    }
+
+    /**
+     * GET /api/time/diff: the lamps to toggle between the states of two times.
+     */
+    public Mono<ServerResponse> diff(ServerRequest request) {
+        int from = TimeParser.parseSecondOfDay(request.queryParam("from").orElse(null));
+        int to = TimeParser.parseSecondOfDay(request.queryParam("to").orElse(null));
+        if (from == TimeParser.INVALID || to == TimeParser.INVALID) {
+            metrics.convertValidationFailure();
+            return json(ServerResponse.badRequest(), INVALID_TIME);
+        }
+        metrics.conversions(2);
+        return json(immutable(ServerResponse.ok()), LampDiffJson.diff(from, to,
+                berlinClockService.changedLamps(from, to), berlinClockService.toPackedState(to)));
+    }
+
+    /**
+     * GET /api/time/range as NDJSON, one BerlinClockTime per line. States are written as the client reads
+     * them, so a whole day takes constant memory; an invalid time or range gets 400 and an error body.
+     */
+    public Mono<ServerResponse> range(ServerRequest request) {
+        return sequence(request, true, MediaType.APPLICATION_NDJSON, LampSequenceWriter::ndjsonLength,
+                LampSequenceWriter::writeNdjson);
+    }
+
+    /**
+     * GET /api/time/range as 3-byte packed states back to back; an invalid time or range gets an empty 400.
+     */
+    public Mono<ServerResponse> rangePacked(ServerRequest request) {
+        return sequence(request, false, PackedStateWire.MEDIA_TYPE, states -> (long) states * PackedStateWire.BYTES,
+                LampSequenceWriter::writePacked);
+    }
+
+    /**
+     * GET /api/time/diff/range: one NDJSON line per step of a range with the lamps changed since the previous one.
+     */
+    public Mono<ServerResponse> diffRange(ServerRequest request) {
+        return sequence(request, true, MediaType.APPLICATION_NDJSON, null, LampSequenceWriter::writeDiffNdjson);
+    }
+
+    /**
+     * Whether the Accept header names the packed type. The NDJSON range is the default, also for
+     * {@code *}{@code /*} and a missing header, like the servlet controller.
+     */
+    static boolean namesPacked(ServerRequest request) {
+        for (MediaType accepted : request.headers().accept()) {
+            if (accepted.equalsTypeAndSubtype(PackedStateWire.MEDIA_TYPE)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * POST /api/time/decode with a BerlinClockTime JSON body. The lamp rows are read straight into
+     * a packed state once the body has arrived.
+     */
+    public Mono<ServerResponse> decodeBerlinTime(ServerRequest request) {
+        return DataBufferUtils.join(request.body(BodyExtractors.toDataBuffers()), MAX_DECODE_BODY)
+                .map(this::decodeJson)
+                .onErrorReturn(TimeParser.INVALID)
+                .defaultIfEmpty(TimeParser.INVALID)
+                .flatMap(this::decoded);
+    }
+
+    /**
+     * POST /api/time/decode with a CBOR or Smile BerlinClockTime body.
+     */
+    public Mono<ServerResponse> decodeBerlinTimeCborOrSmile(ServerRequest request) {
+        return request.bodyToMono(BerlinClockTime.class)
+                .map(time -> berlinClockService.decodeToSecondOfDay(time.toPackedState()))
+                .onErrorReturn(TimeParser.INVALID)
+                .defaultIfEmpty(TimeParser.INVALID)
+                .flatMap(this::decoded);
+    }
+
+    /**
+     * POST /api/time/decode with a 3-byte packed lamp state.
+     */
+    public Mono<ServerResponse> decodePackedState(ServerRequest request) {
+        return request.bodyToMono(byte[].class)
+                .map(body -> berlinClockService.decodeToSecondOfDay(PackedStateWire.fromBytes(body)))
+                .onErrorReturn(TimeParser.INVALID)
+                .defaultIfEmpty(TimeParser.INVALID)
+                .flatMap(this::decoded);
+    }
+
+    /**
+     * GET /api/time/decode/{lampString}, cacheable for a year.
+     */
+    public Mono<ServerResponse> decodeLampString(ServerRequest request) {
+        int secondOfDay;
+        try {
+            secondOfDay = berlinClockService.decodeToSecondOfDay(
+                    BerlinClockTime.packLampString(request.pathVariable("lampString")));
+        } catch (IllegalArgumentException e) {
+            metrics.decodeValidationFailure();
+            return ServerResponse.badRequest().build();
+        }
+        metrics.decode();
+        byte[] body = BerlinClockJson.decodeResponse(secondOfDay);
+        return ServerResponse.ok()
+                .cacheControl(IMMUTABLE)
+                .contentType(MediaType.APPLICATION_JSON)
+                .contentLength(body.length)
+                .bodyValue(body);
+    }
+
+    /**
+     * Validates the from, to and step parameters and streams the sequence with the writer, with the
+     * cache headers of a conversion.
+     *
+     * @param jsonError     true to answer a bad request with an error body, false for an empty one
+     * @param contentLength length of the body for a number of states, or null if it is not known up front
+     */
+    private Mono<ServerResponse> sequence(ServerRequest request, boolean jsonError, MediaType contentType,
+                                          IntToLongFunction contentLength, SequenceWriter writer) {
+        int from = TimeParser.parseSecondOfDay(request.queryParam("from").orElse(null));
+        int to = TimeParser.parseSecondOfDay(request.queryParam("to").orElse(null));
+        byte[] error = null;
+        LampSequence sequence = null;
+        if (from == TimeParser.INVALID || to == TimeParser.INVALID) {
+            error = INVALID_TIME;
+        } else {
+            try {
+                int step = Integer.parseInt(request.queryParam("step").orElse("1"));
+                sequence = berlinClockService.sequence(from, to, step);
+            } catch (IllegalArgumentException e) {
+                error = INVALID_RANGE;
+            }
+        }
+        if (error != null) {
+            metrics.convertValidationFailure();
+            return jsonError ? json(ServerResponse.badRequest(), error) : ServerResponse.badRequest().build();
+        }
+        ServerResponse.BodyBuilder response = immutable(ServerResponse.ok()).contentType(contentType);
+        if (contentLength != null) {
+            response.contentLength(contentLength.applyAsLong(sequence.size()));
+        }
+        LampSequence states = sequence;
+        return response.body(BodyInserters.fromDataBuffers(DataBufferUtils.outputStreamPublisher(
+                out -> write(writer, states, out), request.exchange().getResponse().bufferFactory(), SEQUENCE_WRITER)));
+    }
+
+    private void write(SequenceWriter writer, LampSequence sequence, OutputStream out) {
+        try {
+            metrics.conversions(writer.write(sequence, out));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private int decodeJson(DataBuffer body) {
+        try (InputStream in = body.asInputStream(true)) {
+            return berlinClockService.decodeToSecondOfDay(lampStateReader.readPackedState(in));
+        } catch (IOException | IllegalArgumentException e) {
+            return TimeParser.INVALID;
+        }
+    }
+
+    private Mono<ServerResponse> decoded(int secondOfDay) {
+        if (secondOfDay == TimeParser.INVALID) {
+            metrics.decodeValidationFailure();
+            return ServerResponse.badRequest().build();
+        }
+        metrics.decode();
+        return json(ServerResponse.ok(), BerlinClockJson.decodeResponse(secondOfDay));
+    }
+
+    /**
+     * Parses the time query parameter.
+     */
+    private static int parseTime(ServerRequest request) {
+        return TimeParser.parseSecondOfDay(request.queryParam("time").orElse(null));
+    }
+
+    /**
+     * The zone query parameter, or null for the default zone.
+     */
+    private static String zone(ServerRequest request) {
+        return request.queryParam("zone").orElse(null);
+    }
+
+    /**
+     * Evaluates If-None-Match against the tag, as WebRequest.checkNotModified does for the servlet controller.
+     */
+    private static boolean notModified(ServerRequest request, String etag) {
+        return request.exchange().checkNotModified(etag);
+    }
+
+    /**
+     * Cache headers of a conversion, the same as the servlet controller's.
+     */
+    private static ServerResponse.BodyBuilder immutable(ServerResponse.BodyBuilder response) {
+        return response.cacheControl(IMMUTABLE).varyBy(HttpHeaders.ACCEPT);
+    }
+
+    /**
+     * Cache headers of the current time, the same as the servlet controller's.
+     *
+     * @param tags the tags of the current time served
+     */
+    private static ServerResponse.BodyBuilder currentSecond(ServerResponse.BodyBuilder response, CurrentTimeTags tags) {
+        return response.cacheControl(CURRENT_SECOND)
+                .varyBy(HttpHeaders.ACCEPT)
+                .header(X_ACCEL_EXPIRES, tags.expires());
+    }
+
+    private static boolean acceptsGzip(ServerRequest request) {
+        List<String> acceptEncoding = request.headers().header(HttpHeaders.ACCEPT_ENCODING);
+        return !acceptEncoding.isEmpty() && BerlinClockSvg.acceptsGzip(String.join(",", acceptEncoding));
+    }
+
+    private static boolean pretty(ServerRequest request) {
+        return request.queryParam("pretty").map(Boolean::parseBoolean).orElse(false);
+    }
+
+    /**
+     * The first of CBOR and Smile in the Accept header. Wildcards never get here: the JSON route matches them first.
+     */
+    private static MediaType cborOrSmile(ServerRequest request) {
+        for (MediaType accepted : request.headers().accept()) {
+            if (accepted.isCompatibleWith(APPLICATION_SMILE)) {
+                return APPLICATION_SMILE;
+            }
+            if (accepted.isCompatibleWith(MediaType.APPLICATION_CBOR)) {
+                return MediaType.APPLICATION_CBOR;
+            }
+        }
+        return MediaType.APPLICATION_CBOR;
+    }
+
+    private static Mono<ServerResponse> json(ServerResponse.BodyBuilder response, byte[] body) {
+        return response
+                .contentType(MediaType.APPLICATION_JSON)
+                .contentLength(body.length)
+                .bodyValue(body);
+    }
+
+    /**
+     * Writes a rendered image the same way as the servlet controller, varying with Accept-Encoding.
+     */
+    private static Mono<ServerResponse> svg(ServerResponse.BodyBuilder response, BerlinClockSvg.Image image,
+                                            boolean gzip) {
+        byte[] body = image.body(gzip);
+        if (image.sendsGzip(gzip)) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response
+                .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                .contentType(BerlinClockSvg.MEDIA_TYPE)
+                .contentLength(body.length)
+                .bodyValue(body);
+    }
+
+    private static Mono<ServerResponse> packed(ServerResponse.BodyBuilder response, int packedState) {
+        return response
+                .contentType(PackedStateWire.MEDIA_TYPE)
+                .contentLength(PackedStateWire.BYTES)
+                .bodyValue(PackedStateWire.toBytes(packedState));
+    }
+
+    /**
+     * One of the LampSequenceWriter methods.
+     */
+    @FunctionalInterface
+    private interface SequenceWriter {
+
+        int write(LampSequence sequence, OutputStream out) throws IOException;
+    }
+}
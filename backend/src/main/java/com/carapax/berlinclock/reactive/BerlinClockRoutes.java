@@ -0,0 +1,118 @@
+package com.carapax.berlinclock.reactive;
+
+import org.reactivestreams.Publisher;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.CodecConfigurer;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.util.MimeType;
+import org.springframework.web.cors.CorsConfiguration;
+import org.springframework.web.cors.reactive.CorsWebFilter;
+import org.springframework.web.cors.reactive.UrlBasedCorsConfigurationSource;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+import static org.springframework.web.reactive.function.server.RequestPredicates.accept;
+import static org.springframework.web.reactive.function.server.RequestPredicates.contentType;
+import static org.springframework.web.reactive.function.server.RouterFunctions.route;
+
+/**
+ * Functional routes for the reactive profile ({@code spring.profiles.active=reactive}), served by Netty.
+ * Within a path the JSON route comes first, so a wildcard or missing Accept header gets JSON as it
+ * does from the servlet controller; for /range the packed route only takes requests that name its type.
+ *
+ * @author Jose Benitez
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class BerlinClockRoutes {
+
+    /**
+     * Boot prefers Tomcat for a reactive application when it is on the classpath, which it is for
+     * the servlet stack. Declaring the factory makes the reactive profile run on Netty; the usual
+     * server.* properties still apply through Boot's factory customizers.
+     */
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    @Bean
+    public RouterFunction<ServerResponse> berlinClockRouter(BerlinClockHandler handler) {
+        return route()
+                .path("/api/time", time -> time
+                        .GET("", accept(MediaType.APPLICATION_JSON), handler::currentTime)
+                        .GET("", accept(MediaType.APPLICATION_OCTET_STREAM), handler::currentTimePacked)
+                        .GET("", accept(BerlinClockHandler.APPLICATION_SMILE, MediaType.APPLICATION_CBOR),
+                                handler::currentTimeCborOrSmile)
+                        .GET("/stream", handler::streamTime)
+                        .GET("/render.svg", handler::renderCurrentTime)
+                        .GET("/convert", accept(MediaType.APPLICATION_JSON), handler::convertTime)
+                        .GET("/convert", accept(MediaType.APPLICATION_OCTET_STREAM), handler::convertTimePacked)
+                        .GET("/convert", accept(BerlinClockHandler.APPLICATION_SMILE, MediaType.APPLICATION_CBOR),
+                                handler::convertTimeCborOrSmile)
+                        .GET("/convert/render.svg", handler::renderConvertedTime)
+                        .GET("/range", BerlinClockHandler::namesPacked, handler::rangePacked)
+                        .GET("/range", handler::range)
+                        .GET("/diff", handler::diff)
+                        .GET("/diff/range", handler::diffRange)
+                        .POST("/decode", contentType(MediaType.APPLICATION_JSON), handler::decodeBerlinTime)
+                        .POST("/decode", contentType(MediaType.APPLICATION_OCTET_STREAM), handler::decodePackedState)
+                        .POST("/decode", contentType(MediaType.APPLICATION_CBOR, BerlinClockHandler.APPLICATION_SMILE),
+                                handler::decodeBerlinTimeCborOrSmile)
+                        .GET("/decode/{lampString}", handler::decodeLampString))
+                .build();
+    }
+
+    /**
+     * WebFlux registers Jackson Smile by default but not CBOR, which Spring MVC picks up from the classpath.
+     */
+    @Bean
+    public CodecCustomizer berlinClockCborCodecs() {
+        return BerlinClockRoutes::registerCborCodecs;
+    }
+
+    static void registerCborCodecs(CodecConfigurer configurer) {
+        configurer.customCodecs().register(new SingleValueCborEncoder());
+        configurer.customCodecs().register(new Jackson2CborDecoder());
+    }
+
+    /**
+     * Same CORS policy as {@code @CrossOrigin(origins = "*")} on the servlet controller.
+     */
+    @Bean
+    public CorsWebFilter berlinClockCorsFilter() {
+        CorsConfiguration configuration = new CorsConfiguration().applyPermitDefaultValues();
+        UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
+        source.registerCorsConfiguration("/api/**", configuration);
+        return new CorsWebFilter(source);
+    }
+
+    /**
+     * Spring's CBOR encoder rejects every publisher, even though a response body is a single value.
+     * Single values are encoded with {@link #encodeValue}; multi-value streams are still unsupported.
+     */
+    private static final class SingleValueCborEncoder extends Jackson2CborEncoder {
+
+        @Override
+        public Flux<DataBuffer> encode(Publisher<?> inputStream, DataBufferFactory bufferFactory,
+                                       ResolvableType elementType, MimeType mimeType, Map<String, Object> hints) {
+            if (inputStream instanceof Mono<?> value) {
+                return value.map(body -> encodeValue(body, bufferFactory, elementType, mimeType, hints)).flux();
+            }
+            return super.encode(inputStream, bufferFactory, elementType, mimeType, hints);
+        }
+    }
+}
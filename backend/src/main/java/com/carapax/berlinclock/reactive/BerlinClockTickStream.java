@@ -0,0 +1,145 @@
+package com.carapax.berlinclock.reactive;
+
+import com.carapax.berlinclock.model.BerlinClockTime;
+import com.carapax.berlinclock.service.BerlinClockService;
+import com.carapax.berlinclock.service.BerlinClockTicker;
+import com.carapax.berlinclock.web.BerlinClockJson;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Publishes the shared ticker's times as a hot Flux of Server-Sent Events for the reactive profile.
+ * Each tick is turned into an event once and multicast to every subscriber. A subscriber that
+ * falls behind keeps only the latest tick, the same policy as the servlet broadcaster.
+ * Subscribers of another time zone share one stream per zone, which exists only while it has
+ * subscribers and gets one event per tick.
+ *
+ * @author Jose Benitez
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class BerlinClockTickStream implements BerlinClockTicker.Listener {
+
+    private static final ServerSentEvent<String> HEARTBEAT = ServerSentEvent.<String>builder().comment("heartbeat").build();
+
+    private final BerlinClockService berlinClockService;
+    private final Duration heartbeatInterval;
+    private final Duration retry;
+    private final Duration timeout;
+    private final Sinks.Many<ServerSentEvent<String>> ticks = Sinks.many().multicast().directBestEffort();
+    private final Map<String, ZoneTicks> zones = new ConcurrentHashMap<>();
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private volatile BerlinClockTime latest;
+
+    @Autowired
+    public BerlinClockTickStream(BerlinClockService berlinClockService,
+                                 @Value("${berlinclock.stream.heartbeat-interval:15s}") Duration heartbeatInterval,
+                                 @Value("${berlinclock.stream.retry:1s}") Duration retry,
+                                 @Value("${berlinclock.stream.timeout:30m}") Duration timeout) {
+        this.berlinClockService = berlinClockService;
+        this.heartbeatInterval = heartbeatInterval;
+        this.retry = retry;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Events for one subscriber: the latest time straight away, then one "time" event per tick,
+     * with heartbeat comments in between. Completes after the stream timeout so clients reconnect.
+     *
+     * @return cold Flux that joins the shared stream on subscription
+     */
+    public Flux<ServerSentEvent<String>> events() {
+        return events(null);
+    }
+
+    /**
+     * Events for one subscriber of the time in a zone, like {@link #events()}.
+     *
+     * @param zone supported region ID, or null for the default zone
+     * @return cold Flux that joins the zone's stream on subscription
+     */
+    public Flux<ServerSentEvent<String>> events(String zone) {
+        return Flux.defer(() -> {
+                    Sinks.Many<ServerSentEvent<String>> source = zone == null ? ticks : joinZone(zone);
+                    BerlinClockTime snapshot = zone == null ? latest : berlinClockService.getCurrentBerlinTime(zone);
+                    if (snapshot == null) {
+                        snapshot = berlinClockService.getCurrentBerlinTime(zone);
+                    }
+                    Flux<ServerSentEvent<String>> live = source.asFlux().onBackpressureLatest();
+                    if (!heartbeatInterval.isZero()) {
+                        live = live.mergeWith(Flux.interval(heartbeatInterval).map(tick -> HEARTBEAT));
+                    }
+                    return live.startWith(timeEvent(snapshot, retry));
+                })
+                .take(timeout)
+                .doOnSubscribe(subscription -> subscribers.incrementAndGet())
+                .doFinally(signal -> {
+                    subscribers.decrementAndGet();
+                    if (zone != null) {
+                        leaveZone(zone);
+                    }
+                });
+    }
+
+    /**
+     * Number of currently connected subscribers.
+     */
+    public int getSubscriberCount() {
+        return subscribers.get();
+    }
+
+    @Override
+    public void onTick(BerlinClockTime time) {
+        latest = time;
+        if (subscribers.get() > 0) {
+            // Called only from the ticker thread, so emissions are never concurrent
+            ticks.tryEmitNext(timeEvent(time, null));
+        }
+        for (Map.Entry<String, ZoneTicks> zone : zones.entrySet()) {
+            zone.getValue().sink.tryEmitNext(timeEvent(berlinClockService.getCurrentBerlinTime(zone.getKey()), null));
+        }
+    }
+
+    private Sinks.Many<ServerSentEvent<String>> joinZone(String zone) {
+        return zones.compute(zone, (id, zoneTicks) -> {
+            if (zoneTicks == null) {
+                zoneTicks = new ZoneTicks();
+            }
+            zoneTicks.subscribers++;
+            return zoneTicks;
+        }).sink;
+    }
+
+    private void leaveZone(String zone) {
+        zones.computeIfPresent(zone, (id, zoneTicks) -> --zoneTicks.subscribers == 0 ? null : zoneTicks);
+    }
+
+    private static ServerSentEvent<String> timeEvent(BerlinClockTime time, Duration retry) {
+        return ServerSentEvent.builder(new String(BerlinClockJson.toBytes(time, false), StandardCharsets.UTF_8))
+                .id(time.getCurrentTime())
+                .event("time")
+                .retry(retry)
+                .build();
+    }
+
+    /**
+     * The stream of one zone and how many subscribers it has.
+     */
+    private static final class ZoneTicks {
+
+        private final Sinks.Many<ServerSentEvent<String>> sink = Sinks.many().multicast().directBestEffort();
+        // Only changed inside the zones map's compute functions, which lock the entry
+        private int subscribers;
+    }
+}
@@ -0,0 +1,75 @@
+package com.carapax.berlinclock.reactive;
+
+import com.carapax.berlinclock.web.BerlinClockMetrics;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The reactive counterpart of RequestMetricsFilter: records the latency of every request into
+ * berlinclock.http.requests, tagged with the matched route pattern, the method and the outcome.
+ * A request that fails with an error is recorded with the status the error maps to, or 500; the
+ * event stream and requests the client cancelled are not recorded.
+ *
+ * @author Jose Benitez
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class RequestMetricsWebFilter implements WebFilter {
+
+    private final BerlinClockMetrics metrics;
+
+    public RequestMetricsWebFilter(BerlinClockMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        if (!metrics.isEnabled()) {
+            return chain.filter(exchange);
+        }
+        long start = System.nanoTime();
+        return chain.filter(exchange)
+                .doOnError(e -> record(exchange, errorStatus(e), start))
+                .doFinally(signal -> {
+                    if (signal == SignalType.ON_COMPLETE && !isEventStream(exchange.getResponse())) {
+                        HttpStatusCode status = exchange.getResponse().getStatusCode();
+                        record(exchange, status != null ? status.value() : HttpStatus.OK.value(), start);
+                    }
+                });
+    }
+
+    private void record(ServerWebExchange exchange, int status, long start) {
+        PathPattern pattern = exchange.getAttribute(RouterFunctions.MATCHING_PATTERN_ATTRIBUTE);
+        metrics.requestTimer(pattern != null ? pattern.getPatternString() : null,
+                        exchange.getRequest().getMethod().name(), status)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private static int errorStatus(Throwable e) {
+        // The exception handlers that turn this into a response run after the filter chain
+        return e instanceof ResponseStatusException statusException
+                ? statusException.getStatusCode().value() : HttpStatus.INTERNAL_SERVER_ERROR.value();
+    }
+
+    private static boolean isEventStream(ServerHttpResponse response) {
+        MediaType contentType = response.getHeaders().getContentType();
+        return contentType != null && MediaType.TEXT_EVENT_STREAM.isCompatibleWith(contentType);
+    }
+}
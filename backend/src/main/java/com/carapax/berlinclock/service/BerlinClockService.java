@@ -1,20 +1,48 @@
 package com.carapax.berlinclock.service;
 
 import com.carapax.berlinclock.model.BerlinClockTime;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Service for converting standard time to Berlin Clock format.
  * Follows Single Responsibility Principle - only handles time conversion logic.
+ * In {@link ConversionMode#LOOKUP} mode every second of the day is converted once at startup
+ * and conversions return shared, immutable instances from that table.
+ * <p>
+ * "Now" comes from an injectable {@link Clock}, whose zone is the default zone ({@link #DEFAULT_ZONE}
+ * unless configured otherwise). The current time is computed once per second by
+ * {@link #publishCurrentTime()}, which {@link BerlinClockTicker} calls at every second boundary, and
+ * read from a volatile reference by {@link #getCurrentBerlinTime()} and {@link #getCurrentPackedState()}.
+ * Other zones are published the same way while they have readers. If the published value is not from
+ * the clock's current second, because the ticker has stalled or is not running, the readers compute
+ * the current time themselves.
  *
  * @author Jose Benitez
  */
 @Service
 public class BerlinClockService {
 
+    public static final int SECONDS_PER_DAY = 86_400;
+    public static final String INVALID_TIME_MESSAGE = "Invalid time format. Expected HH:mm:ss";
+    public static final String INVALID_RANGE_MESSAGE =
+            "Invalid range. Expected from <= to and a step of 1 to 86399 seconds";
+    public static final String UNKNOWN_ZONE_MESSAGE = "Unknown time zone. Expected a region ID such as Europe/Berlin";
+    public static final ZoneId DEFAULT_ZONE = ZoneId.of("Europe/Berlin");
+
     private static final char YELLOW = 'Y';
     private static final char RED = 'R';
     private static final char OFF = 'O';
@@ -22,15 +50,168 @@ public class BerlinClockService {
     private static final int LAMPS_PER_MINUTE_ROW = 4;
     private static final int LAMPS_PER_FIVE_MINUTE_ROW = 11;
     private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm:ss");
+    private static final Set<String> ZONE_IDS = Set.copyOf(ZoneId.getAvailableZoneIds());
+
+    private final ConversionMode conversionMode;
+    private final Clock clock;
+    private final long zoneIdleSeconds;
+    private final ZoneState defaultZone;
+    private final Map<String, ZoneState> zones = new ConcurrentHashMap<>();
+    private final LongAdder currentTimeFallbacks = new LongAdder();
+
+    public BerlinClockService() {
+        this(ConversionMode.LOOKUP);
+    }
+
+    public BerlinClockService(ConversionMode conversionMode) {
+        this(conversionMode, Clock.system(DEFAULT_ZONE));
+    }
+
+    public BerlinClockService(ConversionMode conversionMode, Clock clock) {
+        this(conversionMode, clock, Duration.ofMinutes(1));
+    }
+
+    @Autowired
+    public BerlinClockService(@Value("${berlinclock.conversion.mode:lookup}") ConversionMode conversionMode,
+                              Clock clock,
+                              @Value("${berlinclock.zone.idle-timeout:60s}") Duration zoneIdleTimeout) {
+        this.conversionMode = conversionMode;
+        this.clock = clock;
+        this.zoneIdleSeconds = zoneIdleTimeout.toSeconds();
+        this.defaultZone = new ZoneState(clock.getZone());
+        if (conversionMode == ConversionMode.LOOKUP) {
+            // Build the table now rather than on the first request
+            LookupTable.warmUp();
+        }
+        ReverseIndex.warmUp();
+    }
+
+    public ConversionMode getConversionMode() {
+        return conversionMode;
+    }
 
     /**
-     * Converts the current system time to Berlin Clock format
+     * @return the clock the current time is read from; its zone is the default zone
+     */
+    public Clock getClock() {
+        return clock;
+    }
+
+    /**
+     * Checks a zone ID against the region IDs the JVM knows, such as {@code Europe/Berlin} or {@code UTC}.
+     * This is a lookup in a set built once, so it allocates nothing.
+     *
+     * @param zoneId zone ID from a request
+     * @return true if {@link #getCurrentBerlinTime(String)} accepts it
+     */
+    public static boolean isSupportedZone(String zoneId) {
+        return zoneId != null && ZONE_IDS.contains(zoneId);
+    }
+
+    /**
+     * Returns the current time in the default zone in Berlin Clock format: the published value when
+     * it is from the clock's current second, otherwise one computed on the spot.
      *
      * @return BerlinClockTime representation of current time
      */
     public BerlinClockTime getCurrentBerlinTime() {
-        LocalTime now = LocalTime.now();
-        return convertToBerlinTime(now);
+        return currentTime(defaultZone).time();
+    }
+
+    /**
+     * Returns the current time in the given zone, like {@link #getCurrentBerlinTime()}.
+     * The first read of a zone computes the time on the spot; from the next tick on, the zone is
+     * published with the default one until it has no reader for the idle timeout.
+     *
+     * @param zoneId region ID, or null for the default zone
+     * @return BerlinClockTime representation of current time in that zone
+     * @throws IllegalArgumentException if the zone is not supported, see {@link #isSupportedZone}
+     */
+    public BerlinClockTime getCurrentBerlinTime(String zoneId) {
+        return currentTime(zone(zoneId)).time();
+    }
+
+    /**
+     * Returns the current time in the given zone together with the second of the clock it belongs to,
+     * for responses that are valid until that second is over.
+     *
+     * @param zoneId region ID, or null for the default zone
+     * @return the current time, published or computed like {@link #getCurrentBerlinTime(String)}
+     * @throws IllegalArgumentException if the zone is not supported
+     */
+    public CurrentTime getCurrentTime(String zoneId) {
+        return currentTime(zone(zoneId));
+    }
+
+    /**
+     * Computes the current time from the clock and publishes it for the readers of this second,
+     * in the default zone and in every zone read since the idle timeout. Zones idle for longer are
+     * dropped. Called by the ticker just after each second boundary; concurrent calls are not expected.
+     *
+     * @return the published time in the default zone
+     */
+    public BerlinClockTime publishCurrentTime() {
+        Instant now = clock.instant();
+        CurrentTime current = defaultZone.publish(now);
+        for (Map.Entry<String, ZoneState> entry : zones.entrySet()) {
+            ZoneState zone = entry.getValue();
+            if (now.getEpochSecond() - zone.lastReadSecond > zoneIdleSeconds) {
+                zones.remove(entry.getKey(), zone);
+            } else {
+                zone.publish(now);
+            }
+        }
+        return current.time();
+    }
+
+    /**
+     * @return number of zones other than the default one that are currently published
+     */
+    public int getActiveZoneCount() {
+        return zones.size();
+    }
+
+    /**
+     * @return number of reads of the current time that found no value published for the current second
+     */
+    public long getCurrentTimeFallbackCount() {
+        return currentTimeFallbacks.sum();
+    }
+
+    /**
+     * The default zone, or the published state of another one, created on its first read.
+     * Unknown IDs are rejected before they reach the map, so it only ever holds real zones.
+     */
+    private ZoneState zone(String zoneId) {
+        if (zoneId == null || zoneId.equals(defaultZone.zoneId)) {
+            return defaultZone;
+        }
+        ZoneState zone = zones.get(zoneId);
+        if (zone == null) {
+            if (!isSupportedZone(zoneId)) {
+                throw new IllegalArgumentException(UNKNOWN_ZONE_MESSAGE + ": " + zoneId);
+            }
+            zone = zones.computeIfAbsent(zoneId, id -> new ZoneState(ZoneId.of(id)));
+        }
+        return zone;
+    }
+
+    /**
+     * The published current time of a zone if it belongs to the clock's current second, otherwise a
+     * freshly computed one. The fallback is not published, so a late reader never replaces a newer tick.
+     */
+    private CurrentTime currentTime(ZoneState zone) {
+        long epochSecond = Math.floorDiv(clock.millis(), 1000L);
+        if (zone.lastReadSecond != epochSecond) {
+            // Written at most once per second per zone, so readers do not contend on the field
+            zone.lastReadSecond = epochSecond;
+        }
+        CurrentTime current = zone.published;
+        if (current != null && current.epochSecond() == epochSecond) {
+            return current;
+        }
+        currentTimeFallbacks.increment();
+        return zone.compute(clock.instant());
     }
 
     /**
@@ -40,18 +221,31 @@ public class BerlinClockService {
      * @return BerlinClockTime representation
      */
     public BerlinClockTime convertToBerlinTime(LocalTime time) {
-        int hours = time.getHour();
-        int minutes = time.getMinute();
-        int seconds = time.getSecond();
+        ConversionEvent event = new ConversionEvent();
+        event.begin();
+        int secondOfDay = time.toSecondOfDay();
+        BerlinClockTime berlinTime = lamps(secondOfDay);
+        event.finish(ConversionEvent.NO_TEXT, secondOfDay, conversionMode);
+        return berlinTime;
+    }
 
-        return new BerlinClockTime(
-                getSecondsLamp(seconds),
-                getFiveHoursRow(hours),
-                getSingleHoursRow(hours),
-                getFiveMinutesRow(minutes),
-                getSingleMinutesRow(minutes),
-                time.format(TIME_FORMATTER)
-        );
+    /**
+     * Converts a second-of-day (0-86399) to Berlin Clock format
+     *
+     * @param secondOfDay seconds elapsed since midnight
+     * @return BerlinClockTime representation
+     * @throws IllegalArgumentException if secondOfDay is outside the day
+     */
+    public BerlinClockTime convertToBerlinTime(int secondOfDay) {
+        ConversionEvent event = new ConversionEvent();
+        event.begin();
+        if (secondOfDay < 0 || secondOfDay >= SECONDS_PER_DAY) {
+            event.finish(ConversionEvent.NO_TEXT, secondOfDay, conversionMode);
+            throw new IllegalArgumentException("Second of day out of range: " + secondOfDay);
+        }
+        BerlinClockTime berlinTime = lamps(secondOfDay);
+        event.finish(ConversionEvent.NO_TEXT, secondOfDay, conversionMode);
+        return berlinTime;
     }
 
     /**
@@ -62,47 +256,249 @@ public class BerlinClockService {
      * @throws IllegalArgumentException if time format is invalid
      */
     public BerlinClockTime convertToBerlinTime(String timeString) {
+        ConversionEvent event = new ConversionEvent();
+        event.begin();
+        int secondOfDay = TimeParser.parseSecondOfDay(timeString);
+        int length = timeString == null ? 0 : timeString.length();
+        if (secondOfDay == TimeParser.INVALID) {
+            event.finish(length, secondOfDay, conversionMode);
+            throw new IllegalArgumentException(INVALID_TIME_MESSAGE);
+        }
+        BerlinClockTime berlinTime = lamps(secondOfDay);
+        event.finish(length, secondOfDay, conversionMode);
+        return berlinTime;
+    }
+
+    /**
+     * Lamps for a valid second-of-day, from the table or built in place depending on the mode.
+     */
+    private BerlinClockTime lamps(int secondOfDay) {
+        if (conversionMode == ConversionMode.LOOKUP) {
+            return LookupTable.ENTRIES[secondOfDay];
+        }
+        return computeBerlinTime(secondOfDay / 3600, (secondOfDay / 60) % 60, secondOfDay % 60);
+    }
+
+    /**
+     * Returns the packed lamp state for the current time, from the published value like
+     * {@link #getCurrentBerlinTime()}.
+     *
+     * @return packed lamp state, see {@link BerlinClockTime#toPackedState()}
+     */
+    public int getCurrentPackedState() {
+        return currentTime(defaultZone).packedState();
+    }
+
+    /**
+     * Returns the packed lamp state for the current time in the given zone.
+     *
+     * @param zoneId region ID, or null for the default zone
+     * @return packed lamp state
+     * @throws IllegalArgumentException if the zone is not supported
+     */
+    public int getCurrentPackedState(String zoneId) {
+        return currentTime(zone(zoneId)).packedState();
+    }
+
+    /**
+     * Computes the packed lamp state for a time string (HH:mm:ss), without building lamp row strings.
+     *
+     * @param timeString time in HH:mm:ss format
+     * @return packed lamp state
+     * @throws IllegalArgumentException if time format is invalid
+     */
+    public int toPackedState(String timeString) {
+        return toPackedState(parse(timeString));
+    }
+
+    /**
+     * Parses an HH:mm:ss string for the string-taking methods, which report bad input by throwing.
+     * Callers on a hot path should use {@link TimeParser} and check for {@link TimeParser#INVALID} instead.
+     */
+    private static int parse(String timeString) {
+        int secondOfDay = TimeParser.parseSecondOfDay(timeString);
+        if (secondOfDay == TimeParser.INVALID) {
+            throw new IllegalArgumentException(INVALID_TIME_MESSAGE);
+        }
+        return secondOfDay;
+    }
+
+    /**
+     * Computes the packed lamp state for a time directly, without building lamp row strings.
+     *
+     * @param time the time to convert
+     * @return packed lamp state
+     */
+    public int toPackedState(LocalTime time) {
+        return toPackedState(time.toSecondOfDay());
+    }
+
+    /**
+     * Computes the packed lamp state for a second-of-day directly, without building lamp row strings.
+     *
+     * @param secondOfDay seconds elapsed since midnight
+     * @return packed lamp state
+     * @throws IllegalArgumentException if secondOfDay is outside the day
+     */
+    public int toPackedState(int secondOfDay) {
+        if (secondOfDay < 0 || secondOfDay >= SECONDS_PER_DAY) {
+            throw new IllegalArgumentException("Second of day out of range: " + secondOfDay);
+        }
+        return pack(secondOfDay);
+    }
+
+    /**
+     * Returns the lamps that differ between the states of two times, from their packed states
+     * with a single XOR, so no lamp rows are built or compared. The new state of a changed lamp
+     * is its bit in {@code toPackedState(toSecondOfDay)}.
+     *
+     * @param fromSecondOfDay second-of-day of the earlier state
+     * @param toSecondOfDay   second-of-day of the later state
+     * @return bits of the changed lamps, in the packed layout of {@link BerlinClockTime#toPackedState()}
+     * @throws IllegalArgumentException if either second is outside the day
+     */
+    public int changedLamps(int fromSecondOfDay, int toSecondOfDay) {
+        return toPackedState(fromSecondOfDay) ^ toPackedState(toSecondOfDay);
+    }
+
+    /**
+     * Returns the lamp states of every step-th second from one second of the day to another, both
+     * inclusive. The states are computed one step at a time as the sequence is walked, each from the
+     * previous one, so a whole day takes constant memory.
+     *
+     * @param fromSecondOfDay first second (0-86399)
+     * @param toSecondOfDay   last second, not before the first
+     * @param stepSeconds     seconds between states (1-86399)
+     * @return sequence positioned before its first state
+     * @throws IllegalArgumentException if the range or step is invalid
+     */
+    public LampSequence sequence(int fromSecondOfDay, int toSecondOfDay, int stepSeconds) {
+        if (fromSecondOfDay < 0 || toSecondOfDay >= SECONDS_PER_DAY || fromSecondOfDay > toSecondOfDay
+                || stepSeconds < 1 || stepSeconds >= SECONDS_PER_DAY) {
+            throw new IllegalArgumentException(INVALID_RANGE_MESSAGE);
+        }
+        return new LampSequence(fromSecondOfDay, toSecondOfDay, stepSeconds);
+    }
+
+    private static int pack(int secondOfDay) {
+        int hours = secondOfDay / 3600;
+        int minutes = (secondOfDay / 60) % 60;
+        return (secondOfDay & 1) << BerlinClockTime.SECONDS_LAMP_SHIFT
+                | lampsOn(hours / 5) << BerlinClockTime.FIVE_HOURS_SHIFT
+                | lampsOn(hours % 5) << BerlinClockTime.SINGLE_HOURS_SHIFT
+                | lampsOn(minutes / 5) << BerlinClockTime.FIVE_MINUTES_SHIFT
+                | lampsOn(minutes % 5) << BerlinClockTime.SINGLE_MINUTES_SHIFT;
+    }
+
+    /**
+     * Decodes a packed lamp state to standard time.
+     * Same seconds convention as {@link #decodeBerlinTime(BerlinClockTime)}.
+     *
+     * @param packedState packed lamp state
+     * @return time string in HH:mm:ss format
+     * @throws IllegalArgumentException if the state is not one a Berlin Clock can show
+     */
+    public String decodePackedState(int packedState) {
+        return formatTime(decodeToSecondOfDay(packedState));
+    }
+
+    /**
+     * Decodes a packed lamp state to a second-of-day without building the time string.
+     * This is a single probe into the reverse index of the 2,880 states a Berlin Clock can show
+     * (24 hours x 60 minutes x seconds-lamp parity). Rows lit out of order, such as a five-hours
+     * row with only its second lamp on, and hours past 23 are not in the index and are rejected.
+     * The seconds lamp only carries parity, so the result is always minute-aligned plus 0 or 1.
+     *
+     * @param packedState packed lamp state
+     * @return second-of-day (0-86399)
+     * @throws IllegalArgumentException if the state is not one a Berlin Clock can show
+     */
+    public int decodeToSecondOfDay(int packedState) {
+        DecodeEvent event = new DecodeEvent();
+        event.begin();
         try {
-            LocalTime time = LocalTime.parse(timeString, TIME_FORMATTER);
-            return convertToBerlinTime(time);
-        } catch (Exception e) {
-            throw new IllegalArgumentException("Invalid time format. Expected HH:mm:ss", e);
+            int secondOfDay = lookUp(packedState);
+            event.finish(DecodeEvent.PACKED_STATE, secondOfDay);
+            return secondOfDay;
+        } catch (IllegalArgumentException e) {
+            event.finish(DecodeEvent.PACKED_STATE, TimeParser.INVALID);
+            throw e;
+        }
+    }
+
+    /**
+     * Probes the reverse index. Shared by the public decode methods so each records a single event.
+     */
+    private static int lookUp(int packedState) {
+        if ((packedState & ~BerlinClockTime.PACKED_STATE_MASK) != 0) {
+            throw new IllegalArgumentException("Packed lamp state has bits above lamp 24 set");
+        }
+        int secondOfDay = ReverseIndex.secondOfDay(packedState);
+        if (secondOfDay < 0) {
+            throw new IllegalArgumentException("Lamp state does not show a valid time");
+        }
+        return secondOfDay;
+    }
+
+    /**
+     * Formats a second-of-day as HH:mm:ss, reusing the table's strings in lookup mode.
+     */
+    private String formatTime(int secondOfDay) {
+        if (conversionMode == ConversionMode.LOOKUP) {
+            return LookupTable.ENTRIES[secondOfDay].getCurrentTime();
         }
+        return LocalTime.ofSecondOfDay(secondOfDay).format(TIME_FORMATTER);
+    }
+
+    /**
+     * Bits for a row with the given number of leftmost lamps on.
+     */
+    static int lampsOn(int count) {
+        return (1 << count) - 1;
+    }
+
+    /**
+     * Builds a new BerlinClockTime from scratch, one row at a time.
+     *
+     * @param hours   hours (0-23)
+     * @param minutes minutes (0-59)
+     * @param seconds seconds (0-59)
+     * @return BerlinClockTime representation
+     */
+    private static BerlinClockTime computeBerlinTime(int hours, int minutes, int seconds) {
+        return new BerlinClockTime(
+                getSecondsLamp(seconds),
+                getFiveHoursRow(hours),
+                getSingleHoursRow(hours),
+                getFiveMinutesRow(minutes),
+                getSingleMinutesRow(minutes),
+                LocalTime.of(hours, minutes, seconds).format(TIME_FORMATTER)
+        );
     }
 
     /**
      * Decodes a Berlin Clock format back to standard time format.
      * Since the seconds lamp only indicates even/odd, we assume 1 for odd seconds (Y) and 0 for even (O).
+     * Every row must have its full number of lamps, each either off or the colour of its position.
      *
      * @param berlinClockTime the Berlin Clock time to decode
      * @return time string in HH:mm:ss format
      * @throws IllegalArgumentException if the Berlin Clock format is invalid
      */
     public String decodeBerlinTime(BerlinClockTime berlinClockTime) {
+        DecodeEvent event = new DecodeEvent();
+        event.begin();
         try {
-            // Decode hours
-            int fiveHours = countLampsOn(berlinClockTime.getFiveHoursRow());
-            int singleHours = countLampsOn(berlinClockTime.getSingleHoursRow());
-            int hours = (fiveHours * 5) + singleHours;
-
-            // Decode minutes
-            int fiveMinutes = countLampsOn(berlinClockTime.getFiveMinutesRow());
-            int singleMinutes = countLampsOn(berlinClockTime.getSingleMinutesRow());
-            int minutes = (fiveMinutes * 5) + singleMinutes;
-
-            // Decode seconds - we can only determine if even or odd
-            // Y = odd seconds (1), O = even seconds (0)
-            int seconds = berlinClockTime.getSecondsLamp().equals("Y") ? 1 : 0;
-
-            // Validate ranges
-            if (hours < 0 || hours > 23 || minutes < 0 || minutes > 59 || seconds < 0 || seconds > 59) {
-                throw new IllegalArgumentException("Decoded time values are out of valid range");
+            if (berlinClockTime == null) {
+                throw new IllegalArgumentException("Invalid Berlin Clock format");
             }
-
-            LocalTime time = LocalTime.of(hours, minutes, seconds);
-            return time.format(TIME_FORMATTER);
-        } catch (Exception e) {
-            throw new IllegalArgumentException("Invalid Berlin Clock format", e);
+            // Packing checks every row's length and lamp colours before any lamp is counted
+            int secondOfDay = lookUp(berlinClockTime.toPackedState());
+            event.finish(berlinClockTime, secondOfDay);
+            return formatTime(secondOfDay);
+        } catch (IllegalArgumentException e) {
+            event.finish(berlinClockTime, TimeParser.INVALID);
+            throw e;
         }
     }
 
@@ -125,19 +521,6 @@ public class BerlinClockService {
         return decodeBerlinTime(berlinClockTime);
     }
 
-    /**
-     * Counts the number of lamps that are on (not 'O') in a row.
-     *
-     * @param lampRow the lamp row string
-     * @return number of lamps that are on
-     */
-    private int countLampsOn(String lampRow) {
-        if (lampRow == null) {
-            return 0;
-        }
-        return (int) lampRow.chars().filter(c -> c != OFF).count();
-    }
-
     /**
      * Returns the seconds lamp status.
      * Yellow (Y) if seconds are odd, Off (O) if even.
@@ -145,7 +528,7 @@ public class BerlinClockService {
      * @param seconds current seconds
      * @return "Y" or "O"
      */
-    private String getSecondsLamp(int seconds) {
+    private static String getSecondsLamp(int seconds) {
         return seconds % 2 != 0 ? String.valueOf(YELLOW) : String.valueOf(OFF);
     }
 
@@ -156,7 +539,7 @@ public class BerlinClockService {
      * @param hours current hours (0-23)
      * @return String of 4 characters (R or O)
      */
-    private String getFiveHoursRow(int hours) {
+    private static String getFiveHoursRow(int hours) {
         int lampsOn = hours / 5;
         return buildLampRow(LAMPS_PER_HOUR_ROW, lampsOn, RED);
     }
@@ -168,7 +551,7 @@ public class BerlinClockService {
      * @param hours current hours (0-23)
      * @return String of 4 characters (R or O)
      */
-    private String getSingleHoursRow(int hours) {
+    private static String getSingleHoursRow(int hours) {
         int lampsOn = hours % 5;
         return buildLampRow(LAMPS_PER_HOUR_ROW, lampsOn, RED);
     }
@@ -180,7 +563,7 @@ public class BerlinClockService {
      * @param minutes current minutes (0-59)
      * @return String of 11 characters (Y, R, or O)
      */
-    private String getFiveMinutesRow(int minutes) {
+    private static String getFiveMinutesRow(int minutes) {
         int lampsOn = minutes / 5;
         StringBuilder row = new StringBuilder();
 
@@ -203,7 +586,7 @@ public class BerlinClockService {
      * @param minutes current minutes (0-59)
      * @return String of 4 characters (Y or O)
      */
-    private String getSingleMinutesRow(int minutes) {
+    private static String getSingleMinutesRow(int minutes) {
         int lampsOn = minutes % 5;
         return buildLampRow(LAMPS_PER_MINUTE_ROW, lampsOn, YELLOW);
     }
@@ -216,7 +599,7 @@ public class BerlinClockService {
      * @param onColor    color character for lamps that are on
      * @return String representation of the lamp row
      */
-    private String buildLampRow(int totalLamps, int lampsOn, char onColor) {
+    private static String buildLampRow(int totalLamps, int lampsOn, char onColor) {
         StringBuilder row = new StringBuilder();
 
         for (int i = 0; i < totalLamps; i++) {
@@ -225,4 +608,125 @@ public class BerlinClockService {
 
         return row.toString();
     }
-}
\ No newline at end of file
+
+    /**
+     * Every second of the day converted once. Row strings are interned, so the table holds
+     * only the few distinct row values plus one time string per entry.
+     */
+    private static final class LookupTable {
+
+        private static final BerlinClockTime[] ENTRIES = build();
+
+        /**
+         * No-op; calling it triggers class initialization, which builds the table.
+         */
+        static void warmUp() {
+        }
+
+        private static BerlinClockTime[] build() {
+            BerlinClockTime[] entries = new BerlinClockTime[SECONDS_PER_DAY];
+            for (int secondOfDay = 0; secondOfDay < SECONDS_PER_DAY; secondOfDay++) {
+                BerlinClockTime computed = computeBerlinTime(
+                        secondOfDay / 3600, (secondOfDay / 60) % 60, secondOfDay % 60);
+                entries[secondOfDay] = new BerlinClockTime(
+                        computed.getSecondsLamp().intern(),
+                        computed.getFiveHoursRow().intern(),
+                        computed.getSingleHoursRow().intern(),
+                        computed.getFiveMinutesRow().intern(),
+                        computed.getSingleMinutesRow().intern(),
+                        computed.getCurrentTime()
+                );
+            }
+            return entries;
+        }
+    }
+
+    /**
+     * Reverse index from packed lamp state to second-of-day for every state a Berlin Clock can show.
+     * Open addressing with linear probing over primitive arrays; at under 40% load almost every
+     * lookup is answered by the first slot.
+     */
+    private static final class ReverseIndex {
+
+        private static final int SLOTS = 1 << 13;
+        private static final int EMPTY = -1;
+        private static final int[] KEYS = new int[SLOTS];
+        private static final int[] SECONDS = new int[SLOTS];
+
+        static {
+            Arrays.fill(KEYS, EMPTY);
+            for (int minuteOfDay = 0; minuteOfDay < SECONDS_PER_DAY / 60; minuteOfDay++) {
+                put(minuteOfDay * 60);
+                put(minuteOfDay * 60 + 1);
+            }
+        }
+
+        /**
+         * No-op; calling it triggers class initialization, which builds the index.
+         */
+        static void warmUp() {
+        }
+
+        /**
+         * @param packedState packed lamp state, at most 24 bits
+         * @return the second-of-day, or -1 if no valid time shows this state
+         */
+        static int secondOfDay(int packedState) {
+            for (int slot = slot(packedState); ; slot = (slot + 1) & (SLOTS - 1)) {
+                int key = KEYS[slot];
+                if (key == packedState) {
+                    return SECONDS[slot];
+                }
+                if (key == EMPTY) {
+                    return -1;
+                }
+            }
+        }
+
+        private static void put(int secondOfDay) {
+            int packedState = pack(secondOfDay);
+            int slot = slot(packedState);
+            while (KEYS[slot] != EMPTY) {
+                slot = (slot + 1) & (SLOTS - 1);
+            }
+            KEYS[slot] = packedState;
+            SECONDS[slot] = secondOfDay;
+        }
+
+        private static int slot(int packedState) {
+            // Fibonacci hashing: the top 13 bits of the product mix all 24 lamp bits
+            return (packedState * 0x9E3779B9) >>> (32 - 13);
+        }
+    }
+
+    /**
+     * One zone with the time last published for it and the second it was last read in.
+     */
+    private final class ZoneState {
+
+        final ZoneId zone;
+        final String zoneId;
+        volatile CurrentTime published;
+        volatile long lastReadSecond;
+
+        ZoneState(ZoneId zone) {
+            this.zone = zone;
+            this.zoneId = zone.getId();
+            this.lastReadSecond = Math.floorDiv(clock.millis(), 1000L);
+        }
+
+        CurrentTime publish(Instant now) {
+            CurrentTime current = compute(now);
+            published = current;
+            return current;
+        }
+
+        /**
+         * Converts one reading of the clock, so the time and its epoch second always agree.
+         */
+        CurrentTime compute(Instant now) {
+            int secondOfDay = LocalTime.ofInstant(now, zone).toSecondOfDay();
+            return new CurrentTime(now.getEpochSecond(), convertToBerlinTime(secondOfDay), pack(secondOfDay), secondOfDay);
+        }
+    }
+}
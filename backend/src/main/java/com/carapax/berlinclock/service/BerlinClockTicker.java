@@ -0,0 +1,133 @@
+package com.carapax.berlinclock.service;
+
+import com.carapax.berlinclock.model.BerlinClockTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Computes the current Berlin Clock time once per second on a single thread, publishes it
+ * through {@link BerlinClockService#publishCurrentTime()} and hands it to every registered
+ * {@link Listener}. Ticks are aligned to the second boundary of the service's clock, so all
+ * listeners and readers see the lamps change at the same moment the real clock does.
+ * With {@code spring.threads.virtual.enabled=true} the ticker runs on a virtual thread.
+ *
+ * @author Jose Benitez
+ */
+@Component
+public class BerlinClockTicker implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(BerlinClockTicker.class);
+
+    /**
+     * Small delay after the boundary so the clock is safely inside the new second.
+     */
+    private static final long ALIGNMENT_SLACK_MILLIS = 2;
+
+    private final BerlinClockService berlinClockService;
+    private final List<Listener> listeners;
+    private final boolean virtualThreads;
+    private volatile ScheduledExecutorService scheduler;
+    private volatile boolean running;
+
+    public BerlinClockTicker(BerlinClockService berlinClockService, List<Listener> listeners) {
+        this(berlinClockService, listeners, false);
+    }
+
+    @Autowired
+    public BerlinClockTicker(BerlinClockService berlinClockService, List<Listener> listeners,
+                             @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.berlinClockService = berlinClockService;
+        this.listeners = listeners;
+        this.virtualThreads = virtualThreads;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        ThreadFactory threadFactory = virtualThreads
+                ? Thread.ofVirtual().name("berlin-clock-ticker").factory()
+                : Thread.ofPlatform().name("berlin-clock-ticker").daemon().factory();
+        scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        running = true;
+        scheduleNextTick();
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Computes the current time once and publishes it to the service and all listeners.
+     * A failing listener is logged and does not stop the others or the ticker.
+     */
+    void tick() {
+        BerlinClockTime current = berlinClockService.publishCurrentTime();
+        for (Listener listener : listeners) {
+            try {
+                listener.onTick(current);
+            } catch (RuntimeException e) {
+                log.warn("Berlin Clock tick listener {} failed", listener, e);
+            }
+        }
+    }
+
+    /**
+     * Milliseconds from the given wall-clock time to the next tick.
+     *
+     * @param epochMillis current wall-clock time
+     * @return delay in milliseconds, always positive
+     */
+    static long millisUntilNextTick(long epochMillis) {
+        return 1000 - Math.floorMod(epochMillis, 1000L) + ALIGNMENT_SLACK_MILLIS;
+    }
+
+    private void scheduleNextTick() {
+        ScheduledExecutorService current = scheduler;
+        if (!running || current == null) {
+            return;
+        }
+        try {
+            current.schedule(() -> {
+                try {
+                    tick();
+                } finally {
+                    scheduleNextTick();
+                }
+            }, millisUntilNextTick(berlinClockService.getClock().millis()), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Stopped between the check and the schedule call
+        }
+    }
+
+    /**
+     * Receives the current Berlin Clock time on every tick.
+     * Called on the ticker thread, so implementations must not block.
+     */
+    public interface Listener {
+
+        void onTick(BerlinClockTime time);
+    }
+}
@@ -0,0 +1,57 @@
+package com.carapax.berlinclock.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for one time-to-lamps conversion in BerlinClockService.
+ * Disabled unless a recording uses the jfr/berlinclock.jfc settings, so a disabled event is
+ * reduced by the JIT to nothing.
+ *
+ * @author Jose Benitez
+ */
+@Name("com.carapax.berlinclock.Conversion")
+@Label("Berlin Clock Conversion")
+@Description("A time converted to Berlin Clock lamps, including parsing for string input")
+@Category("Berlin Clock")
+@Enabled(false)
+@StackTrace(false)
+final class ConversionEvent extends Event {
+
+    /**
+     * Input length for conversions given a second-of-day or LocalTime rather than a string.
+     */
+    static final int NO_TEXT = -1;
+
+    @Label("Input Length")
+    @Description("Characters of the time string, or -1 when no string was parsed")
+    int inputLength;
+
+    @Label("Second of Day")
+    int secondOfDay;
+
+    @Label("Mode")
+    String mode;
+
+    @Label("Outcome")
+    String outcome;
+
+    /**
+     * Ends the event and commits it if the recording wants it.
+     */
+    void finish(int inputLength, int secondOfDay, ConversionMode mode) {
+        end();
+        if (shouldCommit()) {
+            this.inputLength = inputLength;
+            this.secondOfDay = secondOfDay;
+            this.mode = mode.name();
+            this.outcome = secondOfDay >= 0 && secondOfDay < BerlinClockService.SECONDS_PER_DAY ? "SUCCESS" : "INVALID";
+            commit();
+        }
+    }
+}
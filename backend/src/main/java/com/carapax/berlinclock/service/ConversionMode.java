@@ -0,0 +1,19 @@
+package com.carapax.berlinclock.service;
+
+/**
+ * Strategy used by {@link BerlinClockService} to turn a time into lamp rows.
+ *
+ * @author Jose Benitez
+ */
+public enum ConversionMode {
+
+    /**
+     * Serves shared instances from a table built once at startup, indexed by second-of-day.
+     */
+    LOOKUP,
+
+    /**
+     * Builds the lamp rows on every call.
+     */
+    COMPUTE
+}
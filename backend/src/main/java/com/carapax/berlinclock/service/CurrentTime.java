@@ -0,0 +1,23 @@
+package com.carapax.berlinclock.service;
+
+import com.carapax.berlinclock.model.BerlinClockTime;
+
+/**
+ * The current time of one zone as published for one second of the service's clock.
+ * All fields come from a single reading of the clock, so they always agree.
+ *
+ * @param epochSecond the second of the clock the time belongs to
+ * @param time        the time in Berlin Clock format
+ * @param packedState the packed lamp state, see {@link BerlinClockTime#toPackedState()}
+ * @param secondOfDay the second of the day shown in {@code time}
+ * @author Jose Benitez
+ */
+public record CurrentTime(long epochSecond, BerlinClockTime time, int packedState, int secondOfDay) {
+
+    /**
+     * @return the epoch second at which this time stops being current
+     */
+    public long expiresEpochSecond() {
+        return epochSecond + 1;
+    }
+}
@@ -0,0 +1,74 @@
+package com.carapax.berlinclock.service;
+
+import com.carapax.berlinclock.model.BerlinClockTime;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for one lamps-to-time decode in BerlinClockService.
+ * Disabled unless a recording uses the jfr/berlinclock.jfc settings.
+ *
+ * @author Jose Benitez
+ */
+@Name("com.carapax.berlinclock.Decode")
+@Label("Berlin Clock Decode")
+@Description("A Berlin Clock state decoded to a time, including row validation for lamp strings")
+@Category("Berlin Clock")
+@Enabled(false)
+@StackTrace(false)
+final class DecodeEvent extends Event {
+
+    /**
+     * Input length of a packed lamp state: its 3-byte wire form.
+     */
+    static final int PACKED_STATE = 3;
+
+    @Label("Input Length")
+    @Description("Lamp characters across the five rows, or 3 for a packed state")
+    int inputLength;
+
+    @Label("Second of Day")
+    @Description("Decoded second-of-day, or -1 if the state was rejected")
+    int secondOfDay;
+
+    @Label("Outcome")
+    String outcome;
+
+    /**
+     * Ends the event and commits it if the recording wants it.
+     */
+    void finish(int inputLength, int secondOfDay) {
+        end();
+        if (shouldCommit()) {
+            record(inputLength, secondOfDay);
+        }
+    }
+
+    /**
+     * Same as {@link #finish(int, int)}, counting the lamps only if the event is committed.
+     */
+    void finish(BerlinClockTime input, int secondOfDay) {
+        end();
+        if (shouldCommit()) {
+            record(input == null ? 0 : length(input.getSecondsLamp()) + length(input.getFiveHoursRow())
+                    + length(input.getSingleHoursRow()) + length(input.getFiveMinutesRow())
+                    + length(input.getSingleMinutesRow()), secondOfDay);
+        }
+    }
+
+    private void record(int inputLength, int secondOfDay) {
+        this.inputLength = inputLength;
+        this.secondOfDay = secondOfDay;
+        this.outcome = secondOfDay >= 0 ? "SUCCESS" : "INVALID";
+        commit();
+    }
+
+    private static int length(String row) {
+        return row == null ? 0 : row.length();
+    }
+}
@@ -0,0 +1,105 @@
+package com.carapax.berlinclock.service;
+
+import com.carapax.berlinclock.model.BerlinClockTime;
+
+/**
+ * Cursor over the lamp states of every step-th second from one time of day to another, both inclusive.
+ * Each step starts from the previous packed state and recomputes only the rows whose lamp count
+ * changed, so a one-second step usually touches the seconds lamp alone. The lamps that differ from
+ * the previous state are available as a bit mask, which lets writers patch their output instead of
+ * rebuilding it. Obtained from {@link BerlinClockService#sequence}; not thread-safe.
+ *
+ * @author Jose Benitez
+ */
+public final class LampSequence {
+
+    private final int from;
+    private final int to;
+    private final int step;
+    private int secondOfDay = -1;
+    private int packedState;
+    private int changedLamps;
+    private int fiveHours = -1;
+    private int singleHours = -1;
+    private int fiveMinutes = -1;
+    private int singleMinutes = -1;
+
+    LampSequence(int from, int to, int step) {
+        this.from = from;
+        this.to = to;
+        this.step = step;
+    }
+
+    /**
+     * Moves to the next state.
+     *
+     * @return false once the end of the range has been passed
+     */
+    public boolean next() {
+        int next = secondOfDay < 0 ? from : secondOfDay + step;
+        if (next > to) {
+            return false;
+        }
+        advanceTo(next);
+        return true;
+    }
+
+    /**
+     * @return number of states in the whole range
+     */
+    public int size() {
+        return (to - from) / step + 1;
+    }
+
+    /**
+     * @return second-of-day of the current state
+     */
+    public int secondOfDay() {
+        return secondOfDay;
+    }
+
+    /**
+     * @return packed lamp state of the current second, see {@link BerlinClockTime#toPackedState()}
+     */
+    public int packedState() {
+        return packedState;
+    }
+
+    /**
+     * @return bits of the lamps that differ from the previous state; every lamp for the first state
+     */
+    public int changedLamps() {
+        return changedLamps;
+    }
+
+    private void advanceTo(int next) {
+        int hours = next / 3600;
+        int minutes = next / 60 % 60;
+        int previous = packedState;
+        int state = previous & ~BerlinClockTime.SECONDS_LAMP_MASK | (next & 1) << BerlinClockTime.SECONDS_LAMP_SHIFT;
+        if (hours / 5 != fiveHours) {
+            fiveHours = hours / 5;
+            state = setRow(state, BerlinClockTime.FIVE_HOURS_MASK, BerlinClockTime.FIVE_HOURS_SHIFT, fiveHours);
+        }
+        if (hours % 5 != singleHours) {
+            singleHours = hours % 5;
+            state = setRow(state, BerlinClockTime.SINGLE_HOURS_MASK, BerlinClockTime.SINGLE_HOURS_SHIFT, singleHours);
+        }
+        if (minutes / 5 != fiveMinutes) {
+            fiveMinutes = minutes / 5;
+            state = setRow(state, BerlinClockTime.FIVE_MINUTES_MASK, BerlinClockTime.FIVE_MINUTES_SHIFT, fiveMinutes);
+        }
+        if (minutes % 5 != singleMinutes) {
+            singleMinutes = minutes % 5;
+            state = setRow(state, BerlinClockTime.SINGLE_MINUTES_MASK, BerlinClockTime.SINGLE_MINUTES_SHIFT,
+                    singleMinutes);
+        }
+        changedLamps = secondOfDay < 0 ? BerlinClockTime.PACKED_STATE_MASK : previous ^ state;
+        packedState = state;
+        secondOfDay = next;
+    }
+
+    private static int setRow(int state, int mask, int shift, int lampsOn) {
+        return state & ~mask | BerlinClockService.lampsOn(lampsOn) << shift;
+    }
+}
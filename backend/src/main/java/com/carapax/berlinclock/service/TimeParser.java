@@ -0,0 +1,56 @@
+package com.carapax.berlinclock.service;
+
+/**
+ * Parses HH:mm:ss times without exceptions or allocation.
+ * Invalid input is reported with the {@link #INVALID} sentinel instead of an exception, so
+ * malformed requests cost no more than valid ones. Accepts exactly what
+ * {@code LocalTime.parse(time, DateTimeFormatter.ofPattern("HH:mm:ss"))} accepts, including
+ * {@code 24:00:00} as midnight.
+ *
+ * @author Jose Benitez
+ */
+public final class TimeParser {
+
+    /**
+     * Returned for input that is not a valid HH:mm:ss time.
+     */
+    public static final int INVALID = -1;
+
+    private TimeParser() {
+    }
+
+    /**
+     * Parses an HH:mm:ss time to a second-of-day.
+     *
+     * @param time the time string, may be null
+     * @return second-of-day (0-86399), or {@link #INVALID}
+     */
+    public static int parseSecondOfDay(CharSequence time) {
+        if (time == null || time.length() != 8 || time.charAt(2) != ':' || time.charAt(5) != ':') {
+            return INVALID;
+        }
+        int hours = twoDigits(time, 0);
+        int minutes = twoDigits(time, 3);
+        int seconds = twoDigits(time, 6);
+        if (hours < 0 || minutes < 0 || minutes > 59 || seconds < 0 || seconds > 59) {
+            return INVALID;
+        }
+        if (hours == 24 && minutes == 0 && seconds == 0) {
+            // The formatter resolves end of day to midnight
+            return 0;
+        }
+        if (hours > 23) {
+            return INVALID;
+        }
+        return hours * 3600 + minutes * 60 + seconds;
+    }
+
+    private static int twoDigits(CharSequence s, int offset) {
+        int tens = s.charAt(offset) - '0';
+        int units = s.charAt(offset + 1) - '0';
+        if (tens < 0 || tens > 9 || units < 0 || units > 9) {
+            return INVALID;
+        }
+        return tens * 10 + units;
+    }
+}
@@ -0,0 +1,123 @@
+package com.carapax.berlinclock.web;
+
+import io.micrometer.core.instrument.Counter;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Per-client admission control for the conversion and decode endpoints, so a client looping on
+ * them cannot take the capacity everyone else's requests need. Each client address gets a token
+ * bucket per route ({@code berlinclock.admission.convert.*} for /api/time/convert..., and
+ * {@code berlinclock.admission.decode.*} for /api/time/decode...); a request past its bucket is
+ * answered with 429 and a fixed body before it reaches the metrics filter or the controller.
+ * Other paths pass straight through. The buckets are lock-free, see {@link ClientTokenBuckets}.
+ * <p>
+ * The client is the remote address. Behind a proxy that is the proxy's unless Tomcat takes it from
+ * X-Forwarded-For, which {@code server.forward-headers-strategy=native} enables for the proxies in
+ * {@code server.tomcat.remoteip.internal-proxies}. The header is ignored from any other peer, so a
+ * client cannot pick its own bucket by sending it.
+ *
+ * @author Jose Benitez
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(name = "berlinclock.admission.enabled", havingValue = "true", matchIfMissing = true)
+@Order(Ordered.HIGHEST_PRECEDENCE + 5)
+public class AdmissionFilter implements Filter {
+
+    static final int CONVERT = 0;
+    static final int DECODE = 1;
+
+    private static final String[] ROUTES = {"convert", "decode"};
+    private static final String API_PREFIX = "/api/time/";
+    private static final byte[] REJECTED_BODY =
+            "{\"error\":\"Too many requests\"}".getBytes(StandardCharsets.US_ASCII);
+    private static final String RETRY_AFTER_SECONDS = "1";
+
+    private final ClientTokenBuckets buckets;
+    private final Counter[] rejections = new Counter[ROUTES.length];
+
+    @Autowired
+    public AdmissionFilter(@Value("${berlinclock.admission.convert.rate:1000}") int convertRate,
+                           @Value("${berlinclock.admission.convert.burst:2000}") int convertBurst,
+                           @Value("${berlinclock.admission.decode.rate:1000}") int decodeRate,
+                           @Value("${berlinclock.admission.decode.burst:2000}") int decodeBurst,
+                           @Value("${berlinclock.admission.max-clients:65536}") int maxClients,
+                           @Value("${berlinclock.admission.idle-timeout:60s}") Duration idleTimeout,
+                           BerlinClockMetrics metrics) {
+        this(new int[]{convertRate, decodeRate}, new int[]{convertBurst, decodeBurst}, maxClients, idleTimeout,
+                metrics, System::nanoTime);
+    }
+
+    /**
+     * @param rates  requests per second per client, indexed by {@link #CONVERT} and {@link #DECODE}; 0 for no limit
+     * @param bursts requests a client may make at once, same indexes
+     */
+    public AdmissionFilter(int[] rates, int[] bursts, int maxClients, Duration idleTimeout, BerlinClockMetrics metrics,
+                           LongSupplier nanoClock) {
+        this.buckets = new ClientTokenBuckets(rates, bursts, maxClients, idleTimeout, nanoClock);
+        for (int route = 0; route < ROUTES.length; route++) {
+            rejections[route] = metrics.admissionRejections(ROUTES[route]);
+        }
+    }
+
+    /**
+     * @return number of clients with their own token buckets
+     */
+    public int getClientCount() {
+        return buckets.size();
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        int route = route(((HttpServletRequest) request).getRequestURI());
+        if (route < 0 || buckets.tryAcquire(request.getRemoteAddr(), route)) {
+            chain.doFilter(request, response);
+            return;
+        }
+        rejections[route].increment();
+        HttpServletResponse httpResponse = (HttpServletResponse) response;
+        httpResponse.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        httpResponse.setHeader(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS);
+        httpResponse.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        httpResponse.setContentLength(REJECTED_BODY.length);
+        httpResponse.getOutputStream().write(REJECTED_BODY);
+    }
+
+    /**
+     * @return the limited route a request URI belongs to, or -1 if it is not limited
+     */
+    static int route(String uri) {
+        if (!uri.startsWith(API_PREFIX)) {
+            return -1;
+        }
+        if (uri.startsWith("convert", API_PREFIX.length())) {
+            return CONVERT;
+        }
+        if (uri.startsWith("decode", API_PREFIX.length())) {
+            return DECODE;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,178 @@
+package com.carapax.berlinclock.web;
+
+import com.carapax.berlinclock.model.BerlinClockTime;
+import com.carapax.berlinclock.service.TimeParser;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Serializes BerlinClockTime to UTF-8 JSON without going through Jackson.
+ * There are only 86,400 distinct payloads, so the bytes are cached by the second-of-day
+ * in {@code currentTime} and each payload is serialized at most once. The output matches
+ * what Jackson writes for the model: same field names, same order, and for the pretty
+ * form the same layout as Jackson's default pretty printer. The bodies of decode responses
+ * are prebuilt here as well.
+ *
+ * @author Jose Benitez
+ */
+public final class BerlinClockJson {
+
+    private static final int SECONDS_PER_DAY = 86_400;
+
+    // Entry fields are final, so publishing an entry through a plain array write is safe
+    private static final Entry[] COMPACT = new Entry[SECONDS_PER_DAY];
+    private static final Entry[] PRETTY = new Entry[SECONDS_PER_DAY];
+
+    // Decoding only yields second 0 or 1 of each minute, so all {"time":...} bodies fit in 2,880 entries
+    private static final byte[][] DECODED = new byte[SECONDS_PER_DAY / 30][];
+
+    private static final LongAdder CACHE_HITS = new LongAdder();
+    private static final LongAdder CACHE_MISSES = new LongAdder();
+
+    static {
+        for (int i = 0; i < DECODED.length; i++) {
+            DECODED[i] = serializeDecoded(i / 2 * 60 + i % 2);
+        }
+    }
+
+    private BerlinClockJson() {
+    }
+
+    /**
+     * Returns the JSON body for a BerlinClockTime.
+     * The returned array is shared and must not be modified.
+     *
+     * @param time   the time to serialize
+     * @param pretty true for indented output, false for compact output
+     * @return UTF-8 encoded JSON
+     */
+    public static byte[] toBytes(BerlinClockTime time, boolean pretty) {
+        int secondOfDay = TimeParser.parseSecondOfDay(time.getCurrentTime());
+        if (secondOfDay < 0) {
+            return serialize(time, pretty);
+        }
+
+        Entry[] cache = pretty ? PRETTY : COMPACT;
+        Entry entry = cache[secondOfDay];
+        if (entry != null && (entry.time == time || entry.time.equals(time))) {
+            CACHE_HITS.increment();
+            return entry.body;
+        }
+
+        CACHE_MISSES.increment();
+        byte[] body = serialize(time, pretty);
+        cache[secondOfDay] = new Entry(time, body);
+        return body;
+    }
+
+    /**
+     * @return number of {@link #toBytes} calls answered from the cache
+     */
+    public static long cacheHits() {
+        return CACHE_HITS.sum();
+    }
+
+    /**
+     * @return number of {@link #toBytes} calls that had to serialize
+     */
+    public static long cacheMisses() {
+        return CACHE_MISSES.sum();
+    }
+
+    /**
+     * Returns the {@code {"time":"HH:mm:ss"}} body of a decode response.
+     * The returned array is shared and must not be modified.
+     *
+     * @param secondOfDay decoded second-of-day (0-86399)
+     * @return UTF-8 encoded JSON
+     */
+    public static byte[] decodeResponse(int secondOfDay) {
+        int second = secondOfDay % 60;
+        if (second < 2) {
+            return DECODED[secondOfDay / 60 * 2 + second];
+        }
+        return serializeDecoded(secondOfDay);
+    }
+
+    /**
+     * Serializes an error object, {@code {"error":"<message>"}}.
+     *
+     * @param message the error message
+     * @return UTF-8 encoded JSON
+     */
+    public static byte[] errorBody(String message) {
+        StringBuilder json = new StringBuilder(message.length() + 16).append('{');
+        appendField(json, "error", message, false, true);
+        return json.append('}').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] serializeDecoded(int secondOfDay) {
+        byte[] body = "{\"time\":\"00:00:00\"}".getBytes(StandardCharsets.US_ASCII);
+        writeTwoDigits(body, 9, secondOfDay / 3600);
+        writeTwoDigits(body, 12, secondOfDay / 60 % 60);
+        writeTwoDigits(body, 15, secondOfDay % 60);
+        return body;
+    }
+
+    private static void writeTwoDigits(byte[] body, int offset, int value) {
+        body[offset] = (byte) ('0' + value / 10);
+        body[offset + 1] = (byte) ('0' + value % 10);
+    }
+
+    private static byte[] serialize(BerlinClockTime time, boolean pretty) {
+        StringBuilder json = new StringBuilder(pretty ? 224 : 160);
+        json.append('{');
+        appendField(json, "secondsLamp", time.getSecondsLamp(), pretty, true);
+        appendField(json, "fiveHoursRow", time.getFiveHoursRow(), pretty, false);
+        appendField(json, "singleHoursRow", time.getSingleHoursRow(), pretty, false);
+        appendField(json, "fiveMinutesRow", time.getFiveMinutesRow(), pretty, false);
+        appendField(json, "singleMinutesRow", time.getSingleMinutesRow(), pretty, false);
+        appendField(json, "currentTime", time.getCurrentTime(), pretty, false);
+        if (pretty) {
+            json.append('\n');
+        }
+        json.append('}');
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void appendField(StringBuilder json, String name, String value, boolean pretty, boolean first) {
+        if (!first) {
+            json.append(',');
+        }
+        if (pretty) {
+            json.append("\n  ");
+        }
+        json.append('"').append(name).append('"');
+        json.append(pretty ? " : " : ":");
+        if (value == null) {
+            json.append("null");
+            return;
+        }
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c == '\n') {
+                json.append("\\n");
+            } else if (c == '\r') {
+                json.append("\\r");
+            } else if (c == '\t') {
+                json.append("\\t");
+            } else if (c == '\b') {
+                json.append("\\b");
+            } else if (c == '\f') {
+                json.append("\\f");
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04X", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        json.append('"');
+    }
+
+    private record Entry(BerlinClockTime time, byte[] body) {
+    }
+}
@@ -0,0 +1,153 @@
+package com.carapax.berlinclock.web;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.http.Outcome;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Counters and request timers for the Berlin Clock endpoints.
+ * Every meter is registered once and cached, so recording on the request path is a lookup and
+ * an increment with no allocation. With {@code berlinclock.metrics.enabled=false} the meters are
+ * bound to an empty composite registry and recording does nothing.
+ *
+ * @author Jose Benitez
+ */
+@Component
+public class BerlinClockMetrics {
+
+    public static final String REQUESTS = "berlinclock.http.requests";
+    static final String UNKNOWN_URI = "UNKNOWN";
+
+    private static final String[] METHODS = {"GET", "POST", "OTHER"};
+    private static final Outcome[] OUTCOMES = Outcome.values();
+
+    private final MeterRegistry registry;
+    private final boolean enabled;
+    private final Counter conversions;
+    private final Counter decodes;
+    private final Counter convertValidationFailures;
+    private final Counter decodeValidationFailures;
+    // Timers per URI pattern, indexed by method and outcome; patterns come from the handler mappings, so the map is bounded
+    private final ConcurrentMap<String, AtomicReferenceArray<Timer>> requestTimers = new ConcurrentHashMap<>();
+
+    /**
+     * Metrics that record nothing, for components created outside the application context.
+     */
+    public static BerlinClockMetrics disabled() {
+        return new BerlinClockMetrics(new CompositeMeterRegistry(), false);
+    }
+
+    @Autowired
+    public BerlinClockMetrics(MeterRegistry registry, @Value("${berlinclock.metrics.enabled:true}") boolean enabled) {
+        this.registry = enabled ? registry : new CompositeMeterRegistry();
+        this.enabled = enabled;
+        this.conversions = Counter.builder("berlinclock.conversions")
+                .description("Times converted to Berlin Clock format on request, including batch lines")
+                .register(this.registry);
+        this.decodes = Counter.builder("berlinclock.decodes")
+                .description("Berlin Clock states decoded to a time, including batch lines")
+                .register(this.registry);
+        this.convertValidationFailures = Counter.builder("berlinclock.validation.failures")
+                .description("Requests or batch lines rejected as invalid input")
+                .tag("operation", "convert")
+                .register(this.registry);
+        this.decodeValidationFailures = Counter.builder("berlinclock.validation.failures")
+                .description("Requests or batch lines rejected as invalid input")
+                .tag("operation", "decode")
+                .register(this.registry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void conversion() {
+        conversions.increment();
+    }
+
+    public void conversions(int count) {
+        conversions.increment(count);
+    }
+
+    public void decode() {
+        decodes.increment();
+    }
+
+    public void convertValidationFailure() {
+        convertValidationFailures.increment();
+    }
+
+    public void decodeValidationFailure() {
+        decodeValidationFailures.increment();
+    }
+
+    /**
+     * Returns the counter of requests to a route that admission control turned away.
+     *
+     * @param route the route name, as in the {@code berlinclock.admission.<route>.*} properties
+     * @return the counter, registered on first use
+     */
+    Counter admissionRejections(String route) {
+        return Counter.builder("berlinclock.admission.rejections")
+                .description("Requests answered with 429 because the client exceeded its rate for the route")
+                .tag("route", route)
+                .register(registry);
+    }
+
+    /**
+     * Returns the latency timer for a request.
+     *
+     * @param uri    the matched URI pattern, or null if no handler matched
+     * @param method the HTTP method
+     * @param status the response status
+     * @return the timer, registered on first use
+     */
+    public Timer requestTimer(String uri, String method, int status) {
+        String key = uri != null ? uri : UNKNOWN_URI;
+        AtomicReferenceArray<Timer> timers = requestTimers.get(key);
+        if (timers == null) {
+            timers = requestTimers.computeIfAbsent(key, BerlinClockMetrics::newTimerSlots);
+        }
+        int methodIndex = methodIndex(method);
+        Outcome outcome = Outcome.forStatus(status);
+        int slot = methodIndex * OUTCOMES.length + outcome.ordinal();
+        Timer timer = timers.get(slot);
+        if (timer == null) {
+            // Registration is idempotent, so a racing thread gets the same timer. Percentiles come from the
+            // histogram buckets (histogram_quantile); client-side percentiles would double the recording cost
+            timer = Timer.builder(REQUESTS)
+                    .description("Latency of Berlin Clock API requests")
+                    .tags("uri", key, "method", METHODS[methodIndex], "outcome", outcome.name())
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofNanos(10_000))
+                    .maximumExpectedValue(Duration.ofSeconds(10))
+                    .register(registry);
+            timers.set(slot, timer);
+        }
+        return timer;
+    }
+
+    private static AtomicReferenceArray<Timer> newTimerSlots(String uri) {
+        return new AtomicReferenceArray<>(METHODS.length * OUTCOMES.length);
+    }
+
+    private static int methodIndex(String method) {
+        if ("GET".equals(method)) {
+            return 0;
+        }
+        if ("POST".equals(method)) {
+            return 1;
+        }
+        return 2;
+    }
+}
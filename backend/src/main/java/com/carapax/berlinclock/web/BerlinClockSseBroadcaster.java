@@ -0,0 +1,190 @@
+package com.carapax.berlinclock.web;
+
+import com.carapax.berlinclock.model.BerlinClockTime;
+import com.carapax.berlinclock.service.BerlinClockService;
+import com.carapax.berlinclock.service.BerlinClockTicker;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Fans the ticker's once-per-second Berlin Clock time out to Server-Sent Events subscribers.
+ * Each tick is turned into an SSE event once and the same event is queued for every subscriber
+ * through a {@link DropOldestQueue}, so a client that cannot keep up loses its oldest ticks
+ * instead of holding memory or blocking the ticker.
+ * A reconnecting client is sent the latest time straight away, so it does not need
+ * Last-Event-ID to resume.
+ * Subscribers may ask for a time zone; the event for each zone in use is built once per tick
+ * from the time the service has published for that zone.
+ *
+ * @author Jose Benitez
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class BerlinClockSseBroadcaster implements BerlinClockTicker.Listener, DisposableBean {
+
+    private static final Set<DataWithMediaType> HEARTBEAT = SseEmitter.event().comment("heartbeat").build();
+
+    private final BerlinClockService berlinClockService;
+    private final Executor senderExecutor;
+    private final int bufferSize;
+    private final int heartbeatTicks;
+    private final long retryMillis;
+    private final long timeoutMillis;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private volatile BerlinClockTime latest;
+    private long tickCount;
+
+    @Autowired
+    public BerlinClockSseBroadcaster(BerlinClockService berlinClockService,
+                                     @Value("${berlinclock.stream.buffer-size:8}") int bufferSize,
+                                     @Value("${berlinclock.stream.heartbeat-interval:15s}") Duration heartbeatInterval,
+                                     @Value("${berlinclock.stream.retry:1s}") Duration retry,
+                                     @Value("${berlinclock.stream.timeout:30m}") Duration timeout,
+                                     @Qualifier("streamSenderExecutor") Executor senderExecutor) {
+        this(berlinClockService, senderExecutor, bufferSize,
+                (int) heartbeatInterval.toSeconds(), retry.toMillis(), timeout.toMillis());
+    }
+
+    BerlinClockSseBroadcaster(BerlinClockService berlinClockService, Executor senderExecutor, int bufferSize,
+                              int heartbeatTicks, long retryMillis, long timeoutMillis) {
+        this.berlinClockService = berlinClockService;
+        this.senderExecutor = senderExecutor;
+        this.bufferSize = bufferSize;
+        this.heartbeatTicks = heartbeatTicks;
+        this.retryMillis = retryMillis;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Registers a new subscriber and sends it the latest time immediately.
+     *
+     * @return emitter to return from the controller
+     */
+    public SseEmitter subscribe() {
+        return subscribe((String) null);
+    }
+
+    /**
+     * Registers a new subscriber for the time in a zone and sends it the current time immediately.
+     *
+     * @param zone supported region ID, or null for the default zone
+     * @return emitter to return from the controller
+     */
+    public SseEmitter subscribe(String zone) {
+        return subscribe(new SseEmitter(timeoutMillis), zone);
+    }
+
+    SseEmitter subscribe(SseEmitter emitter) {
+        return subscribe(emitter, null);
+    }
+
+    SseEmitter subscribe(SseEmitter emitter, String zone) {
+        Subscriber subscriber = new Subscriber(emitter, zone);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+
+        BerlinClockTime snapshot = zone == null ? latest : berlinClockService.getCurrentBerlinTime(zone);
+        if (snapshot == null) {
+            snapshot = berlinClockService.getCurrentBerlinTime(zone);
+        }
+        subscriber.offer(SseEmitter.event()
+                .id(snapshot.getCurrentTime())
+                .name("time")
+                .reconnectTime(retryMillis)
+                .data(BerlinClockJson.toBytes(snapshot, false), MediaType.APPLICATION_JSON)
+                .build());
+        subscribers.add(subscriber);
+        return emitter;
+    }
+
+    /**
+     * Number of currently connected subscribers.
+     */
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    @Override
+    public void onTick(BerlinClockTime time) {
+        latest = time;
+        if (subscribers.isEmpty()) {
+            return;
+        }
+
+        Set<DataWithMediaType> event = timeEvent(time);
+        Map<String, Set<DataWithMediaType>> zoneEvents = null;
+        boolean heartbeat = heartbeatTicks > 0 && ++tickCount % heartbeatTicks == 0;
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.zone == null) {
+                subscriber.offer(event);
+            } else {
+                if (zoneEvents == null) {
+                    zoneEvents = new HashMap<>();
+                }
+                subscriber.offer(zoneEvents.computeIfAbsent(subscriber.zone,
+                        zone -> timeEvent(berlinClockService.getCurrentBerlinTime(zone))));
+            }
+            if (heartbeat) {
+                subscriber.offer(HEARTBEAT);
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.emitter.complete();
+        }
+        subscribers.clear();
+    }
+
+    private static Set<DataWithMediaType> timeEvent(BerlinClockTime time) {
+        return SseEmitter.event()
+                .id(time.getCurrentTime())
+                .name("time")
+                .data(BerlinClockJson.toBytes(time, false), MediaType.APPLICATION_JSON)
+                .build();
+    }
+
+    /**
+     * One connected client.
+     */
+    private final class Subscriber extends DropOldestQueue<Set<DataWithMediaType>> {
+
+        private final SseEmitter emitter;
+        private final String zone;
+
+        Subscriber(SseEmitter emitter, String zone) {
+            super(senderExecutor, bufferSize);
+            this.emitter = emitter;
+            this.zone = zone;
+        }
+
+        @Override
+        protected void deliver(Set<DataWithMediaType> event) throws IOException {
+            emitter.send(event);
+        }
+
+        @Override
+        protected void onDeliveryFailure(Exception e) {
+            // Client went away; the container also reports the error through onError
+            subscribers.remove(this);
+        }
+    }
+}
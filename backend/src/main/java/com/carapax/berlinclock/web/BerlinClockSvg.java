@@ -0,0 +1,270 @@
+package com.carapax.berlinclock.web;
+
+import com.carapax.berlinclock.model.BerlinClockTime;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Renders a lamp state as an SVG image of the clock, for clients that cannot run the React component.
+ * The image shows the lamps only, drawn like BerlinClock.tsx, so it depends on nothing but the packed
+ * state and there are 2,880 of them: one per minute of the day, with the seconds lamp on or off.
+ * <p>
+ * Each rendered image is kept in a slot of its own, found from the lamp counts of the state, so the
+ * cache is bounded by construction and a repeated render is an array read. With
+ * {@code berlinclock.render.gzip} the gzip form is made along with the image and served as-is to
+ * clients that accept it. Lamp patterns no time can show are rendered on every call and not cached.
+ *
+ * @author Jose Benitez
+ */
+@Component
+public class BerlinClockSvg {
+
+    public static final MediaType MEDIA_TYPE = MediaType.valueOf("image/svg+xml");
+
+    /**
+     * Number of distinct images: 1440 minutes, each with the seconds lamp on and off.
+     */
+    static final int DISTINCT_STATES = 24 * 60 * 2;
+
+    private static final int WIDTH = 460;
+    private static final int HEIGHT = 324;
+    private static final int PADDING = 20;
+    private static final int ROW_GAP = 15;
+    private static final int SECONDS_RADIUS = 40;
+    private static final int ROW_HEIGHT = 36;
+    private static final int HOUR_LAMP_WIDTH = 96;
+    private static final int HOUR_LAMP_GAP = 12;
+    private static final int FIVE_MINUTE_LAMP_WIDTH = 32;
+    private static final int FIVE_MINUTE_LAMP_GAP = 6;
+
+    // Colours of BerlinClock.css
+    private static final String HEAD = "<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"" + WIDTH
+            + "\" height=\"" + HEIGHT + "\" viewBox=\"0 0 " + WIDTH + " " + HEIGHT + "\">"
+            + "<defs>"
+            + "<linearGradient id=\"bg\" x1=\"0\" y1=\"0\" x2=\"1\" y2=\"1\">"
+            + "<stop offset=\"0\" stop-color=\"#2c3e50\"/><stop offset=\"1\" stop-color=\"#34495e\"/></linearGradient>"
+            + "<radialGradient id=\"R\" cx=\"0.3\" cy=\"0.3\" r=\"0.8\">"
+            + "<stop offset=\"0\" stop-color=\"#ff4444\"/><stop offset=\"1\" stop-color=\"#cc0000\"/></radialGradient>"
+            + "<radialGradient id=\"Y\" cx=\"0.3\" cy=\"0.3\" r=\"0.8\">"
+            + "<stop offset=\"0\" stop-color=\"#ffff44\"/><stop offset=\"1\" stop-color=\"#cccc00\"/></radialGradient>"
+            + "</defs>"
+            + "<rect width=\"" + WIDTH + "\" height=\"" + HEIGHT + "\" rx=\"20\" fill=\"url(#bg)\"/>"
+            + "<g stroke=\"#1a252f\" stroke-width=\"3\">";
+    private static final String TAIL = "</g></svg>";
+    private static final String OFF_RED = "fill=\"#3d1f1f\" opacity=\"0.2\"";
+    private static final String OFF_YELLOW = "fill=\"#3d3d1f\" opacity=\"0.2\"";
+
+    private final boolean gzip;
+    private final AtomicReferenceArray<Image> cache = new AtomicReferenceArray<>(DISTINCT_STATES);
+
+    public BerlinClockSvg(@Value("${berlinclock.render.gzip:true}") boolean gzip) {
+        this.gzip = gzip;
+    }
+
+    /**
+     * Returns the image of a lamp state, rendering it only the first time it is asked for.
+     *
+     * @param packedState packed lamp state
+     * @return the rendered image with its tags
+     */
+    public Image render(int packedState) {
+        int slot = slot(packedState);
+        if (slot < 0) {
+            return image(packedState);
+        }
+        Image image = cache.get(slot);
+        if (image == null) {
+            // Two threads may render the same state at once; both images are equal, so either may win
+            image = image(packedState);
+            cache.set(slot, image);
+        }
+        return image;
+    }
+
+    /**
+     * @return number of images rendered and cached so far, at most {@link #DISTINCT_STATES}
+     */
+    public int getCachedCount() {
+        int count = 0;
+        for (int slot = 0; slot < DISTINCT_STATES; slot++) {
+            if (cache.get(slot) != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Checks an Accept-Encoding header for gzip, given by name or as {@code *}, with a non-zero q.
+     *
+     * @param acceptEncoding header value, or null if absent
+     * @return true if a gzip body may be sent
+     */
+    public static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        boolean wildcard = false;
+        for (String entry : acceptEncoding.split(",")) {
+            int parameters = entry.indexOf(';');
+            String coding = (parameters < 0 ? entry : entry.substring(0, parameters)).trim();
+            boolean accepted = parameters < 0 || quality(entry.substring(parameters + 1)) > 0;
+            if (coding.equalsIgnoreCase("gzip") || coding.equalsIgnoreCase("x-gzip")) {
+                return accepted;
+            }
+            if (coding.equals("*")) {
+                wildcard = accepted;
+            }
+        }
+        return wildcard;
+    }
+
+    /**
+     * Slot of a state: the lamp counts give the minute of the day, the seconds lamp the half.
+     * Every row must be lit from the left, as for a real time, or the state has no slot.
+     *
+     * @return slot index, or -1 if no time shows this state
+     */
+    static int slot(int packedState) {
+        int fiveHours = (packedState & BerlinClockTime.FIVE_HOURS_MASK) >>> BerlinClockTime.FIVE_HOURS_SHIFT;
+        int singleHours = (packedState & BerlinClockTime.SINGLE_HOURS_MASK) >>> BerlinClockTime.SINGLE_HOURS_SHIFT;
+        int fiveMinutes = (packedState & BerlinClockTime.FIVE_MINUTES_MASK) >>> BerlinClockTime.FIVE_MINUTES_SHIFT;
+        int singleMinutes =
+                (packedState & BerlinClockTime.SINGLE_MINUTES_MASK) >>> BerlinClockTime.SINGLE_MINUTES_SHIFT;
+        if ((packedState & ~BerlinClockTime.PACKED_STATE_MASK) != 0 || !litFromLeft(fiveHours)
+                || !litFromLeft(singleHours) || !litFromLeft(fiveMinutes) || !litFromLeft(singleMinutes)) {
+            return -1;
+        }
+        int hour = 5 * Integer.bitCount(fiveHours) + Integer.bitCount(singleHours);
+        int minute = 5 * Integer.bitCount(fiveMinutes) + Integer.bitCount(singleMinutes);
+        // All eight hour lamps would be 24 o'clock
+        if (hour > 23) {
+            return -1;
+        }
+        return (hour * 60 + minute) << 1 | (packedState & BerlinClockTime.SECONDS_LAMP_MASK);
+    }
+
+    /**
+     * A row's lamps are lit from the left when its bits are a run of ones from bit 0.
+     */
+    private static boolean litFromLeft(int row) {
+        return (row & (row + 1)) == 0;
+    }
+
+    private static double quality(String parameters) {
+        for (String parameter : parameters.split(";")) {
+            String trimmed = parameter.trim();
+            if (trimmed.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(trimmed.substring(2));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    private Image image(int packedState) {
+        byte[] svg = svg(packedState).getBytes(StandardCharsets.US_ASCII);
+        byte[] gzipped = gzip ? gzip(svg) : null;
+        return new Image(svg, gzipped != null && gzipped.length < svg.length ? gzipped : null,
+                LampStateETag.svg(packedState, false), LampStateETag.svg(packedState, true));
+    }
+
+    /**
+     * Draws the five rows the way BerlinClock.tsx lays them out: the round seconds lamp, then the
+     * hour rows, the eleven narrower five-minute lamps and the single minutes.
+     */
+    static String svg(int packedState) {
+        StringBuilder out = new StringBuilder(4096).append(HEAD);
+        int centre = WIDTH / 2;
+        int y = PADDING;
+        out.append("<circle cx=\"").append(centre).append("\" cy=\"").append(y + SECONDS_RADIUS)
+                .append("\" r=\"").append(SECONDS_RADIUS).append("\" ");
+        fill(out, packedState, BerlinClockTime.SECONDS_LAMP_SHIFT).append("/>");
+        y += 2 * SECONDS_RADIUS + ROW_GAP;
+        y = row(out, packedState, BerlinClockTime.FIVE_HOURS_SHIFT, 4, HOUR_LAMP_WIDTH, HOUR_LAMP_GAP, y);
+        y = row(out, packedState, BerlinClockTime.SINGLE_HOURS_SHIFT, 4, HOUR_LAMP_WIDTH, HOUR_LAMP_GAP, y);
+        y = row(out, packedState, BerlinClockTime.FIVE_MINUTES_SHIFT, 11, FIVE_MINUTE_LAMP_WIDTH,
+                FIVE_MINUTE_LAMP_GAP, y);
+        row(out, packedState, BerlinClockTime.SINGLE_MINUTES_SHIFT, 4, HOUR_LAMP_WIDTH, HOUR_LAMP_GAP, y);
+        return out.append(TAIL).toString();
+    }
+
+    /**
+     * Draws one centred row of rectangular lamps.
+     *
+     * @return y of the next row
+     */
+    private static int row(StringBuilder out, int packedState, int shift, int lamps, int lampWidth, int gap, int y) {
+        int x = (WIDTH - lamps * lampWidth - (lamps - 1) * gap) / 2;
+        for (int i = 0; i < lamps; i++) {
+            out.append("<rect x=\"").append(x + i * (lampWidth + gap)).append("\" y=\"").append(y)
+                    .append("\" width=\"").append(lampWidth).append("\" height=\"").append(ROW_HEIGHT)
+                    .append("\" rx=\"8\" ");
+            fill(out, packedState, shift + i).append("/>");
+        }
+        return y + ROW_HEIGHT + ROW_GAP;
+    }
+
+    private static StringBuilder fill(StringBuilder out, int packedState, int bit) {
+        char colour = BerlinClockTime.lampColour(bit);
+        if ((packedState & (1 << bit)) != 0) {
+            return out.append("fill=\"url(#").append(colour).append(")\"");
+        }
+        return out.append(colour == 'R' ? OFF_RED : OFF_YELLOW);
+    }
+
+    private static byte[] gzip(byte[] body) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 2);
+        try (GZIPOutputStream gzipOut = new GZIPOutputStream(out)) {
+            gzipOut.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * A rendered image and its tags. The arrays are shared by every response for the state and must
+     * not be changed.
+     *
+     * @param svg         SVG document
+     * @param gzipped     the document gzipped, or null if gzip is off or does not make it smaller
+     * @param etag        tag of the SVG document
+     * @param gzippedETag tag of the gzip form
+     */
+    public record Image(byte[] svg, byte[] gzipped, String etag, String gzippedETag) {
+
+        /**
+         * @param gzip true if the client accepts gzip
+         * @return true if the gzip form is the one to send
+         */
+        public boolean sendsGzip(boolean gzip) {
+            return gzip && gzipped != null;
+        }
+
+        /**
+         * @return the body of the chosen form, see {@link #sendsGzip}
+         */
+        public byte[] body(boolean gzip) {
+            return sendsGzip(gzip) ? gzipped : svg;
+        }
+
+        /**
+         * @return the entity tag of the chosen form, see {@link #sendsGzip}
+         */
+        public String etag(boolean gzip) {
+            return sendsGzip(gzip) ? gzippedETag : etag;
+        }
+    }
+}
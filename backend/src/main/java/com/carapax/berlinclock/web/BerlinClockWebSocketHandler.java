@@ -0,0 +1,339 @@
+package com.carapax.berlinclock.web;
+
+import com.carapax.berlinclock.model.BerlinClockTime;
+import com.carapax.berlinclock.service.BerlinClockService;
+import com.carapax.berlinclock.service.BerlinClockTicker;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Pushes Berlin Clock lamp changes over WebSocket ({@code /api/time/ws}).
+ * A client picks a granularity with {@code ?granularity=second|minute|hour} (or by sending the
+ * granularity name as a text message later). It gets a full snapshot first, then only the rows
+ * that changed, and only when a row it cares about changes: a minute subscriber gets one frame
+ * per minute and never sees the seconds lamp. {@code ?zone=Area/City} shows the time in that zone
+ * instead of the default one; an unknown zone closes the session with status 1007.
+ * Delta frames are built once per tick per zone and granularity and shared by every subscriber.
+ * A client too slow to take them all never misses a change: once its buffer is full, everything
+ * it has not been sent yet is replaced by one snapshot of the newest state. Subscribing and
+ * ticking take the same lock, so a new subscriber gets either the state a tick published and that
+ * tick's successors, or the state before the tick and the tick's delta.
+ *
+ * @author Jose Benitez
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class BerlinClockWebSocketHandler extends TextWebSocketHandler implements BerlinClockTicker.Listener {
+
+    private static final TextMessage UNKNOWN_GRANULARITY =
+            new TextMessage("{\"type\":\"error\",\"message\":\"Unknown granularity\"}");
+
+    private final BerlinClockService berlinClockService;
+    private final Executor senderExecutor;
+    private final int bufferSize;
+    private final Map<String, Subscriber> subscribers = new ConcurrentHashMap<>();
+
+    // Guards everything below, and every offer to a subscriber
+    private final Object tickLock = new Object();
+    private final ZoneFrames defaultZoneFrames = new ZoneFrames();
+    private final Map<String, ZoneFrames> zoneFrames = new HashMap<>();
+    private long tick;
+
+    @Autowired
+    public BerlinClockWebSocketHandler(BerlinClockService berlinClockService,
+                                       @Qualifier("streamSenderExecutor") Executor senderExecutor,
+                                       @Value("${berlinclock.stream.buffer-size:8}") int bufferSize) {
+        this.berlinClockService = berlinClockService;
+        this.senderExecutor = senderExecutor;
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Number of currently connected subscribers.
+     */
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws IOException {
+        Granularity granularity = Granularity.parse(queryParam(session.getUri(), "granularity"));
+        String zone = queryParam(session.getUri(), "zone");
+        if (zone != null && !BerlinClockService.isSupportedZone(zone)) {
+            session.close(CloseStatus.BAD_DATA.withReason(BerlinClockService.UNKNOWN_ZONE_MESSAGE));
+            return;
+        }
+        Subscriber subscriber = new Subscriber(session, zone);
+        synchronized (tickLock) {
+            subscribers.put(session.getId(), subscriber);
+            subscriber.subscribe(granularity == null ? Granularity.SECOND : granularity);
+        }
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) {
+        Subscriber subscriber = subscribers.get(session.getId());
+        if (subscriber == null) {
+            return;
+        }
+        Granularity granularity = Granularity.parse(message.getPayload().trim());
+        synchronized (tickLock) {
+            if (granularity == null) {
+                subscriber.send(UNKNOWN_GRANULARITY, zoneFrames(subscriber.zone).current);
+            } else {
+                subscriber.subscribe(granularity);
+            }
+        }
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        subscribers.remove(session.getId());
+    }
+
+    @Override
+    public void handleTransportError(WebSocketSession session, Throwable exception) {
+        subscribers.remove(session.getId());
+    }
+
+    @Override
+    public void onTick(BerlinClockTime time) {
+        synchronized (tickLock) {
+            long current = ++tick;
+            defaultZoneFrames.next(time, current);
+            for (Subscriber subscriber : subscribers.values()) {
+                ZoneFrames frames = zoneFrames(subscriber.zone);
+                if (frames.tick != current) {
+                    frames.next(berlinClockService.getCurrentBerlinTime(subscriber.zone), current);
+                }
+                TextMessage frame = frames.frames[subscriber.granularity.ordinal()];
+                if (frame != null) {
+                    subscriber.send(frame, frames.current);
+                }
+            }
+            // Zones nobody listens to any more start over when someone does
+            if (!zoneFrames.isEmpty()) {
+                zoneFrames.values().removeIf(frames -> frames.tick != current);
+            }
+        }
+    }
+
+    /**
+     * The frames of a zone, seeded with its current time if nobody has listened to it yet.
+     * Called with the tick lock held.
+     */
+    private ZoneFrames zoneFrames(String zone) {
+        ZoneFrames frames = zone == null ? defaultZoneFrames : zoneFrames.computeIfAbsent(zone, z -> new ZoneFrames());
+        if (frames.current == null) {
+            frames.seed(berlinClockService.getCurrentBerlinTime(zone));
+        }
+        return frames;
+    }
+
+    /**
+     * @return the first value of a query parameter of the handshake URI, or null
+     */
+    private static String queryParam(URI uri, String name) {
+        if (uri == null) {
+            return null;
+        }
+        return UriComponentsBuilder.fromUri(uri).build().getQueryParams().getFirst(name);
+    }
+
+    /**
+     * Builds a frame with the rows of the given granularity that differ between two states.
+     *
+     * @return the frame, or null if there is no previous state or nothing changed
+     */
+    static TextMessage delta(BerlinClockTime previous, BerlinClockTime current, Granularity granularity) {
+        if (previous == null) {
+            return null;
+        }
+        StringBuilder frame = new StringBuilder(96);
+        frame.append("{\"type\":\"delta\",\"currentTime\":\"").append(current.getCurrentTime()).append('"');
+        int changed = 0;
+        if (granularity == Granularity.SECOND) {
+            changed += appendIfChanged(frame, "secondsLamp", previous.getSecondsLamp(), current.getSecondsLamp());
+        }
+        changed += appendIfChanged(frame, "fiveHoursRow", previous.getFiveHoursRow(), current.getFiveHoursRow());
+        changed += appendIfChanged(frame, "singleHoursRow", previous.getSingleHoursRow(), current.getSingleHoursRow());
+        if (granularity != Granularity.HOUR) {
+            changed += appendIfChanged(frame, "fiveMinutesRow",
+                    previous.getFiveMinutesRow(), current.getFiveMinutesRow());
+            changed += appendIfChanged(frame, "singleMinutesRow",
+                    previous.getSingleMinutesRow(), current.getSingleMinutesRow());
+        }
+        if (changed == 0) {
+            return null;
+        }
+        return new TextMessage(frame.append('}'));
+    }
+
+    /**
+     * Builds the full-state frame sent when a client (re)subscribes.
+     */
+    static TextMessage snapshot(BerlinClockTime time, Granularity granularity) {
+        StringBuilder frame = new StringBuilder(192);
+        frame.append("{\"type\":\"snapshot\",\"granularity\":\"").append(granularity.label).append('"');
+        appendRow(frame, "secondsLamp", time.getSecondsLamp());
+        appendRow(frame, "fiveHoursRow", time.getFiveHoursRow());
+        appendRow(frame, "singleHoursRow", time.getSingleHoursRow());
+        appendRow(frame, "fiveMinutesRow", time.getFiveMinutesRow());
+        appendRow(frame, "singleMinutesRow", time.getSingleMinutesRow());
+        appendRow(frame, "currentTime", time.getCurrentTime());
+        return new TextMessage(frame.append('}'));
+    }
+
+    private static int appendIfChanged(StringBuilder frame, String name, String previous, String current) {
+        // Rows from the lookup table are shared instances, so the identity check usually decides
+        if (previous == current || Objects.equals(previous, current)) {
+            return 0;
+        }
+        appendRow(frame, name, current);
+        return 1;
+    }
+
+    private static void appendRow(StringBuilder frame, String name, String value) {
+        // Lamp rows and HH:mm:ss contain no characters that need escaping
+        frame.append(",\"").append(name).append("\":\"").append(value).append('"');
+    }
+
+    /**
+     * How often a subscriber wants frames, and which rows it cares about.
+     */
+    public enum Granularity {
+        SECOND("second"),
+        MINUTE("minute"),
+        HOUR("hour");
+
+        private final String label;
+
+        Granularity(String label) {
+            this.label = label;
+        }
+
+        static Granularity parse(String value) {
+            if (value == null) {
+                return null;
+            }
+            try {
+                return valueOf(value.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * The last states of one zone's frames and the deltas from them, by granularity.
+     * Only touched with the tick lock held.
+     */
+    private static final class ZoneFrames {
+
+        // Indexed by granularity ordinal, null where nothing changed; overwritten every tick
+        private final TextMessage[] frames = new TextMessage[Granularity.values().length];
+        private BerlinClockTime current;
+        private BerlinClockTime lastMinute;
+        private BerlinClockTime lastHour;
+        private long tick;
+
+        /**
+         * Starts from a state a subscriber is sent as its snapshot, so the next tick has a delta.
+         */
+        void seed(BerlinClockTime time) {
+            current = time;
+            lastMinute = time;
+            lastHour = time;
+        }
+
+        void next(BerlinClockTime time, long tick) {
+            this.tick = tick;
+            frames[Granularity.SECOND.ordinal()] = delta(current, time, Granularity.SECOND);
+            current = time;
+
+            TextMessage minuteFrame = delta(lastMinute, time, Granularity.MINUTE);
+            if (minuteFrame != null || lastMinute == null) {
+                lastMinute = time;
+            }
+            frames[Granularity.MINUTE.ordinal()] = minuteFrame;
+
+            TextMessage hourFrame = delta(lastHour, time, Granularity.HOUR);
+            if (hourFrame != null || lastHour == null) {
+                lastHour = time;
+            }
+            frames[Granularity.HOUR.ordinal()] = hourFrame;
+        }
+    }
+
+    /**
+     * One connected session. Offered to with the tick lock held only.
+     */
+    private final class Subscriber extends DropOldestQueue<TextMessage> {
+
+        private final WebSocketSession session;
+        private final String zone;
+        private Granularity granularity = Granularity.SECOND;
+        // State the client is at once the frame being offered arrives
+        private BerlinClockTime offeredTime;
+
+        Subscriber(WebSocketSession session, String zone) {
+            super(senderExecutor, bufferSize);
+            this.session = session;
+            this.zone = zone;
+        }
+
+        void subscribe(Granularity granularity) {
+            this.granularity = granularity;
+            BerlinClockTime current = zoneFrames(zone).current;
+            send(snapshot(current, granularity), current);
+        }
+
+        /**
+         * @param frame the frame to send
+         * @param time  the zone's state once the client has applied the frame
+         */
+        void send(TextMessage frame, BerlinClockTime time) {
+            offeredTime = time;
+            offer(frame);
+        }
+
+        @Override
+        protected TextMessage replaceOnOverflow(TextMessage frame) {
+            // A dropped delta would leave the client on a wrong state for good; one snapshot covers
+            // all of them. An error reply to a client this far behind goes with the rest.
+            return snapshot(offeredTime, granularity);
+        }
+
+        @Override
+        protected void deliver(TextMessage frame) throws IOException {
+            session.sendMessage(frame);
+        }
+
+        @Override
+        protected void onDeliveryFailure(Exception e) {
+            subscribers.remove(session.getId());
+            try {
+                session.close(CloseStatus.SESSION_NOT_RELIABLE);
+            } catch (IOException ignored) {
+                // Already broken
+            }
+        }
+    }
+}
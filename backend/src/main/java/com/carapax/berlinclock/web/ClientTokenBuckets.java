@@ -0,0 +1,193 @@
+package com.carapax.berlinclock.web;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Token buckets per client and route for {@link AdmissionFilter}, without locks on the request path.
+ * <p>
+ * A bucket is a single long, the time at which it will be full again (the generic cell rate
+ * algorithm form of a token bucket): a request is admitted when that time is at most
+ * {@code burst - 1} token intervals ahead of now, and moves it one interval further with a CAS.
+ * A rejection only reads it, so a client flooding the server does not write to shared memory.
+ * <p>
+ * Clients are spread over stripes by a hash of their key, each a ConcurrentHashMap with a share
+ * of {@code maxClients}, so lookups never lock and clients on different cores touch different
+ * maps. A bucket that has been full for the idle timeout behaves like a new one, so it can be
+ * dropped at any time; a full stripe drops such buckets, at most once a second, before adding a
+ * client. If the stripe is still full, the new client shares the stripe's overflow bucket, which
+ * keeps memory bounded and still limits a flood spread over many addresses.
+ * <p>
+ * Clients in an overflow bucket share one client's rate, so a noisy one among them throttles the
+ * rest. Each stripe therefore holds its share plus four standard deviations of the hash's spread,
+ * and overflow starts only once more than about {@code maxClients} clients have been active within
+ * the idle timeout, which {@code berlinclock.admission.max-clients} should be sized to avoid.
+ *
+ * @author Jose Benitez
+ */
+final class ClientTokenBuckets {
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    private static final long SWEEP_INTERVAL_NANOS = NANOS_PER_SECOND;
+
+    // Per route: nanoseconds per token (0 for no limit) and how far ahead of now a bucket may run
+    private final long[] intervals;
+    private final long[] tolerances;
+    private final long idleNanos;
+    private final int stripeCapacity;
+    private final int stripeShift;
+    private final Stripe[] stripes;
+    private final LongSupplier nanoClock;
+
+    /**
+     * @param rates       tokens per second for each route, 0 for no limit
+     * @param bursts      bucket size for each route, at least 1
+     * @param maxClients  clients to keep buckets for, in total
+     * @param idleTimeout how long a bucket stays full before it may be dropped
+     * @param nanoClock   monotonic time in nanoseconds, {@link System#nanoTime()} outside tests
+     */
+    ClientTokenBuckets(int[] rates, int[] bursts, int maxClients, Duration idleTimeout, LongSupplier nanoClock) {
+        if (rates.length != bursts.length || maxClients < 1) {
+            throw new IllegalArgumentException("Need a rate and a burst per route and at least one client");
+        }
+        this.intervals = new long[rates.length];
+        this.tolerances = new long[rates.length];
+        for (int route = 0; route < rates.length; route++) {
+            if (rates[route] < 0 || bursts[route] < 1) {
+                throw new IllegalArgumentException("Rates must not be negative and bursts must be at least 1");
+            }
+            intervals[route] = rates[route] == 0 ? 0 : Math.max(1, NANOS_PER_SECOND / rates[route]);
+            tolerances[route] = (bursts[route] - 1) * intervals[route];
+        }
+        this.idleNanos = idleTimeout.toNanos();
+        this.nanoClock = nanoClock;
+
+        // A power of two, at least four per core
+        int stripeCount = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 8 - 1);
+        this.stripeShift = Integer.SIZE - Integer.numberOfTrailingZeros(stripeCount);
+        int share = (maxClients + stripeCount - 1) / stripeCount;
+        this.stripeCapacity = share + 4 * (int) Math.ceil(Math.sqrt(share));
+        this.stripes = new Stripe[stripeCount];
+        long now = nanoClock.getAsLong();
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe(now);
+        }
+    }
+
+    /**
+     * Takes a token from the client's bucket for the route.
+     *
+     * @param client client key, such as its address
+     * @param route  route index, as passed to the constructor
+     * @return true if the request is admitted
+     */
+    boolean tryAcquire(String client, int route) {
+        long interval = intervals[route];
+        if (interval == 0) {
+            return true;
+        }
+        long now = nanoClock.getAsLong();
+        Stripe stripe = stripe(client);
+        Buckets buckets = stripe.clients.get(client);
+        if (buckets == null) {
+            buckets = stripe.add(client, now);
+        }
+        return buckets.tryAcquire(route, now, interval, tolerances[route]);
+    }
+
+    /**
+     * @return number of clients with their own buckets
+     */
+    int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.clients.size();
+        }
+        return size;
+    }
+
+    /**
+     * Picks the stripe from the top bits of a multiplicative hash, so the low bits each stripe's map
+     * indexes by still vary within a stripe.
+     */
+    private Stripe stripe(String client) {
+        return stripes[(client.hashCode() * 0x9E3779B9) >>> stripeShift];
+    }
+
+    private final class Stripe {
+
+        private final ConcurrentHashMap<String, Buckets> clients = new ConcurrentHashMap<>();
+        private final Buckets overflow;
+        private final AtomicLong nextSweep;
+
+        Stripe(long now) {
+            this.overflow = new Buckets(intervals.length, now);
+            this.nextSweep = new AtomicLong(now);
+        }
+
+        /**
+         * Adds a client seen for the first time. Racing adds may take a stripe slightly past its capacity.
+         */
+        Buckets add(String client, long now) {
+            if (clients.size() >= stripeCapacity) {
+                sweep(now);
+                if (clients.size() >= stripeCapacity) {
+                    return overflow;
+                }
+            }
+            return clients.computeIfAbsent(client, key -> new Buckets(intervals.length, now));
+        }
+
+        /**
+         * Drops the buckets that have been full for the idle timeout. A request that looked one up just
+         * before can still take its token, which at worst admits one request more than the burst.
+         */
+        private void sweep(long now) {
+            long next = nextSweep.get();
+            if (now - next < 0 || !nextSweep.compareAndSet(next, now + SWEEP_INTERVAL_NANOS)) {
+                return;
+            }
+            clients.values().removeIf(buckets -> buckets.isIdle(now, idleNanos));
+        }
+    }
+
+    /**
+     * One client's buckets, one per route, each the time it will be full again.
+     */
+    private static final class Buckets {
+
+        private final AtomicLongArray fullAt;
+
+        Buckets(int routes, long now) {
+            this.fullAt = new AtomicLongArray(routes);
+            for (int route = 0; route < routes; route++) {
+                fullAt.set(route, now);
+            }
+        }
+
+        boolean tryAcquire(int route, long now, long interval, long tolerance) {
+            while (true) {
+                long full = fullAt.get(route);
+                long start = full - now > 0 ? full : now;
+                if (start - now > tolerance) {
+                    return false;
+                }
+                if (fullAt.compareAndSet(route, full, start + interval)) {
+                    return true;
+                }
+            }
+        }
+
+        boolean isIdle(long now, long idleNanos) {
+            for (int route = 0; route < fullAt.length(); route++) {
+                if (now - fullAt.get(route) < idleNanos) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
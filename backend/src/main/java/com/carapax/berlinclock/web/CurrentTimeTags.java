@@ -0,0 +1,74 @@
+package com.carapax.berlinclock.web;
+
+import com.carapax.berlinclock.service.CurrentTime;
+
+/**
+ * The entity tags and {@code X-Accel-Expires} value of a current time, built once per second and
+ * zone instead of on every request. Entries live in a small table indexed by a hash of the second of the day,
+ * so zones read in the same second usually get slots of their own; a slot is rebuilt when the
+ * second moves on or another zone claims it.
+ *
+ * @author Jose Benitez
+ */
+public final class CurrentTimeTags {
+
+    private static final int SLOT_BITS = 8;
+    private static final CurrentTimeTags[] CACHE = new CurrentTimeTags[1 << SLOT_BITS];
+
+    private final long epochSecond;
+    private final int secondOfDay;
+    private final String json;
+    private final String prettyJson;
+    private final String packed;
+    private final String expires;
+
+    private CurrentTimeTags(CurrentTime current) {
+        this.epochSecond = current.epochSecond();
+        this.secondOfDay = current.secondOfDay();
+        this.json = LampStateETag.json(current.packedState(), secondOfDay, false);
+        this.prettyJson = LampStateETag.json(current.packedState(), secondOfDay, true);
+        this.packed = LampStateETag.packed(current.packedState());
+        this.expires = "@" + current.expiresEpochSecond();
+    }
+
+    /**
+     * Returns the tags of a current time, from the cache when another request of the same second
+     * and zone has built them.
+     *
+     * @param current the current time being served
+     * @return its tags
+     */
+    public static CurrentTimeTags of(CurrentTime current) {
+        // Fibonacci hashing: zone offsets are multiples of 15 minutes, which the low bits alone would not tell apart
+        int slot = (current.secondOfDay() * 0x9E3779B9) >>> (32 - SLOT_BITS);
+        CurrentTimeTags tags = CACHE[slot];
+        if (tags == null || tags.epochSecond != current.epochSecond() || tags.secondOfDay != current.secondOfDay()) {
+            // All fields are final, so racing requests may each build an entry and any of them is safe to share
+            tags = new CurrentTimeTags(current);
+            CACHE[slot] = tags;
+        }
+        return tags;
+    }
+
+    /**
+     * @param pretty true for the indented form
+     * @return the tag of the JSON representation, see {@link LampStateETag#json}
+     */
+    public String json(boolean pretty) {
+        return pretty ? prettyJson : json;
+    }
+
+    /**
+     * @return the tag of the packed representation, see {@link LampStateETag#packed}
+     */
+    public String packed() {
+        return packed;
+    }
+
+    /**
+     * @return the {@code X-Accel-Expires} value: {@code @} and the epoch second the time stops being current
+     */
+    public String expires() {
+        return expires;
+    }
+}
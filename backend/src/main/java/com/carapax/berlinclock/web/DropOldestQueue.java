@@ -0,0 +1,104 @@
+package com.carapax.berlinclock.web;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Bounded per-client outbound queue for push channels.
+ * Items are queued under the queue's lock and delivered by at most one task at a time on the
+ * sender executor, so a client receives items in order and a slow client never blocks the
+ * producer. When the queue is full the oldest item is dropped: for clock ticks the newest
+ * state is the one that matters. Channels whose items only make sense in sequence, such as
+ * deltas, replace the whole queue instead through {@link #replaceOnOverflow}.
+ *
+ * @param <T> the item type
+ * @author Jose Benitez
+ */
+abstract class DropOldestQueue<T> implements Runnable {
+
+    private final Executor senderExecutor;
+    private final int capacity;
+    private final ArrayDeque<T> pending;
+    private final AtomicBoolean draining = new AtomicBoolean();
+
+    DropOldestQueue(Executor senderExecutor, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Queue capacity must be at least 1");
+        }
+        this.senderExecutor = senderExecutor;
+        this.capacity = capacity;
+        this.pending = new ArrayDeque<>(capacity);
+    }
+
+    /**
+     * Queues an item and makes sure a delivery task is running.
+     *
+     * @param item the item to deliver
+     */
+    final void offer(T item) {
+        synchronized (pending) {
+            if (pending.size() == capacity) {
+                T replacement = replaceOnOverflow(item);
+                if (replacement != null) {
+                    pending.clear();
+                    item = replacement;
+                } else {
+                    pending.pollFirst();
+                }
+            }
+            pending.addLast(item);
+        }
+        if (draining.compareAndSet(false, true)) {
+            try {
+                senderExecutor.execute(this);
+            } catch (RejectedExecutionException e) {
+                draining.set(false);
+            }
+        }
+    }
+
+    @Override
+    public final void run() {
+        try {
+            while (true) {
+                T next;
+                synchronized (pending) {
+                    next = pending.pollFirst();
+                    if (next == null) {
+                        // Cleared under the lock, so a concurrent offer either sees it
+                        // cleared and schedules a new drain, or its item was polled here
+                        draining.set(false);
+                        return;
+                    }
+                }
+                deliver(next);
+            }
+        } catch (Exception e) {
+            draining.set(false);
+            onDeliveryFailure(e);
+        }
+    }
+
+    /**
+     * Called under the queue's lock, on the offering thread, when an item arrives at a full queue.
+     *
+     * @param item the item being offered
+     * @return an item to queue instead of everything pending and the offered item, or null to
+     * drop the oldest pending item
+     */
+    protected T replaceOnOverflow(T item) {
+        return null;
+    }
+
+    /**
+     * Writes one item to the client. Called on a sender thread, never concurrently for one queue.
+     */
+    protected abstract void deliver(T item) throws Exception;
+
+    /**
+     * Called once delivery has failed; the client should be treated as gone.
+     */
+    protected abstract void onDeliveryFailure(Exception e);
+}
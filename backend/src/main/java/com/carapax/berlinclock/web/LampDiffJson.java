@@ -0,0 +1,115 @@
+package com.carapax.berlinclock.web;
+
+import com.carapax.berlinclock.model.BerlinClockTime;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Serializes lamp diffs, the lamps to toggle to get from one state to another, to UTF-8 JSON.
+ * A diff lists each changed lamp by its packed bit position (0-23, the order of a lamp string)
+ * with the colour it shows afterwards, {@code O} when it goes off:
+ * {@code {"from":"13:17:00","to":"13:17:01","changes":[{"lamp":0,"colour":"Y"}]}}.
+ * The writers fill a caller-supplied buffer of {@link #MAX_STEP_LENGTH} bytes, so streaming a
+ * sequence of diffs allocates nothing per step.
+ *
+ * @author Jose Benitez
+ */
+public final class LampDiffJson {
+
+    // {"lamp":23,"colour":"Y"} plus a comma, for every lamp
+    private static final int MAX_CHANGES_LENGTH = 2 + BerlinClockTime.PACKED_LAMP_COUNT * 25;
+    private static final byte[] FROM = ascii("{\"from\":\"");
+    private static final byte[] TO = ascii("\",\"to\":\"");
+    private static final byte[] TIME = ascii("{\"time\":\"");
+    private static final byte[] CHANGES = ascii("\",\"changes\":[");
+    private static final byte[] LAMP = ascii("{\"lamp\":");
+    private static final byte[] COLOUR = ascii(",\"colour\":\"");
+    private static final byte[] END_CHANGE = ascii("\"}");
+    private static final byte[] END = ascii("]}");
+
+    /**
+     * Longest {@code {"time":...,"changes":[...]}} object, i.e. one with all 24 lamps changed.
+     */
+    public static final int MAX_STEP_LENGTH = TIME.length + 8 + CHANGES.length + MAX_CHANGES_LENGTH;
+
+    private LampDiffJson() {
+    }
+
+    /**
+     * Serializes the diff between two times.
+     *
+     * @param fromSecondOfDay second-of-day of the earlier state
+     * @param toSecondOfDay   second-of-day of the later state
+     * @param changedLamps    bits of the lamps that differ
+     * @param toPackedState   packed lamp state after the change
+     * @return UTF-8 encoded JSON
+     */
+    public static byte[] diff(int fromSecondOfDay, int toSecondOfDay, int changedLamps, int toPackedState) {
+        byte[] buffer = new byte[FROM.length + 8 + TO.length + 8 + CHANGES.length + MAX_CHANGES_LENGTH];
+        int position = put(buffer, 0, FROM);
+        position = putTime(buffer, position, fromSecondOfDay);
+        position = put(buffer, position, TO);
+        position = putTime(buffer, position, toSecondOfDay);
+        position = put(buffer, position, CHANGES);
+        position = putChanges(buffer, position, changedLamps, toPackedState);
+        return Arrays.copyOf(buffer, position);
+    }
+
+    /**
+     * Writes one step of a diff sequence: the time reached and the lamps that changed to reach it.
+     *
+     * @param buffer        at least {@link #MAX_STEP_LENGTH} bytes
+     * @param secondOfDay   second-of-day of the step
+     * @param changedLamps  bits of the lamps that differ from the previous step
+     * @param packedState   packed lamp state of the step
+     * @return number of bytes written
+     */
+    public static int writeStep(byte[] buffer, int secondOfDay, int changedLamps, int packedState) {
+        int position = put(buffer, 0, TIME);
+        position = putTime(buffer, position, secondOfDay);
+        position = put(buffer, position, CHANGES);
+        return putChanges(buffer, position, changedLamps, packedState);
+    }
+
+    private static int putChanges(byte[] buffer, int position, int changedLamps, int packedState) {
+        for (int changed = changedLamps; changed != 0; changed &= changed - 1) {
+            int bit = Integer.numberOfTrailingZeros(changed);
+            if (changed != changedLamps) {
+                buffer[position++] = ',';
+            }
+            position = put(buffer, position, LAMP);
+            if (bit >= 10) {
+                buffer[position++] = (byte) ('0' + bit / 10);
+            }
+            buffer[position++] = (byte) ('0' + bit % 10);
+            position = put(buffer, position, COLOUR);
+            buffer[position++] = (byte) ((packedState & (1 << bit)) != 0 ? BerlinClockTime.lampColour(bit) : 'O');
+            position = put(buffer, position, END_CHANGE);
+        }
+        return put(buffer, position, END);
+    }
+
+    private static int putTime(byte[] buffer, int position, int secondOfDay) {
+        putTwoDigits(buffer, position, secondOfDay / 3600);
+        buffer[position + 2] = ':';
+        putTwoDigits(buffer, position + 3, secondOfDay / 60 % 60);
+        buffer[position + 5] = ':';
+        putTwoDigits(buffer, position + 6, secondOfDay % 60);
+        return position + 8;
+    }
+
+    private static void putTwoDigits(byte[] buffer, int position, int value) {
+        buffer[position] = (byte) ('0' + value / 10);
+        buffer[position + 1] = (byte) ('0' + value % 10);
+    }
+
+    private static int put(byte[] buffer, int position, byte[] bytes) {
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        return position + bytes.length;
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,137 @@
+package com.carapax.berlinclock.web;
+
+import com.carapax.berlinclock.model.BerlinClockTime;
+import com.carapax.berlinclock.service.LampSequence;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Streams a LampSequence as NDJSON, as packed states or as NDJSON lamp diffs.
+ * Every compact BerlinClockTime object has the same length and layout, so the NDJSON form keeps one
+ * line buffer and, at each step, overwrites only the lamps the sequence reports as changed and the
+ * time digits. Nothing is allocated per state and the output is byte for byte what BerlinClockJson
+ * writes for the same time.
+ *
+ * @author Jose Benitez
+ */
+public final class LampSequenceWriter {
+
+    private static final int OUTPUT_BUFFER_SIZE = 8192;
+    private static final byte OFF = 'O';
+    private static final String[] ROW_FIELDS =
+            {"secondsLamp", "fiveHoursRow", "singleHoursRow", "fiveMinutesRow", "singleMinutesRow"};
+    private static final int[] ROW_SHIFTS = {BerlinClockTime.SECONDS_LAMP_SHIFT, BerlinClockTime.FIVE_HOURS_SHIFT,
+            BerlinClockTime.SINGLE_HOURS_SHIFT, BerlinClockTime.FIVE_MINUTES_SHIFT, BerlinClockTime.SINGLE_MINUTES_SHIFT,
+            BerlinClockTime.PACKED_LAMP_COUNT};
+
+    // One NDJSON line with every lamp off, and where each lamp and the time digits sit in it
+    private static final byte[] LINE_TEMPLATE;
+    private static final int[] LAMP_OFFSETS = new int[BerlinClockTime.PACKED_LAMP_COUNT];
+    private static final byte[] LAMP_ON = new byte[BerlinClockTime.PACKED_LAMP_COUNT];
+    private static final int TIME_OFFSET;
+
+    static {
+        String json = new String(BerlinClockJson.toBytes(
+                BerlinClockTime.fromPackedState(0, "00:00:00"), false), StandardCharsets.US_ASCII);
+        for (int row = 0; row < ROW_FIELDS.length; row++) {
+            int start = json.indexOf("\"" + ROW_FIELDS[row] + "\":\"") + ROW_FIELDS[row].length() + 4;
+            for (int bit = ROW_SHIFTS[row]; bit < ROW_SHIFTS[row + 1]; bit++) {
+                LAMP_OFFSETS[bit] = start + bit - ROW_SHIFTS[row];
+                LAMP_ON[bit] = (byte) BerlinClockTime.lampColour(bit);
+            }
+        }
+        TIME_OFFSET = json.indexOf("\"currentTime\":\"") + "\"currentTime\":\"".length();
+        LINE_TEMPLATE = (json + "\n").getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private LampSequenceWriter() {
+    }
+
+    /**
+     * @return length of the NDJSON output for a sequence of the given size
+     */
+    public static long ndjsonLength(int states) {
+        return (long) states * LINE_TEMPLATE.length;
+    }
+
+    /**
+     * Writes the remaining states as compact BerlinClockTime JSON, one object per line.
+     *
+     * @param sequence sequence positioned before its first state
+     * @param out      receives the lines; flushed, not closed
+     * @return number of states written
+     */
+    public static int writeNdjson(LampSequence sequence, OutputStream out) throws IOException {
+        OutputStream sink = new BufferedOutputStream(out, OUTPUT_BUFFER_SIZE);
+        byte[] line = LINE_TEMPLATE.clone();
+        int count = 0;
+        while (sequence.next()) {
+            int packedState = sequence.packedState();
+            for (int changed = sequence.changedLamps(); changed != 0; changed &= changed - 1) {
+                int bit = Integer.numberOfTrailingZeros(changed);
+                line[LAMP_OFFSETS[bit]] = (packedState & (1 << bit)) != 0 ? LAMP_ON[bit] : OFF;
+            }
+            writeTime(line, sequence.secondOfDay());
+            sink.write(line);
+            count++;
+        }
+        sink.flush();
+        return count;
+    }
+
+    /**
+     * Writes the remaining states back to back in their 3-byte packed form, see {@link PackedStateWire}.
+     *
+     * @param sequence sequence positioned before its first state
+     * @param out      receives the states; flushed, not closed
+     * @return number of states written
+     */
+    public static int writePacked(LampSequence sequence, OutputStream out) throws IOException {
+        OutputStream sink = new BufferedOutputStream(out, OUTPUT_BUFFER_SIZE);
+        int count = 0;
+        while (sequence.next()) {
+            PackedStateWire.write(sink, sequence.packedState());
+            count++;
+        }
+        sink.flush();
+        return count;
+    }
+
+    /**
+     * Writes the remaining states as lamp diffs, one {@code {"time":...,"changes":[...]}} object per line,
+     * each listing the lamps that changed since the previous line. The first line lists every lamp, so
+     * the output starts from a full state. See {@link LampDiffJson}.
+     *
+     * @param sequence sequence positioned before its first state
+     * @param out      receives the lines; flushed, not closed
+     * @return number of states written
+     */
+    public static int writeDiffNdjson(LampSequence sequence, OutputStream out) throws IOException {
+        OutputStream sink = new BufferedOutputStream(out, OUTPUT_BUFFER_SIZE);
+        byte[] line = new byte[LampDiffJson.MAX_STEP_LENGTH + 1];
+        int count = 0;
+        while (sequence.next()) {
+            int length = LampDiffJson.writeStep(line, sequence.secondOfDay(), sequence.changedLamps(),
+                    sequence.packedState());
+            line[length] = '\n';
+            sink.write(line, 0, length + 1);
+            count++;
+        }
+        sink.flush();
+        return count;
+    }
+
+    private static void writeTime(byte[] line, int secondOfDay) {
+        writeTwoDigits(line, TIME_OFFSET, secondOfDay / 3600);
+        writeTwoDigits(line, TIME_OFFSET + 3, secondOfDay / 60 % 60);
+        writeTwoDigits(line, TIME_OFFSET + 6, secondOfDay % 60);
+    }
+
+    private static void writeTwoDigits(byte[] line, int offset, int value) {
+        line[offset] = (byte) ('0' + value / 10);
+        line[offset + 1] = (byte) ('0' + value % 10);
+    }
+}
@@ -0,0 +1,88 @@
+package com.carapax.berlinclock.web;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Strong entity tags derived from the lamp state.
+ * The packed form of a response depends only on the 24 lamps, so its tag is the packed state in hex,
+ * e.g. {@code "300a53"}. A JSON body also carries {@code currentTime}, whose seconds the lamps only
+ * show as parity, so its tag adds the second of the minute and a marker for the indented form:
+ * {@code "300a53-01"} and {@code "300a53-01p"}. An SVG image shows only the lamps, so its tag is
+ * {@code "300a53-svg"}, or {@code "300a53-svgz"} for the gzip form. Each representation of a URL
+ * gets its own tag.
+ *
+ * @author Jose Benitez
+ */
+public final class LampStateETag {
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private LampStateETag() {
+    }
+
+    /**
+     * Tag of the 3-byte packed representation.
+     *
+     * @param packedState packed lamp state
+     * @return quoted entity tag
+     */
+    public static String packed(int packedState) {
+        byte[] tag = new byte[8];
+        writeHex(tag, packedState);
+        tag[7] = '"';
+        return new String(tag, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Tag of the JSON representation.
+     *
+     * @param packedState packed lamp state
+     * @param secondOfDay second-of-day shown in {@code currentTime}
+     * @param pretty      true for the indented form
+     * @return quoted entity tag
+     */
+    public static String json(int packedState, int secondOfDay, boolean pretty) {
+        byte[] tag = new byte[pretty ? 12 : 11];
+        writeHex(tag, packedState);
+        int second = secondOfDay % 60;
+        tag[7] = '-';
+        tag[8] = (byte) ('0' + second / 10);
+        tag[9] = (byte) ('0' + second % 10);
+        if (pretty) {
+            tag[10] = 'p';
+        }
+        tag[tag.length - 1] = '"';
+        return new String(tag, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Tag of the SVG image.
+     *
+     * @param packedState packed lamp state
+     * @param gzipped     true for the gzip-encoded form
+     * @return quoted entity tag
+     */
+    public static String svg(int packedState, boolean gzipped) {
+        byte[] tag = new byte[gzipped ? 13 : 12];
+        writeHex(tag, packedState);
+        tag[7] = '-';
+        tag[8] = 's';
+        tag[9] = 'v';
+        tag[10] = 'g';
+        if (gzipped) {
+            tag[11] = 'z';
+        }
+        tag[tag.length - 1] = '"';
+        return new String(tag, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Writes an opening quote and the 24-bit state as six hex digits.
+     */
+    private static void writeHex(byte[] tag, int packedState) {
+        tag[0] = '"';
+        for (int i = 0; i < 6; i++) {
+            tag[6 - i] = HEX[(packedState >>> (4 * i)) & 0xF];
+        }
+    }
+}
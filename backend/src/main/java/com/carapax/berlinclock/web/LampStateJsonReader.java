@@ -0,0 +1,131 @@
+package com.carapax.berlinclock.web;
+
+import com.carapax.berlinclock.model.BerlinClockTime;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads the five lamp rows of a BerlinClockTime JSON object straight into a packed lamp state.
+ * The object is walked with Jackson's streaming parser and each row is checked on the parser's
+ * own character buffer, so no row strings or BerlinClockTime are created. Field names come from
+ * the parser's symbol table and are not allocated per request either. Fields other than the
+ * five rows, such as {@code currentTime}, are skipped.
+ *
+ * @author Jose Benitez
+ */
+@Component
+public class LampStateJsonReader {
+
+    private static final String[] ROW_NAMES = {
+            "secondsLamp", "fiveHoursRow", "singleHoursRow", "fiveMinutesRow", "singleMinutesRow"
+    };
+    private static final int[] ROW_SHIFTS = {
+            BerlinClockTime.SECONDS_LAMP_SHIFT, BerlinClockTime.FIVE_HOURS_SHIFT, BerlinClockTime.SINGLE_HOURS_SHIFT,
+            BerlinClockTime.FIVE_MINUTES_SHIFT, BerlinClockTime.SINGLE_MINUTES_SHIFT
+    };
+    private static final int[] ROW_LENGTHS = {1, 4, 4, 11, 4};
+    private static final int ALL_ROWS = (1 << ROW_NAMES.length) - 1;
+    private static final char OFF = 'O';
+
+    private final JsonFactory jsonFactory;
+
+    public LampStateJsonReader(ObjectMapper objectMapper) {
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    /**
+     * Reads one BerlinClockTime JSON object from a stream.
+     *
+     * @param in JSON body
+     * @return packed lamp state
+     * @throws IOException if the body is not well-formed JSON
+     * @throws IllegalArgumentException if a row is missing, has the wrong length or an invalid lamp
+     */
+    public int readPackedState(InputStream in) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(in)) {
+            return readPackedState(parser);
+        }
+    }
+
+    /**
+     * Reads one BerlinClockTime JSON object from a string.
+     *
+     * @param json JSON text
+     * @return packed lamp state
+     * @throws IOException if the text is not well-formed JSON
+     * @throws IllegalArgumentException if a row is missing, has the wrong length or an invalid lamp
+     */
+    public int readPackedState(String json) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(json)) {
+            return readPackedState(parser);
+        }
+    }
+
+    private static int readPackedState(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IllegalArgumentException("Expected a JSON object");
+        }
+        int state = 0;
+        int rowsSeen = 0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            int row = rowIndex(parser.currentName());
+            JsonToken value = parser.nextToken();
+            if (row < 0) {
+                parser.skipChildren();
+                continue;
+            }
+            if (value != JsonToken.VALUE_STRING) {
+                throw new IllegalArgumentException(ROW_NAMES[row] + " must be a string");
+            }
+            int bits = packRow(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength(), row);
+            // A repeated field replaces the earlier value, as data binding would
+            state = state & ~rowMask(row) | bits;
+            rowsSeen |= 1 << row;
+        }
+        if (rowsSeen != ALL_ROWS) {
+            throw new IllegalArgumentException("All five lamp rows are required");
+        }
+        if (parser.nextToken() != null) {
+            throw new IllegalArgumentException("Unexpected content after the JSON object");
+        }
+        return state;
+    }
+
+    private static int rowIndex(String name) {
+        return switch (name) {
+            case "secondsLamp" -> 0;
+            case "fiveHoursRow" -> 1;
+            case "singleHoursRow" -> 2;
+            case "fiveMinutesRow" -> 3;
+            case "singleMinutesRow" -> 4;
+            default -> -1;
+        };
+    }
+
+    private static int rowMask(int row) {
+        return ((1 << ROW_LENGTHS[row]) - 1) << ROW_SHIFTS[row];
+    }
+
+    private static int packRow(char[] lamps, int offset, int length, int row) {
+        if (length != ROW_LENGTHS[row]) {
+            throw new IllegalArgumentException(ROW_NAMES[row] + " must have " + ROW_LENGTHS[row] + " lamps");
+        }
+        int shift = ROW_SHIFTS[row];
+        int bits = 0;
+        for (int i = 0; i < length; i++) {
+            char lamp = lamps[offset + i];
+            if (lamp == BerlinClockTime.lampColour(shift + i)) {
+                bits |= 1 << (shift + i);
+            } else if (lamp != OFF) {
+                throw new IllegalArgumentException(ROW_NAMES[row] + " has an invalid lamp '" + lamp + "' at position " + i);
+            }
+        }
+        return bits;
+    }
+}
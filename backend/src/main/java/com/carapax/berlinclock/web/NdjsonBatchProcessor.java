@@ -0,0 +1,181 @@
+package com.carapax.berlinclock.web;
+
+import com.carapax.berlinclock.service.BerlinClockService;
+import com.carapax.berlinclock.service.TimeParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Streams newline-delimited batches through BerlinClockService.
+ * Input is read one bounded line at a time and every result is written as soon as it is
+ * produced, so memory use does not depend on the size of the batch. Each non-blank input
+ * line produces exactly one output line; a line that cannot be processed produces an error
+ * object carrying its 1-based line number instead of failing the batch.
+ *
+ * @author Jose Benitez
+ */
+@Component
+public class NdjsonBatchProcessor {
+
+    static final int MAX_LINE_LENGTH = 4096;
+    private static final int OUTPUT_BUFFER_SIZE = 8192;
+    private static final String INVALID_TIME = BerlinClockService.INVALID_TIME_MESSAGE;
+    private static final String INVALID_BERLIN_CLOCK = "Invalid Berlin Clock format";
+    private static final String LINE_TOO_LONG = "Line exceeds " + MAX_LINE_LENGTH + " bytes";
+
+    private final BerlinClockService berlinClockService;
+    private final LampStateJsonReader lampStateReader;
+    private final BerlinClockMetrics metrics;
+
+    public NdjsonBatchProcessor(BerlinClockService berlinClockService, ObjectMapper objectMapper) {
+        this(berlinClockService, objectMapper, BerlinClockMetrics.disabled());
+    }
+
+    @Autowired
+    public NdjsonBatchProcessor(BerlinClockService berlinClockService, ObjectMapper objectMapper,
+                                BerlinClockMetrics metrics) {
+        this.berlinClockService = berlinClockService;
+        this.lampStateReader = new LampStateJsonReader(objectMapper);
+        this.metrics = metrics;
+    }
+
+    /**
+     * Converts one HH:mm:ss time per line (optionally as a JSON string) to BerlinClockTime JSON.
+     *
+     * @param in  newline-delimited times
+     * @param out receives one BerlinClockTime JSON object or error object per line
+     */
+    public void convert(InputStream in, OutputStream out) throws IOException {
+        process(in, out, (line, lineNumber, sink) -> {
+            int secondOfDay = TimeParser.parseSecondOfDay(unquote(line));
+            if (secondOfDay == TimeParser.INVALID) {
+                metrics.convertValidationFailure();
+                writeError(sink, lineNumber, INVALID_TIME);
+            } else {
+                metrics.conversion();
+                sink.write(BerlinClockJson.toBytes(berlinClockService.convertToBerlinTime(secondOfDay), false));
+            }
+        });
+    }
+
+    /**
+     * Decodes one BerlinClockTime JSON object per line to its HH:mm:ss time.
+     *
+     * @param in  newline-delimited BerlinClockTime JSON objects
+     * @param out receives one {"time":...} object or error object per line
+     */
+    public void decode(InputStream in, OutputStream out) throws IOException {
+        process(in, out, (line, lineNumber, sink) -> {
+            try {
+                int packedState = lampStateReader.readPackedState(line);
+                byte[] response = BerlinClockJson.decodeResponse(berlinClockService.decodeToSecondOfDay(packedState));
+                metrics.decode();
+                sink.write(response);
+            } catch (JsonProcessingException | IllegalArgumentException e) {
+                metrics.decodeValidationFailure();
+                writeError(sink, lineNumber, INVALID_BERLIN_CLOCK);
+            }
+        });
+    }
+
+    private void process(InputStream in, OutputStream out, LineHandler handler) throws IOException {
+        BoundedLineReader reader = new BoundedLineReader(in, MAX_LINE_LENGTH);
+        OutputStream sink = new BufferedOutputStream(out, OUTPUT_BUFFER_SIZE);
+        long lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line == BoundedLineReader.TOO_LONG) {
+                writeError(sink, lineNumber, LINE_TOO_LONG);
+            } else if (line.isBlank()) {
+                continue;
+            } else {
+                handler.handle(line.strip(), lineNumber, sink);
+            }
+            sink.write('\n');
+        }
+        sink.flush();
+    }
+
+    private static String unquote(String line) {
+        if (line.length() >= 2 && line.charAt(0) == '"' && line.charAt(line.length() - 1) == '"') {
+            return line.substring(1, line.length() - 1);
+        }
+        return line;
+    }
+
+    private static void writeError(OutputStream sink, long lineNumber, String message) throws IOException {
+        // Messages are constants without characters that need escaping
+        sink.write(("{\"line\":" + lineNumber + ",\"error\":\"" + message + "\"}").getBytes(StandardCharsets.UTF_8));
+    }
+
+    @FunctionalInterface
+    private interface LineHandler {
+        void handle(String line, long lineNumber, OutputStream sink) throws IOException;
+    }
+
+    /**
+     * Reads UTF-8 lines with a hard cap on line length. A longer line is skipped up to its
+     * newline and reported as {@link #TOO_LONG}, so a single huge line cannot exhaust memory.
+     */
+    static final class BoundedLineReader {
+
+        static final String TOO_LONG = new String("<too long>");
+
+        private final InputStream in;
+        private final byte[] line;
+        private final byte[] buffer = new byte[8192];
+        private int position;
+        private int limit;
+
+        BoundedLineReader(InputStream in, int maxLineLength) {
+            this.in = in;
+            this.line = new byte[maxLineLength];
+        }
+
+        /**
+         * @return the next line without its terminator, {@link #TOO_LONG}, or null at end of input
+         */
+        String readLine() throws IOException {
+            int length = 0;
+            boolean overflow = false;
+            while (true) {
+                if (position == limit) {
+                    limit = in.read(buffer);
+                    position = 0;
+                    if (limit <= 0) {
+                        limit = 0;
+                        if (length == 0 && !overflow) {
+                            return null;
+                        }
+                        break;
+                    }
+                }
+                byte b = buffer[position++];
+                if (b == '\n') {
+                    break;
+                }
+                if (length < line.length) {
+                    line[length++] = b;
+                } else {
+                    overflow = true;
+                }
+            }
+            if (overflow) {
+                return TOO_LONG;
+            }
+            if (length > 0 && line[length - 1] == '\r') {
+                length--;
+            }
+            return new String(line, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.carapax.berlinclock.web;
+
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Binary wire form of a packed lamp state: 3 bytes, big-endian, served as
+ * application/octet-stream. See BerlinClockTime for the bit layout.
+ *
+ * @author Jose Benitez
+ */
+public final class PackedStateWire {
+
+    public static final int BYTES = 3;
+    public static final MediaType MEDIA_TYPE = MediaType.APPLICATION_OCTET_STREAM;
+
+    private PackedStateWire() {
+    }
+
+    /**
+     * Encodes a packed lamp state as 3 big-endian bytes.
+     */
+    public static byte[] toBytes(int packedState) {
+        return new byte[]{(byte) (packedState >>> 16), (byte) (packedState >>> 8), (byte) packedState};
+    }
+
+    /**
+     * Writes a packed lamp state as 3 big-endian bytes.
+     */
+    public static void write(OutputStream out, int packedState) throws IOException {
+        out.write(packedState >>> 16);
+        out.write(packedState >>> 8);
+        out.write(packedState);
+    }
+
+    /**
+     * Reads a packed lamp state from exactly 3 big-endian bytes.
+     *
+     * @throws IllegalArgumentException if the body is not 3 bytes long
+     */
+    public static int fromBytes(byte[] body) {
+        if (body == null || body.length != BYTES) {
+            throw new IllegalArgumentException("Packed lamp state must be " + BYTES + " bytes");
+        }
+        return (body[0] & 0xFF) << 16 | (body[1] & 0xFF) << 8 | (body[2] & 0xFF);
+    }
+}
@@ -0,0 +1,65 @@
+package com.carapax.berlinclock.web;
+
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the latency of every request in a timer tagged with the matched URI pattern, the
+ * method and the outcome. Takes the place of Spring's http.server.requests observation, which
+ * builds an observation context and tag set per request; this filter only reads the clock and
+ * records into a cached timer. Requests that start async processing (the event stream) are not
+ * recorded, since their duration is the lifetime of the connection.
+ *
+ * @author Jose Benitez
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class RequestMetricsFilter implements Filter {
+
+    private final BerlinClockMetrics metrics;
+
+    public RequestMetricsFilter(BerlinClockMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        if (!metrics.isEnabled()) {
+            chain.doFilter(request, response);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            chain.doFilter(request, response);
+        } catch (Throwable e) {
+            // The container turns this into a 500 only after the filter has returned
+            record(request, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, start);
+            throw e;
+        }
+        if (!request.isAsyncStarted()) {
+            record(request, ((HttpServletResponse) response).getStatus(), start);
+        }
+    }
+
+    private void record(ServletRequest request, int status, long start) {
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        String uri = (String) httpRequest.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        metrics.requestTimer(uri, httpRequest.getMethod(), status)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,42 @@
+package com.carapax.berlinclock.web;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for writing a controller's response body: message conversion (Jackson for
+ * CBOR and Smile, a plain copy for pre-serialized bytes) and the flush to Tomcat. Socket time is
+ * broken down further by the jdk.SocketWrite events enabled in the same settings.
+ * Disabled unless a recording uses the jfr/berlinclock.jfc settings.
+ *
+ * @author Jose Benitez
+ */
+@Name("com.carapax.berlinclock.ResponseWrite")
+@Label("Berlin Clock Response Write")
+@Description("A response body converted and written to the servlet response")
+@Category("Berlin Clock")
+@Enabled(false)
+@StackTrace(false)
+final class ResponseWriteEvent extends Event {
+
+    @Label("URI")
+    @Description("Matched URI pattern")
+    String uri;
+
+    @Label("Content Type")
+    String contentType;
+
+    @Label("Body Size")
+    @Description("Size of a pre-serialized body, or -1 if the converter serializes an object")
+    @DataAmount
+    long bodySize;
+
+    @Label("Status")
+    int status;
+}
@@ -0,0 +1,59 @@
+package com.carapax.berlinclock.web;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Emits a {@link ResponseWriteEvent} per controller response. The event begins just before the
+ * message converter runs and ends once the request completes, after the body is flushed.
+ * While the event is disabled nothing is stored on the request.
+ *
+ * @author Jose Benitez
+ */
+@ControllerAdvice
+public class ResponseWriteRecorder implements ResponseBodyAdvice<Object>, HandlerInterceptor {
+
+    private static final String EVENT_ATTRIBUTE = ResponseWriteRecorder.class.getName() + ".event";
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        ResponseWriteEvent event = new ResponseWriteEvent();
+        if (event.isEnabled() && request instanceof ServletServerHttpRequest servletRequest) {
+            event.begin();
+            event.contentType = selectedContentType.toString();
+            event.bodySize = body instanceof byte[] bytes ? bytes.length : -1;
+            servletRequest.getServletRequest().setAttribute(EVENT_ATTRIBUTE, event);
+        }
+        return body;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        if (request.getAttribute(EVENT_ATTRIBUTE) instanceof ResponseWriteEvent event) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.uri = (String) request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+                event.status = response.getStatus();
+                event.commit();
+            }
+        }
+    }
+}
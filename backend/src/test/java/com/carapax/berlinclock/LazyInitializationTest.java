@@ -0,0 +1,40 @@
+package com.carapax.berlinclock;
+
+import com.carapax.berlinclock.service.BerlinClockTicker;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Starts the application with lazy bean initialization, as the fast-startup image runs it,
+ * and checks the ticker still starts and the first request is served.
+ *
+ * @author Jose Benitez
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"spring.main.lazy-initialization=true", "berlinclock.grpc.port=0"})
+class LazyInitializationTest {
+
+    @Autowired
+    private BerlinClockTicker ticker;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Test
+    @DisplayName("Lazy initialization should still start the ticker and serve the current time")
+    void testServesCurrentTime() {
+        assertTrue(ticker.isRunning());
+
+        ResponseEntity<String> response = restTemplate.getForEntity("/api/time", String.class);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertTrue(response.getBody().contains("\"currentTime\""));
+    }
+}
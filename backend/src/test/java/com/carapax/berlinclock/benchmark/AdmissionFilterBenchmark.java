@@ -0,0 +1,144 @@
+package com.carapax.berlinclock.benchmark;
+
+import com.carapax.berlinclock.web.AdmissionFilter;
+import com.carapax.berlinclock.web.BerlinClockMetrics;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures what admission control adds to a request: the filter around an empty filter chain
+ * for an admitted request, for a rejected one, and for a path that is not limited. Every thread
+ * is its own client, on all cores, so a shared write anywhere in the filter would show up as
+ * the time growing with the thread count. The admitted path has a limit it never reaches, so it
+ * pays for the full lookup and CAS.
+ * <p>
+ * {@code mvn -Pbenchmarks verify} runs it with the others for the regression check. For the latency
+ * percentiles, run its main method, which uses sample-time mode:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.carapax.berlinclock.benchmark.AdmissionFilterBenchmark
+ * </pre>
+ *
+ * @author Jose Benitez
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(Threads.MAX)
+@Fork(1)
+public class AdmissionFilterBenchmark {
+
+    private static final AtomicInteger CLIENTS = new AtomicInteger();
+
+    private AdmissionFilter admitting;
+    private AdmissionFilter rejecting;
+    private final FilterChain emptyChain = (req, res) -> { };
+
+    @Setup
+    public void setUp() {
+        BerlinClockMetrics metrics = new BerlinClockMetrics(new PrometheusMeterRegistry(PrometheusConfig.DEFAULT), true);
+        // One token per nanosecond: far more than a thread can ask for
+        admitting = new AdmissionFilter(new int[]{1_000_000_000, 1_000_000_000}, new int[]{1_000_000, 1_000_000},
+                65_536, Duration.ofSeconds(60), metrics, System::nanoTime);
+        rejecting = new AdmissionFilter(new int[]{1, 1}, new int[]{1, 1}, 65_536, Duration.ofSeconds(60), metrics,
+                System::nanoTime);
+    }
+
+    @State(Scope.Thread)
+    public static class Client {
+
+        MockHttpServletRequest limited;
+        MockHttpServletRequest unlimited;
+        MockHttpServletResponse response;
+
+        @Setup
+        public void setUp() {
+            int index = CLIENTS.getAndIncrement();
+            String address = "10.0." + index / 256 + "." + index % 256;
+            limited = new MockHttpServletRequest("GET", "/api/time/convert");
+            limited.setRemoteAddr(address);
+            unlimited = new MockHttpServletRequest("GET", "/api/time");
+            unlimited.setRemoteAddr(address);
+            response = new DiscardingResponse();
+        }
+    }
+
+    @Benchmark
+    public void admitted(Client client) throws IOException, ServletException {
+        admitting.doFilter(client.limited, client.response, emptyChain);
+    }
+
+    @Benchmark
+    public void rejected(Client client) throws IOException, ServletException {
+        rejecting.doFilter(client.limited, client.response, emptyChain);
+    }
+
+    @Benchmark
+    public void notLimited(Client client) throws IOException, ServletException {
+        admitting.doFilter(client.unlimited, client.response, emptyChain);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(AdmissionFilterBenchmark.class.getSimpleName())
+                .mode(Mode.SampleTime)
+                .build()).run();
+    }
+
+    /**
+     * Response whose body goes nowhere, so millions of rejections do not pile up in memory.
+     */
+    private static final class DiscardingResponse extends MockHttpServletResponse {
+
+        private final ServletOutputStream discard = new ServletOutputStream() {
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        };
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            return discard;
+        }
+    }
+}
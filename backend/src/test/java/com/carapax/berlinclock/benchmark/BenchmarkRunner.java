@@ -0,0 +1,174 @@
+package com.carapax.berlinclock.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs the JMH benchmarks in throughput and average-time mode with the GC profiler, writes the
+ * JSON results and compares them with a committed baseline.
+ * <p>
+ * Started by the {@code benchmarks} Maven profile ({@code mvn -Pbenchmarks verify}), which passes
+ * the system properties below. The process exits with status 1 when any score is worse than the
+ * baseline by more than the threshold, or a benchmark that ran has no baseline entry to compare
+ * with, which fails the build.
+ * <ul>
+ *     <li>{@code benchmark.include} - regex of benchmarks to run</li>
+ *     <li>{@code benchmark.result} - where to write the JSON results</li>
+ *     <li>{@code benchmark.baseline} - baseline JSON to compare with; skipped if the file is missing</li>
+ *     <li>{@code benchmark.threshold} - allowed relative regression, e.g. 0.10 for 10%</li>
+ *     <li>{@code benchmark.update-baseline} - true to write the results, without raw samples or the
+ *     java path and arguments of this machine, as the new baseline</li>
+ * </ul>
+ *
+ * @author Jose Benitez
+ */
+public final class BenchmarkRunner {
+
+    static final String ALLOCATION_METRIC = "gc.alloc.rate.norm";
+
+    // Allocation differences below this many bytes per operation are treated as noise
+    private static final double ALLOCATION_SLACK_BYTES = 16;
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws RunnerException, IOException {
+        String include = System.getProperty("benchmark.include", ".*Benchmark.*");
+        Path result = Path.of(System.getProperty("benchmark.result", "target/jmh-result.json"));
+        Path baseline = Path.of(System.getProperty("benchmark.baseline", "benchmarks/baseline.json"));
+        double threshold = Double.parseDouble(System.getProperty("benchmark.threshold", "0.10"));
+        boolean updateBaseline = Boolean.getBoolean("benchmark.update-baseline");
+
+        Files.createDirectories(result.toAbsolutePath().getParent());
+        new Runner(new OptionsBuilder()
+                .include(include)
+                .mode(Mode.Throughput)
+                .mode(Mode.AverageTime)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(result.toString())
+                .build()).run();
+
+        ObjectMapper mapper = new ObjectMapper();
+        if (updateBaseline) {
+            Files.createDirectories(baseline.toAbsolutePath().getParent());
+            mapper.writerWithDefaultPrettyPrinter().writeValue(baseline.toFile(), withoutRawData(mapper.readTree(result.toFile())));
+            System.out.println("Baseline updated: " + baseline);
+            return;
+        }
+        if (!Files.exists(baseline)) {
+            System.out.println("No baseline at " + baseline + ", skipping the comparison");
+            return;
+        }
+
+        List<String> regressions = compare(mapper.readTree(baseline.toFile()), mapper.readTree(result.toFile()), threshold);
+        if (regressions.isEmpty()) {
+            System.out.printf("No regressions beyond %.0f%% against %s%n", threshold * 100, baseline);
+            return;
+        }
+        System.out.printf("%d regression(s) beyond %.0f%% or missing baseline(s) against %s;"
+                + " run with -Dbenchmark.update-baseline=true to record new benchmarks:%n",
+                regressions.size(), threshold * 100, baseline);
+        regressions.forEach(regression -> System.out.println("  " + regression));
+        System.exit(1);
+    }
+
+    /**
+     * Compares two JMH JSON result files. A current benchmark missing from the baseline is reported,
+     * so a new benchmark cannot go unchecked; baseline entries that did not run are ignored, so
+     * {@code benchmark.include} can pick a subset.
+     *
+     * @param baseline  baseline results
+     * @param current   current results
+     * @param threshold allowed relative regression
+     * @return one line per score that regressed beyond the threshold and per benchmark without a baseline
+     */
+    static List<String> compare(JsonNode baseline, JsonNode current, double threshold) {
+        Map<String, JsonNode> baselineByKey = byKey(baseline);
+        List<String> regressions = new ArrayList<>();
+        for (Map.Entry<String, JsonNode> entry : byKey(current).entrySet()) {
+            JsonNode before = baselineByKey.get(entry.getKey());
+            if (before == null) {
+                regressions.add(entry.getKey() + ": missing from the baseline");
+                continue;
+            }
+            JsonNode after = entry.getValue();
+            boolean higherIsBetter = "thrpt".equals(after.path("mode").asText());
+            checkScore(regressions, entry.getKey(), before.path("primaryMetric"), after.path("primaryMetric"),
+                    higherIsBetter, threshold, 0);
+            checkScore(regressions, entry.getKey() + " " + ALLOCATION_METRIC,
+                    before.path("secondaryMetrics").path(ALLOCATION_METRIC),
+                    after.path("secondaryMetrics").path(ALLOCATION_METRIC),
+                    false, threshold, ALLOCATION_SLACK_BYTES);
+        }
+        return regressions;
+    }
+
+    private static void checkScore(List<String> regressions, String name, JsonNode before, JsonNode after,
+                                   boolean higherIsBetter, double threshold, double slack) {
+        if (!before.has("score") || !after.has("score")) {
+            return;
+        }
+        double old = before.get("score").asDouble();
+        double now = after.get("score").asDouble();
+        double worse = higherIsBetter ? old - now : now - old;
+        if (worse > slack && worse > Math.abs(old) * threshold) {
+            regressions.add(String.format("%s: %.3f -> %.3f %s (%+.1f%%)", name, old, now,
+                    after.path("scoreUnit").asText(), old == 0 ? 100.0 : (now - old) / old * 100));
+        }
+    }
+
+    /**
+     * Drops the per-iteration samples so the committed baseline stays small and diffs stay readable,
+     * and the java binary and arguments, which name paths on the machine that recorded it.
+     */
+    static JsonNode withoutRawData(JsonNode results) {
+        for (JsonNode result : results) {
+            if (result instanceof ObjectNode object) {
+                object.remove("jvm");
+                object.remove("jvmArgs");
+            }
+            stripRawData(result.path("primaryMetric"));
+            result.path("secondaryMetrics").forEach(BenchmarkRunner::stripRawData);
+        }
+        return results;
+    }
+
+    private static void stripRawData(JsonNode metric) {
+        if (metric instanceof ObjectNode object) {
+            object.remove("rawData");
+            object.remove("rawDataHistogram");
+        }
+    }
+
+    private static Map<String, JsonNode> byKey(JsonNode results) {
+        Map<String, JsonNode> byKey = new LinkedHashMap<>();
+        for (JsonNode result : results) {
+            StringBuilder key = new StringBuilder(result.path("benchmark").asText())
+                    .append(' ').append(result.path("mode").asText());
+            Iterator<Map.Entry<String, JsonNode>> params = result.path("params").fields();
+            while (params.hasNext()) {
+                Map.Entry<String, JsonNode> param = params.next();
+                key.append(' ').append(param.getKey()).append('=').append(param.getValue().asText());
+            }
+            byKey.put(key.toString(), result);
+        }
+        return byKey;
+    }
+}
@@ -0,0 +1,98 @@
+package com.carapax.berlinclock.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for the baseline comparison of BenchmarkRunner.
+ *
+ * @author Jose Benitez
+ */
+class BenchmarkRunnerTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    @DisplayName("Should accept scores within the threshold")
+    void testWithinThreshold() throws Exception {
+        JsonNode baseline = results(result("a", "thrpt", 100, 0), result("a", "avgt", 10, 0));
+        JsonNode current = results(result("a", "thrpt", 95, 0), result("a", "avgt", 10.5, 8));
+
+        assertTrue(BenchmarkRunner.compare(baseline, current, 0.10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should flag lower throughput, higher average time and more allocation")
+    void testRegressions() throws Exception {
+        JsonNode baseline = results(result("a", "thrpt", 100, 0), result("a", "avgt", 10, 0), result("b", "avgt", 10, 64));
+        JsonNode current = results(result("a", "thrpt", 80, 0), result("a", "avgt", 12, 0), result("b", "avgt", 10, 128));
+
+        List<String> regressions = BenchmarkRunner.compare(baseline, current, 0.10);
+
+        assertEquals(3, regressions.size(), regressions::toString);
+        assertTrue(regressions.get(2).contains(BenchmarkRunner.ALLOCATION_METRIC));
+    }
+
+    @Test
+    @DisplayName("Should tell parameter combinations apart and ignore baseline entries that did not run")
+    void testKeysIncludeParams() throws Exception {
+        JsonNode baseline = mapper.readTree("""
+                [{"benchmark":"a","mode":"avgt","params":{"mode":"LOOKUP"},"primaryMetric":{"score":10}},
+                 {"benchmark":"a","mode":"avgt","params":{"mode":"COMPUTE"},"primaryMetric":{"score":50}},
+                 {"benchmark":"old","mode":"avgt","primaryMetric":{"score":1}}]
+                """);
+        JsonNode current = mapper.readTree("""
+                [{"benchmark":"a","mode":"avgt","params":{"mode":"LOOKUP"},"primaryMetric":{"score":10}},
+                 {"benchmark":"a","mode":"avgt","params":{"mode":"COMPUTE"},"primaryMetric":{"score":49}}]
+                """);
+
+        assertTrue(BenchmarkRunner.compare(baseline, current, 0.10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should report benchmarks that have no baseline entry")
+    void testMissingFromBaseline() throws Exception {
+        JsonNode baseline = results(result("a", "avgt", 10, 0));
+        JsonNode current = mapper.readTree("""
+                [{"benchmark":"a","mode":"avgt","primaryMetric":{"score":10}},
+                 {"benchmark":"new","mode":"avgt","params":{"enabled":"true"},"primaryMetric":{"score":1}}]
+                """);
+
+        assertEquals(List.of("new avgt enabled=true: missing from the baseline"),
+                BenchmarkRunner.compare(baseline, current, 0.10));
+    }
+
+    @Test
+    @DisplayName("Should keep the JDK version but not the raw samples or machine paths in the baseline")
+    void testBaselineWithoutMachineDetails() throws Exception {
+        JsonNode results = mapper.readTree("""
+                [{"benchmark":"a","mode":"avgt","jvm":"/opt/jdk/bin/java","jvmArgs":["-Dbenchmark.result=/home/me/x.json"],
+                  "jdkVersion":"21.0.1","primaryMetric":{"score":10,"rawData":[[10]]}}]
+                """);
+
+        JsonNode baseline = BenchmarkRunner.withoutRawData(results).get(0);
+
+        assertFalse(baseline.has("jvm"));
+        assertFalse(baseline.has("jvmArgs"));
+        assertFalse(baseline.path("primaryMetric").has("rawData"));
+        assertEquals("21.0.1", baseline.path("jdkVersion").asText());
+    }
+
+    private JsonNode results(String... results) throws Exception {
+        return mapper.readTree("[" + String.join(",", results) + "]");
+    }
+
+    private static String result(String benchmark, String mode, double score, double allocated) {
+        return String.format("{\"benchmark\":\"%s\",\"mode\":\"%s\",\"primaryMetric\":{\"score\":%s,\"scoreUnit\":\"x\"},"
+                        + "\"secondaryMetrics\":{\"%s\":{\"score\":%s,\"scoreUnit\":\"B/op\"}}}",
+                benchmark, mode, score, BenchmarkRunner.ALLOCATION_METRIC, allocated);
+    }
+}
@@ -0,0 +1,85 @@
+package com.carapax.berlinclock.benchmark;
+
+import com.carapax.berlinclock.model.BerlinClockTime;
+import com.carapax.berlinclock.service.BerlinClockService;
+import com.carapax.berlinclock.service.ConversionMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the BerlinClockService hot paths: both convert overloads and both decode overloads,
+ * in each conversion mode. Inputs rotate over a spread of times so results do not depend on a
+ * single cached value. Run through {@link BenchmarkRunner}.
+ *
+ * @author Jose Benitez
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BerlinClockServiceBenchmark {
+
+    private static final int INPUTS = 1024;
+
+    @Param({"LOOKUP", "COMPUTE"})
+    public ConversionMode mode;
+
+    private BerlinClockService service;
+    private final LocalTime[] localTimes = new LocalTime[INPUTS];
+    private final String[] strings = new String[INPUTS];
+    private final BerlinClockTime[] berlinTimes = new BerlinClockTime[INPUTS];
+    private int next;
+
+    @Setup
+    public void setUp() {
+        service = new BerlinClockService(mode);
+        for (int i = 0; i < INPUTS; i++) {
+            // 84 seconds apart: the inputs span the whole day and every minute-of-hour
+            int secondOfDay = i * 84 % BerlinClockService.SECONDS_PER_DAY;
+            localTimes[i] = LocalTime.ofSecondOfDay(secondOfDay);
+            berlinTimes[i] = service.convertToBerlinTime(secondOfDay);
+            strings[i] = berlinTimes[i].getCurrentTime();
+        }
+    }
+
+    private int nextIndex() {
+        next = (next + 1) & (INPUTS - 1);
+        return next;
+    }
+
+    @Benchmark
+    public BerlinClockTime convertLocalTime() {
+        return service.convertToBerlinTime(localTimes[nextIndex()]);
+    }
+
+    @Benchmark
+    public BerlinClockTime convertString() {
+        return service.convertToBerlinTime(strings[nextIndex()]);
+    }
+
+    @Benchmark
+    public String decodeBerlinClockTime() {
+        return service.decodeBerlinTime(berlinTimes[nextIndex()]);
+    }
+
+    @Benchmark
+    public String decodeRowStrings() {
+        BerlinClockTime time = berlinTimes[nextIndex()];
+        return service.decodeBerlinTime(time.getSecondsLamp(), time.getFiveHoursRow(), time.getSingleHoursRow(),
+                time.getFiveMinutesRow(), time.getSingleMinutesRow());
+    }
+}
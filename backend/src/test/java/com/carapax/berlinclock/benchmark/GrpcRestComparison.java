@@ -0,0 +1,269 @@
+package com.carapax.berlinclock.benchmark;
+
+import com.carapax.berlinclock.grpc.BerlinClockGrpc;
+import com.carapax.berlinclock.grpc.ConvertBatchReply;
+import com.carapax.berlinclock.grpc.ConvertRequest;
+import io.grpc.Grpc;
+import io.grpc.InsecureChannelCredentials;
+import io.grpc.ManagedChannel;
+import io.grpc.stub.StreamObserver;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the gRPC API with the REST endpoints it mirrors, against one server started from the
+ * packaged jar:
+ * <ul>
+ *     <li>single conversions: GET /api/time/convert as JSON and as a packed state over HTTP/1.1
+ *     keep-alive connections, against the Convert RPC over one HTTP/2 channel;</li>
+ *     <li>batches: POST /api/time/convert/batch against the ConvertBatch RPC.</li>
+ * </ul>
+ * Each runs a fixed number of concurrent clients back to back for a while, after a warm-up, and
+ * reports throughput and latency percentiles. Every request converts a different time, so no
+ * response cache is hit.
+ * Run from the backend directory, after packaging the application:
+ * <pre>
+ * mvn -DskipTests package
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.carapax.berlinclock.benchmark.GrpcRestComparison
+ * </pre>
+ * System properties: {@code load.jar} (default target/berlinclock-1.0.0.jar), {@code load.clients}
+ * (concurrent clients, default 64), {@code load.duration} (ISO-8601, default PT10S) and
+ * {@code load.batch} (times per batch, default 1000).
+ *
+ * @author Jose Benitez
+ */
+public final class GrpcRestComparison {
+
+    private static final String[] TIMES = new String[86_400];
+
+    static {
+        for (int second = 0; second < TIMES.length; second++) {
+            TIMES[second] = String.format("%02d:%02d:%02d", second / 3600, second / 60 % 60, second % 60);
+        }
+    }
+
+    private GrpcRestComparison() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path jar = Path.of(System.getProperty("load.jar", "target/berlinclock-1.0.0.jar"));
+        int clients = Integer.getInteger("load.clients", 64);
+        Duration duration = Duration.parse(System.getProperty("load.duration", "PT10S"));
+        int batchSize = Integer.getInteger("load.batch", 1000);
+        if (!Files.isRegularFile(jar)) {
+            throw new IllegalStateException(jar + " not found; run mvn -DskipTests package first");
+        }
+
+        int httpPort = freePort();
+        int grpcPort = freePort();
+        Process server = new ProcessBuilder(javaCommand(), "-jar", jar.toString(),
+                "--server.port=" + httpPort, "--berlinclock.grpc.port=" + grpcPort,
+                "--berlinclock.admission.enabled=false", "--spring.main.banner-mode=off", "--logging.level.root=WARN")
+                .inheritIO()
+                .start();
+        ManagedChannel channel = Grpc.newChannelBuilderForAddress("localhost", grpcPort,
+                InsecureChannelCredentials.create()).build();
+        try (ExecutorService executor = Executors.newThreadPerTaskExecutor(Thread.ofPlatform().daemon().factory())) {
+            HttpClient httpClient = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .executor(executor)
+                    .build();
+            awaitStartup(httpClient, httpPort);
+            String base = "http://localhost:" + httpPort;
+            BerlinClockGrpc.BerlinClockBlockingStub blockingStub = BerlinClockGrpc.newBlockingStub(channel);
+            BerlinClockGrpc.BerlinClockStub asyncStub = BerlinClockGrpc.newStub(channel);
+
+            List<Workload> workloads = List.of(
+                    new Workload("REST convert (JSON)", 1, index -> {
+                        HttpRequest request = HttpRequest.newBuilder(
+                                URI.create(base + "/api/time/convert?time=" + TIMES[index % TIMES.length])).build();
+                        return httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray()).statusCode() == 200;
+                    }),
+                    new Workload("REST convert (packed)", 1, index -> {
+                        HttpRequest request = HttpRequest.newBuilder(
+                                        URI.create(base + "/api/time/convert?time=" + TIMES[index % TIMES.length]))
+                                .header("Accept", "application/octet-stream")
+                                .build();
+                        return httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray()).statusCode() == 200;
+                    }),
+                    new Workload("gRPC Convert", 1, index -> {
+                        blockingStub.convert(ConvertRequest.newBuilder().setTime(TIMES[index % TIMES.length]).build());
+                        return true;
+                    }),
+                    new Workload("REST batch", batchSize, index -> {
+                        HttpRequest request = HttpRequest.newBuilder(URI.create(base + "/api/time/convert/batch"))
+                                .POST(HttpRequest.BodyPublishers.ofString(batchBody(index, batchSize)))
+                                .build();
+                        return httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray()).statusCode() == 200;
+                    }),
+                    new Workload("gRPC ConvertBatch", batchSize, index -> {
+                        CompletableFuture<ConvertBatchReply> reply = new CompletableFuture<>();
+                        StreamObserver<ConvertRequest> requests = asyncStub.convertBatch(replyTo(reply));
+                        for (int i = 0; i < batchSize; i++) {
+                            requests.onNext(ConvertRequest.newBuilder()
+                                    .setTime(TIMES[(index + i) % TIMES.length]).build());
+                        }
+                        requests.onCompleted();
+                        return reply.get(30, TimeUnit.SECONDS).getPackedStatesCount() == batchSize;
+                    }));
+
+            List<Result> results = new ArrayList<>();
+            for (Workload workload : workloads) {
+                System.out.printf("Running %s%n", workload.name);
+                load(workload, executor, clients, Duration.ofSeconds(3));
+                long[] latencies = load(workload, executor, clients, duration);
+                double calls = latencies.length / (duration.toNanos() / 1e9);
+                results.add(new Result(workload.name, calls, calls * workload.timesPerCall,
+                        percentile(latencies, 0.50), percentile(latencies, 0.99), percentile(latencies, 0.999)));
+            }
+
+            System.out.printf("%n%d concurrent clients for %s, %d times per batch, %d core(s)%n",
+                    clients, duration, batchSize, Runtime.getRuntime().availableProcessors());
+            System.out.printf("%-22s %10s %11s %8s %8s %9s%n", "workload", "calls/s", "times/s", "p50 ms", "p99 ms",
+                    "p99.9 ms");
+            for (Result result : results) {
+                System.out.printf("%-22s %10.0f %11.0f %8.2f %8.2f %9.2f%n", result.workload, result.callsPerSecond,
+                        result.timesPerSecond, result.p50Millis, result.p99Millis, result.p999Millis);
+            }
+        } finally {
+            channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+            server.destroy();
+            server.waitFor();
+        }
+    }
+
+    /**
+     * Runs the workload back to back from a fixed number of clients, each walking its own slice of the day.
+     *
+     * @return latency of every successful call, sorted, in nanoseconds
+     */
+    private static long[] load(Workload workload, ExecutorService executor, int clients, Duration duration)
+            throws Exception {
+        long deadline = System.nanoTime() + duration.toNanos();
+        List<Future<long[]>> workers = new ArrayList<>(clients);
+        for (int client = 0; client < clients; client++) {
+            int offset = client * (TIMES.length / clients);
+            workers.add(executor.submit(() -> {
+                long[] latencies = new long[1024];
+                int count = 0;
+                int index = offset;
+                while (System.nanoTime() < deadline) {
+                    long start = System.nanoTime();
+                    boolean ok = workload.call.run(index);
+                    index += workload.timesPerCall;
+                    if (!ok) {
+                        continue;
+                    }
+                    if (count == latencies.length) {
+                        latencies = Arrays.copyOf(latencies, count * 2);
+                    }
+                    latencies[count++] = System.nanoTime() - start;
+                }
+                return Arrays.copyOf(latencies, count);
+            }));
+        }
+        List<long[]> samples = new ArrayList<>(clients);
+        for (Future<long[]> worker : workers) {
+            samples.add(worker.get());
+        }
+        return samples.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+    }
+
+    private static String batchBody(int index, int batchSize) {
+        StringBuilder body = new StringBuilder(batchSize * 9);
+        for (int i = 0; i < batchSize; i++) {
+            body.append(TIMES[(index + i) % TIMES.length]).append('\n');
+        }
+        return body.toString();
+    }
+
+    private static <T> StreamObserver<T> replyTo(CompletableFuture<T> result) {
+        return new StreamObserver<>() {
+            @Override
+            public void onNext(T value) {
+                result.complete(value);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                result.completeExceptionally(t);
+            }
+
+            @Override
+            public void onCompleted() {
+            }
+        };
+    }
+
+    private static void awaitStartup(HttpClient httpClient, int port) throws InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/time")).build();
+        long deadline = System.nanoTime() + Duration.ofMinutes(1).toNanos();
+        while (System.nanoTime() < deadline) {
+            try {
+                if (httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                // Not listening yet
+            }
+            Thread.sleep(100);
+        }
+        throw new IllegalStateException("Server on port " + port + " did not start");
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static String javaCommand() {
+        return Path.of(System.getProperty("java.home"), "bin", "java").toString();
+    }
+
+    /**
+     * @return the given percentile of sorted nanosecond samples, in milliseconds
+     */
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return Double.NaN;
+        }
+        int index = Math.max(0, (int) Math.ceil(percentile * sorted.length) - 1);
+        return sorted[index] / 1_000_000.0;
+    }
+
+    @FunctionalInterface
+    private interface Call {
+
+        /**
+         * Makes one call converting the times from the given index on.
+         *
+         * @return whether it succeeded
+         */
+        boolean run(int index) throws Exception;
+    }
+
+    private record Workload(String name, int timesPerCall, Call call) {
+    }
+
+    private record Result(String workload, double callsPerSecond, double timesPerSecond, double p50Millis,
+                          double p99Millis, double p999Millis) {
+    }
+}
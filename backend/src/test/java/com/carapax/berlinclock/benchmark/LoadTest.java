@@ -0,0 +1,421 @@
+package com.carapax.berlinclock.benchmark;
+
+import com.carapax.berlinclock.service.BerlinClockService;
+import com.carapax.berlinclock.web.BerlinClockJson;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.convert.DurationStyle;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Load test of the whole service over HTTP: starts the packaged jar on a free port and drives
+ * /api/time, /api/time/convert and /api/time/decode in a configured mix at a fixed arrival rate.
+ * <p>
+ * The load follows an open model: each request is due at a fixed time whatever the responses are
+ * doing, and its latency is measured from when it was due rather than when it was sent, so a
+ * server that falls behind shows its queueing in the percentiles instead of slowing the load down.
+ * Latencies go into HdrHistogram. The report gives p50, p99, p99.9, throughput and errors per
+ * endpoint, and the run fails when an endpoint breaches an SLO.
+ * <p>
+ * Settings come from benchmarks/load-test.properties, where each is described; any of them can be
+ * overridden with {@code -Dload.<key>}, and {@code load.config} and {@code load.jar} point elsewhere.
+ * Run from the backend directory:
+ * <pre>
+ * mvn -Pload-test verify
+ * mvn -Pload-test verify -Dload.rate=5000 -Dload.mix=convert:100
+ * </pre>
+ *
+ * @author Jose Benitez
+ */
+public final class LoadTest {
+
+    private static final String[] ENDPOINTS = {"time", "convert", "decode"};
+    private static final String[] PERCENTILES = {"p50", "p99", "p99.9"};
+    private static final double[] PERCENTILE_VALUES = {50.0, 99.0, 99.9};
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final Duration DRAIN_TIMEOUT = Duration.ofSeconds(30);
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Settings settings = Settings.load(Path.of(System.getProperty("load.config", "benchmarks/load-test.properties")));
+        Path jar = Path.of(System.getProperty("load.jar", "target/berlinclock-1.0.0.jar"));
+        if (!Files.isRegularFile(jar)) {
+            throw new IllegalStateException(jar + " not found; run mvn -DskipTests package first");
+        }
+        double rate = Double.parseDouble(settings.get("rate"));
+        Duration warmup = settings.duration("warmup");
+        Duration duration = settings.duration("duration");
+        int[] weights = weights(settings.get("mix"));
+
+        int port = freePort();
+        List<String> command = new ArrayList<>(List.of(javaCommand(), "-jar", jar.toString(), "--server.port=" + port,
+                "--spring.main.banner-mode=off", "--logging.level.root=WARN"));
+        String serverArgs = settings.get("server-args").trim();
+        if (!serverArgs.isEmpty()) {
+            command.addAll(Arrays.asList(serverArgs.split("\\s+")));
+        }
+        Process server = new ProcessBuilder(command).inheritIO().start();
+        try (ExecutorService executor = Executors.newCachedThreadPool(Thread.ofPlatform().daemon().factory())) {
+            HttpClient httpClient = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .executor(executor)
+                    .build();
+            awaitStartup(httpClient, port);
+            Requests requests = new Requests("http://localhost:" + port, settings.duration("request-timeout"));
+            int maxInFlight = Integer.parseInt(settings.get("max-in-flight"));
+
+            System.out.printf("Warming up for %s at %.0f requests/s%n", warmup, rate);
+            run(httpClient, requests, weights, rate, warmup, maxInFlight);
+            System.out.printf("Measuring for %s at %.0f requests/s%n", duration, rate);
+            Stats[] stats = run(httpClient, requests, weights, rate, duration, maxInFlight);
+
+            report(stats, weights, rate, duration);
+            List<String> breaches = checkSlos(settings, stats, weights);
+            if (breaches.isEmpty()) {
+                System.out.println("All SLOs met");
+            } else {
+                breaches.forEach(breach -> System.out.println("SLO breached: " + breach));
+                if (Boolean.parseBoolean(settings.get("fail-on-breach"))) {
+                    throw new IllegalStateException(breaches.size() + " SLO(s) breached");
+                }
+            }
+        } finally {
+            server.destroy();
+            server.waitFor();
+        }
+    }
+
+    /**
+     * Starts requests at the given rate for the given time, then waits for the last ones to finish.
+     * Requests that have still not finished after {@link #DRAIN_TIMEOUT} count as errors, and their
+     * late responses are ignored.
+     *
+     * @return what each endpoint recorded
+     */
+    private static Stats[] run(HttpClient httpClient, Requests requests, int[] weights, double rate, Duration length,
+                               int maxInFlight) throws InterruptedException {
+        Stats[] stats = new Stats[ENDPOINTS.length];
+        for (int endpoint = 0; endpoint < ENDPOINTS.length; endpoint++) {
+            stats[endpoint] = new Stats();
+        }
+        SplittableRandom random = new SplittableRandom(42);
+        AtomicInteger inFlight = new AtomicInteger();
+        Set<Pending> pending = ConcurrentHashMap.newKeySet();
+        long start = System.nanoTime();
+        long end = start + length.toNanos();
+        for (long i = 0; ; i++) {
+            long due = start + (long) (i * 1e9 / rate);
+            if (due - end >= 0) {
+                break;
+            }
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            int endpoint = pick(weights, random);
+            Stats endpointStats = stats[endpoint];
+            if (inFlight.get() >= maxInFlight) {
+                endpointStats.errors.increment();
+                continue;
+            }
+            inFlight.incrementAndGet();
+            Pending request = new Pending(endpointStats);
+            pending.add(request);
+            httpClient.sendAsync(requests.next(endpoint, random), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, failure) -> {
+                        long latency = System.nanoTime() - due;
+                        inFlight.decrementAndGet();
+                        pending.remove(request);
+                        if (!request.settle()) {
+                            return;
+                        }
+                        if (failure == null && response.statusCode() / 100 == 2) {
+                            endpointStats.histogram.recordValue(Math.min(latency, HIGHEST_TRACKABLE_NANOS));
+                        } else {
+                            endpointStats.errors.increment();
+                        }
+                    });
+        }
+        long drainDeadline = System.nanoTime() + DRAIN_TIMEOUT.toNanos();
+        while (inFlight.get() > 0 && System.nanoTime() < drainDeadline) {
+            Thread.sleep(10);
+        }
+        int abandoned = 0;
+        for (Pending request : pending) {
+            if (request.settle()) {
+                request.stats.errors.increment();
+                abandoned++;
+            }
+        }
+        if (abandoned > 0) {
+            System.out.printf("%d request(s) still in flight after %s, counted as errors%n", abandoned, DRAIN_TIMEOUT);
+        }
+        return stats;
+    }
+
+    private static void report(Stats[] stats, int[] weights, double rate, Duration duration) {
+        double seconds = duration.toNanos() / 1e9;
+        System.out.printf("%nTarget %.0f requests/s for %s, %d core(s)%n", rate, duration,
+                Runtime.getRuntime().availableProcessors());
+        System.out.printf("%-8s %10s %9s %8s %8s %8s %9s %8s%n",
+                "endpoint", "requests", "ok/s", "errors", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+        Histogram all = new Histogram(HIGHEST_TRACKABLE_NANOS, 3);
+        long allErrors = 0;
+        for (int endpoint = 0; endpoint < ENDPOINTS.length; endpoint++) {
+            if (weights[endpoint] == 0) {
+                continue;
+            }
+            Histogram histogram = stats[endpoint].histogram;
+            long errors = stats[endpoint].errors.sum();
+            printRow(ENDPOINTS[endpoint], histogram, errors, seconds);
+            all.add(histogram);
+            allErrors += errors;
+        }
+        printRow("all", all, allErrors, seconds);
+    }
+
+    private static void printRow(String name, Histogram histogram, long errors, double seconds) {
+        System.out.printf("%-8s %10d %9.0f %8d %8.2f %8.2f %9.2f %8.2f%n", name,
+                histogram.getTotalCount() + errors, histogram.getTotalCount() / seconds, errors,
+                millis(histogram.getValueAtPercentile(50.0)), millis(histogram.getValueAtPercentile(99.0)),
+                millis(histogram.getValueAtPercentile(99.9)), millis(histogram.getMaxValue()));
+    }
+
+    /**
+     * Checks each endpoint in the mix against {@code slo.<percentile>} and {@code slo.errors}, or the
+     * {@code slo.<endpoint>.*} setting where there is one.
+     *
+     * @return one line per breach
+     */
+    static List<String> checkSlos(Settings settings, Stats[] stats, int[] weights) {
+        List<String> breaches = new ArrayList<>();
+        for (int endpoint = 0; endpoint < ENDPOINTS.length; endpoint++) {
+            if (weights[endpoint] == 0) {
+                continue;
+            }
+            String name = ENDPOINTS[endpoint];
+            Histogram histogram = stats[endpoint].histogram;
+            for (int p = 0; p < PERCENTILES.length; p++) {
+                String limit = settings.slo(name, PERCENTILES[p]);
+                if (limit == null) {
+                    continue;
+                }
+                long limitNanos = DurationStyle.detectAndParse(limit).toNanos();
+                long value = histogram.getValueAtPercentile(PERCENTILE_VALUES[p]);
+                if (value > limitNanos) {
+                    breaches.add(String.format("%s %s %.2f ms > %s", name, PERCENTILES[p], millis(value), limit));
+                }
+            }
+            String maxErrors = settings.slo(name, "errors");
+            long errors = stats[endpoint].errors.sum();
+            long total = histogram.getTotalCount() + errors;
+            if (maxErrors != null && total > 0 && (double) errors / total > Double.parseDouble(maxErrors)) {
+                breaches.add(String.format("%s errors %d of %d > %s", name, errors, total, maxErrors));
+            }
+        }
+        return breaches;
+    }
+
+    /**
+     * Parses a mix such as {@code time:50,convert:30,decode:20} into a weight per endpoint.
+     */
+    static int[] weights(String mix) {
+        int[] weights = new int[ENDPOINTS.length];
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split(":");
+            int endpoint = Arrays.asList(ENDPOINTS).indexOf(parts[0].trim());
+            if (parts.length != 2 || endpoint < 0) {
+                throw new IllegalArgumentException("Mix entries are endpoint:weight with endpoint one of "
+                        + String.join(", ", ENDPOINTS) + ", got " + entry);
+            }
+            weights[endpoint] = Integer.parseInt(parts[1].trim());
+        }
+        if (Arrays.stream(weights).sum() <= 0) {
+            throw new IllegalArgumentException("Mix has no weight: " + mix);
+        }
+        return weights;
+    }
+
+    private static int pick(int[] weights, SplittableRandom random) {
+        int total = 0;
+        for (int weight : weights) {
+            total += weight;
+        }
+        int value = random.nextInt(total);
+        for (int endpoint = 0; endpoint < weights.length; endpoint++) {
+            value -= weights[endpoint];
+            if (value < 0) {
+                return endpoint;
+            }
+        }
+        throw new IllegalStateException("Unreachable");
+    }
+
+    private static void awaitStartup(HttpClient httpClient, int port) throws InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/time")).build();
+        long deadline = System.nanoTime() + Duration.ofMinutes(1).toNanos();
+        while (System.nanoTime() < deadline) {
+            try {
+                if (httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                // Not listening yet
+            }
+            Thread.sleep(100);
+        }
+        throw new IllegalStateException("Server on port " + port + " did not start");
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static String javaCommand() {
+        return Path.of(System.getProperty("java.home"), "bin", "java").toString();
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    /**
+     * Requests for each endpoint, built once and reused. Conversions and decodes spread over every
+     * minute of the day, so no response cache turns the test into a cache benchmark.
+     */
+    private static final class Requests {
+
+        private final HttpRequest time;
+        private final HttpRequest[] converts = new HttpRequest[1440];
+        private final HttpRequest[] decodes = new HttpRequest[1440];
+
+        Requests(String base, Duration timeout) {
+            BerlinClockService service = new BerlinClockService();
+            time = HttpRequest.newBuilder(URI.create(base + "/api/time")).timeout(timeout).build();
+            for (int minute = 0; minute < converts.length; minute++) {
+                int secondOfDay = minute * 60 + minute % 60;
+                String formatted = String.format("%02d:%02d:%02d", minute / 60, minute % 60, minute % 60);
+                converts[minute] = HttpRequest.newBuilder(URI.create(base + "/api/time/convert?time=" + formatted))
+                        .timeout(timeout)
+                        .build();
+                decodes[minute] = HttpRequest.newBuilder(URI.create(base + "/api/time/decode"))
+                        .timeout(timeout)
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofByteArray(
+                                BerlinClockJson.toBytes(service.convertToBerlinTime(secondOfDay), false)))
+                        .build();
+            }
+        }
+
+        HttpRequest next(int endpoint, SplittableRandom random) {
+            return switch (endpoint) {
+                case 0 -> time;
+                case 1 -> converts[random.nextInt(converts.length)];
+                default -> decodes[random.nextInt(decodes.length)];
+            };
+        }
+    }
+
+    /**
+     * Latencies of the successful requests to one endpoint, and the count of failed ones.
+     */
+    static final class Stats {
+
+        final ConcurrentHistogram histogram = new ConcurrentHistogram(HIGHEST_TRACKABLE_NANOS, 3);
+        final LongAdder errors = new LongAdder();
+    }
+
+    /**
+     * A request that has been sent. Its outcome is recorded once, by whichever of the response and the
+     * end of the drain settles it first.
+     */
+    private static final class Pending {
+
+        private final Stats stats;
+        private final AtomicBoolean settled = new AtomicBoolean();
+
+        Pending(Stats stats) {
+            this.stats = stats;
+        }
+
+        /**
+         * @return true for the one caller that gets to record the outcome
+         */
+        boolean settle() {
+            return settled.compareAndSet(false, true);
+        }
+    }
+
+    /**
+     * The settings file with {@code load.*} system properties on top.
+     */
+    static final class Settings {
+
+        private final Properties properties;
+
+        Settings(Properties properties) {
+            this.properties = properties;
+        }
+
+        static Settings load(Path file) throws IOException {
+            Properties properties = new Properties();
+            try (Reader reader = Files.newBufferedReader(file)) {
+                properties.load(reader);
+            }
+            for (String name : System.getProperties().stringPropertyNames()) {
+                if (name.startsWith("load.")) {
+                    properties.setProperty(name.substring("load.".length()), System.getProperty(name));
+                }
+            }
+            return new Settings(properties);
+        }
+
+        String get(String key) {
+            String value = properties.getProperty(key);
+            if (value == null) {
+                throw new IllegalArgumentException("Missing load test setting " + key);
+            }
+            return value.trim();
+        }
+
+        Duration duration(String key) {
+            return DurationStyle.detectAndParse(get(key));
+        }
+
+        /**
+         * @return the SLO for an endpoint, its own or the shared one, or null if there is none
+         */
+        String slo(String endpoint, String name) {
+            String value = properties.getProperty("slo." + endpoint + "." + name, properties.getProperty("slo." + name));
+            return value == null || value.isBlank() ? null : value.trim();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.carapax.berlinclock.benchmark;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the settings, mix parsing and SLO checks of LoadTest.
+ *
+ * @author Jose Benitez
+ */
+class LoadTestTest {
+
+    @Test
+    @DisplayName("Should parse a mix into weights in endpoint order")
+    void testWeights() {
+        assertArrayEquals(new int[]{50, 30, 20}, LoadTest.weights("time:50,convert:30,decode:20"));
+        assertArrayEquals(new int[]{0, 100, 0}, LoadTest.weights(" convert : 100 "));
+    }
+
+    @Test
+    @DisplayName("Should reject unknown endpoints, malformed entries and a mix without weight")
+    void testInvalidWeights() {
+        assertThrows(IllegalArgumentException.class, () -> LoadTest.weights("stream:10"));
+        assertThrows(IllegalArgumentException.class, () -> LoadTest.weights("time"));
+        assertThrows(IllegalArgumentException.class, () -> LoadTest.weights("time:1:2"));
+        assertThrows(IllegalArgumentException.class, () -> LoadTest.weights("time:0,convert:0"));
+        assertThrows(NumberFormatException.class, () -> LoadTest.weights("time:many"));
+    }
+
+    @Test
+    @DisplayName("Should read the settings file with load.* system properties on top")
+    void testSettingsLoad(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("load-test.properties");
+        Files.writeString(file, "rate=2000\nwarmup=10s\nmix=time:100\n");
+        System.setProperty("load.rate", "500");
+        try {
+            LoadTest.Settings settings = LoadTest.Settings.load(file);
+
+            assertEquals("500", settings.get("rate"));
+            assertEquals(Duration.ofSeconds(10), settings.duration("warmup"));
+            assertEquals("time:100", settings.get("mix"));
+            assertThrows(IllegalArgumentException.class, () -> settings.get("duration"));
+        } finally {
+            System.clearProperty("load.rate");
+        }
+    }
+
+    @Test
+    @DisplayName("Should prefer an endpoint's own SLO and treat a blank one as none")
+    void testSettingsSlo() {
+        LoadTest.Settings settings = settings("slo.p99", "20ms", "slo.decode.p99", "30ms", "slo.errors", " ");
+
+        assertEquals("20ms", settings.slo("time", "p99"));
+        assertEquals("30ms", settings.slo("decode", "p99"));
+        assertNull(settings.slo("time", "p50"));
+        assertNull(settings.slo("time", "errors"));
+    }
+
+    @Test
+    @DisplayName("Should pass an endpoint within its latency and error SLOs")
+    void testSlosMet() {
+        LoadTest.Stats[] stats = stats();
+        record(stats[0], 1000, 1);
+        stats[0].errors.increment();
+
+        List<String> breaches = LoadTest.checkSlos(settings("slo.p50", "2ms", "slo.p99.9", "5ms", "slo.errors", "0.001"),
+                stats, new int[]{100, 0, 0});
+
+        assertTrue(breaches.isEmpty(), breaches::toString);
+    }
+
+    @Test
+    @DisplayName("Should report latency and error breaches, using the endpoint's own limit where set")
+    void testSlosBreached() {
+        LoadTest.Stats[] stats = stats();
+        record(stats[0], 100, 3);
+        record(stats[1], 100, 3);
+        stats[1].errors.add(2);
+
+        List<String> breaches = LoadTest.checkSlos(
+                settings("slo.p50", "2ms", "slo.time.p50", "5ms", "slo.errors", "0.01"), stats, new int[]{50, 50, 0});
+
+        assertEquals(2, breaches.size(), breaches::toString);
+        assertTrue(breaches.get(0).startsWith("convert p50 3.00 ms > 2ms"), breaches.get(0));
+        assertEquals("convert errors 2 of 102 > 0.01", breaches.get(1));
+    }
+
+    @Test
+    @DisplayName("Should skip endpoints outside the mix")
+    void testSlosSkipUnusedEndpoints() {
+        LoadTest.Stats[] stats = stats();
+        record(stats[2], 10, 100);
+
+        assertTrue(LoadTest.checkSlos(settings("slo.p50", "2ms"), stats, new int[]{1, 0, 0}).isEmpty());
+    }
+
+    private static LoadTest.Settings settings(String... keysAndValues) {
+        Properties properties = new Properties();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            properties.setProperty(keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return new LoadTest.Settings(properties);
+    }
+
+    private static LoadTest.Stats[] stats() {
+        return new LoadTest.Stats[]{new LoadTest.Stats(), new LoadTest.Stats(), new LoadTest.Stats()};
+    }
+
+    private static void record(LoadTest.Stats stats, int count, long millis) {
+        for (int i = 0; i < count; i++) {
+            stats.histogram.recordValue(TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+    }
+}
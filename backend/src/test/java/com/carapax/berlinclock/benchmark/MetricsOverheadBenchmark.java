@@ -0,0 +1,74 @@
+package com.carapax.berlinclock.benchmark;
+
+import com.carapax.berlinclock.web.BerlinClockMetrics;
+import com.carapax.berlinclock.web.RequestMetricsFilter;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures what metrics add to a request: the timing filter around an empty filter chain and a
+ * counter increment, with {@code berlinclock.metrics.enabled} on and off. Recording goes into a
+ * Prometheus registry, as in the application, and should allocate nothing per request.
+ * <p>
+ * Run from the backend directory:
+ * <pre>
+ * mvn -Pbenchmarks verify -Dbenchmark.include=MetricsOverheadBenchmark
+ * </pre>
+ *
+ * @author Jose Benitez
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsOverheadBenchmark {
+
+    @Param({"true", "false"})
+    public boolean enabled;
+
+    private BerlinClockMetrics metrics;
+    private RequestMetricsFilter filter;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+    private final FilterChain emptyChain = (req, res) -> { };
+
+    @Setup
+    public void setUp() {
+        metrics = new BerlinClockMetrics(new PrometheusMeterRegistry(PrometheusConfig.DEFAULT), enabled);
+        filter = new RequestMetricsFilter(metrics);
+        request = new MockHttpServletRequest("GET", "/api/time/convert");
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/time/convert");
+        response = new MockHttpServletResponse();
+    }
+
+    @Benchmark
+    public void timedRequest() throws IOException, ServletException {
+        filter.doFilter(request, response, emptyChain);
+    }
+
+    @Benchmark
+    public void countedConversion() {
+        metrics.conversion();
+    }
+}
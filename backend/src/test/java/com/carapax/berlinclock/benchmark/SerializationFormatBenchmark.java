@@ -0,0 +1,127 @@
+package com.carapax.berlinclock.benchmark;
+
+import com.carapax.berlinclock.model.BerlinClockTime;
+import com.carapax.berlinclock.service.BerlinClockService;
+import com.carapax.berlinclock.web.BerlinClockJson;
+import com.carapax.berlinclock.web.PackedStateWire;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compares the wire formats offered by /api/time: payload size and serialization throughput
+ * for Jackson JSON, the precomputed JSON bytes, CBOR, Smile and the 3-byte packed state.
+ * <p>
+ * Run from the backend directory:
+ * <pre>
+ * mvn -Pbenchmarks verify -Dbenchmark.include=SerializationFormatBenchmark
+ * </pre>
+ * Running {@link #main} directly also prints the payload size table.
+ *
+ * @author Jose Benitez
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationFormatBenchmark {
+
+    private final ObjectMapper json = new ObjectMapper();
+    private final CBORMapper cbor = new CBORMapper();
+    private final SmileMapper smile = new SmileMapper();
+    private final BerlinClockService service = new BerlinClockService();
+
+    private BerlinClockTime[] times;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        times = new BerlinClockTime[BerlinClockService.SECONDS_PER_DAY];
+        for (int second = 0; second < times.length; second++) {
+            times[second] = service.convertToBerlinTime(second);
+        }
+    }
+
+    private BerlinClockTime nextTime() {
+        BerlinClockTime time = times[next];
+        next = next + 1 == times.length ? 0 : next + 1;
+        return time;
+    }
+
+    @Benchmark
+    public byte[] jacksonJson() throws IOException {
+        return json.writeValueAsBytes(nextTime());
+    }
+
+    @Benchmark
+    public byte[] precomputedJson() {
+        return BerlinClockJson.toBytes(nextTime(), false);
+    }
+
+    @Benchmark
+    public byte[] cbor() throws IOException {
+        return cbor.writeValueAsBytes(nextTime());
+    }
+
+    @Benchmark
+    public byte[] smile() throws IOException {
+        return smile.writeValueAsBytes(nextTime());
+    }
+
+    @Benchmark
+    public byte[] packed() {
+        return PackedStateWire.toBytes(nextTime().toPackedState());
+    }
+
+    /**
+     * Prints the payload size of each format for a sample time, raw and gzipped, then runs the benchmarks.
+     */
+    public static void main(String[] args) throws IOException, RunnerException {
+        BerlinClockTime sample = new BerlinClockService().convertToBerlinTime("13:17:01");
+        System.out.printf("%-18s %8s %8s%n", "format", "bytes", "gzip");
+        printSize("json (pretty)", BerlinClockJson.toBytes(sample, true));
+        printSize("json", BerlinClockJson.toBytes(sample, false));
+        printSize("cbor", new CBORMapper().writeValueAsBytes(sample));
+        printSize("smile", new SmileMapper().writeValueAsBytes(sample));
+        printSize("packed", PackedStateWire.toBytes(sample.toPackedState()));
+
+        new Runner(new OptionsBuilder()
+                .include(SerializationFormatBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+    private static void printSize(String format, byte[] payload) {
+        System.out.printf("%-18s %8d %8d%n", format, payload.length, gzippedLength(payload));
+    }
+
+    private static int gzippedLength(byte[] payload) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(payload);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.size();
+    }
+}
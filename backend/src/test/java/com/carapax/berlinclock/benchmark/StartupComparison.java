@@ -0,0 +1,222 @@
+package com.carapax.berlinclock.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+
+/**
+ * Compares cold starts of the packaged jar as it runs today with the startup-optimized setup of the
+ * Dockerfile's fast-startup stage, step by step:
+ * <ul>
+ *     <li>{@code jar}: {@code java -jar}, what the runtime stage does;</li>
+ *     <li>{@code cds}: the unpacked jar with a class data sharing archive;</li>
+ *     <li>{@code aot+cds}: the same with the bean definitions generated by Spring AOT;</li>
+ *     <li>{@code aot+cds+lazy}: the same with lazy bean initialization, the fast-startup stage.</li>
+ * </ul>
+ * For each, it reports the time from launching the JVM to the first 200 from /api/time and the
+ * resident memory right then, as the median of several runs. The archives come from training runs
+ * made here with the same JVM, so the numbers do not depend on an earlier build.
+ * Run from the backend directory, after packaging the application with AOT processing:
+ * <pre>
+ * mvn -Pfast-startup -DskipTests package
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.carapax.berlinclock.benchmark.StartupComparison
+ * </pre>
+ * System properties: {@code startup.jar} (default target/berlinclock-1.0.0.jar), {@code startup.runs}
+ * (runs per setup, default 5) and {@code startup.dir} (work directory, default target/startup).
+ *
+ * @author Jose Benitez
+ */
+public final class StartupComparison {
+
+    private static final String MAIN_CLASS = "com.carapax.berlinclock.BerlinClockApplication";
+    private static final String AOT = "-Dspring.aot.enabled=true";
+    private static final String LAZY = "-Dspring.main.lazy-initialization=true";
+
+    private StartupComparison() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path jar = Path.of(System.getProperty("startup.jar", "target/berlinclock-1.0.0.jar"));
+        int runs = Integer.getInteger("startup.runs", 5);
+        Path dir = Path.of(System.getProperty("startup.dir", "target/startup"));
+        if (!Files.isRegularFile(jar)) {
+            throw new IllegalStateException(jar + " not found; run mvn -Pfast-startup -DskipTests package first");
+        }
+
+        String classpath = unpack(jar, dir);
+        Path cdsArchive = train(dir.resolve("cds.jsa"), classpath, List.of());
+        Path aotArchive = train(dir.resolve("aot.jsa"), classpath, List.of(AOT));
+
+        List<Result> results = List.of(
+                measure("jar", List.of("-jar", jar.toString()), runs),
+                measure("cds", withClasspath(classpath, List.of(shared(cdsArchive))), runs),
+                measure("aot+cds", withClasspath(classpath, List.of(shared(aotArchive), AOT)), runs),
+                measure("aot+cds+lazy", withClasspath(classpath, List.of(shared(aotArchive), AOT, LAZY)), runs));
+
+        System.out.printf("%nMedian of %d cold starts, %d core(s)%n", runs, Runtime.getRuntime().availableProcessors());
+        System.out.printf("%-13s %14s %9s %9s%n", "setup", "first 200 ms", "min ms", "RSS");
+        for (Result result : results) {
+            System.out.printf("%-13s %14d %9d %8.1fM%n",
+                    result.setup, result.medianMillis, result.minMillis, result.rssBytes / (1024.0 * 1024.0));
+        }
+    }
+
+    /**
+     * Unpacks the executable jar the way the Dockerfile does: application classes into app.jar,
+     * dependencies as they are into lib/. CDS only archives classes loaded from jar files.
+     *
+     * @return the classpath to start the unpacked application with
+     */
+    private static String unpack(Path jar, Path dir) throws IOException {
+        Path lib = dir.resolve("lib");
+        Files.createDirectories(lib);
+        Path app = dir.resolve("app.jar");
+        try (JarFile source = new JarFile(jar.toFile());
+             JarOutputStream classes = new JarOutputStream(Files.newOutputStream(app))) {
+            for (JarEntry entry : source.stream().toList()) {
+                String name = entry.getName();
+                if (name.startsWith("BOOT-INF/lib/") && name.endsWith(".jar")) {
+                    try (InputStream in = source.getInputStream(entry)) {
+                        Files.copy(in, lib.resolve(name.substring("BOOT-INF/lib/".length())),
+                                StandardCopyOption.REPLACE_EXISTING);
+                    }
+                } else if (name.startsWith("BOOT-INF/classes/") && name.length() > "BOOT-INF/classes/".length()) {
+                    classes.putNextEntry(new JarEntry(name.substring("BOOT-INF/classes/".length())));
+                    if (!entry.isDirectory()) {
+                        try (InputStream in = source.getInputStream(entry)) {
+                            in.transferTo(classes);
+                        }
+                    }
+                    classes.closeEntry();
+                }
+            }
+        }
+        return app + File.pathSeparator + lib.resolve("*");
+    }
+
+    /**
+     * Starts the context once and exits before the server starts, recording the loaded classes.
+     */
+    private static Path train(Path archive, String classpath, List<String> options) throws Exception {
+        System.out.printf("Training %s%n", archive.getFileName());
+        Files.deleteIfExists(archive);
+        List<String> command = new ArrayList<>(List.of(javaCommand(), "-XX:ArchiveClassesAtExit=" + archive,
+                "-Dspring.context.exit=onRefresh"));
+        command.addAll(options);
+        command.addAll(List.of("-cp", classpath, MAIN_CLASS, "--spring.main.banner-mode=off",
+                "--logging.level.root=WARN"));
+        Process training = new ProcessBuilder(command).inheritIO().start();
+        training.waitFor();
+        if (!Files.isRegularFile(archive)) {
+            throw new IllegalStateException("Training run did not write " + archive);
+        }
+        return archive;
+    }
+
+    private static Result measure(String setup, List<String> launch, int runs) throws Exception {
+        System.out.printf("Measuring %s%n", setup);
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(1))
+                .build();
+        long[] millis = new long[runs];
+        long[] rss = new long[runs];
+        for (int run = 0; run < runs; run++) {
+            int port = freePort();
+            List<String> command = new ArrayList<>(List.of(javaCommand()));
+            command.addAll(launch);
+            command.addAll(List.of("--server.port=" + port, "--berlinclock.grpc.port=0", "--spring.main.banner-mode=off",
+                    "--logging.level.root=WARN"));
+            long start = System.nanoTime();
+            Process server = new ProcessBuilder(command)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .redirectError(ProcessBuilder.Redirect.INHERIT)
+                    .start();
+            try {
+                awaitFirstResponse(httpClient, port, server);
+                millis[run] = (System.nanoTime() - start) / 1_000_000;
+                rss[run] = rss(server);
+            } finally {
+                server.destroy();
+                server.waitFor();
+            }
+        }
+        long[] sortedMillis = millis.clone();
+        Arrays.sort(sortedMillis);
+        Arrays.sort(rss);
+        return new Result(setup, sortedMillis[runs / 2], sortedMillis[0], rss[runs / 2]);
+    }
+
+    /**
+     * Polls /api/time every few milliseconds until it answers 200.
+     */
+    private static void awaitFirstResponse(HttpClient httpClient, int port, Process server) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/time")).build();
+        long deadline = System.nanoTime() + Duration.ofMinutes(1).toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!server.isAlive()) {
+                throw new IllegalStateException("Server exited with " + server.exitValue());
+            }
+            try {
+                if (httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                // Not listening yet
+            }
+            Thread.sleep(5);
+        }
+        throw new IllegalStateException("Server on port " + port + " did not start");
+    }
+
+    /**
+     * @return resident memory of the process, from /proc
+     */
+    private static long rss(Process server) throws IOException {
+        for (String line : Files.readAllLines(Path.of("/proc", Long.toString(server.pid()), "status"))) {
+            if (line.startsWith("VmRSS:")) {
+                return Long.parseLong(line.replaceAll("\\D", "")) * 1024;
+            }
+        }
+        return 0;
+    }
+
+    private static List<String> withClasspath(String classpath, List<String> options) {
+        List<String> launch = new ArrayList<>(options);
+        launch.addAll(List.of("-cp", classpath, MAIN_CLASS));
+        return launch;
+    }
+
+    private static String shared(Path archive) {
+        return "-XX:SharedArchiveFile=" + archive;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static String javaCommand() {
+        return Path.of(System.getProperty("java.home"), "bin", "java").toString();
+    }
+
+    private record Result(String setup, long medianMillis, long minMillis, long rssBytes) {
+    }
+}
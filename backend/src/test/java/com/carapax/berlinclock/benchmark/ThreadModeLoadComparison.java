@@ -0,0 +1,250 @@
+package com.carapax.berlinclock.benchmark;
+
+import com.carapax.berlinclock.BerlinClockApplication;
+import jakarta.servlet.Filter;
+import org.springframework.boot.Banner;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.Ordered;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Load test comparing Tomcat on platform threads with {@code spring.threads.virtual.enabled=true}.
+ * <p>
+ * For each mode the application is started on a random port. A crowd of slow clients then
+ * uploads batch bodies to /api/time/convert/batch one line at a time, each holding a request
+ * thread while the body trickles in. At the same time a few fast clients poll /api/time.
+ * The report shows the peak number of requests in progress on the server, and the latency
+ * of the fast requests: with platform threads they queue behind the slow uploads once the
+ * 200 Tomcat threads are taken.
+ * <p>
+ * On Java 21 a virtual thread blocked in Tomcat's socket read waits on a monitor and pins its
+ * carrier, so virtual mode tops out at {@code jdk.virtualThreadScheduler.maxPoolSize} (256)
+ * blocked uploads. Raise that property in MAVEN_OPTS to see the difference it makes.
+ * <p>
+ * Run from the backend directory:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.carapax.berlinclock.benchmark.ThreadModeLoadComparison
+ * </pre>
+ * System properties: {@code load.slow-clients} (default 1000), {@code load.fast-clients} (8),
+ * {@code load.hold} (slow upload duration, ISO-8601, default PT5S).
+ *
+ * @author Jose Benitez
+ */
+public final class ThreadModeLoadComparison {
+
+    private static final String BATCH_LINE = "12:34:56\n";
+    private static final int BATCH_LINES = 10;
+
+    private ThreadModeLoadComparison() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int slowClients = Integer.getInteger("load.slow-clients", 1000);
+        int fastClients = Integer.getInteger("load.fast-clients", 8);
+        Duration hold = Duration.parse(System.getProperty("load.hold", "PT5S"));
+
+        List<Result> results = List.of(
+                run(false, slowClients, fastClients, hold),
+                run(true, slowClients, fastClients, hold));
+
+        System.out.printf("%n%-9s %6s %9s %9s %7s %9s %9s %9s%n",
+                "mode", "slow", "slow-ok", "peak", "fast", "p50 ms", "p99 ms", "max ms");
+        for (Result result : results) {
+            System.out.printf("%-9s %6d %9d %9d %7d %9.1f %9.1f %9.1f%n",
+                    result.mode, slowClients, result.slowCompleted, result.peakInFlight, result.fastLatencies.length,
+                    percentile(result.fastLatencies, 0.50), percentile(result.fastLatencies, 0.99),
+                    percentile(result.fastLatencies, 1.0));
+        }
+    }
+
+    private static Result run(boolean virtualThreads, int slowClients, int fastClients, Duration hold)
+            throws Exception {
+        String mode = virtualThreads ? "virtual" : "platform";
+        System.out.printf("Running %s threads: %d slow clients, %d fast clients, %s hold%n",
+                mode, slowClients, fastClients, hold);
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(BerlinClockApplication.class,
+                InFlightProbe.class)
+                .bannerMode(Banner.Mode.OFF)
+                .run("--server.port=0",
+                        "--spring.threads.virtual.enabled=" + virtualThreads,
+                        // Every client is localhost, so admission control would measure its own limit
+                        "--berlinclock.admission.enabled=false",
+                        "--berlinclock.grpc.port=0",
+                        "--logging.level.root=WARN");
+             // Platform threads on the client side, so the clients never compete with the server for carriers
+             ExecutorService clients = Executors.newThreadPerTaskExecutor(Thread.ofPlatform().daemon().factory())) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            InFlightProbe probe = context.getBean(InFlightProbe.class);
+            HttpClient httpClient = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .executor(clients)
+                    .build();
+            // Warm up the request path so the first fast request does not pay for class loading
+            for (int i = 0; i < 100; i++) {
+                fastRequest(httpClient, port);
+            }
+            probe.reset();
+
+            long deadline = System.nanoTime() + hold.toNanos();
+            List<Future<Boolean>> slow = new ArrayList<>(slowClients);
+            for (int i = 0; i < slowClients; i++) {
+                slow.add(clients.submit(() -> slowUpload(port, hold)));
+            }
+            List<Future<long[]>> fast = new ArrayList<>(fastClients);
+            for (int i = 0; i < fastClients; i++) {
+                fast.add(clients.submit(() -> pollUntil(httpClient, port, deadline)));
+            }
+
+            int slowCompleted = 0;
+            for (Future<Boolean> upload : slow) {
+                if (upload.get()) {
+                    slowCompleted++;
+                }
+            }
+            List<long[]> samples = new ArrayList<>();
+            for (Future<long[]> client : fast) {
+                samples.add(client.get());
+            }
+            long[] latencies = samples.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+            return new Result(mode, slowCompleted, probe.peak(), latencies);
+        }
+    }
+
+    /**
+     * Sends a batch body one line at a time, spread over the hold duration, and reads the response.
+     *
+     * @return true if the server answered 200
+     */
+    private static boolean slowUpload(int port, Duration hold) {
+        byte[] line = BATCH_LINE.getBytes(StandardCharsets.US_ASCII);
+        String headers = "POST /api/time/convert/batch HTTP/1.1\r\n"
+                + "Host: localhost:" + port + "\r\n"
+                + "Content-Type: text/plain\r\n"
+                + "Content-Length: " + line.length * BATCH_LINES + "\r\n"
+                + "Connection: close\r\n\r\n";
+        try (Socket socket = new Socket("localhost", port)) {
+            socket.setSoTimeout((int) hold.multipliedBy(20).toMillis());
+            OutputStream out = socket.getOutputStream();
+            out.write(headers.getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            long pause = hold.toMillis() / BATCH_LINES;
+            for (int i = 0; i < BATCH_LINES; i++) {
+                Thread.sleep(pause);
+                out.write(line);
+                out.flush();
+            }
+            InputStream in = socket.getInputStream();
+            byte[] status = in.readNBytes(12);
+            in.transferTo(OutputStream.nullOutputStream());
+            return new String(status, StandardCharsets.US_ASCII).equals("HTTP/1.1 200");
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Polls /api/time back to back until the deadline.
+     *
+     * @return latency of every request, in nanoseconds
+     */
+    private static long[] pollUntil(HttpClient httpClient, int port, long deadline) {
+        long[] latencies = new long[1024];
+        int count = 0;
+        while (System.nanoTime() < deadline) {
+            long start = System.nanoTime();
+            if (!fastRequest(httpClient, port)) {
+                continue;
+            }
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = System.nanoTime() - start;
+        }
+        return Arrays.copyOf(latencies, count);
+    }
+
+    private static boolean fastRequest(HttpClient httpClient, int port) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/time"))
+                .timeout(Duration.ofMinutes(1))
+                .build();
+        try {
+            return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * @return the given percentile of sorted nanosecond samples, in milliseconds
+     */
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return Double.NaN;
+        }
+        int index = Math.max(0, (int) Math.ceil(percentile * sorted.length) - 1);
+        return sorted[index] / 1_000_000.0;
+    }
+
+    private record Result(String mode, int slowCompleted, int peakInFlight, long[] fastLatencies) {
+    }
+
+    /**
+     * Counts requests in progress on the server and remembers the peak. Registered as an extra
+     * source rather than annotated, so component scanning in other tests does not pick it up.
+     */
+    static class InFlightProbe {
+
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger peak = new AtomicInteger();
+
+        @Bean
+        FilterRegistrationBean<Filter> inFlightFilter() {
+            FilterRegistrationBean<Filter> registration = new FilterRegistrationBean<>((request, response, chain) -> {
+                peak.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                try {
+                    chain.doFilter(request, response);
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+            });
+            registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+            return registration;
+        }
+
+        int peak() {
+            return peak.get();
+        }
+
+        void reset() {
+            peak.set(inFlight.get());
+        }
+    }
+}
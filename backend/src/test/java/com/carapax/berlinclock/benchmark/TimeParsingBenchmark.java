@@ -0,0 +1,93 @@
+package com.carapax.berlinclock.benchmark;
+
+import com.carapax.berlinclock.service.BerlinClockService;
+import com.carapax.berlinclock.service.TimeParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the /api/time/convert input handling before and after TimeParser, for valid and
+ * malformed input. The "formatter" benchmarks reproduce the previous code path: DateTimeFormatter
+ * parsing with every failure wrapped in an IllegalArgumentException and caught by the caller.
+ * <p>
+ * Run from the backend directory:
+ * <pre>
+ * mvn -Pbenchmarks verify -Dbenchmark.include=TimeParsingBenchmark
+ * </pre>
+ *
+ * @author Jose Benitez
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimeParsingBenchmark {
+
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+    private final String[] valid = {"00:00:00", "13:17:01", "23:59:59", "08:30:15"};
+    private final String[] invalid = {"25:00:00", "13:17", "ab:cd:ef", "13-17-01"};
+    private int next;
+
+    private String nextOf(String[] inputs) {
+        next = (next + 1) & 3;
+        return inputs[next];
+    }
+
+    @Benchmark
+    public int formatterValid() {
+        return formatterParse(nextOf(valid));
+    }
+
+    @Benchmark
+    public int formatterInvalid() {
+        return formatterParse(nextOf(invalid));
+    }
+
+    @Benchmark
+    public int timeParserValid() {
+        return TimeParser.parseSecondOfDay(nextOf(valid));
+    }
+
+    @Benchmark
+    public int timeParserInvalid() {
+        return TimeParser.parseSecondOfDay(nextOf(invalid));
+    }
+
+    /**
+     * The previous BerlinClockService parsing plus the controller's catch, reduced to a second-of-day.
+     */
+    private static int formatterParse(String time) {
+        try {
+            try {
+                return LocalTime.parse(time, TIME_FORMATTER).toSecondOfDay();
+            } catch (Exception e) {
+                throw new IllegalArgumentException(BerlinClockService.INVALID_TIME_MESSAGE, e);
+            }
+        } catch (IllegalArgumentException e) {
+            return TimeParser.INVALID;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(TimeParsingBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
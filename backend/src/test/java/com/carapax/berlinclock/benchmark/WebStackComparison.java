@@ -0,0 +1,327 @@
+package com.carapax.berlinclock.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compares the servlet stack (Spring MVC on Tomcat) with the reactive profile (WebFlux on Netty).
+ * <p>
+ * Each stack runs in its own JVM from the packaged jar, so memory and thread counts belong to
+ * the server alone. For each stack the comparison measures:
+ * <ul>
+ *     <li>throughput and latency of /api/time/convert with a fixed number of concurrent clients;</li>
+ *     <li>resident memory, heap after a full GC and live threads, idle and after the load;</li>
+ *     <li>how many /api/time/stream connections stay open and keep receiving ticks, per core,
+ *     and the resident memory each one costs.</li>
+ * </ul>
+ * Run from the backend directory, after packaging the application:
+ * <pre>
+ * mvn -DskipTests package
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.carapax.berlinclock.benchmark.WebStackComparison
+ * </pre>
+ * System properties: {@code load.jar} (default target/berlinclock-1.0.0.jar), {@code load.clients}
+ * (concurrent request clients, default 64), {@code load.duration} (ISO-8601, default PT10S) and
+ * {@code load.streams} (stream connections, default 5000; each side needs a file descriptor per connection).
+ *
+ * @author Jose Benitez
+ */
+public final class WebStackComparison {
+
+    private static final String CONVERT_PATH = "/api/time/convert?time=12:34:56";
+    private static final Pattern HEAP_USED = Pattern.compile("^jvm_memory_used_bytes\\{area=\"heap\".*} (\\S+)$",
+            Pattern.MULTILINE);
+
+    private WebStackComparison() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path jar = Path.of(System.getProperty("load.jar", "target/berlinclock-1.0.0.jar"));
+        int clients = Integer.getInteger("load.clients", 64);
+        Duration duration = Duration.parse(System.getProperty("load.duration", "PT10S"));
+        int streams = Integer.getInteger("load.streams", 5000);
+        if (!Files.isRegularFile(jar)) {
+            throw new IllegalStateException(jar + " not found; run mvn -DskipTests package first");
+        }
+
+        List<Result> results = List.of(
+                run("servlet", jar, List.of(), clients, duration, streams),
+                run("reactive", jar, List.of("--spring.profiles.active=reactive"), clients, duration, streams));
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.printf("%n%d concurrent clients for %s, %d stream connections, %d core(s)%n",
+                clients, duration, streams, cores);
+        System.out.printf("%-9s %9s %8s %8s %9s %9s %8s %9s %9s %9s %10s%n",
+                "stack", "req/s", "p50 ms", "p99 ms", "idle RSS", "load RSS", "threads",
+                "heap MB", "streams", "per core", "KB/stream");
+        for (Result result : results) {
+            System.out.printf("%-9s %9.0f %8.2f %8.2f %8.1fM %8.1fM %8d %9.1f %9d %9d %10.1f%n",
+                    result.stack, result.throughput, result.p50Millis, result.p99Millis,
+                    result.idle.rssMegabytes(), result.loaded.rssMegabytes(), result.loaded.threads,
+                    result.loaded.heapMegabytes(), result.liveStreams, result.liveStreams / cores,
+                    result.kilobytesPerStream);
+        }
+    }
+
+    private static Result run(String stack, Path jar, List<String> extraArgs, int clients, Duration duration,
+                              int streams) throws Exception {
+        System.out.printf("Running %s stack%n", stack);
+        int port = freePort();
+        List<String> command = new ArrayList<>(List.of(javaCommand(), "-jar", jar.toString(),
+                "--server.port=" + port, "--berlinclock.grpc.port=0", "--spring.main.banner-mode=off",
+                "--logging.level.root=WARN",
+                // Every client is localhost, so admission control would measure its own limit
+                "--berlinclock.admission.enabled=false"));
+        command.addAll(extraArgs);
+        Process server = new ProcessBuilder(command).inheritIO().start();
+        try (ExecutorService executor = Executors.newThreadPerTaskExecutor(Thread.ofPlatform().daemon().factory())) {
+            HttpClient httpClient = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .executor(executor)
+                    .build();
+            awaitStartup(httpClient, port);
+            // Warm up the request path before measuring anything
+            load(httpClient, executor, port, clients, Duration.ofSeconds(3));
+            Footprint idle = footprint(httpClient, server, port);
+
+            long[] latencies = load(httpClient, executor, port, clients, duration);
+            Footprint loaded = footprint(httpClient, server, port);
+
+            List<Socket> connections = new ArrayList<>(streams);
+            try {
+                for (int i = 0; i < streams; i++) {
+                    Socket socket = openStream(port);
+                    if (socket == null) {
+                        break;
+                    }
+                    connections.add(socket);
+                }
+                // Wait for a couple of ticks and keep only the connections that received them
+                Thread.sleep(2500);
+                int live = countReceiving(connections);
+                Footprint streaming = footprint(httpClient, server, port);
+                double perStream = live == 0 ? Double.NaN
+                        : (streaming.rssBytes - loaded.rssBytes) / 1024.0 / live;
+                System.out.printf("%s: %d of %d stream connections receiving ticks, %d threads%n",
+                        stack, live, streams, streaming.threads);
+                return new Result(stack, latencies.length / (duration.toNanos() / 1e9),
+                        percentile(latencies, 0.50), percentile(latencies, 0.99), idle, loaded, live, perStream);
+            } finally {
+                for (Socket socket : connections) {
+                    socket.close();
+                }
+            }
+        } finally {
+            server.destroy();
+            server.waitFor();
+        }
+    }
+
+    /**
+     * Drives back-to-back conversions from a fixed number of clients.
+     *
+     * @return latency of every successful request, sorted, in nanoseconds
+     */
+    private static long[] load(HttpClient httpClient, ExecutorService executor, int port, int clients,
+                               Duration duration) throws Exception {
+        long deadline = System.nanoTime() + duration.toNanos();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + CONVERT_PATH)).build();
+        List<Future<long[]>> workers = new ArrayList<>(clients);
+        for (int i = 0; i < clients; i++) {
+            workers.add(executor.submit(() -> {
+                long[] latencies = new long[1024];
+                int count = 0;
+                while (System.nanoTime() < deadline) {
+                    long start = System.nanoTime();
+                    if (httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() != 200) {
+                        continue;
+                    }
+                    if (count == latencies.length) {
+                        latencies = Arrays.copyOf(latencies, count * 2);
+                    }
+                    latencies[count++] = System.nanoTime() - start;
+                }
+                return Arrays.copyOf(latencies, count);
+            }));
+        }
+        List<long[]> samples = new ArrayList<>(clients);
+        for (Future<long[]> worker : workers) {
+            samples.add(worker.get());
+        }
+        return samples.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+    }
+
+    /**
+     * Opens a stream connection and reads until the first event has arrived.
+     *
+     * @return the open socket, or null if the server did not accept or answer the connection
+     */
+    private static Socket openStream(int port) {
+        Socket socket = null;
+        try {
+            socket = new Socket("localhost", port);
+            socket.setSoTimeout(5000);
+            OutputStream out = socket.getOutputStream();
+            out.write(("GET /api/time/stream HTTP/1.1\r\nHost: localhost:" + port
+                    + "\r\nAccept: text/event-stream\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            if (!readUntilEvent(socket.getInputStream())) {
+                socket.close();
+                return null;
+            }
+            socket.setSoTimeout(1);
+            return socket;
+        } catch (IOException e) {
+            closeQuietly(socket);
+            return null;
+        }
+    }
+
+    private static boolean readUntilEvent(InputStream in) throws IOException {
+        byte[] marker = "event:time".getBytes(StandardCharsets.US_ASCII);
+        int matched = 0;
+        int b;
+        while ((b = in.read()) != -1) {
+            matched = b == marker[matched] ? matched + 1 : (b == marker[0] ? 1 : 0);
+            if (matched == marker.length) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return how many connections have data waiting, which after a few ticks means they are still served
+     */
+    private static int countReceiving(List<Socket> connections) {
+        byte[] buffer = new byte[8192];
+        int receiving = 0;
+        for (Socket socket : connections) {
+            try {
+                if (socket.getInputStream().read(buffer) > 0) {
+                    receiving++;
+                }
+            } catch (SocketTimeoutException e) {
+                // Nothing arrived: the server has stopped sending to this connection
+            } catch (IOException e) {
+                // Closed by the server
+            }
+        }
+        return receiving;
+    }
+
+    /**
+     * Runs a full GC in the server, then reads its resident memory and thread count from /proc
+     * and the heap in use from the Prometheus endpoint.
+     */
+    private static Footprint footprint(HttpClient httpClient, Process server, int port) throws Exception {
+        new ProcessBuilder(jcmdCommand(), Long.toString(server.pid()), "GC.run")
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start()
+                .waitFor();
+        long rss = 0;
+        int threads = 0;
+        for (String line : Files.readAllLines(Path.of("/proc", Long.toString(server.pid()), "status"))) {
+            if (line.startsWith("VmRSS:")) {
+                rss = Long.parseLong(line.replaceAll("\\D", "")) * 1024;
+            } else if (line.startsWith("Threads:")) {
+                threads = Integer.parseInt(line.replaceAll("\\D", ""));
+            }
+        }
+        String metrics = httpClient.send(HttpRequest.newBuilder(
+                        URI.create("http://localhost:" + port + "/actuator/prometheus")).build(),
+                HttpResponse.BodyHandlers.ofString()).body();
+        double heap = 0;
+        Matcher matcher = HEAP_USED.matcher(metrics);
+        while (matcher.find()) {
+            heap += Double.parseDouble(matcher.group(1));
+        }
+        return new Footprint(rss, threads, (long) heap);
+    }
+
+    private static void awaitStartup(HttpClient httpClient, int port) throws InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/time")).build();
+        long deadline = System.nanoTime() + Duration.ofMinutes(1).toNanos();
+        while (System.nanoTime() < deadline) {
+            try {
+                if (httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                // Not listening yet
+            }
+            Thread.sleep(100);
+        }
+        throw new IllegalStateException("Server on port " + port + " did not start");
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static String javaCommand() {
+        return Path.of(System.getProperty("java.home"), "bin", "java").toString();
+    }
+
+    private static String jcmdCommand() {
+        return Path.of(System.getProperty("java.home"), "bin", "jcmd").toString();
+    }
+
+    private static void closeQuietly(Socket socket) {
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Already failed
+            }
+        }
+    }
+
+    /**
+     * @return the given percentile of sorted nanosecond samples, in milliseconds
+     */
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return Double.NaN;
+        }
+        int index = Math.max(0, (int) Math.ceil(percentile * sorted.length) - 1);
+        return sorted[index] / 1_000_000.0;
+    }
+
+    private record Footprint(long rssBytes, int threads, long heapBytes) {
+
+        double rssMegabytes() {
+            return rssBytes / (1024.0 * 1024.0);
+        }
+
+        double heapMegabytes() {
+            return heapBytes / (1024.0 * 1024.0);
+        }
+    }
+
+    private record Result(String stack, double throughput, double p50Millis, double p99Millis, Footprint idle,
+                          Footprint loaded, int liveStreams, double kilobytesPerStream) {
+    }
+}
@@ -0,0 +1,106 @@
+package com.carapax.berlinclock.config;
+
+import com.carapax.berlinclock.service.BerlinClockService;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Integration test for the Flight Recorder events.
+ * Records a short session with the shipped settings while requests go through the application,
+ * then reads the recording back.
+ *
+ * @author Jose Benitez
+ */
+// Any free gRPC port, so contexts cached by other tests do not collide on the default one
+@SpringBootTest(properties = "berlinclock.grpc.port=0")
+@AutoConfigureMockMvc
+class FlightRecorderConfigTest {
+
+    private static final String CONVERSION = "com.carapax.berlinclock.Conversion";
+    private static final String DECODE = "com.carapax.berlinclock.Decode";
+    private static final String RESPONSE_WRITE = "com.carapax.berlinclock.ResponseWrite";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private BerlinClockService berlinClockService;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("A recording with the shipped settings should capture conversion, decode and response write events")
+    void testRecordsEvents() throws Exception {
+        Path file = tempDir.resolve("session.jfr");
+        try (Recording recording = new Recording(FlightRecorderConfig.settings())) {
+            recording.start();
+
+            mockMvc.perform(get("/api/time/convert").param("time", "12:34:56"))
+                    .andExpect(status().isOk());
+            mockMvc.perform(post("/api/time/decode")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("""
+                                    {"secondsLamp":"Y","fiveHoursRow":"RROO","singleHoursRow":"RRRO",
+                                     "fiveMinutesRow":"YYOOOOOOOOO","singleMinutesRow":"YYOO"}"""))
+                    .andExpect(status().isOk());
+            mockMvc.perform(get("/api/time/decode/YRRRRRRRRYYRYYRYYRYYYYYY"))
+                    .andExpect(status().isBadRequest());
+            assertThrows(IllegalArgumentException.class, () -> berlinClockService.convertToBerlinTime("25:00:00"));
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+
+        RecordedEvent conversion = find(events, CONVERSION, "secondOfDay", 12 * 3600 + 34 * 60 + 56).orElseThrow();
+        assertEquals("SUCCESS", conversion.getString("outcome"));
+        assertEquals("LOOKUP", conversion.getString("mode"));
+        assertEquals(-1, conversion.getInt("inputLength"));
+
+        RecordedEvent invalidConversion = find(events, CONVERSION, "inputLength", 8).orElseThrow();
+        assertEquals("INVALID", invalidConversion.getString("outcome"));
+
+        RecordedEvent decode = find(events, DECODE, "secondOfDay", 13 * 3600 + 12 * 60 + 1).orElseThrow();
+        assertEquals("SUCCESS", decode.getString("outcome"));
+        assertEquals(3, decode.getInt("inputLength"));
+
+        assertTrue(find(events, DECODE, "secondOfDay", -1).isPresent());
+
+        RecordedEvent write = events.stream()
+                .filter(event -> event.getEventType().getName().equals(RESPONSE_WRITE))
+                .filter(event -> "/api/time/convert".equals(event.getString("uri")))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(200, write.getInt("status"));
+        assertEquals("application/json", write.getString("contentType"));
+        assertTrue(write.getLong("bodySize") > 0);
+        assertFalse(write.getDuration().isNegative());
+    }
+
+    private static Optional<RecordedEvent> find(List<RecordedEvent> events, String type, String field, int value) {
+        return events.stream()
+                .filter(event -> event.getEventType().getName().equals(type))
+                .filter(event -> event.getInt(field) == value)
+                .findFirst();
+    }
+}
@@ -1,16 +1,39 @@
 package com.carapax.berlinclock.controller;
 
+import com.carapax.berlinclock.config.StreamConfig;
 import com.carapax.berlinclock.model.BerlinClockTime;
 import com.carapax.berlinclock.service.BerlinClockService;
+import com.carapax.berlinclock.service.CurrentTime;
+import com.carapax.berlinclock.service.TimeParser;
+import com.carapax.berlinclock.web.BerlinClockMetrics;
+import com.carapax.berlinclock.web.BerlinClockSseBroadcaster;
+import com.carapax.berlinclock.web.BerlinClockSvg;
+import com.carapax.berlinclock.web.LampStateJsonReader;
+import com.carapax.berlinclock.web.NdjsonBatchProcessor;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
@@ -23,11 +46,19 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
  * @author Jose Benitez
  */
 @WebMvcTest(BerlinClockController.class)
+@Import({BerlinClockSseBroadcaster.class, StreamConfig.class, NdjsonBatchProcessor.class, LampStateJsonReader.class,
+        BerlinClockMetrics.class, BerlinClockSvg.class, SimpleMeterRegistry.class})
 class BerlinClockControllerTest {
 
     @Autowired
     private MockMvc mockMvc;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private static final MediaType SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+    private static final long EPOCH_SECOND = 1_700_000_000L;
+
     @MockBean
     private BerlinClockService berlinClockService;
 
@@ -43,7 +74,7 @@ class BerlinClockControllerTest {
                 "YYOO",
                 "13:17:00"
         );
-        when(berlinClockService.getCurrentBerlinTime()).thenReturn(mockTime);
+        when(berlinClockService.getCurrentTime(null)).thenReturn(current(mockTime));
 
         // When & Then
         mockMvc.perform(get("/api/time"))
@@ -70,7 +101,7 @@ class BerlinClockControllerTest {
                 "OOOO",
                 "12:30:45"
         );
-        when(berlinClockService.convertToBerlinTime(timeToConvert)).thenReturn(mockTime);
+        when(berlinClockService.convertToBerlinTime(12 * 3600 + 30 * 60 + 45)).thenReturn(mockTime);
 
         // When & Then
         mockMvc.perform(get("/api/time/convert")
@@ -85,18 +116,211 @@ class BerlinClockControllerTest {
                 .andExpect(jsonPath("$.currentTime").value("12:30:45"));
     }
 
+    @Test
+    @DisplayName("GET /api/time/convert should be immutable and tagged with its lamp state")
+    void testConvertTimeCacheHeaders() throws Exception {
+        // Given
+        int secondOfDay = 13 * 3600 + 17 * 60 + 1;
+        when(berlinClockService.toPackedState(secondOfDay)).thenReturn(0x30_0A_53);
+        when(berlinClockService.convertToBerlinTime(secondOfDay)).thenReturn(
+                new BerlinClockTime("Y", "RROO", "RRRO", "YYROOOOOOOO", "YYOO", "13:17:01"));
+
+        // When & Then
+        mockMvc.perform(get("/api/time/convert").param("time", "13:17:01"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"300a53-01\""))
+                .andExpect(header().string("Cache-Control", "max-age=31536000, public, immutable"))
+                .andExpect(header().stringValues("Vary", hasItem("Accept")));
+        mockMvc.perform(get("/api/time/convert").param("time", "13:17:01").param("pretty", "true"))
+                .andExpect(header().string("ETag", "\"300a53-01p\""));
+        mockMvc.perform(get("/api/time/convert").param("time", "13:17:01")
+                        .accept(MediaType.APPLICATION_OCTET_STREAM))
+                .andExpect(header().string("ETag", "\"300a53\""));
+    }
+
+    @Test
+    @DisplayName("GET /api/time/convert should answer a matching If-None-Match with 304 without converting")
+    void testConvertTimeNotModified() throws Exception {
+        // Given
+        int secondOfDay = 13 * 3600 + 17 * 60 + 1;
+        when(berlinClockService.toPackedState(secondOfDay)).thenReturn(0x30_0A_53);
+
+        // When & Then
+        mockMvc.perform(get("/api/time/convert").param("time", "13:17:01")
+                        .header("If-None-Match", "\"300a53-01\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"300a53-01\""))
+                .andExpect(header().string("Cache-Control", "max-age=31536000, public, immutable"))
+                .andExpect(content().bytes(new byte[0]));
+        mockMvc.perform(get("/api/time/convert").param("time", "13:17:01")
+                        .accept(MediaType.APPLICATION_OCTET_STREAM)
+                        .header("If-None-Match", "\"300a53\""))
+                .andExpect(status().isNotModified());
+        verify(berlinClockService, never()).convertToBerlinTime(anyInt());
+    }
+
+    @Test
+    @DisplayName("GET /api/time/convert/render.svg should serve the cached SVG, gzipped when accepted")
+    void testRenderConvertedTime() throws Exception {
+        // Given
+        int secondOfDay = 13 * 3600 + 17 * 60 + 1;
+        when(berlinClockService.toPackedState(secondOfDay)).thenReturn(0x30_0E_E7);
+        BerlinClockSvg.Image image = new BerlinClockSvg(true).render(0x30_0E_E7);
+
+        // When & Then
+        mockMvc.perform(get("/api/time/convert/render.svg").param("time", "13:17:01"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(BerlinClockSvg.MEDIA_TYPE))
+                .andExpect(header().string("ETag", "\"300ee7-svg\""))
+                .andExpect(header().string("Cache-Control", "max-age=31536000, public, immutable"))
+                .andExpect(header().stringValues("Vary", hasItem("Accept-Encoding")))
+                .andExpect(header().doesNotExist("Content-Encoding"))
+                .andExpect(content().bytes(image.svg()));
+        mockMvc.perform(get("/api/time/convert/render.svg").param("time", "13:17:01")
+                        .header("Accept-Encoding", "gzip, deflate, br"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"300ee7-svgz\""))
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andExpect(content().bytes(image.gzipped()));
+        mockMvc.perform(get("/api/time/convert/render.svg").param("time", "13:17:01")
+                        .header("Accept-Encoding", "gzip")
+                        .header("If-None-Match", "\"300ee7-svgz\""))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/api/time/convert/render.svg").param("time", "25:00:00"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value(BerlinClockService.INVALID_TIME_MESSAGE));
+    }
+
+    @Test
+    @DisplayName("GET /api/time/render.svg should render the current lamp state until the end of the second")
+    void testRenderCurrentTime() throws Exception {
+        // Given
+        when(berlinClockService.getCurrentTime(null)).thenReturn(current(0x30_0E_E7));
+
+        // When & Then
+        mockMvc.perform(get("/api/time/render.svg"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(BerlinClockSvg.MEDIA_TYPE))
+                .andExpect(header().string("ETag", "\"300ee7-svg\""))
+                .andExpect(header().string("Cache-Control", "max-age=0, public"))
+                .andExpect(header().exists(BerlinClockController.X_ACCEL_EXPIRES))
+                .andExpect(content().string(startsWith("<svg ")));
+        mockMvc.perform(get("/api/time/render.svg").param("zone", "Mars/Olympus_Mons"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("GET /api/time should be cacheable until the end of the current second")
+    void testGetCurrentTimeCacheHeaders() throws Exception {
+        // Given
+        when(berlinClockService.getCurrentTime(null)).thenReturn(
+                current(new BerlinClockTime("Y", "RROO", "RRRO", "YYROOOOOOOO", "YYOO", "13:17:01")));
+
+        // When
+        String expires = mockMvc.perform(get("/api/time"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"300ee7-01\""))
+                .andExpect(header().string("Cache-Control", "max-age=0, public"))
+                .andReturn().getResponse().getHeader(BerlinClockController.X_ACCEL_EXPIRES);
+
+        // Then: the end of the second the service read the time in, not of the wall clock's
+        assertEquals("@" + (EPOCH_SECOND + 1), expires);
+        mockMvc.perform(get("/api/time").header("If-None-Match", "\"300ee7-01\""))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    @DisplayName("GET /api/time?zone= should return the current time in that zone")
+    void testGetCurrentTimeInZone() throws Exception {
+        // Given
+        when(berlinClockService.getCurrentTime("America/New_York")).thenReturn(new CurrentTime(EPOCH_SECOND,
+                new BerlinClockTime("Y", "ROOO", "RRRO", "YYROOOOOOOO", "YYOO", "07:17:01"), 0x123456, 26_221));
+
+        // When & Then
+        mockMvc.perform(get("/api/time").param("zone", "America/New_York"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.currentTime").value("07:17:01"));
+        mockMvc.perform(get("/api/time").param("zone", "America/New_York")
+                        .accept(MediaType.APPLICATION_OCTET_STREAM))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(new byte[]{0x12, 0x34, 0x56}));
+    }
+
+    @Test
+    @DisplayName("GET /api/time and /api/time/stream should return 400 for an unknown zone")
+    void testGetCurrentTimeUnknownZone() throws Exception {
+        // When & Then
+        mockMvc.perform(get("/api/time").param("zone", "Mars/Olympus_Mons"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value(BerlinClockService.UNKNOWN_ZONE_MESSAGE));
+        mockMvc.perform(get("/api/time").param("zone", "Mars/Olympus_Mons")
+                        .accept(MediaType.APPLICATION_OCTET_STREAM))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/time/stream").param("zone", "Mars/Olympus_Mons")
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(status().isBadRequest());
+        verify(berlinClockService, never()).getCurrentTime(any());
+    }
+
     @Test
     @DisplayName("GET /api/time/convert should return 400 for invalid time")
     void testConvertTimeWithInvalidFormat() throws Exception {
         // Given
         String invalidTime = "invalid";
-        when(berlinClockService.convertToBerlinTime(invalidTime))
-                .thenThrow(new IllegalArgumentException("Invalid time format"));
 
         // When & Then
         mockMvc.perform(get("/api/time/convert")
                         .param("time", invalidTime))
-                .andExpect(status().isBadRequest());
+                .andExpect(status().isBadRequest())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.error").value("Invalid time format. Expected HH:mm:ss"));
+        verify(berlinClockService, never()).convertToBerlinTime(anyInt());
+    }
+
+    @Test
+    @DisplayName("GET /api/time/convert should return 400 with an error body when time is missing")
+    void testConvertTimeWithoutTime() throws Exception {
+        // When & Then
+        mockMvc.perform(get("/api/time/convert"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Invalid time format. Expected HH:mm:ss"));
+    }
+
+    @Test
+    @DisplayName("GET /api/time should return compact JSON with Content-Length")
+    void testGetCurrentTimeCompact() throws Exception {
+        // Given
+        BerlinClockTime mockTime = new BerlinClockTime(
+                "Y", "RROO", "RRRO", "YYROOOOOOOO", "YYOO", "13:17:01"
+        );
+        when(berlinClockService.getCurrentTime(null)).thenReturn(current(mockTime));
+        String expected = "{\"secondsLamp\":\"Y\",\"fiveHoursRow\":\"RROO\",\"singleHoursRow\":\"RRRO\","
+                + "\"fiveMinutesRow\":\"YYROOOOOOOO\",\"singleMinutesRow\":\"YYOO\",\"currentTime\":\"13:17:01\"}";
+
+        // When & Then
+        mockMvc.perform(get("/api/time"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(expected))
+                .andExpect(header().longValue("Content-Length", expected.length()));
+    }
+
+    @Test
+    @DisplayName("GET /api/time/convert?pretty=true should return indented JSON")
+    void testConvertTimePretty() throws Exception {
+        // Given
+        BerlinClockTime mockTime = new BerlinClockTime(
+                "Y", "RROO", "RRRO", "YYROOOOOOOO", "YYOO", "13:17:01"
+        );
+        when(berlinClockService.convertToBerlinTime(13 * 3600 + 17 * 60 + 1)).thenReturn(mockTime);
+
+        // When & Then
+        mockMvc.perform(get("/api/time/convert")
+                        .param("time", "13:17:01")
+                        .param("pretty", "true"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(content().string(startsWith("{\n  \"secondsLamp\" : \"Y\",")))
+                .andExpect(jsonPath("$.currentTime").value("13:17:01"));
     }
 
     @Test
@@ -106,7 +330,7 @@ class BerlinClockControllerTest {
         BerlinClockTime mockTime = new BerlinClockTime(
                 "Y", "OOOO", "OOOO", "OOOOOOOOOOO", "OOOO", "00:00:00"
         );
-        when(berlinClockService.getCurrentBerlinTime()).thenReturn(mockTime);
+        when(berlinClockService.getCurrentTime(null)).thenReturn(current(mockTime));
 
         // When & Then
         mockMvc.perform(get("/api/time")
@@ -115,6 +339,294 @@ class BerlinClockControllerTest {
                 .andExpect(header().exists("Access-Control-Allow-Origin"));
     }
 
+    // ===== PACKED BINARY TESTS =====
+
+    @Test
+    @DisplayName("GET /api/time should return JSON when any media type is accepted")
+    void testGetCurrentTimeDefaultsToJson() throws Exception {
+        // Given
+        BerlinClockTime mockTime = new BerlinClockTime(
+                "Y", "OOOO", "OOOO", "OOOOOOOOOOO", "OOOO", "00:00:01"
+        );
+        when(berlinClockService.getCurrentTime(null)).thenReturn(current(mockTime));
+
+        // When & Then
+        mockMvc.perform(get("/api/time").accept(MediaType.ALL))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON));
+    }
+
+    @Test
+    @DisplayName("GET /api/time with Accept octet-stream should return the 3-byte packed state")
+    void testGetCurrentTimePacked() throws Exception {
+        // Given
+        when(berlinClockService.getCurrentTime(null)).thenReturn(current(0xABCDEF));
+
+        // When & Then
+        mockMvc.perform(get("/api/time").accept(MediaType.APPLICATION_OCTET_STREAM))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_OCTET_STREAM))
+                .andExpect(header().longValue("Content-Length", 3))
+                .andExpect(content().bytes(new byte[]{(byte) 0xAB, (byte) 0xCD, (byte) 0xEF}));
+    }
+
+    @Test
+    @DisplayName("GET /api/time/convert with Accept octet-stream should return the packed state")
+    void testConvertTimePacked() throws Exception {
+        // Given
+        when(berlinClockService.toPackedState(13 * 3600 + 17 * 60 + 1)).thenReturn(0x30_0A_53);
+
+        // When & Then
+        mockMvc.perform(get("/api/time/convert").param("time", "13:17:01")
+                        .accept(MediaType.APPLICATION_OCTET_STREAM))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(new byte[]{0x30, 0x0A, 0x53}));
+        mockMvc.perform(get("/api/time/convert").param("time", "bad")
+                        .accept(MediaType.APPLICATION_OCTET_STREAM))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("POST /api/time/decode with an octet-stream body should decode the packed state")
+    void testDecodePackedState() throws Exception {
+        // Given
+        when(berlinClockService.decodePackedState(0x30_0A_53)).thenReturn("13:17:01");
+
+        // When & Then
+        mockMvc.perform(post("/api/time/decode")
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .content(new byte[]{0x30, 0x0A, 0x53}))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.time").value("13:17:01"));
+        mockMvc.perform(post("/api/time/decode")
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .content(new byte[]{0x30, 0x0A}))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("GET /api/time with Accept CBOR should return the time encoded as CBOR")
+    void testGetCurrentTimeCbor() throws Exception {
+        // Given
+        BerlinClockTime mockTime = new BerlinClockTime("Y", "RROO", "RRRO", "YYRYYRYYRYY", "YYOO", "14:57:33");
+        when(berlinClockService.getCurrentTime(null)).thenReturn(current(mockTime));
+
+        // When
+        byte[] body = mockMvc.perform(get("/api/time").accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        // Then
+        assertEquals(mockTime, new CBORMapper().readValue(body, BerlinClockTime.class));
+    }
+
+    @Test
+    @DisplayName("GET /api/time/convert with Accept Smile should return the time encoded as Smile")
+    void testConvertTimeSmile() throws Exception {
+        // Given
+        BerlinClockTime mockTime = new BerlinClockTime("O", "RROO", "RRRO", "YYOOOOOOOOO", "YYOO", "13:17:01");
+        when(berlinClockService.convertToBerlinTime(13 * 3600 + 17 * 60 + 1)).thenReturn(mockTime);
+
+        // When
+        byte[] body = mockMvc.perform(get("/api/time/convert").param("time", "13:17:01").accept(SMILE))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(SMILE))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        // Then
+        assertEquals(mockTime, new SmileMapper().readValue(body, BerlinClockTime.class));
+        mockMvc.perform(get("/api/time/convert").param("time", "bad").accept(SMILE))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("POST /api/time/decode with a CBOR body should decode and answer in CBOR")
+    void testDecodeCbor() throws Exception {
+        // Given
+        BerlinClockTime berlinTime = new BerlinClockTime("O", "RROO", "RRRO", "YYOOOOOOOOO", "YYOO", null);
+        when(berlinClockService.decodeBerlinTime(any(BerlinClockTime.class))).thenReturn("13:17:01");
+        CBORMapper cbor = new CBORMapper();
+
+        // When
+        byte[] body = mockMvc.perform(post("/api/time/decode")
+                        .contentType(MediaType.APPLICATION_CBOR)
+                        .accept(MediaType.APPLICATION_CBOR)
+                        .content(cbor.writeValueAsBytes(berlinTime)))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        // Then
+        assertEquals("13:17:01", cbor.readTree(body).get("time").asText());
+    }
+
+    // ===== STREAM ENDPOINT TESTS =====
+
+    @Test
+    @DisplayName("GET /api/time/stream should open an event stream with the current time")
+    void testStreamTime() throws Exception {
+        // Given
+        BerlinClockTime mockTime = new BerlinClockTime(
+                "Y", "RROO", "RRRO", "YYROOOOOOOO", "YYOO", "13:17:01"
+        );
+        when(berlinClockService.getCurrentBerlinTime(null)).thenReturn(mockTime);
+
+        // When & Then
+        mockMvc.perform(get("/api/time/stream").accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(status().isOk())
+                .andExpect(request().asyncStarted())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(content().string(containsString("event:time")))
+                .andExpect(content().string(containsString("\"currentTime\":\"13:17:01\"")));
+    }
+
+    // ===== RANGE ENDPOINT TESTS =====
+
+    @Test
+    @DisplayName("GET /api/time/range should stream one cacheable BerlinClockTime per step")
+    void testRange() throws Exception {
+        // Given
+        when(berlinClockService.sequence(anyInt(), anyInt(), anyInt())).thenCallRealMethod();
+        double conversions = meterRegistry.counter("berlinclock.conversions").count();
+
+        // When
+        String body = mockMvc.perform(get("/api/time/range")
+                        .param("from", "13:17:00")
+                        .param("to", "13:17:04")
+                        .param("step", "2"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andExpect(header().string("Cache-Control", "max-age=31536000, public, immutable"))
+                .andReturn().getResponse().getContentAsString();
+
+        // Then
+        String[] lines = body.split("\n");
+        assertEquals(3, lines.length);
+        assertTrue(lines[0].contains("\"currentTime\":\"13:17:00\""));
+        assertTrue(lines[2].contains("\"fiveMinutesRow\":\"YYROOOOOOOO\",\"singleMinutesRow\":\"YYOO\""));
+        assertEquals(conversions + 3, meterRegistry.counter("berlinclock.conversions").count());
+        mockMvc.perform(get("/api/time/range").param("from", "13:17:00").param("to", "13:17:04")
+                        .accept(MediaType.ALL))
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON));
+    }
+
+    @Test
+    @DisplayName("GET /api/time/range with Accept octet-stream should stream packed states")
+    void testRangePacked() throws Exception {
+        // Given
+        when(berlinClockService.sequence(anyInt(), anyInt(), anyInt())).thenCallRealMethod();
+
+        // When & Then
+        mockMvc.perform(get("/api/time/range")
+                        .param("from", "00:00:00")
+                        .param("to", "00:00:01")
+                        .accept(MediaType.APPLICATION_OCTET_STREAM))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_OCTET_STREAM))
+                .andExpect(content().bytes(new byte[]{0, 0, 0, 0, 0, 1}));
+    }
+
+    @Test
+    @DisplayName("GET /api/time/range should return 400 for an invalid time or range")
+    void testRangeInvalid() throws Exception {
+        // Given
+        when(berlinClockService.sequence(anyInt(), anyInt(), anyInt())).thenCallRealMethod();
+
+        // When & Then
+        mockMvc.perform(get("/api/time/range").param("from", "13:00:00"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value(BerlinClockService.INVALID_TIME_MESSAGE));
+        mockMvc.perform(get("/api/time/range").param("from", "13:00:00").param("to", "12:00:00"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value(BerlinClockService.INVALID_RANGE_MESSAGE));
+        mockMvc.perform(get("/api/time/range").param("from", "12:00:00").param("to", "13:00:00")
+                        .param("step", "0").accept(MediaType.APPLICATION_OCTET_STREAM))
+                .andExpect(status().isBadRequest());
+    }
+
+    // ===== DIFF ENDPOINT TESTS =====
+
+    @Test
+    @DisplayName("GET /api/time/diff should list the lamps to toggle")
+    void testDiff() throws Exception {
+        // Given
+        when(berlinClockService.changedLamps(anyInt(), anyInt())).thenCallRealMethod();
+        when(berlinClockService.toPackedState(anyInt())).thenCallRealMethod();
+
+        // When & Then
+        mockMvc.perform(get("/api/time/diff").param("from", "13:19:59").param("to", "13:20:00"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(header().string("Cache-Control", "max-age=31536000, public, immutable"))
+                .andExpect(content().string("{\"from\":\"13:19:59\",\"to\":\"13:20:00\",\"changes\":["
+                        + "{\"lamp\":0,\"colour\":\"O\"},{\"lamp\":12,\"colour\":\"Y\"},"
+                        + "{\"lamp\":20,\"colour\":\"O\"},{\"lamp\":21,\"colour\":\"O\"},"
+                        + "{\"lamp\":22,\"colour\":\"O\"},{\"lamp\":23,\"colour\":\"O\"}]}"));
+        mockMvc.perform(get("/api/time/diff").param("from", "13:19:59"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value(BerlinClockService.INVALID_TIME_MESSAGE));
+    }
+
+    @Test
+    @DisplayName("GET /api/time/diff/range should stream a full state and then one diff per step")
+    void testDiffRange() throws Exception {
+        // Given
+        when(berlinClockService.sequence(anyInt(), anyInt(), anyInt())).thenCallRealMethod();
+
+        // When
+        String body = mockMvc.perform(get("/api/time/diff/range")
+                        .param("from", "00:00:00")
+                        .param("to", "00:00:02"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+
+        // Then
+        String[] lines = body.split("\n");
+        assertEquals(3, lines.length);
+        assertTrue(lines[0].startsWith("{\"time\":\"00:00:00\",\"changes\":[{\"lamp\":0,\"colour\":\"O\"}"));
+        assertEquals("{\"time\":\"00:00:01\",\"changes\":[{\"lamp\":0,\"colour\":\"Y\"}]}", lines[1]);
+        assertEquals("{\"time\":\"00:00:02\",\"changes\":[{\"lamp\":0,\"colour\":\"O\"}]}", lines[2]);
+    }
+
+    // ===== BATCH ENDPOINT TESTS =====
+
+    @Test
+    @DisplayName("POST /api/time/convert/batch should stream one NDJSON result per line")
+    void testConvertBatch() throws Exception {
+        // Given
+        BerlinClockTime mockTime = new BerlinClockTime(
+                "O", "OOOO", "OOOO", "OOOOOOOOOOO", "OOOO", "00:00:00"
+        );
+        when(berlinClockService.convertToBerlinTime(0)).thenReturn(mockTime);
+
+        // When & Then
+        mockMvc.perform(post("/api/time/convert/batch")
+                        .contentType(MediaType.TEXT_PLAIN)
+                        .content("00:00:00\nbad\n"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(containsString("\"currentTime\":\"00:00:00\"}\n")))
+                .andExpect(content().string(containsString("{\"line\":2,\"error\":")));
+    }
+
+    @Test
+    @DisplayName("POST /api/time/decode/batch should stream one decoded time per line")
+    void testDecodeBatch() throws Exception {
+        // Given
+        when(berlinClockService.decodeToSecondOfDay(anyInt())).thenReturn(13 * 3600 + 17 * 60 + 1);
+
+        // When & Then
+        mockMvc.perform(post("/api/time/decode/batch")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("{\"secondsLamp\":\"Y\",\"fiveHoursRow\":\"RROO\",\"singleHoursRow\":\"RRRO\","
+                                + "\"fiveMinutesRow\":\"YYROOOOOOOO\",\"singleMinutesRow\":\"YYOO\"}\n"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string("{\"time\":\"13:17:01\"}\n"));
+    }
+
     // ===== DECODE ENDPOINT TESTS =====
 
     @Test
@@ -131,8 +643,8 @@ class BerlinClockControllerTest {
                     "currentTime": ""
                 }
                 """;
-        when(berlinClockService.decodeBerlinTime(any(BerlinClockTime.class)))
-                .thenReturn("13:17:00");
+        int packedState = new BerlinClockTime("Y", "RROO", "RRRO", "YYROOOOOOOO", "YYOO", "").toPackedState();
+        when(berlinClockService.decodeToSecondOfDay(packedState)).thenReturn(13 * 3600 + 17 * 60);
 
         // When & Then
         mockMvc.perform(post("/api/time/decode")
@@ -157,8 +669,7 @@ class BerlinClockControllerTest {
                     "currentTime": ""
                 }
                 """;
-        when(berlinClockService.decodeBerlinTime(any(BerlinClockTime.class)))
-                .thenReturn("00:00:00");
+        when(berlinClockService.decodeToSecondOfDay(1)).thenReturn(0);
 
         // When & Then
         mockMvc.perform(post("/api/time/decode")
@@ -183,14 +694,51 @@ class BerlinClockControllerTest {
                     "currentTime": ""
                 }
                 """;
-        when(berlinClockService.decodeBerlinTime(any(BerlinClockTime.class)))
-                .thenThrow(new IllegalArgumentException("Invalid Berlin Clock format"));
 
         // When & Then
         mockMvc.perform(post("/api/time/decode")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(requestBody))
                 .andExpect(status().isBadRequest());
+        verify(berlinClockService, never()).decodeToSecondOfDay(anyInt());
+    }
+
+    @ParameterizedTest
+    @DisplayName("POST /api/time/decode should return 400 for wrong lamp colours, missing rows or malformed JSON")
+    @ValueSource(strings = {
+            "{\"secondsLamp\":\"Y\",\"fiveHoursRow\":\"YROO\",\"singleHoursRow\":\"OOOO\","
+                    + "\"fiveMinutesRow\":\"OOOOOOOOOOO\",\"singleMinutesRow\":\"OOOO\"}",
+            "{\"secondsLamp\":\"Y\",\"fiveHoursRow\":\"OOOO\",\"singleHoursRow\":\"OOOO\","
+                    + "\"fiveMinutesRow\":\"OOOOOOOOOOO\"}",
+            "{\"secondsLamp\":\"Y\",\"fiveHoursRow\":\"OOOO\"",
+            "[]"
+    })
+    void testDecodeRejectsInvalidBody(String requestBody) throws Exception {
+        // When & Then
+        mockMvc.perform(post("/api/time/decode")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(requestBody))
+                .andExpect(status().isBadRequest());
+        verify(berlinClockService, never()).decodeToSecondOfDay(anyInt());
+    }
+
+    @Test
+    @DisplayName("GET /api/time/decode/{lampString} should decode and be cacheable")
+    void testDecodeLampString() throws Exception {
+        // Given
+        int packedState = BerlinClockTime.packLampString("YRROORRROYYROOOOOOOOYYOO");
+        when(berlinClockService.decodeToSecondOfDay(packedState)).thenReturn(13 * 3600 + 17 * 60 + 1);
+
+        // When & Then
+        mockMvc.perform(get("/api/time/decode/YRROORRROYYROOOOOOOOYYOO"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(header().string("Cache-Control", "max-age=31536000, public, immutable"))
+                .andExpect(content().string("{\"time\":\"13:17:01\"}"));
+        mockMvc.perform(get("/api/time/decode/YRROO"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/time/decode/XRROORRROYYROOOOOOOOYYOO"))
+                .andExpect(status().isBadRequest());
     }
 
     @Test
@@ -207,8 +755,7 @@ class BerlinClockControllerTest {
                     "currentTime": ""
                 }
                 """;
-        when(berlinClockService.decodeBerlinTime(any(BerlinClockTime.class)))
-                .thenReturn("00:00:00");
+        when(berlinClockService.decodeToSecondOfDay(1)).thenReturn(1);
 
         // When & Then
         mockMvc.perform(post("/api/time/decode")
@@ -218,4 +765,39 @@ class BerlinClockControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(header().exists("Access-Control-Allow-Origin"));
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Convert requests should be counted and timed by URI pattern and outcome")
+    void testConvertMetrics() throws Exception {
+        // Given
+        when(berlinClockService.convertToBerlinTime(anyInt())).thenReturn(
+                new BerlinClockTime("O", "OOOO", "OOOO", "OOOOOOOOOOO", "OOOO", "00:00:01"));
+        double conversions = meterRegistry.counter("berlinclock.conversions").count();
+        double failures = meterRegistry.counter("berlinclock.validation.failures", "operation", "convert").count();
+
+        // When
+        mockMvc.perform(get("/api/time/convert").param("time", "00:00:01"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/time/convert").param("time", "25:00:00"))
+                .andExpect(status().isBadRequest());
+
+        // Then
+        assertEquals(conversions + 1, meterRegistry.counter("berlinclock.conversions").count());
+        assertEquals(failures + 1, meterRegistry.counter("berlinclock.validation.failures", "operation", "convert").count());
+        assertTrue(meterRegistry.find("berlinclock.http.requests")
+                .tags("uri", "/api/time/convert", "method", "GET", "outcome", "SUCCESS").timer().count() > 0);
+        assertTrue(meterRegistry.find("berlinclock.http.requests")
+                .tags("uri", "/api/time/convert", "method", "GET", "outcome", "CLIENT_ERROR").timer().count() > 0);
+    }
+
+    /**
+     * The service's current time for a stubbed state, read in {@link #EPOCH_SECOND}.
+     */
+    private static CurrentTime current(BerlinClockTime time) {
+        return new CurrentTime(EPOCH_SECOND, time, time.toPackedState(), TimeParser.parseSecondOfDay(time.getCurrentTime()));
+    }
+
+    private static CurrentTime current(int packedState) {
+        return new CurrentTime(EPOCH_SECOND, null, packedState, 0);
+    }
+}
@@ -0,0 +1,163 @@
+package com.carapax.berlinclock.grpc;
+
+import com.carapax.berlinclock.service.BerlinClockService;
+import io.grpc.Grpc;
+import io.grpc.InsecureChannelCredentials;
+import io.grpc.ManagedChannel;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Integration test for the gRPC API: starts the application with the gRPC server on a free port
+ * and calls every RPC through a real channel.
+ *
+ * @author Jose Benitez
+ */
+@SpringBootTest(properties = "berlinclock.grpc.port=0")
+class BerlinClockGrpcServiceTest {
+
+    @Autowired
+    private BerlinClockGrpcServer server;
+
+    @Autowired
+    private BerlinClockService berlinClockService;
+
+    private ManagedChannel channel;
+
+    @BeforeEach
+    void setUp() {
+        channel = Grpc.newChannelBuilderForAddress("localhost", server.getPort(), InsecureChannelCredentials.create())
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    @DisplayName("Convert should return the packed state and second of day")
+    void testConvert() {
+        LampState state = BerlinClockGrpc.newBlockingStub(channel)
+                .convert(ConvertRequest.newBuilder().setTime("13:17:01").build());
+
+        assertEquals(berlinClockService.toPackedState("13:17:01"), state.getPackedState());
+        assertEquals(13 * 3600 + 17 * 60 + 1, state.getSecondOfDay());
+    }
+
+    @Test
+    @DisplayName("Convert should reject an invalid time with INVALID_ARGUMENT")
+    void testConvertInvalid() {
+        StatusRuntimeException e = assertThrows(StatusRuntimeException.class, () ->
+                BerlinClockGrpc.newBlockingStub(channel).convert(ConvertRequest.newBuilder().setTime("25:00:00").build()));
+
+        assertEquals(Status.Code.INVALID_ARGUMENT, e.getStatus().getCode());
+        assertEquals(BerlinClockService.INVALID_TIME_MESSAGE, e.getStatus().getDescription());
+    }
+
+    @Test
+    @DisplayName("Decode should return the second of day of a packed state and reject impossible states")
+    void testDecode() {
+        BerlinClockGrpc.BerlinClockBlockingStub stub = BerlinClockGrpc.newBlockingStub(channel);
+
+        DecodeReply reply = stub.decode(DecodeRequest.newBuilder()
+                .setPackedState(berlinClockService.toPackedState("22:41:00")).build());
+        StatusRuntimeException e = assertThrows(StatusRuntimeException.class, () ->
+                stub.decode(DecodeRequest.newBuilder().setPackedState(1 << 24).build()));
+
+        assertEquals(22 * 3600 + 41 * 60, reply.getSecondOfDay());
+        assertEquals(Status.Code.INVALID_ARGUMENT, e.getStatus().getCode());
+    }
+
+    @Test
+    @DisplayName("ConvertBatch should reply with one state per time in order and list the invalid ones")
+    void testConvertBatch() throws Exception {
+        CompletableFuture<ConvertBatchReply> result = new CompletableFuture<>();
+        StreamObserver<ConvertRequest> requests = BerlinClockGrpc.newStub(channel).convertBatch(replyTo(result));
+
+        for (String time : new String[]{"00:00:00", "nope", "12:34:56", "23:59:59"}) {
+            requests.onNext(ConvertRequest.newBuilder().setTime(time).build());
+        }
+        requests.onCompleted();
+        ConvertBatchReply reply = result.get(5, TimeUnit.SECONDS);
+
+        assertEquals(4, reply.getPackedStatesCount());
+        assertEquals(berlinClockService.toPackedState("00:00:00"), reply.getPackedStates(0));
+        assertEquals(berlinClockService.toPackedState("12:34:56"), reply.getPackedStates(2));
+        assertEquals(berlinClockService.toPackedState("23:59:59"), reply.getPackedStates(3));
+        assertEquals(1, reply.getInvalidIndexesCount());
+        assertEquals(1, reply.getInvalidIndexes(0));
+    }
+
+    @Test
+    @DisplayName("ConvertBatch should fail once the batch goes past its limit")
+    void testConvertBatchTooLarge() throws Exception {
+        CompletableFuture<ConvertBatchReply> result = new CompletableFuture<>();
+        StreamObserver<ConvertRequest> requests = BerlinClockGrpc.newStub(channel).convertBatch(replyTo(result));
+
+        ConvertRequest request = ConvertRequest.newBuilder().setTime("12:00:00").build();
+        for (int i = 0; i <= BerlinClockGrpcService.MAX_BATCH_SIZE; i++) {
+            requests.onNext(request);
+        }
+        requests.onCompleted();
+
+        Exception e = assertThrows(Exception.class, () -> result.get(10, TimeUnit.SECONDS));
+        assertEquals(Status.Code.INVALID_ARGUMENT, Status.fromThrowable(e.getCause()).getCode());
+    }
+
+    @Test
+    @DisplayName("Tick should send the current state at once and then a new one every second")
+    void testTick() {
+        Iterator<LampState> ticks = BerlinClockGrpc.newBlockingStub(channel)
+                .withDeadlineAfter(5, TimeUnit.SECONDS)
+                .tick(TickRequest.newBuilder().setZone("UTC").build());
+
+        LampState first = ticks.next();
+        LampState second = ticks.next();
+
+        assertEquals(berlinClockService.toPackedState((int) first.getSecondOfDay()), first.getPackedState());
+        assertEquals(berlinClockService.toPackedState((int) second.getSecondOfDay()), second.getPackedState());
+        assertNotEquals(first.getSecondOfDay(), second.getSecondOfDay());
+    }
+
+    @Test
+    @DisplayName("Tick should reject an unknown zone with INVALID_ARGUMENT")
+    void testTickUnknownZone() {
+        Iterator<LampState> ticks = BerlinClockGrpc.newBlockingStub(channel)
+                .tick(TickRequest.newBuilder().setZone("Mars/Olympus_Mons").build());
+
+        StatusRuntimeException e = assertThrows(StatusRuntimeException.class, ticks::next);
+        assertEquals(Status.Code.INVALID_ARGUMENT, e.getStatus().getCode());
+    }
+
+    private static <T> StreamObserver<T> replyTo(CompletableFuture<T> result) {
+        return new StreamObserver<>() {
+            @Override
+            public void onNext(T value) {
+                result.complete(value);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                result.completeExceptionally(t);
+            }
+
+            @Override
+            public void onCompleted() {
+            }
+        };
+    }
+}
@@ -0,0 +1,97 @@
+package com.carapax.berlinclock.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the packed lamp state of BerlinClockTime.
+ *
+ * @author Jose Benitez
+ */
+class BerlinClockTimeTest {
+
+    @Test
+    @DisplayName("Should pack all lamps off to zero")
+    void testPackAllOff() {
+        BerlinClockTime time = new BerlinClockTime("O", "OOOO", "OOOO", "OOOOOOOOOOO", "OOOO", "00:00:00");
+        assertEquals(0, time.toPackedState());
+    }
+
+    @Test
+    @DisplayName("Should pack all lamps on to the 24-bit mask")
+    void testPackAllOn() {
+        BerlinClockTime time = new BerlinClockTime("Y", "RRRR", "RRRR", "YYRYYRYYRYY", "YYYY", "");
+        assertEquals(BerlinClockTime.PACKED_STATE_MASK, time.toPackedState());
+    }
+
+    @Test
+    @DisplayName("Should place each row at its documented bit offset")
+    void testPackBitLayout() {
+        BerlinClockTime time = new BerlinClockTime("Y", "RROO", "RRRO", "YYROOOOOOOO", "YYOO", "13:17:01");
+
+        int packed = time.toPackedState();
+
+        assertEquals(1, packed & BerlinClockTime.SECONDS_LAMP_MASK);
+        assertEquals(0b11, (packed & BerlinClockTime.FIVE_HOURS_MASK) >>> BerlinClockTime.FIVE_HOURS_SHIFT);
+        assertEquals(0b111, (packed & BerlinClockTime.SINGLE_HOURS_MASK) >>> BerlinClockTime.SINGLE_HOURS_SHIFT);
+        assertEquals(0b111, (packed & BerlinClockTime.FIVE_MINUTES_MASK) >>> BerlinClockTime.FIVE_MINUTES_SHIFT);
+        assertEquals(0b11, (packed & BerlinClockTime.SINGLE_MINUTES_MASK) >>> BerlinClockTime.SINGLE_MINUTES_SHIFT);
+    }
+
+    @Test
+    @DisplayName("Should round-trip through the packed state")
+    void testRoundTrip() {
+        BerlinClockTime time = new BerlinClockTime("O", "RRRO", "ROOO", "YYRYYRYOOOO", "YYYO", "16:38:00");
+
+        BerlinClockTime unpacked = BerlinClockTime.fromPackedState(time.toPackedState(), "16:38:00");
+
+        assertEquals(time, unpacked);
+    }
+
+    @ParameterizedTest
+    @DisplayName("Should reject rows with the wrong length or colour")
+    @CsvSource({
+            "X, OOOO, OOOO, OOOOOOOOOOO, OOOO",
+            "R, OOOO, OOOO, OOOOOOOOOOO, OOOO",
+            "O, RRRRR, OOOO, OOOOOOOOOOO, OOOO",
+            "O, YOOO, OOOO, OOOOOOOOOOO, OOOO",
+            "O, OOOO, OOOO, YYYOOOOOOOO, OOOO",
+            "O, OOOO, OOOO, OOOOOOOOOO, OOOO",
+            "O, OOOO, OOOO, OOOOOOOOOOO, RRRR"
+    })
+    void testPackRejectsInvalidRows(String seconds, String fiveHours, String singleHours,
+                                    String fiveMinutes, String singleMinutes) {
+        BerlinClockTime time = new BerlinClockTime(seconds, fiveHours, singleHours, fiveMinutes, singleMinutes, "");
+        assertThrows(IllegalArgumentException.class, time::toPackedState);
+    }
+
+    @Test
+    @DisplayName("Should reject a missing row")
+    void testPackRejectsMissingRow() {
+        BerlinClockTime time = new BerlinClockTime("O", null, "OOOO", "OOOOOOOOOOO", "OOOO", "");
+        assertThrows(IllegalArgumentException.class, time::toPackedState);
+    }
+
+    @Test
+    @DisplayName("Should reject packed states wider than 24 bits")
+    void testUnpackRejectsExtraBits() {
+        assertThrows(IllegalArgumentException.class, () -> BerlinClockTime.fromPackedState(1 << 24, ""));
+    }
+
+    @Test
+    @DisplayName("Should pack a concatenated lamp string like the separate rows")
+    void testPackLampString() {
+        BerlinClockTime time = new BerlinClockTime("Y", "RROO", "RRRO", "YYROOOOOOOO", "YYOO", "");
+        String lamps = time.getSecondsLamp() + time.getFiveHoursRow() + time.getSingleHoursRow()
+                + time.getFiveMinutesRow() + time.getSingleMinutesRow();
+
+        assertEquals(time.toPackedState(), BerlinClockTime.packLampString(lamps));
+        assertThrows(IllegalArgumentException.class, () -> BerlinClockTime.packLampString(lamps.substring(1)));
+        assertThrows(IllegalArgumentException.class, () -> BerlinClockTime.packLampString("R" + lamps.substring(1)));
+        assertThrows(IllegalArgumentException.class, () -> BerlinClockTime.packLampString(null));
+    }
+}
@@ -0,0 +1,349 @@
+package com.carapax.berlinclock.reactive;
+
+import com.carapax.berlinclock.service.BerlinClockService;
+import com.carapax.berlinclock.service.ConversionMode;
+import com.carapax.berlinclock.service.SteppingClock;
+import com.carapax.berlinclock.web.BerlinClockMetrics;
+import com.carapax.berlinclock.web.BerlinClockSvg;
+import com.carapax.berlinclock.web.LampStateETag;
+import com.carapax.berlinclock.web.LampStateJsonReader;
+import com.carapax.berlinclock.web.PackedStateWire;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the reactive routes, bound directly to the router function.
+ * The responses are expected to match the servlet controller byte for byte.
+ *
+ * @author Jose Benitez
+ */
+class BerlinClockRoutesTest {
+
+    private SimpleMeterRegistry registry;
+    private BerlinClockTickStream tickStream;
+    private WebTestClient client;
+
+    @BeforeEach
+    void setUp() {
+        BerlinClockService service = new BerlinClockService();
+        registry = new SimpleMeterRegistry();
+        tickStream = new BerlinClockTickStream(service, Duration.ZERO, Duration.ofSeconds(1), Duration.ofMinutes(1));
+        BerlinClockHandler handler = new BerlinClockHandler(service, new LampStateJsonReader(new ObjectMapper()),
+                new BerlinClockMetrics(registry, true), tickStream, new BerlinClockSvg(true));
+        client = WebTestClient.bindToRouterFunction(new BerlinClockRoutes().berlinClockRouter(handler))
+                .handlerStrategies(HandlerStrategies.builder().codecs(BerlinClockRoutes::registerCborCodecs).build())
+                .build();
+    }
+
+    @Test
+    @DisplayName("Should convert a time to the same JSON as the servlet controller")
+    void testConvertTime() {
+        // Given
+        String time = "13:17:01";
+
+        // When / Then
+        client.get().uri("/api/time/convert?time={time}", time)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_JSON)
+                .expectBody()
+                .jsonPath("$.secondsLamp").isEqualTo("Y")
+                .jsonPath("$.fiveHoursRow").isEqualTo("RROO")
+                .jsonPath("$.singleHoursRow").isEqualTo("RRRO")
+                .jsonPath("$.fiveMinutesRow").isEqualTo("YYROOOOOOOO")
+                .jsonPath("$.singleMinutesRow").isEqualTo("YYOO")
+                .jsonPath("$.currentTime").isEqualTo("13:17:01");
+        assertEquals(1.0, registry.get("berlinclock.conversions").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should render a time as the same gzipped SVG as the servlet controller")
+    void testRenderConvertedTime() {
+        // Given
+        int packedState = new BerlinClockService().toPackedState(13 * 3600 + 17 * 60 + 1);
+
+        // When / Then
+        byte[] body = client.get().uri("/api/time/convert/render.svg?time=13:17:01")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(BerlinClockSvg.MEDIA_TYPE)
+                .expectHeader().valueEquals(HttpHeaders.CONTENT_ENCODING, "gzip")
+                .expectHeader().valueEquals(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                .expectHeader().valueEquals(HttpHeaders.ETAG, LampStateETag.svg(packedState, true))
+                .expectBody(byte[].class)
+                .returnResult()
+                .getResponseBody();
+
+        assertArrayEquals(new BerlinClockSvg(true).render(packedState).gzipped(), body);
+    }
+
+    @Test
+    @DisplayName("Should list the lamps to toggle between two times")
+    void testDiff() {
+        client.get().uri("/api/time/diff?from=13:17:00&to=13:17:01")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_JSON)
+                .expectBody()
+                .jsonPath("$.changes.length()").isEqualTo(1)
+                .jsonPath("$.changes[0].lamp").isEqualTo(0)
+                .jsonPath("$.changes[0].colour").isEqualTo("Y");
+        client.get().uri("/api/time/diff?from=13:17:00")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    @DisplayName("Should stream a range as NDJSON by default and as packed states for octet-stream")
+    void testRange() {
+        String body = client.get().uri("/api/time/range?from=13:17:00&to=13:17:04&step=2")
+                .accept(MediaType.ALL)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_NDJSON)
+                .expectHeader().cacheControl(CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable())
+                .expectBody(String.class)
+                .returnResult().getResponseBody();
+        String[] lines = body.split("\n");
+        assertEquals(3, lines.length);
+        assertTrue(lines[0].contains("\"currentTime\":\"13:17:00\""));
+        assertTrue(lines[2].contains("\"fiveMinutesRow\":\"YYROOOOOOOO\",\"singleMinutesRow\":\"YYOO\""));
+        assertEquals(3.0, registry.get("berlinclock.conversions").counter().count());
+
+        byte[] packed = client.get().uri("/api/time/range?from=00:00:00&to=00:00:01")
+                .accept(MediaType.APPLICATION_OCTET_STREAM)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .expectHeader().contentLength(6)
+                .expectBody(byte[].class)
+                .returnResult().getResponseBody();
+        BerlinClockService service = new BerlinClockService();
+        assertEquals(service.toPackedState(1), PackedStateWire.fromBytes(new byte[]{packed[3], packed[4], packed[5]}));
+    }
+
+    @Test
+    @DisplayName("Should answer an invalid range with 400, with an error body unless packed states were asked for")
+    void testRangeInvalid() {
+        client.get().uri("/api/time/range?from=13:17:04&to=13:17:00")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.error").isEqualTo(BerlinClockService.INVALID_RANGE_MESSAGE);
+        client.get().uri("/api/time/diff/range?from=13:17:00&to=25:00:00")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.error").isEqualTo(BerlinClockService.INVALID_TIME_MESSAGE);
+        client.get().uri("/api/time/range?from=13:17:00&to=13:17:04&step=x")
+                .accept(MediaType.APPLICATION_OCTET_STREAM)
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should stream the lamp diffs of a range")
+    void testDiffRange() {
+        String body = client.get().uri("/api/time/diff/range?from=00:00:00&to=00:00:02")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_NDJSON)
+                .expectBody(String.class)
+                .returnResult().getResponseBody();
+
+        String[] lines = body.split("\n");
+        assertEquals(3, lines.length);
+        assertTrue(lines[0].startsWith("{\"time\":\"00:00:00\",\"changes\":[{\"lamp\":0,\"colour\":\"O\"}"));
+        assertEquals("{\"time\":\"00:00:01\",\"changes\":[{\"lamp\":0,\"colour\":\"Y\"}]}", lines[1]);
+        assertEquals("{\"time\":\"00:00:02\",\"changes\":[{\"lamp\":0,\"colour\":\"O\"}]}", lines[2]);
+    }
+
+    @Test
+    @DisplayName("Should answer an invalid time with 400 and the JSON error body")
+    void testConvertInvalidTime() {
+        client.get().uri("/api/time/convert?time=25:00:00")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.error").isEqualTo(BerlinClockService.INVALID_TIME_MESSAGE);
+        client.get().uri("/api/time/convert")
+                .exchange()
+                .expectStatus().isBadRequest();
+        assertEquals(2.0, registry.get("berlinclock.validation.failures").tag("operation", "convert").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should tag conversions with their lamp state and answer a matching If-None-Match with 304")
+    void testConvertCaching() {
+        String etag = client.get().uri("/api/time/convert?time=13:17:01")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("ETag", "\"300ee7-01\"")
+                .expectHeader().cacheControl(CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable())
+                .expectBody().returnResult()
+                .getResponseHeaders().getETag();
+
+        client.get().uri("/api/time/convert?time=13:17:01")
+                .ifNoneMatch(etag)
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectBody().isEmpty();
+        assertEquals(1.0, registry.get("berlinclock.conversions").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should serve the packed lamp state for octet-stream requests")
+    void testConvertPacked() {
+        BerlinClockService service = new BerlinClockService();
+        int packedState = service.toPackedState("13:17:01");
+
+        byte[] body = client.get().uri("/api/time/convert?time=13:17:01")
+                .accept(MediaType.APPLICATION_OCTET_STREAM)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .expectBody(byte[].class)
+                .returnResult()
+                .getResponseBody();
+
+        assertArrayEquals(new byte[]{(byte) (packedState >> 16), (byte) (packedState >> 8), (byte) packedState}, body);
+    }
+
+    @Test
+    @DisplayName("Should serve CBOR when asked for it")
+    void testCurrentTimeCbor() {
+        client.get().uri("/api/time")
+                .accept(MediaType.APPLICATION_CBOR)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_CBOR);
+    }
+
+    @Test
+    @DisplayName("Should decode a JSON lamp state to a time")
+    void testDecode() {
+        // Given
+        String body = """
+                {"secondsLamp":"Y","fiveHoursRow":"RROO","singleHoursRow":"RRRO",
+                 "fiveMinutesRow":"YYOOOOOOOOO","singleMinutesRow":"YYOO"}""";
+
+        // When / Then
+        client.post().uri("/api/time/decode")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.time").isEqualTo("13:12:01");
+        assertEquals(1.0, registry.get("berlinclock.decodes").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should reject a lamp state no Berlin Clock can show")
+    void testDecodeInvalid() {
+        client.post().uri("/api/time/decode")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("""
+                        {"secondsLamp":"Y","fiveHoursRow":"RRRRR","singleHoursRow":"RRRO",
+                         "fiveMinutesRow":"YYOOOOOOOOO","singleMinutesRow":"YYOO"}""")
+                .exchange()
+                .expectStatus().isBadRequest();
+        client.post().uri("/api/time/decode")
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .bodyValue(new byte[]{1, 2})
+                .exchange()
+                .expectStatus().isBadRequest();
+        assertEquals(2.0, registry.get("berlinclock.validation.failures").tag("operation", "decode").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should decode a lamp string with a year of cache lifetime")
+    void testDecodeLampString() {
+        client.get().uri("/api/time/decode/YRROORRROYYOOOOOOOOOYYOO")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().cacheControl(CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable())
+                .expectBody()
+                .jsonPath("$.time").isEqualTo("13:12:01");
+    }
+
+    @Test
+    @DisplayName("Should push the latest time first and then every tick")
+    void testTickStream() {
+        BerlinClockService service = new BerlinClockService();
+        tickStream.onTick(service.convertToBerlinTime("12:00:00"));
+
+        Flux<ServerSentEvent<String>> events = tickStream.events();
+
+        StepVerifier.create(events)
+                .assertNext(event -> {
+                    assertEquals("12:00:00", event.id());
+                    assertEquals("time", event.event());
+                    assertEquals(Duration.ofSeconds(1), event.retry());
+                })
+                .then(() -> {
+                    assertEquals(1, tickStream.getSubscriberCount());
+                    tickStream.onTick(service.convertToBerlinTime("12:00:01"));
+                })
+                .assertNext(event -> assertEquals("12:00:01", event.id()))
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+        assertEquals(0, tickStream.getSubscriberCount());
+    }
+
+    @Test
+    @DisplayName("Should show the current time and stream ticks in the requested zone")
+    void testZone() {
+        // Given
+        SteppingClock clock = new SteppingClock(Instant.parse("2024-01-15T12:17:01Z"), BerlinClockService.DEFAULT_ZONE);
+        BerlinClockService service = new BerlinClockService(ConversionMode.LOOKUP, clock);
+        BerlinClockTickStream zonedStream = new BerlinClockTickStream(service, Duration.ZERO, Duration.ofSeconds(1),
+                Duration.ofMinutes(1));
+        WebTestClient zonedClient = WebTestClient.bindToRouterFunction(new BerlinClockRoutes().berlinClockRouter(
+                        new BerlinClockHandler(service, new LampStateJsonReader(new ObjectMapper()),
+                                new BerlinClockMetrics(registry, true), zonedStream, new BerlinClockSvg(true))))
+                .build();
+
+        // When / Then
+        zonedClient.get().uri("/api/time?zone=Asia/Tokyo")
+                .exchange()
+                .expectStatus().isOk()
+                // The end of the service clock's second, whatever the wall clock says
+                .expectHeader().valueEquals("X-Accel-Expires", "@" + Instant.parse("2024-01-15T12:17:02Z").getEpochSecond())
+                .expectBody()
+                .jsonPath("$.currentTime").isEqualTo("21:17:01");
+        zonedClient.get().uri("/api/time?zone=Mars/Olympus_Mons")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.error").isEqualTo(BerlinClockService.UNKNOWN_ZONE_MESSAGE);
+        StepVerifier.create(zonedStream.events("Asia/Tokyo"))
+                .assertNext(event -> assertEquals("21:17:01", event.id()))
+                .then(() -> {
+                    clock.advance(Duration.ofSeconds(1));
+                    zonedStream.onTick(service.publishCurrentTime());
+                })
+                .assertNext(event -> assertEquals("21:17:02", event.id()))
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+        assertEquals(0, zonedStream.getSubscriberCount());
+    }
+}
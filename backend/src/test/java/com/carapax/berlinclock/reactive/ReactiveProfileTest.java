@@ -0,0 +1,80 @@
+package com.carapax.berlinclock.reactive;
+
+import com.carapax.berlinclock.controller.BerlinClockController;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.embedded.netty.NettyWebServer;
+import org.springframework.boot.web.reactive.context.ReactiveWebServerApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Starts the application with the reactive profile and checks it serves the API from Netty
+ * with none of the servlet beans.
+ *
+ * @author Jose Benitez
+ */
+// The test context decides its web application type before profiles are read, so set it here as well
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"spring.main.web-application-type=reactive", "berlinclock.grpc.port=0"})
+@ActiveProfiles("reactive")
+class ReactiveProfileTest {
+
+    @Autowired
+    private ReactiveWebServerApplicationContext context;
+
+    @Autowired
+    private WebTestClient client;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    @DisplayName("The reactive profile should run on Netty without the servlet controller")
+    void testRunsOnNetty() {
+        assertInstanceOf(NettyWebServer.class, context.getWebServer());
+        assertTrue(context.getBeansOfType(BerlinClockController.class).isEmpty());
+    }
+
+    @Test
+    @DisplayName("The reactive profile should serve the current time and conversions and record metrics")
+    void testServesApi() throws InterruptedException {
+        client.get().uri("/api/time")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_JSON)
+                .expectBody()
+                .jsonPath("$.currentTime").exists();
+        client.get().uri("/api/time/convert?time=00:00:00")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.fiveHoursRow").isEqualTo("OOOO");
+        assertEquals(1.0, meterRegistry.get("berlinclock.conversions").counter().count());
+        assertNotNull(meterRegistry.find("berlinclock.stream.subscribers").tag("transport", "sse").gauge());
+        assertNull(meterRegistry.find("berlinclock.stream.subscribers").tag("transport", "websocket").gauge());
+        assertNotNull(requestTimer("/api/time/convert"));
+    }
+
+    /**
+     * The filter records once the response is written, which can be just after the client has read it.
+     */
+    private Timer requestTimer(String uri) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        Timer timer;
+        while ((timer = meterRegistry.find("berlinclock.http.requests").tags("uri", uri, "outcome", "SUCCESS").timer()) == null
+                && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        return timer;
+    }
+}
@@ -0,0 +1,76 @@
+package com.carapax.berlinclock.reactive;
+
+import com.carapax.berlinclock.service.BerlinClockService;
+import com.carapax.berlinclock.web.BerlinClockMetrics;
+import com.carapax.berlinclock.web.BerlinClockSvg;
+import com.carapax.berlinclock.web.LampStateJsonReader;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.web.reactive.function.server.RouterFunctions.route;
+
+/**
+ * Unit tests for RequestMetricsWebFilter, in front of the reactive routes.
+ *
+ * @author Jose Benitez
+ */
+class RequestMetricsWebFilterTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final BerlinClockMetrics metrics = new BerlinClockMetrics(registry, true);
+
+    @Test
+    @DisplayName("Should time requests under the matched route pattern")
+    void testRecordsRequest() {
+        BerlinClockService service = new BerlinClockService();
+        BerlinClockTickStream tickStream = new BerlinClockTickStream(service, Duration.ZERO, Duration.ofSeconds(1),
+                Duration.ofMinutes(1));
+        BerlinClockHandler handler = new BerlinClockHandler(service, new LampStateJsonReader(new ObjectMapper()),
+                metrics, tickStream, new BerlinClockSvg(true));
+        WebTestClient client = client(new BerlinClockRoutes().berlinClockRouter(handler));
+
+        client.get().uri("/api/time/decode/YOOOO").exchange().expectStatus().isBadRequest();
+
+        Timer timer = registry.find(BerlinClockMetrics.REQUESTS)
+                .tags("uri", "/api/time/decode/{lampString}", "method", "GET", "outcome", "CLIENT_ERROR")
+                .timer();
+        assertNotNull(timer);
+        assertEquals(1, timer.count());
+    }
+
+    @Test
+    @DisplayName("Should record a request whose handler failed as a server error")
+    void testRecordsError() {
+        WebTestClient client = client(route().GET("/api/time",
+                request -> Mono.<ServerResponse>error(new IllegalStateException("boom"))).build());
+
+        client.get().uri("/api/time").exchange().expectStatus().is5xxServerError();
+
+        Timer timer = registry.find(BerlinClockMetrics.REQUESTS)
+                .tags("uri", "/api/time", "method", "GET", "outcome", "SERVER_ERROR")
+                .timer();
+        assertNotNull(timer);
+        assertEquals(1, timer.count());
+        assertEquals(1, registry.find(BerlinClockMetrics.REQUESTS).timers().size());
+    }
+
+    private WebTestClient client(RouterFunction<ServerResponse> router) {
+        return WebTestClient.bindToRouterFunction(router)
+                .handlerStrategies(HandlerStrategies.builder()
+                        .codecs(BerlinClockRoutes::registerCborCodecs)
+                        .webFilter(new RequestMetricsWebFilter(metrics))
+                        .build())
+                .build();
+    }
+}
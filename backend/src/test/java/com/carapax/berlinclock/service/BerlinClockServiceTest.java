@@ -7,7 +7,11 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
 
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalTime;
+import java.time.ZoneOffset;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -168,6 +172,86 @@ class BerlinClockServiceTest {
         assertNotNull(result.getCurrentTime(), "Current time should not be null");
     }
 
+    @Test
+    @DisplayName("Should read the current time from the injected clock")
+    void testCurrentTimeFromClock() {
+        Clock clock = Clock.fixed(Instant.parse("2024-01-01T13:17:01Z"), ZoneOffset.UTC);
+        BerlinClockService service = new BerlinClockService(ConversionMode.LOOKUP, clock);
+
+        assertEquals("13:17:01", service.getCurrentBerlinTime().getCurrentTime());
+        assertEquals(service.toPackedState("13:17:01"), service.getCurrentPackedState());
+    }
+
+    @Test
+    @DisplayName("Should serve the published time within its second and fall back once the second is over")
+    void testPublishedCurrentTime() {
+        SteppingClock clock = new SteppingClock(Instant.parse("2024-01-01T13:17:01.250Z"), ZoneOffset.UTC);
+        BerlinClockService service = new BerlinClockService(ConversionMode.COMPUTE, clock);
+
+        BerlinClockTime published = service.publishCurrentTime();
+        clock.advance(Duration.ofMillis(700));
+
+        assertSame(published, service.getCurrentBerlinTime());
+        assertEquals(0, service.getCurrentTimeFallbackCount());
+
+        // The ticker has not run for the next second
+        clock.advance(Duration.ofMillis(100));
+
+        assertEquals("13:17:02", service.getCurrentBerlinTime().getCurrentTime());
+        assertEquals(1, service.getCurrentTimeFallbackCount());
+        assertEquals("13:17:02", service.publishCurrentTime().getCurrentTime());
+        assertEquals(1, service.getCurrentTimeFallbackCount());
+    }
+
+    @Test
+    @DisplayName("Should show the current time in a requested zone, with null and the clock's zone as the default")
+    void testCurrentTimeInZone() {
+        Clock clock = Clock.fixed(Instant.parse("2024-07-01T11:17:01Z"), BerlinClockService.DEFAULT_ZONE);
+        BerlinClockService service = new BerlinClockService(ConversionMode.LOOKUP, clock);
+
+        assertEquals("13:17:01", service.getCurrentBerlinTime(null).getCurrentTime());
+        assertEquals("13:17:01", service.getCurrentBerlinTime("Europe/Berlin").getCurrentTime());
+        assertEquals("07:17:01", service.getCurrentBerlinTime("America/New_York").getCurrentTime());
+        assertEquals(service.toPackedState("20:17:01"), service.getCurrentPackedState("Asia/Tokyo"));
+        assertEquals(2, service.getActiveZoneCount());
+    }
+
+    @Test
+    @DisplayName("Should reject unknown zones without tracking them")
+    void testUnknownZone() {
+        assertTrue(BerlinClockService.isSupportedZone("Europe/Berlin"));
+        assertFalse(BerlinClockService.isSupportedZone("Mars/Olympus_Mons"));
+        assertFalse(BerlinClockService.isSupportedZone(null));
+        assertThrows(IllegalArgumentException.class,
+                () -> berlinClockService.getCurrentBerlinTime("Mars/Olympus_Mons"));
+        assertEquals(0, berlinClockService.getActiveZoneCount());
+    }
+
+    @Test
+    @DisplayName("Should publish a zone on every tick while it is read and drop it after the idle timeout")
+    void testZonePublishingAndEviction() {
+        SteppingClock clock = new SteppingClock(Instant.parse("2024-01-01T12:00:00.100Z"), ZoneOffset.UTC);
+        BerlinClockService service = new BerlinClockService(ConversionMode.LOOKUP, clock, Duration.ofSeconds(5));
+
+        service.getCurrentBerlinTime("Asia/Kolkata");
+        clock.advance(Duration.ofSeconds(1));
+        service.publishCurrentTime();
+        long fallbacks = service.getCurrentTimeFallbackCount();
+
+        assertEquals("17:30:01", service.getCurrentBerlinTime("Asia/Kolkata").getCurrentTime());
+        assertEquals(fallbacks, service.getCurrentTimeFallbackCount());
+
+        // Nobody reads the zone any more
+        for (int i = 0; i < 5; i++) {
+            clock.advance(Duration.ofSeconds(1));
+            service.publishCurrentTime();
+        }
+        assertEquals(1, service.getActiveZoneCount());
+        clock.advance(Duration.ofSeconds(1));
+        service.publishCurrentTime();
+        assertEquals(0, service.getActiveZoneCount());
+    }
+
     @Test
     @DisplayName("Should have correct lamp counts in all rows")
     void testLampCounts() {
@@ -180,6 +264,127 @@ class BerlinClockServiceTest {
         assertEquals(4, result.getSingleMinutesRow().length(), "Single minutes row should have 4 lamps");
     }
 
+    // ===== CONVERSION MODE TESTS =====
+
+    @Test
+    @DisplayName("Lookup table should match the computed conversion for every second of the day")
+    void testLookupTableMatchesComputedConversion() {
+        BerlinClockService lookup = new BerlinClockService(ConversionMode.LOOKUP);
+        BerlinClockService compute = new BerlinClockService(ConversionMode.COMPUTE);
+
+        for (int secondOfDay = 0; secondOfDay < BerlinClockService.SECONDS_PER_DAY; secondOfDay++) {
+            LocalTime time = LocalTime.ofSecondOfDay(secondOfDay);
+            BerlinClockTime expected = compute.convertToBerlinTime(time);
+            assertEquals(expected, lookup.convertToBerlinTime(time), "Mismatch at " + time);
+            assertEquals(expected, lookup.convertToBerlinTime(secondOfDay), "Mismatch at " + time);
+        }
+    }
+
+    @Test
+    @DisplayName("Lookup mode should return shared instances with shared row strings")
+    void testLookupReturnsSharedInstances() {
+        BerlinClockTime first = berlinClockService.convertToBerlinTime("13:17:01");
+        BerlinClockTime second = berlinClockService.convertToBerlinTime(LocalTime.of(13, 17, 1));
+        BerlinClockTime sameRows = berlinClockService.convertToBerlinTime("13:17:03");
+
+        assertSame(first, second, "Same second should return the same instance");
+        assertSame(first.getFiveHoursRow(), sameRows.getFiveHoursRow());
+        assertSame(first.getSingleHoursRow(), sameRows.getSingleHoursRow());
+        assertSame(first.getFiveMinutesRow(), sameRows.getFiveMinutesRow());
+        assertSame(first.getSingleMinutesRow(), sameRows.getSingleMinutesRow());
+        assertSame(first.getSecondsLamp(), sameRows.getSecondsLamp());
+    }
+
+    @Test
+    @DisplayName("Compute mode should build a new instance per call")
+    void testComputeModeBuildsNewInstances() {
+        BerlinClockService compute = new BerlinClockService(ConversionMode.COMPUTE);
+
+        BerlinClockTime first = compute.convertToBerlinTime("13:17:01");
+        BerlinClockTime second = compute.convertToBerlinTime("13:17:01");
+
+        assertNotSame(first, second);
+        assertEquals(first, second);
+    }
+
+    @Test
+    @DisplayName("Should reject second of day outside 0-86399")
+    void testConvertSecondOfDayOutOfRange() {
+        assertThrows(IllegalArgumentException.class, () -> berlinClockService.convertToBerlinTime(-1));
+        assertThrows(IllegalArgumentException.class,
+                () -> berlinClockService.convertToBerlinTime(BerlinClockService.SECONDS_PER_DAY));
+    }
+
+    // ===== PACKED STATE TESTS =====
+
+    @Test
+    @DisplayName("Packed state should match packing the lamp rows for every second of the day")
+    void testPackedStateMatchesRows() {
+        for (int secondOfDay = 0; secondOfDay < BerlinClockService.SECONDS_PER_DAY; secondOfDay++) {
+            BerlinClockTime time = berlinClockService.convertToBerlinTime(secondOfDay);
+            assertEquals(time.toPackedState(), berlinClockService.toPackedState(secondOfDay),
+                    "Mismatch at " + time.getCurrentTime());
+        }
+    }
+
+    @Test
+    @DisplayName("Should compute the packed state from a time string")
+    void testPackedStateFromString() {
+        BerlinClockTime time = berlinClockService.convertToBerlinTime("13:17:01");
+        assertEquals(time.toPackedState(), berlinClockService.toPackedState("13:17:01"));
+        assertThrows(IllegalArgumentException.class, () -> berlinClockService.toPackedState("25:00:00"));
+    }
+
+    @ParameterizedTest
+    @DisplayName("Should decode packed states like the string decoder")
+    @CsvSource({
+            "00:00:00, 00:00:00",
+            "13:17:01, 13:17:01",
+            "23:59:59, 23:59:01",
+            "12:30:44, 12:30:00"
+    })
+    void testDecodePackedState(String time, String expected) {
+        assertEquals(expected, berlinClockService.decodePackedState(berlinClockService.toPackedState(time)));
+        assertEquals(expected, new BerlinClockService(ConversionMode.COMPUTE)
+                .decodePackedState(berlinClockService.toPackedState(time)));
+    }
+
+    @Test
+    @DisplayName("Should decode packed states to a second-of-day")
+    void testDecodeToSecondOfDay() {
+        assertEquals(13 * 3600 + 17 * 60 + 1, berlinClockService.decodeToSecondOfDay(berlinClockService.toPackedState("13:17:01")));
+        assertEquals(0, berlinClockService.decodeToSecondOfDay(0));
+        assertThrows(IllegalArgumentException.class, () -> berlinClockService.decodeToSecondOfDay(1 << 24));
+    }
+
+    @Test
+    @DisplayName("Reverse index should decode the packed state of every second of the day")
+    void testReverseIndexCoversTheDay() {
+        for (int secondOfDay = 0; secondOfDay < BerlinClockService.SECONDS_PER_DAY; secondOfDay++) {
+            int expected = secondOfDay - secondOfDay % 60 + secondOfDay % 2;
+            assertEquals(expected, berlinClockService.decodeToSecondOfDay(berlinClockService.toPackedState(secondOfDay)));
+        }
+    }
+
+    @Test
+    @DisplayName("Should reject lamp patterns lit out of order")
+    void testDecodeRejectsNonCanonicalPatterns() {
+        assertThrows(IllegalArgumentException.class, () -> berlinClockService.decodeBerlinTime(
+                "O", "OROO", "OOOO", "OOOOOOOOOOO", "OOOO"));
+        assertThrows(IllegalArgumentException.class, () -> berlinClockService.decodeBerlinTime(
+                "O", "OOOO", "OOOO", "YOYOOOOOOOO", "OOOO"));
+        assertThrows(IllegalArgumentException.class, () -> berlinClockService.decodeBerlinTime(
+                "O", "OOOO", "OOOO", "OOOOOOOOOOO", "OOOY"));
+    }
+
+    @Test
+    @DisplayName("Should reject packed states that decode past 23:59")
+    void testDecodePackedStateOutOfRange() {
+        int twentyFourHours = BerlinClockTime.FIVE_HOURS_MASK | BerlinClockTime.SINGLE_HOURS_MASK;
+        assertThrows(IllegalArgumentException.class, () -> berlinClockService.decodePackedState(twentyFourHours));
+        assertThrows(IllegalArgumentException.class, () -> berlinClockService.decodePackedState(1 << 24));
+    }
+
     // ===== DECODE TESTS =====
 
     @Test
@@ -291,4 +496,64 @@ class BerlinClockServiceTest {
         );
         assertEquals("00:00:00", berlinClockService.decodeBerlinTime(evenSeconds), "O (OFF) should decode to even seconds (0)");
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Should reject rows with the wrong length or lamp colour")
+    void testDecodeValidatesRows() {
+        assertThrows(IllegalArgumentException.class, () -> berlinClockService.decodeBerlinTime(
+                "Y", "RRO", "OOOO", "OOOOOOOOOOO", "OOOO"), "Five-hours row is one lamp short");
+        assertThrows(IllegalArgumentException.class, () -> berlinClockService.decodeBerlinTime(
+                "Y", "YOOO", "OOOO", "OOOOOOOOOOO", "OOOO"), "Hour lamps are red");
+        assertThrows(IllegalArgumentException.class, () -> berlinClockService.decodeBerlinTime(
+                "Y", "OOOO", "OOOO", "YYYOOOOOOOO", "OOOO"), "Third five-minutes lamp is red");
+        assertThrows(IllegalArgumentException.class, () -> berlinClockService.decodeBerlinTime(
+                null, "OOOO", "OOOO", "OOOOOOOOOOO", "OOOO"), "Seconds lamp is required");
+        assertThrows(IllegalArgumentException.class, () -> berlinClockService.decodeBerlinTime(null));
+    }
+
+    @Test
+    @DisplayName("Should walk a range step by step with the same states as a direct conversion")
+    void testSequence() {
+        LampSequence sequence = berlinClockService.sequence(0, BerlinClockService.SECONDS_PER_DAY - 1, 7);
+        int previous = 0;
+        int count = 0;
+
+        while (sequence.next()) {
+            int secondOfDay = count * 7;
+            int expected = berlinClockService.toPackedState(secondOfDay);
+            assertEquals(secondOfDay, sequence.secondOfDay());
+            assertEquals(expected, sequence.packedState(), "Mismatch at second " + secondOfDay);
+            assertEquals(count == 0 ? BerlinClockTime.PACKED_STATE_MASK : previous ^ expected, sequence.changedLamps());
+            previous = expected;
+            count++;
+        }
+
+        assertEquals(sequence.size(), count);
+        assertEquals(12_343, count);
+    }
+
+    @Test
+    @DisplayName("Should reject ranges that run backwards, leave the day or have no step")
+    void testInvalidSequence() {
+        assertThrows(IllegalArgumentException.class, () -> berlinClockService.sequence(10, 9, 1));
+        assertThrows(IllegalArgumentException.class, () -> berlinClockService.sequence(-1, 9, 1));
+        assertThrows(IllegalArgumentException.class, () -> berlinClockService.sequence(0, 86_400, 1));
+        assertThrows(IllegalArgumentException.class, () -> berlinClockService.sequence(0, 9, 0));
+        assertEquals(1, berlinClockService.sequence(5, 5, 60).size());
+    }
+
+    @Test
+    @DisplayName("Should report exactly the lamps that change between two times")
+    void testChangedLamps() {
+        int from = 13 * 3600 + 59 * 60 + 59;
+        int to = 14 * 3600;
+
+        int changed = berlinClockService.changedLamps(from, to);
+
+        assertEquals(berlinClockService.toPackedState(from) ^ berlinClockService.toPackedState(to), changed);
+        // Seconds lamp, fourth single-hours lamp, all 11 five-minutes lamps and all 4 single-minutes lamps
+        assertEquals(17, Integer.bitCount(changed));
+        assertEquals(0, berlinClockService.changedLamps(from, from));
+        assertThrows(IllegalArgumentException.class, () -> berlinClockService.changedLamps(from, 86_400));
+    }
+}
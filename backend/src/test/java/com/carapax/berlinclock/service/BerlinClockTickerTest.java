@@ -0,0 +1,111 @@
+package com.carapax.berlinclock.service;
+
+import com.carapax.berlinclock.model.BerlinClockTime;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for BerlinClockTicker.
+ *
+ * @author Jose Benitez
+ */
+class BerlinClockTickerTest {
+
+    @Test
+    @DisplayName("Should compute the time once and share it with every listener")
+    void testTickSharesOneInstance() {
+        List<BerlinClockTime> first = new ArrayList<>();
+        List<BerlinClockTime> second = new ArrayList<>();
+        BerlinClockTicker ticker = new BerlinClockTicker(new BerlinClockService(), List.of(first::add, second::add));
+
+        ticker.tick();
+
+        assertEquals(1, first.size());
+        assertSame(first.get(0), second.get(0));
+    }
+
+    @Test
+    @DisplayName("Should publish each tick as the service's current time")
+    void testTickPublishesCurrentTime() {
+        SteppingClock clock = new SteppingClock(Instant.parse("2024-01-01T08:00:00.002Z"), ZoneOffset.UTC);
+        BerlinClockService service = new BerlinClockService(ConversionMode.LOOKUP, clock);
+        List<BerlinClockTime> received = new ArrayList<>();
+        BerlinClockTicker ticker = new BerlinClockTicker(service, List.of(received::add));
+
+        ticker.tick();
+        clock.advance(Duration.ofSeconds(1));
+        ticker.tick();
+
+        assertEquals("08:00:01", received.get(1).getCurrentTime());
+        assertSame(received.get(1), service.getCurrentBerlinTime());
+        assertEquals(0, service.getCurrentTimeFallbackCount());
+    }
+
+    @Test
+    @DisplayName("A failing listener should not stop the other listeners")
+    void testFailingListener() {
+        List<BerlinClockTime> received = new ArrayList<>();
+        BerlinClockTicker.Listener failing = time -> {
+            throw new IllegalStateException("boom");
+        };
+        BerlinClockTicker ticker = new BerlinClockTicker(new BerlinClockService(), List.of(failing, received::add));
+
+        ticker.tick();
+
+        assertEquals(1, received.size());
+    }
+
+    @Test
+    @DisplayName("Should schedule the next tick just after the next second boundary")
+    void testMillisUntilNextTick() {
+        assertEquals(1002, BerlinClockTicker.millisUntilNextTick(1_700_000_000_000L));
+        assertEquals(752, BerlinClockTicker.millisUntilNextTick(1_700_000_000_250L));
+        assertEquals(3, BerlinClockTicker.millisUntilNextTick(1_700_000_000_999L));
+    }
+
+    @Test
+    @DisplayName("Should tick while running and stop cleanly")
+    void testStartAndStop() throws InterruptedException {
+        CountDownLatch ticks = new CountDownLatch(2);
+        BerlinClockTicker ticker = new BerlinClockTicker(new BerlinClockService(), List.of(time -> ticks.countDown()));
+
+        ticker.start();
+        try {
+            assertTrue(ticks.await(3, TimeUnit.SECONDS), "Ticker should tick every second");
+            assertTrue(ticker.isRunning());
+        } finally {
+            ticker.stop();
+        }
+        assertFalse(ticker.isRunning());
+    }
+
+    @Test
+    @DisplayName("Should tick on a virtual thread in virtual-thread mode")
+    void testVirtualThreadMode() throws InterruptedException {
+        CountDownLatch ticks = new CountDownLatch(1);
+        AtomicBoolean virtual = new AtomicBoolean();
+        BerlinClockTicker ticker = new BerlinClockTicker(new BerlinClockService(), List.of(time -> {
+            virtual.set(Thread.currentThread().isVirtual());
+            ticks.countDown();
+        }), true);
+
+        ticker.start();
+        try {
+            assertTrue(ticks.await(3, TimeUnit.SECONDS), "Ticker should tick every second");
+            assertTrue(virtual.get());
+        } finally {
+            ticker.stop();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.carapax.berlinclock.service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Clock for tests that stands still until it is told to move.
+ *
+ * @author Jose Benitez
+ */
+public final class SteppingClock extends Clock {
+
+    private final AtomicLong epochMillis;
+    private final ZoneId zone;
+
+    public SteppingClock(Instant start, ZoneId zone) {
+        this(new AtomicLong(start.toEpochMilli()), zone);
+    }
+
+    private SteppingClock(AtomicLong epochMillis, ZoneId zone) {
+        this.epochMillis = epochMillis;
+        this.zone = zone;
+    }
+
+    /**
+     * Moves the clock forward.
+     */
+    public void advance(Duration duration) {
+        epochMillis.addAndGet(duration.toMillis());
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    /**
+     * Returns a clock in another zone that shares this clock's time, so advancing either moves both.
+     */
+    @Override
+    public Clock withZone(ZoneId zone) {
+        return new SteppingClock(epochMillis, zone);
+    }
+
+    @Override
+    public long millis() {
+        return epochMillis.get();
+    }
+
+    @Override
+    public Instant instant() {
+        return Instant.ofEpochMilli(millis());
+    }
+}
@@ -0,0 +1,70 @@
+package com.carapax.berlinclock.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Unit tests for TimeParser.
+ * Checks that it accepts exactly what the HH:mm:ss DateTimeFormatter accepts.
+ *
+ * @author Jose Benitez
+ */
+class TimeParserTest {
+
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+    @Test
+    @DisplayName("Should parse every second of the day")
+    void testParsesEverySecond() {
+        for (int secondOfDay = 0; secondOfDay < BerlinClockService.SECONDS_PER_DAY; secondOfDay++) {
+            String time = LocalTime.ofSecondOfDay(secondOfDay).format(FORMATTER);
+            assertEquals(secondOfDay, TimeParser.parseSecondOfDay(time), time);
+        }
+    }
+
+    @ParameterizedTest
+    @DisplayName("Should agree with DateTimeFormatter on edge cases")
+    @ValueSource(strings = {
+            "24:00:00", "24:00:01", "23:60:00", "23:59:60", "1:02:03", "01:02:3", "01-02-03", "01:02:03 ",
+            " 01:02:03", "+1:02:03", "0a:02:03", "01:02:03.5", "", "invalid", "99:99:99", "١٢:00:00"
+    })
+    void testAgreesWithFormatterOnEdgeCases(String time) {
+        assertEquals(formatterSecondOfDay(time), TimeParser.parseSecondOfDay(time), time);
+    }
+
+    @Test
+    @DisplayName("Should agree with DateTimeFormatter on random mutations of valid times")
+    void testAgreesWithFormatterOnMutations() {
+        Random random = new Random(42);
+        String alphabet = "0123456789:-+ a";
+        for (int i = 0; i < 20_000; i++) {
+            char[] time = LocalTime.ofSecondOfDay(random.nextInt(BerlinClockService.SECONDS_PER_DAY))
+                    .format(FORMATTER).toCharArray();
+            time[random.nextInt(time.length)] = alphabet.charAt(random.nextInt(alphabet.length()));
+            String mutated = new String(time);
+            assertEquals(formatterSecondOfDay(mutated), TimeParser.parseSecondOfDay(mutated), mutated);
+        }
+    }
+
+    @Test
+    @DisplayName("Should return the sentinel for null")
+    void testNull() {
+        assertEquals(TimeParser.INVALID, TimeParser.parseSecondOfDay(null));
+    }
+
+    private static int formatterSecondOfDay(String time) {
+        try {
+            return LocalTime.parse(time, FORMATTER).toSecondOfDay();
+        } catch (RuntimeException e) {
+            return TimeParser.INVALID;
+        }
+    }
+}
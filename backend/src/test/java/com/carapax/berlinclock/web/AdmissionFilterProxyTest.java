@@ -0,0 +1,70 @@
+package com.carapax.berlinclock.web;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks which peers AdmissionFilter takes X-Forwarded-For from, through a running Tomcat:
+ * each address the filter keys on gets a bucket of its own.
+ *
+ * @author Jose Benitez
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "berlinclock.grpc.port=0")
+class AdmissionFilterProxyTest {
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private AdmissionFilter admissionFilter;
+
+    @Test
+    @DisplayName("X-Forwarded-For from loopback, a trusted proxy by default, should name the client")
+    void testTrustedProxy() {
+        convert(restTemplate, "198.51.100.1");
+        convert(restTemplate, "198.51.100.2");
+
+        assertEquals(2, admissionFilter.getClientCount());
+    }
+
+    @Nested
+    @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+            properties = {"berlinclock.grpc.port=0", "server.tomcat.remoteip.internal-proxies=10\\\\.0\\\\.0\\\\.1"})
+    class UntrustedPeer {
+
+        // The enclosing instance's beans come from the other context
+        @Autowired
+        private TestRestTemplate untrustedRestTemplate;
+
+        @Autowired
+        private AdmissionFilter untrustedAdmissionFilter;
+
+        @Test
+        @DisplayName("X-Forwarded-For from a peer that is not a trusted proxy should be ignored")
+        void testUntrustedPeer() {
+            convert(untrustedRestTemplate, "198.51.100.3");
+            convert(untrustedRestTemplate, "198.51.100.4");
+
+            assertEquals(1, untrustedAdmissionFilter.getClientCount());
+        }
+    }
+
+    private static void convert(TestRestTemplate restTemplate, String forwardedFor) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("X-Forwarded-For", forwardedFor);
+        ResponseEntity<String> response = restTemplate.exchange("/api/time/convert?time=12:00:00", HttpMethod.GET,
+                new HttpEntity<>(headers), String.class);
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+    }
+}
@@ -0,0 +1,79 @@
+package com.carapax.berlinclock.web;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for AdmissionFilter.
+ *
+ * @author Jose Benitez
+ */
+class AdmissionFilterTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final AdmissionFilter filter = new AdmissionFilter(new int[]{1, 1}, new int[]{2, 1}, 100,
+            Duration.ofSeconds(60), new BerlinClockMetrics(registry, true), () -> 0L);
+
+    @Test
+    @DisplayName("Requests past a client's burst should get a 429 without reaching the chain")
+    void testRejectsPastBurst() throws Exception {
+        assertEquals(200, call("/api/time/convert", "10.0.0.1").getStatus());
+        assertEquals(200, call("/api/time/convert/batch", "10.0.0.1").getStatus());
+
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletResponse rejected = call("/api/time/convert", "10.0.0.1", chain);
+
+        assertNull(chain.getRequest());
+        assertEquals(429, rejected.getStatus());
+        assertEquals("1", rejected.getHeader("Retry-After"));
+        assertEquals("application/json", rejected.getContentType());
+        assertEquals("{\"error\":\"Too many requests\"}", rejected.getContentAsString());
+        assertEquals(1, registry.counter("berlinclock.admission.rejections", "route", "convert").count());
+    }
+
+    @Test
+    @DisplayName("Routes and clients should be limited separately and other paths not at all")
+    void testRoutesAndClients() throws Exception {
+        assertEquals(200, call("/api/time/decode/YOOOOOOOOOOOOOOOOOOOOOOO", "10.0.0.1").getStatus());
+        assertEquals(429, call("/api/time/decode", "10.0.0.1").getStatus());
+        assertEquals(200, call("/api/time/decode", "10.0.0.2").getStatus());
+        assertEquals(200, call("/api/time/convert", "10.0.0.1").getStatus());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(200, call("/api/time", "10.0.0.1").getStatus());
+            assertEquals(200, call("/api/time/range", "10.0.0.1").getStatus());
+        }
+        assertEquals(1, registry.counter("berlinclock.admission.rejections", "route", "decode").count());
+        assertEquals(2, filter.getClientCount());
+    }
+
+    @Test
+    @DisplayName("Only the convert and decode paths should map to a route")
+    void testRoute() {
+        assertEquals(AdmissionFilter.CONVERT, AdmissionFilter.route("/api/time/convert"));
+        assertEquals(AdmissionFilter.CONVERT, AdmissionFilter.route("/api/time/convert/batch"));
+        assertEquals(AdmissionFilter.DECODE, AdmissionFilter.route("/api/time/decode/YOOO"));
+        assertEquals(-1, AdmissionFilter.route("/api/time"));
+        assertEquals(-1, AdmissionFilter.route("/api/time/stream"));
+        assertEquals(-1, AdmissionFilter.route("/actuator/prometheus"));
+    }
+
+    private MockHttpServletResponse call(String uri, String client) throws Exception {
+        return call(uri, client, new MockFilterChain());
+    }
+
+    private MockHttpServletResponse call(String uri, String client, MockFilterChain chain) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        request.setRemoteAddr(client);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+}
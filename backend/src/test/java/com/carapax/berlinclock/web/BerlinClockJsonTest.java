@@ -0,0 +1,89 @@
+package com.carapax.berlinclock.web;
+
+import com.carapax.berlinclock.model.BerlinClockTime;
+import com.carapax.berlinclock.service.BerlinClockService;
+import com.carapax.berlinclock.service.ConversionMode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for BerlinClockJson.
+ * Checks that the hand-written serializer produces the same bytes as Jackson.
+ *
+ * @author Jose Benitez
+ */
+class BerlinClockJsonTest {
+
+    private final ObjectMapper compactMapper = new ObjectMapper();
+    private final ObjectMapper prettyMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    @Test
+    @DisplayName("Compact JSON should match Jackson for every second of the day")
+    void testCompactMatchesJackson() throws Exception {
+        BerlinClockService service = new BerlinClockService(ConversionMode.LOOKUP);
+
+        for (int secondOfDay = 0; secondOfDay < BerlinClockService.SECONDS_PER_DAY; secondOfDay++) {
+            BerlinClockTime time = service.convertToBerlinTime(secondOfDay);
+            assertArrayEquals(compactMapper.writeValueAsBytes(time), BerlinClockJson.toBytes(time, false),
+                    "Mismatch at " + time.getCurrentTime());
+        }
+    }
+
+    @Test
+    @DisplayName("Pretty JSON should match Jackson's default pretty printer")
+    void testPrettyMatchesJackson() throws Exception {
+        BerlinClockTime time = new BerlinClockService().convertToBerlinTime("13:17:01");
+
+        String expected = prettyMapper.writeValueAsString(time);
+        assertEquals(expected, new String(BerlinClockJson.toBytes(time, true), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("Should return the cached bytes for the same time")
+    void testCachesBytes() {
+        BerlinClockService service = new BerlinClockService();
+
+        byte[] first = BerlinClockJson.toBytes(service.convertToBerlinTime("08:15:30"), false);
+        byte[] second = BerlinClockJson.toBytes(service.convertToBerlinTime("08:15:30"), false);
+
+        assertSame(first, second);
+    }
+
+    @Test
+    @DisplayName("Should not serve cached bytes for a different time with the same currentTime")
+    void testDifferentTimeSameCurrentTime() throws Exception {
+        BerlinClockTime real = new BerlinClockService().convertToBerlinTime("09:00:00");
+        BerlinClockTime other = new BerlinClockTime("Y", "ROOO", "RRRR", "OOOOOOOOOOO", "OOOO", "09:00:00");
+
+        BerlinClockJson.toBytes(real, false);
+
+        assertArrayEquals(compactMapper.writeValueAsBytes(other), BerlinClockJson.toBytes(other, false));
+    }
+
+    @Test
+    @DisplayName("Should serialize null and escaped values like Jackson")
+    void testNullAndEscapedValues() throws Exception {
+        BerlinClockTime time = new BerlinClockTime(null, "a\"b", "c\\d", "e\nf", "\u0001", "not a time");
+
+        assertArrayEquals(compactMapper.writeValueAsBytes(time), BerlinClockJson.toBytes(time, false));
+        assertEquals(prettyMapper.writeValueAsString(time),
+                new String(BerlinClockJson.toBytes(time, true), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("Decode responses should match Jackson and be shared for seconds 0 and 1")
+    void testDecodeResponse() throws Exception {
+        for (int secondOfDay : new int[]{0, 1, 13 * 3600 + 17 * 60 + 1, 86_340, 86_341, 45}) {
+            String time = String.format("%02d:%02d:%02d", secondOfDay / 3600, secondOfDay / 60 % 60, secondOfDay % 60);
+            assertArrayEquals(compactMapper.writeValueAsBytes(java.util.Map.of("time", time)),
+                    BerlinClockJson.decodeResponse(secondOfDay), "Mismatch at " + time);
+        }
+        assertSame(BerlinClockJson.decodeResponse(61), BerlinClockJson.decodeResponse(61));
+    }
+}
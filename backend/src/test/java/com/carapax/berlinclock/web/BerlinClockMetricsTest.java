@@ -0,0 +1,123 @@
+package com.carapax.berlinclock.web;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for BerlinClockMetrics and RequestMetricsFilter.
+ *
+ * @author Jose Benitez
+ */
+class BerlinClockMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    @DisplayName("Counters should be registered up front and incremented per call")
+    void testCounters() {
+        BerlinClockMetrics metrics = new BerlinClockMetrics(registry, true);
+
+        metrics.conversion();
+        metrics.conversion();
+        metrics.decode();
+        metrics.convertValidationFailure();
+        metrics.decodeValidationFailure();
+        metrics.decodeValidationFailure();
+
+        assertEquals(2, registry.counter("berlinclock.conversions").count());
+        assertEquals(1, registry.counter("berlinclock.decodes").count());
+        assertEquals(1, registry.counter("berlinclock.validation.failures", "operation", "convert").count());
+        assertEquals(2, registry.counter("berlinclock.validation.failures", "operation", "decode").count());
+    }
+
+    @Test
+    @DisplayName("Request timers should be cached per URI pattern, method and outcome")
+    void testRequestTimerCache() {
+        BerlinClockMetrics metrics = new BerlinClockMetrics(registry, true);
+
+        Timer ok = metrics.requestTimer("/api/time", "GET", 200);
+        assertSame(ok, metrics.requestTimer("/api/time", "GET", 204));
+        assertNotSame(ok, metrics.requestTimer("/api/time", "GET", 400));
+        assertNotSame(ok, metrics.requestTimer("/api/time", "POST", 200));
+        assertSame(metrics.requestTimer(null, "DELETE", 404), metrics.requestTimer(null, "PUT", 405));
+
+        assertEquals("SUCCESS", ok.getId().getTag("outcome"));
+        assertEquals("OTHER", metrics.requestTimer(null, "PATCH", 500).getId().getTag("method"));
+        assertEquals(BerlinClockMetrics.UNKNOWN_URI, metrics.requestTimer(null, "GET", 404).getId().getTag("uri"));
+    }
+
+    @Test
+    @DisplayName("Disabled metrics should not register anything in the application registry")
+    void testDisabled() {
+        BerlinClockMetrics metrics = new BerlinClockMetrics(registry, false);
+
+        metrics.conversion();
+        metrics.requestTimer("/api/time", "GET", 200).record(Duration.ofMillis(1));
+
+        assertFalse(metrics.isEnabled());
+        assertTrue(registry.getMeters().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Filter should time requests under the matched URI pattern")
+    void testFilterRecordsRequest() throws Exception {
+        BerlinClockMetrics metrics = new BerlinClockMetrics(registry, true);
+        RequestMetricsFilter filter = new RequestMetricsFilter(metrics);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/time/decode/YOOOO");
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/time/decode/{lampString}");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        response.setStatus(400);
+
+        filter.doFilter(request, response, new MockFilterChain());
+
+        Timer timer = registry.find(BerlinClockMetrics.REQUESTS)
+                .tags("uri", "/api/time/decode/{lampString}", "method", "GET", "outcome", "CLIENT_ERROR")
+                .timer();
+        assertNotNull(timer);
+        assertEquals(1, timer.count());
+    }
+
+    @Test
+    @DisplayName("Filter should record a request whose handler threw as a server error and rethrow")
+    void testFilterRecordsException() {
+        RequestMetricsFilter filter = new RequestMetricsFilter(new BerlinClockMetrics(registry, true));
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/time");
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/time");
+        IllegalStateException failure = new IllegalStateException("boom");
+
+        IllegalStateException thrown = assertThrows(IllegalStateException.class,
+                () -> filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+                    throw failure;
+                }));
+
+        assertSame(failure, thrown);
+        Timer timer = registry.find(BerlinClockMetrics.REQUESTS)
+                .tags("uri", "/api/time", "method", "GET", "outcome", "SERVER_ERROR")
+                .timer();
+        assertNotNull(timer);
+        assertEquals(1, timer.count());
+        assertNull(registry.find(BerlinClockMetrics.REQUESTS).tag("outcome", "SUCCESS").timer());
+    }
+
+    @Test
+    @DisplayName("Filter should skip requests that went async")
+    void testFilterSkipsAsyncRequests() throws Exception {
+        RequestMetricsFilter filter = new RequestMetricsFilter(new BerlinClockMetrics(registry, true));
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/time/stream");
+        request.setAsyncSupported(true);
+
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> req.startAsync());
+
+        assertNull(registry.find(BerlinClockMetrics.REQUESTS).timer());
+    }
+}
@@ -0,0 +1,160 @@
+package com.carapax.berlinclock.web;
+
+import com.carapax.berlinclock.model.BerlinClockTime;
+import com.carapax.berlinclock.service.BerlinClockService;
+import com.carapax.berlinclock.service.ConversionMode;
+import com.carapax.berlinclock.service.SteppingClock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for BerlinClockSseBroadcaster.
+ * Uses a manual executor so delivery and backpressure are deterministic.
+ *
+ * @author Jose Benitez
+ */
+class BerlinClockSseBroadcasterTest {
+
+    private final BerlinClockService service = new BerlinClockService();
+    private final Queue<Runnable> senderTasks = new ArrayDeque<>();
+    private BerlinClockSseBroadcaster broadcaster;
+
+    @BeforeEach
+    void setUp() {
+        broadcaster = new BerlinClockSseBroadcaster(service, senderTasks::add, 3, 0, 1000, 60_000);
+    }
+
+    @Test
+    @DisplayName("Should send the latest time with a retry hint on subscribe")
+    void testSnapshotOnSubscribe() {
+        broadcaster.onTick(service.convertToBerlinTime("10:00:00"));
+        RecordingEmitter emitter = new RecordingEmitter();
+
+        broadcaster.subscribe(emitter);
+        runSenderTasks();
+
+        assertEquals(1, emitter.events.size());
+        assertTrue(emitter.events.get(0).contains("retry:1000"));
+        assertTrue(emitter.events.get(0).contains("\"currentTime\":\"10:00:00\""));
+        assertEquals(1, broadcaster.getSubscriberCount());
+    }
+
+    @Test
+    @DisplayName("Should deliver each tick to every subscriber")
+    void testFanOut() {
+        RecordingEmitter first = new RecordingEmitter();
+        RecordingEmitter second = new RecordingEmitter();
+        broadcaster.subscribe(first);
+        broadcaster.subscribe(second);
+        runSenderTasks();
+
+        broadcaster.onTick(service.convertToBerlinTime("10:00:01"));
+        runSenderTasks();
+
+        assertTrue(first.events.get(1).contains("\"currentTime\":\"10:00:01\""));
+        assertTrue(second.events.get(1).contains("\"currentTime\":\"10:00:01\""));
+    }
+
+    @Test
+    @DisplayName("Should send zoned subscribers the time in their zone")
+    void testZonedSubscriber() {
+        SteppingClock clock = new SteppingClock(Instant.parse("2024-01-15T09:00:00Z"), BerlinClockService.DEFAULT_ZONE);
+        BerlinClockService zonedService = new BerlinClockService(ConversionMode.LOOKUP, clock);
+        BerlinClockSseBroadcaster zoned = new BerlinClockSseBroadcaster(zonedService, senderTasks::add, 3, 0, 1000, 60_000);
+        RecordingEmitter berlin = new RecordingEmitter();
+        RecordingEmitter tokyo = new RecordingEmitter();
+        zoned.subscribe(berlin);
+        zoned.subscribe(tokyo, "Asia/Tokyo");
+
+        clock.advance(Duration.ofSeconds(1));
+        zoned.onTick(zonedService.publishCurrentTime());
+        runSenderTasks();
+
+        assertTrue(berlin.events.get(1).contains("\"currentTime\":\"10:00:01\""));
+        assertTrue(tokyo.events.get(0).contains("\"currentTime\":\"18:00:00\""));
+        assertTrue(tokyo.events.get(1).contains("\"currentTime\":\"18:00:01\""));
+    }
+
+    @Test
+    @DisplayName("Should drop the oldest ticks when a subscriber falls behind")
+    void testDropOldest() {
+        RecordingEmitter emitter = new RecordingEmitter();
+        broadcaster.subscribe(emitter);
+
+        for (int second = 1; second <= 10; second++) {
+            broadcaster.onTick(service.convertToBerlinTime(second));
+        }
+        runSenderTasks();
+
+        assertEquals(3, emitter.events.size(), "Only the buffer size worth of events should be sent");
+        assertTrue(emitter.events.get(0).contains("00:00:08"));
+        assertTrue(emitter.events.get(2).contains("00:00:10"));
+    }
+
+    @Test
+    @DisplayName("Should remove a subscriber whose connection fails")
+    void testRemovesBrokenSubscriber() {
+        RecordingEmitter emitter = new RecordingEmitter();
+        emitter.broken = true;
+
+        broadcaster.subscribe(emitter);
+        runSenderTasks();
+
+        assertEquals(0, broadcaster.getSubscriberCount());
+    }
+
+    @Test
+    @DisplayName("Should send a heartbeat comment every heartbeat interval")
+    void testHeartbeat() {
+        broadcaster = new BerlinClockSseBroadcaster(service, senderTasks::add, 8, 2, 1000, 60_000);
+        RecordingEmitter emitter = new RecordingEmitter();
+        broadcaster.subscribe(emitter);
+
+        broadcaster.onTick(service.convertToBerlinTime(1));
+        broadcaster.onTick(service.convertToBerlinTime(2));
+        runSenderTasks();
+
+        assertEquals(":heartbeat\n\n", emitter.events.get(emitter.events.size() - 1));
+    }
+
+    private void runSenderTasks() {
+        Runnable task;
+        while ((task = senderTasks.poll()) != null) {
+            task.run();
+        }
+    }
+
+    private static final class RecordingEmitter extends SseEmitter {
+
+        private final List<String> events = new ArrayList<>();
+        private boolean broken;
+
+        @Override
+        public synchronized void send(Set<DataWithMediaType> items) throws IOException {
+            if (broken) {
+                throw new IOException("Broken pipe");
+            }
+            StringBuilder event = new StringBuilder();
+            for (DataWithMediaType item : items) {
+                Object data = item.getData();
+                event.append(data instanceof byte[] bytes ? new String(bytes, StandardCharsets.UTF_8) : data);
+            }
+            events.add(event.toString());
+        }
+    }
+}
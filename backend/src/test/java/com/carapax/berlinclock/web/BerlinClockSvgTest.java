@@ -0,0 +1,121 @@
+package com.carapax.berlinclock.web;
+
+import com.carapax.berlinclock.service.BerlinClockService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for BerlinClockSvg.
+ *
+ * @author Jose Benitez
+ */
+class BerlinClockSvgTest {
+
+    private final BerlinClockService service = new BerlinClockService();
+
+    @Test
+    @DisplayName("Every second of the day should map to one of 2880 slots, one per lamp pattern")
+    void testSlots() {
+        Set<Integer> slots = new HashSet<>();
+        Set<Integer> states = new HashSet<>();
+        for (int secondOfDay = 0; secondOfDay < BerlinClockService.SECONDS_PER_DAY; secondOfDay++) {
+            int packedState = service.toPackedState(secondOfDay);
+            int slot = BerlinClockSvg.slot(packedState);
+            assertTrue(slot >= 0 && slot < BerlinClockSvg.DISTINCT_STATES, "Slot " + slot);
+            slots.add(slot);
+            states.add(packedState);
+        }
+        assertEquals(BerlinClockSvg.DISTINCT_STATES, slots.size());
+        assertEquals(BerlinClockSvg.DISTINCT_STATES, states.size());
+    }
+
+    @Test
+    @DisplayName("Lamp patterns no time shows should have no slot")
+    void testNoSlotForImpossibleStates() {
+        // A five-hour lamp lit after an unlit one
+        assertEquals(-1, BerlinClockSvg.slot(0b100));
+        // All eight hour lamps
+        assertEquals(-1, BerlinClockSvg.slot(0x1FE));
+        assertEquals(-1, BerlinClockSvg.slot(1 << 24));
+    }
+
+    @Test
+    @DisplayName("A repeated render should return the cached image, and impossible states should not be cached")
+    void testRenderCache() {
+        BerlinClockSvg svg = new BerlinClockSvg(true);
+        int packedState = service.toPackedState(13 * 3600 + 17 * 60 + 1);
+
+        BerlinClockSvg.Image image = svg.render(packedState);
+
+        assertSame(image, svg.render(packedState));
+        assertNotSame(svg.render(0b100), svg.render(0b100));
+        assertEquals(1, svg.getCachedCount());
+        assertEquals("\"300ee7-svg\"", image.etag(false));
+        assertEquals("\"300ee7-svgz\"", image.etag(true));
+    }
+
+    @Test
+    @DisplayName("The image should draw all 24 lamps with the lit ones in their colour")
+    void testDrawsLamps() {
+        int packedState = service.toPackedState(13 * 3600 + 17 * 60 + 1);
+
+        String svg = new String(new BerlinClockSvg(false).render(packedState).svg(), StandardCharsets.US_ASCII);
+
+        assertTrue(svg.startsWith("<svg xmlns=\"http://www.w3.org/2000/svg\""));
+        assertTrue(svg.endsWith("</svg>"));
+        assertEquals(1, count(svg, "<circle "));
+        // 23 rectangular lamps and the background
+        assertEquals(24, count(svg, "<rect "));
+        assertEquals(Integer.bitCount(packedState), count(svg, "url(#R)") + count(svg, "url(#Y)"));
+        // Two five-hour, three single-hour and the first quarter-hour lamp
+        assertEquals(6, count(svg, "url(#R)"));
+    }
+
+    @Test
+    @DisplayName("The gzip form should inflate to the SVG, and be absent when gzip is off")
+    void testGzip() throws IOException {
+        int packedState = service.toPackedState(0);
+        BerlinClockSvg.Image image = new BerlinClockSvg(true).render(packedState);
+        BerlinClockSvg.Image plain = new BerlinClockSvg(false).render(packedState);
+
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(image.gzipped()))) {
+            assertArrayEquals(image.svg(), in.readAllBytes());
+        }
+        assertTrue(image.gzipped().length < image.svg().length);
+        assertSame(image.gzipped(), image.body(true));
+        assertSame(image.svg(), image.body(false));
+        assertNull(plain.gzipped());
+        assertFalse(plain.sendsGzip(true));
+        assertArrayEquals(image.svg(), plain.body(true));
+    }
+
+    @Test
+    @DisplayName("gzip should be accepted by name or wildcard unless its quality is 0")
+    void testAcceptsGzip() {
+        assertTrue(BerlinClockSvg.acceptsGzip("gzip, deflate, br"));
+        assertTrue(BerlinClockSvg.acceptsGzip("br;q=1.0, GZIP;q=0.5"));
+        assertTrue(BerlinClockSvg.acceptsGzip("*"));
+        assertFalse(BerlinClockSvg.acceptsGzip(null));
+        assertFalse(BerlinClockSvg.acceptsGzip("identity"));
+        assertFalse(BerlinClockSvg.acceptsGzip("gzip;q=0"));
+        assertFalse(BerlinClockSvg.acceptsGzip("*, gzip;q=0.0"));
+    }
+
+    private static int count(String text, String part) {
+        int count = 0;
+        for (int i = text.indexOf(part); i >= 0; i = text.indexOf(part, i + 1)) {
+            count++;
+        }
+        return count;
+    }
+}
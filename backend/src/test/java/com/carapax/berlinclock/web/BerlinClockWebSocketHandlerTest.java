@@ -0,0 +1,225 @@
+package com.carapax.berlinclock.web;
+
+import com.carapax.berlinclock.model.BerlinClockTime;
+import com.carapax.berlinclock.service.BerlinClockService;
+import com.carapax.berlinclock.service.ConversionMode;
+import com.carapax.berlinclock.service.SteppingClock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for BerlinClockWebSocketHandler.
+ * Sender tasks run inline so frames are observed synchronously.
+ *
+ * @author Jose Benitez
+ */
+class BerlinClockWebSocketHandlerTest {
+
+    private final BerlinClockService service = new BerlinClockService();
+    private BerlinClockWebSocketHandler handler;
+
+    @BeforeEach
+    void setUp() {
+        handler = new BerlinClockWebSocketHandler(service, Runnable::run, 8);
+    }
+
+    @Test
+    @DisplayName("Should send a full snapshot on connect")
+    void testSnapshotOnConnect() throws Exception {
+        handler.onTick(service.convertToBerlinTime("10:15:01"));
+        WebSocketSession session = session("1", "minute");
+
+        handler.afterConnectionEstablished(session);
+
+        List<String> frames = frames(session);
+        assertEquals(1, frames.size());
+        assertEquals("{\"type\":\"snapshot\",\"granularity\":\"minute\",\"secondsLamp\":\"Y\","
+                + "\"fiveHoursRow\":\"RROO\",\"singleHoursRow\":\"OOOO\",\"fiveMinutesRow\":\"YYROOOOOOOO\","
+                + "\"singleMinutesRow\":\"OOOO\",\"currentTime\":\"10:15:01\"}", frames.get(0));
+    }
+
+    @Test
+    @DisplayName("Second subscribers should get only the changed rows every tick")
+    void testSecondDeltas() throws Exception {
+        handler.onTick(service.convertToBerlinTime("10:15:01"));
+        WebSocketSession session = session("1", null);
+        handler.afterConnectionEstablished(session);
+
+        handler.onTick(service.convertToBerlinTime("10:15:02"));
+
+        assertEquals("{\"type\":\"delta\",\"currentTime\":\"10:15:02\",\"secondsLamp\":\"O\"}", frames(session).get(1));
+    }
+
+    @Test
+    @DisplayName("Minute subscribers should get one frame per minute without the seconds lamp")
+    void testMinuteDeltas() throws Exception {
+        handler.onTick(service.convertToBerlinTime("10:15:58"));
+        WebSocketSession session = session("1", "minute");
+        handler.afterConnectionEstablished(session);
+
+        handler.onTick(service.convertToBerlinTime("10:15:59"));
+        handler.onTick(service.convertToBerlinTime("10:16:00"));
+        handler.onTick(service.convertToBerlinTime("10:16:01"));
+
+        List<String> frames = frames(session);
+        assertEquals(2, frames.size(), "Snapshot plus one minute frame");
+        assertEquals("{\"type\":\"delta\",\"currentTime\":\"10:16:00\",\"singleMinutesRow\":\"YOOO\"}", frames.get(1));
+    }
+
+    @Test
+    @DisplayName("Hour subscribers should only get hour rows when the hour changes")
+    void testHourDeltas() throws Exception {
+        handler.onTick(service.convertToBerlinTime("09:59:59"));
+        WebSocketSession session = session("1", "hour");
+        handler.afterConnectionEstablished(session);
+
+        handler.onTick(service.convertToBerlinTime("10:00:00"));
+        handler.onTick(service.convertToBerlinTime("10:00:01"));
+
+        List<String> frames = frames(session);
+        assertEquals(2, frames.size());
+        assertEquals("{\"type\":\"delta\",\"currentTime\":\"10:00:00\",\"fiveHoursRow\":\"RROO\","
+                + "\"singleHoursRow\":\"OOOO\"}", frames.get(1));
+    }
+
+    @Test
+    @DisplayName("Should share one frame instance between subscribers")
+    void testSharedFrames() throws Exception {
+        handler.onTick(service.convertToBerlinTime("10:15:01"));
+        WebSocketSession first = session("1", null);
+        WebSocketSession second = session("2", null);
+        handler.afterConnectionEstablished(first);
+        handler.afterConnectionEstablished(second);
+
+        handler.onTick(service.convertToBerlinTime("10:15:02"));
+
+        assertSame(messages(first).get(1), messages(second).get(1));
+    }
+
+    @Test
+    @DisplayName("Should switch granularity on a text message and resend a snapshot")
+    void testChangeGranularity() throws Exception {
+        WebSocketSession session = session("1", null);
+        handler.afterConnectionEstablished(session);
+
+        handler.handleTextMessage(session, new TextMessage("hour"));
+        handler.handleTextMessage(session, new TextMessage("fortnight"));
+
+        List<String> frames = frames(session);
+        assertTrue(frames.get(1).startsWith("{\"type\":\"snapshot\",\"granularity\":\"hour\""));
+        assertTrue(frames.get(2).contains("\"type\":\"error\""));
+    }
+
+    @Test
+    @DisplayName("Should send zoned subscribers the time in their zone")
+    void testZonedSubscriber() throws Exception {
+        SteppingClock clock = new SteppingClock(Instant.parse("2024-01-15T09:00:00Z"), BerlinClockService.DEFAULT_ZONE);
+        BerlinClockService zonedService = new BerlinClockService(ConversionMode.LOOKUP, clock);
+        BerlinClockWebSocketHandler zoned = new BerlinClockWebSocketHandler(zonedService, Runnable::run, 8);
+        WebSocketSession berlin = session("1", null);
+        WebSocketSession tokyo = session("2", "?zone=Asia/Tokyo");
+        zoned.onTick(zonedService.publishCurrentTime());
+        zoned.afterConnectionEstablished(berlin);
+        zoned.afterConnectionEstablished(tokyo);
+
+        clock.advance(Duration.ofSeconds(1));
+        zoned.onTick(zonedService.publishCurrentTime());
+
+        assertEquals("{\"type\":\"delta\",\"currentTime\":\"10:00:01\",\"secondsLamp\":\"Y\"}", frames(berlin).get(1));
+        assertTrue(frames(tokyo).get(0).endsWith("\"currentTime\":\"18:00:00\"}"));
+        assertEquals("{\"type\":\"delta\",\"currentTime\":\"18:00:01\",\"secondsLamp\":\"Y\"}", frames(tokyo).get(1));
+    }
+
+    @Test
+    @DisplayName("A client whose sender is blocked should end on the newest state, not lose deltas")
+    void testBlockedSender() throws Exception {
+        Queue<Runnable> senderTasks = new ArrayDeque<>();
+        BerlinClockWebSocketHandler blocked = new BerlinClockWebSocketHandler(service, senderTasks::add, 1);
+        WebSocketSession seconds = session("1", null);
+        WebSocketSession hours = session("2", "hour");
+        blocked.onTick(service.convertToBerlinTime("09:59:58"));
+        blocked.afterConnectionEstablished(seconds);
+        blocked.afterConnectionEstablished(hours);
+
+        // Each snapshot is still waiting for its sender, so every change overflows the buffer
+        blocked.onTick(service.convertToBerlinTime("09:59:59"));
+        blocked.onTick(service.convertToBerlinTime("10:00:00"));
+        blocked.onTick(service.convertToBerlinTime("10:00:01"));
+        while (!senderTasks.isEmpty()) {
+            senderTasks.poll().run();
+        }
+
+        assertEquals(List.of("{\"type\":\"snapshot\",\"granularity\":\"second\",\"secondsLamp\":\"Y\","
+                + "\"fiveHoursRow\":\"RROO\",\"singleHoursRow\":\"OOOO\",\"fiveMinutesRow\":\"OOOOOOOOOOO\","
+                + "\"singleMinutesRow\":\"OOOO\",\"currentTime\":\"10:00:01\"}"), frames(seconds));
+        assertEquals(List.of("{\"type\":\"snapshot\",\"granularity\":\"hour\",\"secondsLamp\":\"O\","
+                + "\"fiveHoursRow\":\"RROO\",\"singleHoursRow\":\"OOOO\",\"fiveMinutesRow\":\"OOOOOOOOOOO\","
+                + "\"singleMinutesRow\":\"OOOO\",\"currentTime\":\"10:00:00\"}"), frames(hours));
+
+        // Caught up, the next delta applies to the state the client actually has
+        blocked.onTick(service.convertToBerlinTime("10:00:02"));
+        senderTasks.poll().run();
+        assertEquals("{\"type\":\"delta\",\"currentTime\":\"10:00:02\",\"secondsLamp\":\"O\"}", frames(seconds).get(1));
+    }
+
+    @Test
+    @DisplayName("Should close the session with status 1007 for an unknown zone")
+    void testUnknownZone() throws Exception {
+        WebSocketSession session = session("1", "?zone=Mars/Olympus");
+
+        handler.afterConnectionEstablished(session);
+
+        verify(session).close(CloseStatus.BAD_DATA.withReason(BerlinClockService.UNKNOWN_ZONE_MESSAGE));
+        verify(session, never()).sendMessage(any());
+        assertEquals(0, handler.getSubscriberCount());
+    }
+
+    @Test
+    @DisplayName("Should forget closed sessions")
+    void testClose() throws Exception {
+        WebSocketSession session = session("1", null);
+        handler.afterConnectionEstablished(session);
+
+        handler.afterConnectionClosed(session, CloseStatus.NORMAL);
+
+        assertEquals(0, handler.getSubscriberCount());
+    }
+
+    /**
+     * @param granularity granularity query parameter, or a whole query string starting with '?'
+     */
+    private static WebSocketSession session(String id, String granularity) {
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn(id);
+        String query = granularity == null ? "" : granularity.startsWith("?") ? granularity : "?granularity=" + granularity;
+        when(session.getUri()).thenReturn(URI.create("ws://localhost/api/time/ws" + query));
+        return session;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<WebSocketMessage<?>> messages(WebSocketSession session) throws Exception {
+        ArgumentCaptor<WebSocketMessage<?>> captor = ArgumentCaptor.forClass(WebSocketMessage.class);
+        verify(session, atLeastOnce()).sendMessage(captor.capture());
+        return captor.getAllValues();
+    }
+
+    private static List<String> frames(WebSocketSession session) throws Exception {
+        return messages(session).stream().map(message -> (String) message.getPayload()).toList();
+    }
+}
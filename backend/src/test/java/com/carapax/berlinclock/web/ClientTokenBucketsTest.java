@@ -0,0 +1,131 @@
+package com.carapax.berlinclock.web;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ClientTokenBuckets, on a clock the tests move by hand.
+ *
+ * @author Jose Benitez
+ */
+class ClientTokenBucketsTest {
+
+    private static final long MILLI = 1_000_000L;
+
+    private final AtomicLong clock = new AtomicLong(123 * MILLI);
+
+    @Test
+    @DisplayName("A client should get its burst at once and then one request per token interval")
+    void testBurstThenRate() {
+        ClientTokenBuckets buckets = buckets(new int[]{10}, new int[]{3}, 100);
+
+        assertTrue(buckets.tryAcquire("10.0.0.1", 0));
+        assertTrue(buckets.tryAcquire("10.0.0.1", 0));
+        assertTrue(buckets.tryAcquire("10.0.0.1", 0));
+        assertFalse(buckets.tryAcquire("10.0.0.1", 0));
+
+        clock.addAndGet(99 * MILLI);
+        assertFalse(buckets.tryAcquire("10.0.0.1", 0));
+        clock.addAndGet(MILLI);
+        assertTrue(buckets.tryAcquire("10.0.0.1", 0));
+        assertFalse(buckets.tryAcquire("10.0.0.1", 0));
+
+        clock.addAndGet(1000 * MILLI);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(buckets.tryAcquire("10.0.0.1", 0));
+        }
+        assertFalse(buckets.tryAcquire("10.0.0.1", 0));
+    }
+
+    @Test
+    @DisplayName("Clients and routes should have separate buckets, and a rate of 0 should not limit")
+    void testSeparateBuckets() {
+        ClientTokenBuckets buckets = buckets(new int[]{1, 1, 0}, new int[]{1, 1, 1}, 100);
+
+        assertTrue(buckets.tryAcquire("10.0.0.1", 0));
+        assertFalse(buckets.tryAcquire("10.0.0.1", 0));
+        assertTrue(buckets.tryAcquire("10.0.0.1", 1));
+        assertTrue(buckets.tryAcquire("10.0.0.2", 0));
+        for (int i = 0; i < 100; i++) {
+            assertTrue(buckets.tryAcquire("10.0.0.1", 2));
+        }
+        assertEquals(2, buckets.size());
+    }
+
+    @Test
+    @DisplayName("A full table should drop idle clients and otherwise make new clients share a bucket")
+    void testBoundedWithIdleEviction() {
+        ClientTokenBuckets buckets = buckets(new int[]{1}, new int[]{1}, 1);
+        int clients = 10_000;
+
+        for (int i = 0; i < clients; i++) {
+            buckets.tryAcquire("10.0.0." + i, 0);
+        }
+        int tracked = buckets.size();
+        assertTrue(tracked < clients, "Tracked " + tracked + " clients");
+        // Stripes are full, so new clients share one overflow bucket per stripe
+        int admitted = 0;
+        for (int i = 0; i < clients; i++) {
+            if (buckets.tryAcquire("10.0.1." + i, 0)) {
+                admitted++;
+            }
+        }
+        assertTrue(admitted <= tracked, "Admitted " + admitted);
+
+        clock.addAndGet(61_000 * MILLI);
+        assertTrue(buckets.tryAcquire("10.0.2.1", 0));
+        assertTrue(buckets.size() <= tracked);
+    }
+
+    @Test
+    @DisplayName("Up to maxClients clients should each get their own bucket despite uneven stripes")
+    void testNoOverflowWithinMaxClients() {
+        ClientTokenBuckets buckets = buckets(new int[]{1}, new int[]{1}, 4096);
+
+        for (int i = 0; i < 4096; i++) {
+            assertTrue(buckets.tryAcquire("10.0." + i / 256 + "." + i % 256, 0));
+        }
+
+        assertEquals(4096, buckets.size());
+    }
+
+    @Test
+    @DisplayName("Concurrent requests from one client should never be admitted past the burst")
+    void testConcurrentAcquire() throws Exception {
+        ClientTokenBuckets buckets = new ClientTokenBuckets(new int[]{1}, new int[]{500}, 100, Duration.ofSeconds(60),
+                clock::get);
+        List<Future<Integer>> workers = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            for (int t = 0; t < 8; t++) {
+                workers.add(executor.submit(() -> {
+                    int admitted = 0;
+                    for (int i = 0; i < 1000; i++) {
+                        if (buckets.tryAcquire("10.0.0.1", 0)) {
+                            admitted++;
+                        }
+                    }
+                    return admitted;
+                }));
+            }
+            int admitted = 0;
+            for (Future<Integer> worker : workers) {
+                admitted += worker.get();
+            }
+            assertEquals(500, admitted);
+        }
+    }
+
+    private ClientTokenBuckets buckets(int[] rates, int[] bursts, int maxClients) {
+        return new ClientTokenBuckets(rates, bursts, maxClients, Duration.ofSeconds(60), clock::get);
+    }
+}
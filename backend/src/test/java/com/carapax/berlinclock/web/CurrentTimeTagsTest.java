@@ -0,0 +1,54 @@
+package com.carapax.berlinclock.web;
+
+import com.carapax.berlinclock.service.BerlinClockService;
+import com.carapax.berlinclock.service.ConversionMode;
+import com.carapax.berlinclock.service.CurrentTime;
+import com.carapax.berlinclock.service.SteppingClock;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for CurrentTimeTags.
+ *
+ * @author Jose Benitez
+ */
+class CurrentTimeTagsTest {
+
+    private final SteppingClock clock =
+            new SteppingClock(Instant.parse("2024-01-15T12:17:01Z"), BerlinClockService.DEFAULT_ZONE);
+    private final BerlinClockService service = new BerlinClockService(ConversionMode.LOOKUP, clock);
+
+    @Test
+    @DisplayName("Should build the lamp state tags and the end of the clock's second")
+    void testTags() {
+        CurrentTime current = service.getCurrentTime(null);
+
+        CurrentTimeTags tags = CurrentTimeTags.of(current);
+
+        assertEquals("\"300ee7-01\"", tags.json(false));
+        assertEquals("\"300ee7-01p\"", tags.json(true));
+        assertEquals("\"300ee7\"", tags.packed());
+        assertEquals("@" + Instant.parse("2024-01-15T12:17:02Z").getEpochSecond(), tags.expires());
+    }
+
+    @Test
+    @DisplayName("Should reuse the tags within a second and zone and rebuild them for the next second")
+    void testCache() {
+        CurrentTimeTags first = CurrentTimeTags.of(service.getCurrentTime(null));
+        CurrentTimeTags tokyo = CurrentTimeTags.of(service.getCurrentTime("Asia/Tokyo"));
+
+        assertSame(first, CurrentTimeTags.of(service.getCurrentTime(null)));
+        assertSame(tokyo, CurrentTimeTags.of(service.getCurrentTime("Asia/Tokyo")));
+        assertNotSame(first, tokyo);
+
+        clock.advance(Duration.ofSeconds(1));
+        CurrentTimeTags next = CurrentTimeTags.of(service.getCurrentTime(null));
+        assertNotSame(first, next);
+        assertEquals("\"300ee6-02\"", next.json(false));
+    }
+}
@@ -0,0 +1,70 @@
+package com.carapax.berlinclock.web;
+
+import com.carapax.berlinclock.model.BerlinClockTime;
+import com.carapax.berlinclock.service.BerlinClockService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for LampDiffJson.
+ *
+ * @author Jose Benitez
+ */
+class LampDiffJsonTest {
+
+    private final BerlinClockService service = new BerlinClockService();
+
+    @Test
+    @DisplayName("Should list the changed lamp with its new colour")
+    void testSingleLamp() {
+        int from = 13 * 3600 + 17 * 60;
+
+        byte[] json = LampDiffJson.diff(from, from + 1, service.changedLamps(from, from + 1),
+                service.toPackedState(from + 1));
+
+        assertEquals("{\"from\":\"13:17:00\",\"to\":\"13:17:01\",\"changes\":[{\"lamp\":0,\"colour\":\"Y\"}]}",
+                new String(json, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("Should be valid JSON whose changes turn one lamp string into the other")
+    void testAllLamps() throws Exception {
+        int from = 23 * 3600 + 59 * 60 + 59;
+        int to = 0;
+        char[] lamps = lampString(service.convertToBerlinTime(from)).toCharArray();
+
+        JsonNode diff = new ObjectMapper().readTree(
+                LampDiffJson.diff(from, to, service.changedLamps(from, to), service.toPackedState(to)));
+
+        assertEquals("23:59:59", diff.get("from").asText());
+        assertEquals("00:00:00", diff.get("to").asText());
+        assertEquals(BerlinClockTime.PACKED_LAMP_COUNT - 1, diff.get("changes").size());
+        for (JsonNode change : diff.get("changes")) {
+            lamps[change.get("lamp").asInt()] = change.get("colour").asText().charAt(0);
+        }
+        assertEquals(lampString(service.convertToBerlinTime(to)), new String(lamps));
+    }
+
+    @Test
+    @DisplayName("A step with every lamp changed should fit the step buffer")
+    void testMaxStepLength() {
+        byte[] buffer = new byte[LampDiffJson.MAX_STEP_LENGTH];
+
+        int length = LampDiffJson.writeStep(buffer, 86_399, BerlinClockTime.PACKED_STATE_MASK,
+                BerlinClockTime.PACKED_STATE_MASK);
+
+        assertTrue(length <= buffer.length);
+        assertTrue(new String(buffer, 0, length, StandardCharsets.UTF_8).endsWith("{\"lamp\":23,\"colour\":\"Y\"}]}"));
+    }
+
+    private static String lampString(BerlinClockTime time) {
+        return time.getSecondsLamp() + time.getFiveHoursRow() + time.getSingleHoursRow()
+                + time.getFiveMinutesRow() + time.getSingleMinutesRow();
+    }
+}
@@ -0,0 +1,83 @@
+package com.carapax.berlinclock.web;
+
+import com.carapax.berlinclock.model.BerlinClockTime;
+import com.carapax.berlinclock.service.BerlinClockService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for LampSequenceWriter.
+ * The patched NDJSON lines must match BerlinClockJson for every state, including across hour and minute turns.
+ *
+ * @author Jose Benitez
+ */
+class LampSequenceWriterTest {
+
+    private final BerlinClockService service = new BerlinClockService();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    @DisplayName("NDJSON lines should match BerlinClockJson for every state of the range")
+    void testNdjsonMatchesJson() throws Exception {
+        int from = 9 * 3600 + 58 * 60;
+        int to = 15 * 3600 + 2 * 60;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        int count = LampSequenceWriter.writeNdjson(service.sequence(from, to, 13), out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(count, lines.length);
+        assertEquals(LampSequenceWriter.ndjsonLength(count), out.size());
+        for (int i = 0; i < count; i++) {
+            String expected = new String(BerlinClockJson.toBytes(service.convertToBerlinTime(from + i * 13), false),
+                    StandardCharsets.UTF_8);
+            assertEquals(expected, lines[i]);
+        }
+    }
+
+    @Test
+    @DisplayName("Packed output should be the 3-byte state of each step, back to back")
+    void testPacked() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        int count = LampSequenceWriter.writePacked(service.sequence(0, 3599, 60), out);
+
+        byte[] bytes = out.toByteArray();
+        assertEquals(60, count);
+        assertEquals(60 * PackedStateWire.BYTES, bytes.length);
+        for (int minute = 0; minute < 60; minute++) {
+            byte[] state = {bytes[3 * minute], bytes[3 * minute + 1], bytes[3 * minute + 2]};
+            assertEquals(service.toPackedState(minute * 60), PackedStateWire.fromBytes(state));
+        }
+    }
+
+    @Test
+    @DisplayName("Applying each diff line in turn should reproduce every state of the range")
+    void testDiffNdjson() throws Exception {
+        int from = 4 * 3600 + 55 * 60;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        int count = LampSequenceWriter.writeDiffNdjson(service.sequence(from, from + 3600, 29), out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(count, lines.length);
+        char[] lamps = new char[BerlinClockTime.PACKED_LAMP_COUNT];
+        for (int i = 0; i < count; i++) {
+            JsonNode step = objectMapper.readTree(lines[i]);
+            BerlinClockTime expected = service.convertToBerlinTime(from + i * 29);
+            assertEquals(expected.getCurrentTime(), step.get("time").asText());
+            for (JsonNode change : step.get("changes")) {
+                lamps[change.get("lamp").asInt()] = change.get("colour").asText().charAt(0);
+            }
+            assertEquals(expected.toPackedState(), BerlinClockTime.packLampString(new String(lamps)),
+                    "Mismatch at " + expected.getCurrentTime());
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.carapax.berlinclock.web;
+
+import com.carapax.berlinclock.model.BerlinClockTime;
+import com.carapax.berlinclock.service.BerlinClockService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for LampStateJsonReader.
+ *
+ * @author Jose Benitez
+ */
+class LampStateJsonReaderTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final LampStateJsonReader reader = new LampStateJsonReader(objectMapper);
+
+    @Test
+    @DisplayName("Should pack the same state as BerlinClockTime for every second of the day")
+    void testMatchesModelPacking() throws Exception {
+        BerlinClockService service = new BerlinClockService();
+
+        for (int secondOfDay = 0; secondOfDay < BerlinClockService.SECONDS_PER_DAY; secondOfDay += 7) {
+            BerlinClockTime time = service.convertToBerlinTime(secondOfDay);
+            assertEquals(time.toPackedState(), reader.readPackedState(objectMapper.writeValueAsString(time)),
+                    "Mismatch at " + time.getCurrentTime());
+        }
+    }
+
+    @Test
+    @DisplayName("Should read from a stream and skip fields other than the lamp rows")
+    void testReadsStreamAndSkipsUnknownFields() throws Exception {
+        String json = """
+                {"currentTime":"13:17:01","extra":{"nested":[1,2]},"secondsLamp":"Y","fiveHoursRow":"RROO",
+                 "singleHoursRow":"RRRO","fiveMinutesRow":"YYROOOOOOOO","singleMinutesRow":"YYOO"}
+                """;
+        int expected = new BerlinClockTime("Y", "RROO", "RRRO", "YYROOOOOOOO", "YYOO", null).toPackedState();
+
+        assertEquals(expected, reader.readPackedState(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8))));
+    }
+
+    @ParameterizedTest
+    @DisplayName("Should reject wrong lengths, wrong colours, missing rows and non-string rows")
+    @ValueSource(strings = {
+            "{\"secondsLamp\":\"Y\",\"fiveHoursRow\":\"RRRRR\",\"singleHoursRow\":\"OOOO\",\"fiveMinutesRow\":\"OOOOOOOOOOO\",\"singleMinutesRow\":\"OOOO\"}",
+            "{\"secondsLamp\":\"R\",\"fiveHoursRow\":\"OOOO\",\"singleHoursRow\":\"OOOO\",\"fiveMinutesRow\":\"OOOOOOOOOOO\",\"singleMinutesRow\":\"OOOO\"}",
+            "{\"secondsLamp\":\"Y\",\"fiveHoursRow\":\"OOOO\",\"singleHoursRow\":\"OOOO\",\"fiveMinutesRow\":\"YYYOOOOOOOO\",\"singleMinutesRow\":\"OOOO\"}",
+            "{\"secondsLamp\":\"Y\",\"fiveHoursRow\":\"OOOO\",\"singleHoursRow\":\"OOOO\",\"fiveMinutesRow\":\"OOOOOOOOOOO\"}",
+            "{\"secondsLamp\":null,\"fiveHoursRow\":\"OOOO\",\"singleHoursRow\":\"OOOO\",\"fiveMinutesRow\":\"OOOOOOOOOOO\",\"singleMinutesRow\":\"OOOO\"}",
+            "{\"secondsLamp\":\"Y\",\"fiveHoursRow\":\"OOOO\",\"singleHoursRow\":\"OOOO\",\"fiveMinutesRow\":\"OOOOOOOOOOO\",\"singleMinutesRow\":\"OOOO\"} {}",
+            "[]"
+    })
+    void testRejectsInvalidRows(String json) {
+        assertThrows(IllegalArgumentException.class, () -> reader.readPackedState(json));
+    }
+
+    @Test
+    @DisplayName("Should report malformed JSON as a parse error")
+    void testRejectsMalformedJson() {
+        assertThrows(JsonProcessingException.class, () -> reader.readPackedState("{\"secondsLamp\":\"Y\","));
+    }
+}
@@ -0,0 +1,145 @@
+package com.carapax.berlinclock.web;
+
+import com.carapax.berlinclock.service.BerlinClockService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for NdjsonBatchProcessor.
+ *
+ * @author Jose Benitez
+ */
+class NdjsonBatchProcessorTest {
+
+    private final NdjsonBatchProcessor processor = new NdjsonBatchProcessor(new BerlinClockService(), new ObjectMapper());
+
+    @Test
+    @DisplayName("Should convert one time per line and report bad lines individually")
+    void testConvert() throws IOException {
+        String output = convert("13:17:01\r\n\"00:00:00\"\n\nnot-a-time\n23:59:59");
+
+        String[] lines = output.split("\n");
+        assertEquals(4, lines.length);
+        assertTrue(lines[0].contains("\"currentTime\":\"13:17:01\""));
+        assertTrue(lines[1].contains("\"currentTime\":\"00:00:00\""));
+        assertEquals("{\"line\":4,\"error\":\"Invalid time format. Expected HH:mm:ss\"}", lines[2]);
+        assertTrue(lines[3].contains("\"currentTime\":\"23:59:59\""));
+        assertTrue(output.endsWith("\n"));
+    }
+
+    @Test
+    @DisplayName("Should decode one BerlinClockTime object per line")
+    void testDecode() throws IOException {
+        String input = """
+                {"secondsLamp":"Y","fiveHoursRow":"RROO","singleHoursRow":"RRRO","fiveMinutesRow":"YYROOOOOOOO","singleMinutesRow":"YYOO"}
+                {broken json
+                {"secondsLamp":"O","fiveHoursRow":"RRRRR","singleHoursRow":"OOOO","fiveMinutesRow":"OOOOOOOOOOO","singleMinutesRow":"OOOO"}
+                """;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        processor.decode(stream(input), out);
+
+        assertEquals("""
+                {"time":"13:17:01"}
+                {"line":2,"error":"Invalid Berlin Clock format"}
+                {"line":3,"error":"Invalid Berlin Clock format"}
+                """, out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("Should reject overlong lines without buffering them")
+    void testLineTooLong() throws IOException {
+        String input = "x".repeat(NdjsonBatchProcessor.MAX_LINE_LENGTH + 1) + "\n12:00:00\n";
+
+        String[] lines = convert(input).split("\n");
+
+        assertEquals("{\"line\":1,\"error\":\"Line exceeds 4096 bytes\"}", lines[0]);
+        assertTrue(lines[1].contains("\"currentTime\":\"12:00:00\""));
+    }
+
+    @Test
+    @DisplayName("Should stream a large batch with results written as they are produced")
+    void testStreamsLargeBatch() throws IOException {
+        int lines = 50_000;
+        InputStream in = new GeneratedTimes(lines);
+        CountingOutputStream out = new CountingOutputStream();
+
+        processor.convert(in, out);
+
+        assertEquals(lines, out.newlines);
+        assertTrue(out.writes > 1, "Output should be flushed in chunks, not once at the end");
+    }
+
+    private String convert(String input) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        processor.convert(stream(input), out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private static InputStream stream(String input) {
+        return new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Produces "HH:mm:ss\n" lines on demand without holding the whole input.
+     */
+    private static final class GeneratedTimes extends InputStream {
+
+        private final int lines;
+        private int line;
+        private byte[] current = new byte[0];
+        private int position;
+
+        GeneratedTimes(int lines) {
+            this.lines = lines;
+        }
+
+        @Override
+        public int read() {
+            if (position == current.length) {
+                if (line == lines) {
+                    return -1;
+                }
+                int secondOfDay = line++ % BerlinClockService.SECONDS_PER_DAY;
+                current = String.format("%02d:%02d:%02d%n", secondOfDay / 3600, (secondOfDay / 60) % 60,
+                        secondOfDay % 60).getBytes(StandardCharsets.UTF_8);
+                position = 0;
+            }
+            return current[position++];
+        }
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+
+        private long newlines;
+        private int writes;
+
+        @Override
+        public void write(int b) {
+            writes++;
+            if (b == '\n') {
+                newlines++;
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            writes++;
+            for (int i = off; i < off + len; i++) {
+                if (b[i] == '\n') {
+                    newlines++;
+                }
+            }
+        }
+    }
+}
@@ -1,5 +1,5 @@
 import { describe, it, expect, vi, beforeEach, afterEach } from 'vitest';
-import { render, screen, waitFor } from '@testing-library/react';
+import { act, render, screen, waitFor } from '@testing-library/react';
 import { RealTimeClock } from './RealTimeClock';
 import { api } from '../services/api';
 import type { BerlinClockTime } from '../types';
@@ -18,6 +18,8 @@ describe('RealTimeClock', () => {
 
   beforeEach(() => {
     vi.clearAllMocks();
+    // No EventSource by default, so the component polls
+    vi.mocked(api.subscribeToTime).mockReturnValue(null);
   });
 
   afterEach(() => {
@@ -152,4 +154,46 @@ describe('RealTimeClock', () => {
     // Fetch should happen immediately (within a small margin for test execution)
     expect(fetchTime - startTime).toBeLessThan(100);
   });
-});
\ No newline at end of file
+
+  it('uses the event stream when available instead of polling', async () => {
+    let push: ((time: BerlinClockTime) => void) | undefined;
+    vi.mocked(api.subscribeToTime).mockImplementation((onTime) => {
+      push = onTime;
+      return () => {};
+    });
+
+    render(<RealTimeClock />);
+    act(() => push?.(mockTime));
+
+    await waitFor(() => {
+      expect(screen.getByText('13:32:45')).toBeInTheDocument();
+    });
+    expect(api.getCurrentTime).not.toHaveBeenCalled();
+  });
+
+  it('falls back to polling when the event stream closes', async () => {
+    vi.mocked(api.getCurrentTime).mockResolvedValue(mockTime);
+    const unsubscribe = vi.fn();
+    vi.mocked(api.subscribeToTime).mockImplementation((_onTime, onError) => {
+      setTimeout(onError, 0);
+      return unsubscribe;
+    });
+
+    render(<RealTimeClock />);
+
+    await waitFor(() => {
+      expect(api.getCurrentTime).toHaveBeenCalledTimes(1);
+    });
+    expect(unsubscribe).toHaveBeenCalled();
+  });
+
+  it('closes the event stream on unmount', () => {
+    const unsubscribe = vi.fn();
+    vi.mocked(api.subscribeToTime).mockReturnValue(unsubscribe);
+
+    const { unmount } = render(<RealTimeClock />);
+    unmount();
+
+    expect(unsubscribe).toHaveBeenCalled();
+  });
+});
@@ -9,6 +9,8 @@ export const RealTimeClock: React.FC = () => {
   const [error, setError] = useState<string>('');
 
   useEffect(() => {
+    let interval: ReturnType<typeof setInterval> | undefined;
+
     const fetchTime = async () => {
       try {
         const currentTime = await api.getCurrentTime();
@@ -20,13 +22,33 @@ export const RealTimeClock: React.FC = () => {
       }
     };
 
-    // Fetch immediately
-    fetchTime();
+    const startPolling = () => {
+      if (interval) return;
+      // Fetch immediately, then every second
+      fetchTime();
+      interval = setInterval(fetchTime, 1000);
+    };
+
+    // Prefer the server-pushed stream; poll only if it is unavailable or closed
+    const unsubscribe = api.subscribeToTime(
+      (currentTime) => {
+        setTime(currentTime);
+        setError('');
+      },
+      () => {
+        unsubscribe?.();
+        startPolling();
+      },
+    );
 
-    // Then fetch every second
-    const interval = setInterval(fetchTime, 1000);
+    if (!unsubscribe) {
+      startPolling();
+    }
 
-    return () => clearInterval(interval);
+    return () => {
+      unsubscribe?.();
+      if (interval) clearInterval(interval);
+    };
   }, []);
 
   if (error) {
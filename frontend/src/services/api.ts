@@ -9,6 +9,27 @@ export const api = {
     return response.json();
   },
 
+  /**
+   * Subscribes to the server's once-per-second time stream.
+   * Returns an unsubscribe function, or null when the browser has no EventSource.
+   * onError is called only when the stream is closed for good; transient drops are
+   * retried by EventSource itself.
+   */
+  subscribeToTime: (
+    onTime: (time: BerlinClockTime) => void,
+    onError: () => void,
+  ): (() => void) | null => {
+    if (typeof EventSource === 'undefined') return null;
+    const source = new EventSource(`${API_BASE}/time/stream`);
+    source.addEventListener('time', (event) => {
+      onTime(JSON.parse((event as MessageEvent<string>).data));
+    });
+    source.onerror = () => {
+      if (source.readyState === EventSource.CLOSED) onError();
+    };
+    return () => source.close();
+  },
+
   convertTime: async (time: string): Promise<BerlinClockTime> => {
     const response = await fetch(`${API_BASE}/time/convert?time=${encodeURIComponent(time)}`);
     if (!response.ok) throw new Error('Failed to convert time');